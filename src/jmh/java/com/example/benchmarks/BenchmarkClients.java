@@ -0,0 +1,103 @@
+package com.example.benchmarks;
+
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * In-process InfluxDBClient stubs for benchmarks
+ * Writes are serialized to line protocol like the real client does, then discarded after counting bytes
+ * Queries return generated rows shaped like the tutorial's temperature table
+ */
+public final class BenchmarkClients {
+
+    private BenchmarkClients() {
+    }
+
+    /**
+     * @param requestLatencyNanos simulated round trip paid once per write request
+     * @param queryRows           number of rows returned by every query
+     */
+    public static InfluxDBClient stub(long requestLatencyNanos, int queryRows, AtomicLong bytesWritten) {
+        InvocationHandler handler = new StubHandler(requestLatencyNanos, queryRows, bytesWritten);
+        return (InfluxDBClient) Proxy.newProxyInstance(
+                InfluxDBClient.class.getClassLoader(), new Class<?>[]{InfluxDBClient.class}, handler);
+    }
+
+    /**
+     * Row layout: time, sensor_id, location, value
+     */
+    public static Stream<Object[]> temperatureRows(int rows) {
+        LocalDateTime start = LocalDateTime.of(2024, 5, 1, 10, 0);
+        return IntStream.range(0, rows).mapToObj(i -> new Object[]{
+                start.plusNanos(i * 1_000_000L),
+                "TH" + (i % 64),
+                (i & 1) == 0 ? "warehouse" : "office",
+                20.0 + (i % 100) / 10.0
+        });
+    }
+
+    private static final class StubHandler implements InvocationHandler {
+
+        private final long requestLatencyNanos;
+        private final int queryRows;
+        private final AtomicLong bytesWritten;
+
+        StubHandler(long requestLatencyNanos, int queryRows, AtomicLong bytesWritten) {
+            this.requestLatencyNanos = requestLatencyNanos;
+            this.queryRows = queryRows;
+            this.bytesWritten = bytesWritten;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "writePoint":
+                    send(((Point) args[0]).toLineProtocol().length());
+                    return null;
+                case "writePoints":
+                    long size = 0;
+                    for (Point point : (List<Point>) args[0]) {
+                        size += point.toLineProtocol().length() + 1;
+                    }
+                    send(size);
+                    return null;
+                case "writeRecord":
+                    send(((String) args[0]).length());
+                    return null;
+                case "writeRecords":
+                    send(((List<String>) args[0]).stream().mapToLong(String::length).sum());
+                    return null;
+                case "query":
+                    return temperatureRows(queryRows);
+                case "close":
+                    return null;
+                case "toString":
+                    return "BenchmarkClient";
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+
+        private void send(long bytes) {
+            bytesWritten.addAndGet(bytes);
+            if (requestLatencyNanos > 0) {
+                LockSupport.parkNanos(requestLatencyNanos);
+            }
+        }
+    }
+}
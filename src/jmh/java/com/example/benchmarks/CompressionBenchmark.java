@@ -0,0 +1,118 @@
+package com.example.benchmarks;
+
+import com.example.service.LineProtocolEncoder;
+import com.example.service.WriteCompression;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CPU cost vs. bytes saved of gzipping write payloads of different batch sizes and deflate levels
+ * WriteCompression with pooled, reused buffers vs. a fresh GZIPOutputStream per request, as the client
+ * library does, vs. sending the payload uncompressed (UTF-8 encoding only)
+ * The rawBytes and sentBytes counters give the compression ratio; run with "-prof gc" for allocation per request
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int batchSize;
+
+    @Param({"1", "6", "9"})
+    public int level;
+
+    private String payload;
+    private WriteCompression reused;
+    private WriteCompression never;
+
+    /**
+     * Bytes per operation before and after compression, reported next to the timings
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Bytes {
+
+        public long rawBytes;
+        public long sentBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rawBytes = 0;
+            sentBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        LineProtocolEncoder encoder = new LineProtocolEncoder();
+        long baseTimestamp = 1_714_558_530_000_000_000L;
+        for (int i = 0; i < batchSize; i++) {
+            encoder.measurement("temperature")
+                    .tag("location", i % 2 == 0 ? "warehouse" : "office")
+                    .tag("sensor_id", "TH" + (i % 64))
+                    .field("value", 20.0 + (i % 100) / 10.0)
+                    .timestamp(baseTimestamp + i * 1_000_000_000L);
+        }
+        payload = encoder.toString();
+        reused = new WriteCompression(0, level);
+        never = new WriteCompression(Integer.MAX_VALUE, level);
+    }
+
+    @Benchmark
+    public int reusedDeflater(Bytes bytes) {
+        try (WriteCompression.Payload encoded = reused.encode(payload)) {
+            bytes.rawBytes += encoded.rawLength();
+            bytes.sentBytes += encoded.length();
+            return encoded.length();
+        }
+    }
+
+    @Benchmark
+    public int gzipPerRequest(Bytes bytes) {
+        byte[] raw = payload.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        bytes.rawBytes += raw.length;
+        bytes.sentBytes += compressed.size();
+        return compressed.size();
+    }
+
+    @Benchmark
+    public int uncompressed(Bytes bytes) {
+        try (WriteCompression.Payload encoded = never.encode(payload)) {
+            bytes.rawBytes += encoded.rawLength();
+            bytes.sentBytes += encoded.length();
+            return encoded.length();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.benchmarks;
+
+import com.example.service.BatchingWriter;
+import com.example.service.StripedIngestBuffer;
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+import com.influxdb.v3.client.write.WritePrecision;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Producer throughput of the striped ingest buffer vs. the single-queue BatchingWriter at 1, 8 and 64
+ * producer threads, against a stub client without latency, so the flushers are never the bottleneck
+ * Both block producers when full; the striped buffer takes pre-encoded line protocol, BatchingWriter
+ * takes points and encodes them on its flusher thread
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IngestContentionBenchmark {
+
+    private static final int SERIES = 1_024;
+
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private InfluxDBClient client;
+    private StripedIngestBuffer stripedBuffer;
+    private BatchingWriter batchingWriter;
+    private String[] lines;
+    private Point[] points;
+
+    /**
+     * Each producer thread walks the series from its own offset
+     */
+    @State(Scope.Thread)
+    public static class Producer {
+
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = (int) (Thread.currentThread().threadId() * 31) & (SERIES - 1);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        client = BenchmarkClients.stub(0, 0, bytesWritten);
+        stripedBuffer = new StripedIngestBuffer(client, StripedIngestBuffer.Overflow.BLOCK, null);
+        batchingWriter = new BatchingWriter(client, 5_000, 1024 * 1024, Duration.ofMillis(50),
+                50_000, Duration.ofSeconds(5));
+
+        lines = new String[SERIES];
+        points = new Point[SERIES];
+        for (int i = 0; i < SERIES; i++) {
+            points[i] = Point.measurement("temperature")
+                    .setTag("location", (i & 1) == 0 ? "warehouse" : "office")
+                    .setTag("sensor_id", "TH" + i)
+                    .setField("value", 20.0 + (i % 100) / 10.0)
+                    .setTimestamp(1_714_558_530_000_000_000L + i, WritePrecision.NS);
+            lines[i] = points[i].toLineProtocol();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        stripedBuffer.close();
+        batchingWriter.close();
+        client.close();
+    }
+
+    private boolean offer(Producer producer) {
+        return stripedBuffer.offer(lines[producer.next++ & (SERIES - 1)]);
+    }
+
+    private boolean write(Producer producer) throws InterruptedException {
+        return batchingWriter.write(points[producer.next++ & (SERIES - 1)]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean stripedBuffer1(Producer producer) {
+        return offer(producer);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean stripedBuffer8(Producer producer) {
+        return offer(producer);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean stripedBuffer64(Producer producer) {
+        return offer(producer);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean batchingWriter1(Producer producer) throws InterruptedException {
+        return write(producer);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean batchingWriter8(Producer producer) throws InterruptedException {
+        return write(producer);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean batchingWriter64(Producer producer) throws InterruptedException {
+        return write(producer);
+    }
+}
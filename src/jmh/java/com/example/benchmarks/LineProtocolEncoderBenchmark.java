@@ -0,0 +1,98 @@
+package com.example.benchmarks;
+
+import com.example.service.LineProtocolEncoder;
+import com.example.service.SeriesRegistry;
+import com.influxdb.v3.client.Point;
+import com.influxdb.v3.client.write.WritePrecision;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes a batch of sensor readings with LineProtocolEncoder, with and without SeriesRegistry prefixes,
+ * vs. Point + toLineProtocol()
+ * Run with "-prof gc" to compare the allocation rate per point
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LineProtocolEncoderBenchmark {
+
+    @Param({"1", "100", "5000"})
+    public int batchSize;
+
+    private String[] sensorIds;
+    private double[] values;
+    private long baseTimestamp;
+    private LineProtocolEncoder encoder;
+    private SeriesRegistry registry;
+    private int[] seriesIds;
+
+    @Setup
+    public void setUp() {
+        sensorIds = new String[batchSize];
+        values = new double[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            sensorIds[i] = "TH" + (i % 64);
+            values[i] = 20.0 + (i % 100) / 10.0;
+        }
+        baseTimestamp = 1_714_558_530_000_000_000L;
+        encoder = new LineProtocolEncoder();
+
+        registry = new SeriesRegistry();
+        seriesIds = new int[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            seriesIds[i] = registry.register("temperature", "location", "warehouse", "sensor_id", sensorIds[i]);
+        }
+    }
+
+    @Benchmark
+    public int encoder() {
+        encoder.reset();
+        for (int i = 0; i < batchSize; i++) {
+            encoder.measurement("temperature")
+                    .tag("location", "warehouse")
+                    .tag("sensor_id", sensorIds[i])
+                    .field("value", values[i])
+                    .timestamp(baseTimestamp + i);
+        }
+        return encoder.length();
+    }
+
+    @Benchmark
+    public int encoderWithSeriesRegistry() {
+        encoder.reset();
+        for (int i = 0; i < batchSize; i++) {
+            encoder.series(registry, seriesIds[i])
+                    .field("value", values[i])
+                    .timestamp(baseTimestamp + i);
+        }
+        return encoder.length();
+    }
+
+    @Benchmark
+    public void pointToLineProtocol(Blackhole blackhole) {
+        for (int i = 0; i < batchSize; i++) {
+            Point point = Point.measurement("temperature")
+                    .setTag("location", "warehouse")
+                    .setTag("sensor_id", sensorIds[i])
+                    .setField("value", values[i])
+                    .setTimestamp(baseTimestamp + i, WritePrecision.NS);
+            blackhole.consume(point.toLineProtocol());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.benchmarks;
+
+import com.influxdb.v3.client.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building one reading as a Point vs. building its line protocol string by hand,
+ * mirroring writeUsingPointAPI() and writeUsingLineProtocol()
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PointConstructionBenchmark {
+
+    public String sensorId = "TH01";
+    public String location = "warehouse";
+    public double value = 23.2;
+
+    @Benchmark
+    public Point pointBuilder() {
+        return Point.measurement("temperature")
+                .setTag("sensor_id", sensorId)
+                .setTag("location", location)
+                .setField("value", value)
+                .setTimestamp(Instant.now());
+    }
+
+    @Benchmark
+    public String pointToLineProtocol() {
+        return pointBuilder().toLineProtocol();
+    }
+
+    @Benchmark
+    public String stringConcatenation() {
+        return "temperature,sensor_id=" + sensorId + ",location=" + location + " value=" + value;
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        return String.format("temperature,sensor_id=%s,location=%s value=%s", sensorId, location, value);
+    }
+}
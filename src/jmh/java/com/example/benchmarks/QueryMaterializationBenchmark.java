@@ -0,0 +1,77 @@
+package com.example.benchmarks;
+
+import com.influxdb.v3.client.InfluxDBClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Consumes the Stream<Object[]> returned by client.query() in the ways InfluxDBService does:
+ * draining it, collecting rows, unboxing values and formatting each row for printing
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QueryMaterializationBenchmark {
+
+    private static final String QUERY = "SELECT time, sensor_id, location, value FROM temperature";
+
+    @Param({"100", "100000"})
+    public int rows;
+
+    private InfluxDBClient client;
+
+    @Setup
+    public void setUp() {
+        client = BenchmarkClients.stub(0, rows, new AtomicLong());
+    }
+
+    @Benchmark
+    public long drainStream() {
+        try (Stream<Object[]> stream = client.query(QUERY)) {
+            return stream.count();
+        }
+    }
+
+    @Benchmark
+    public List<Object[]> collectRows() {
+        try (Stream<Object[]> stream = client.query(QUERY)) {
+            return stream.collect(Collectors.toList());
+        }
+    }
+
+    @Benchmark
+    public double sumValues() {
+        try (Stream<Object[]> stream = client.query(QUERY)) {
+            return stream.mapToDouble(row -> ((Number) row[3]).doubleValue()).sum();
+        }
+    }
+
+    @Benchmark
+    public void formatRows(Blackhole blackhole) {
+        try (Stream<Object[]> stream = client.query(QUERY)) {
+            stream.forEach(row -> {
+                String time = row[0] != null ? row[0].toString().substring(11, 19) : "null";
+                blackhole.consume(String.format("%s | %s | %s | %.1f°C", time, row[1], row[2], row[3]));
+            });
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.benchmarks;
+
+import com.example.service.BatchingWriter;
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+import com.influxdb.v3.client.write.WritePrecision;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the same set of points one request per point, as one writePoints() call,
+ * and through BatchingWriter, against a stub client with a simulated round trip
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WriteBenchmark {
+
+    @Param({"10", "1000"})
+    public int points;
+
+    @Param({"0", "200000"})
+    public long requestLatencyNanos;
+
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private InfluxDBClient client;
+    private BatchingWriter batchingWriter;
+    private List<Point> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        client = BenchmarkClients.stub(requestLatencyNanos, 0, bytesWritten);
+        batchingWriter = new BatchingWriter(client, 5_000, 1024 * 1024, Duration.ofMillis(50),
+                50_000, Duration.ofSeconds(5));
+
+        batch = new ArrayList<>(points);
+        for (int i = 0; i < points; i++) {
+            batch.add(Point.measurement("temperature")
+                    .setTag("location", (i & 1) == 0 ? "warehouse" : "office")
+                    .setTag("sensor_id", "TH" + (i % 64))
+                    .setField("value", 20.0 + (i % 100) / 10.0)
+                    .setTimestamp(1_714_558_530_000_000_000L + i, WritePrecision.NS));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        batchingWriter.close();
+        client.close();
+    }
+
+    @Benchmark
+    public void singleWritePoint() {
+        for (Point point : batch) {
+            client.writePoint(point);
+        }
+    }
+
+    @Benchmark
+    public void batchedWritePoints() {
+        client.writePoints(batch);
+    }
+
+    @Benchmark
+    public void batchingWriter() throws InterruptedException {
+        batchingWriter.writeAll(batch);
+        batchingWriter.flush();
+    }
+}
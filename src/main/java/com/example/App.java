@@ -1,8 +1,32 @@
 package com.example;
 
 import com.example.config.ConfigurationManager;
+import com.example.config.ConfigurationWatcher;
+import com.example.config.PerformanceSettings;
+import com.example.service.AdaptiveFlushController;
+import com.example.service.BatchingWriter;
+import com.example.service.CircuitBreaker;
+import com.example.service.ClientMetrics;
+import com.example.service.ClientPool;
+import com.example.service.CompressingWriteClient;
 import com.example.service.InfluxDBService;
+import com.example.service.InstrumentedClient;
+import com.example.service.JmxMetricsExporter;
+import com.example.service.ParallelQueryExecutor;
+import com.example.service.ResilientClient;
+import com.example.service.SpillBuffer;
+import com.example.service.SpillReplayer;
+import com.example.service.WriteCompression;
 import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.config.ClientConfig;
+
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 /**
  Main orchestrator
@@ -18,18 +42,70 @@ public class App {
             ConfigurationManager config = new ConfigurationManager();
             config.loadConfiguration();
 
-            // Create InfluxDB client
-            try (InfluxDBClient client = InfluxDBClient.getInstance(
-                    config.getHost(),
-                    config.getToken(),
-                    config.getDatabase())) {
+            // Create one long-lived client per configured host; every call is timed and counted
+            ClientMetrics metrics = new ClientMetrics();
+            List<ClientPool.Endpoint> endpoints = config.getHosts().stream()
+                    .map(host -> new ClientPool.Endpoint(host, config.getDatabase()))
+                    .toList();
+            ClientPool.Routing routing = ClientPool.Routing.valueOf(config.getRouting().toUpperCase(Locale.ROOT));
+            PerformanceSettings performance = config.getPerformanceSettings();
+            WriteCompression compression = config.getGzipLevel() > 0
+                    ? new WriteCompression(performance.gzipThreshold(), config.getGzipLevel())
+                    : null;
+
+            // Retries, hedged queries and a circuit breaker per endpoint, outside the metrics so every attempt counts
+            ResilientClient.Policy resilience = new ResilientClient.Policy(config.getRetryAttempts(),
+                    ResilientClient.DEFAULT_BASE_BACKOFF, ResilientClient.DEFAULT_MAX_BACKOFF,
+                    config.isQueryHedgingEnabled(), ResilientClient.DEFAULT_LATENCY_WINDOW,
+                    config.getBreakerFailures(), CircuitBreaker.DEFAULT_OPEN_DURATION);
+            List<ResilientClient> resilientClients = new ArrayList<>();
+
+            try (ClientPool pool = new ClientPool(endpoints, endpoint -> {
+                        ResilientClient resilient = new ResilientClient(
+                                InstrumentedClient.wrap(newClient(config, endpoint, compression), metrics),
+                                endpoint.host(), resilience);
+                        resilientClients.add(resilient);
+                        return resilient.client();
+                    },
+                    routing, ClientPool.QUERY_PROBE, ClientPool.DEFAULT_PROBE_INTERVAL);
+                 InfluxDBClient client = pool.asClient(config.getDatabase());
+                 JmxMetricsExporter jmxExporter = openJmxExporter(config, metrics);
+                 SpillBuffer spillBuffer = openSpillBuffer(config);
+                 SpillReplayer replayer = spillBuffer != null ? new SpillReplayer(spillBuffer, client).start() : null;
+                 InfluxDBService service = new InfluxDBService(client, newBatchingWriter(config, client),
+                         new ParallelQueryExecutor(performance.concurrency(), ParallelQueryExecutor.DEFAULT_DEADLINE));
+                 ConfigurationWatcher watcher = openConfigurationWatcher(config, service)) {
 
                 System.out.println("Connected to InfluxDB 3 successfully!");
-                System.out.println("Host: " + config.getHost());
-                System.out.println("Database: " + config.getDatabase());
+                System.out.println("Host: " + String.join(", ", config.getHosts())
+                        + (endpoints.size() > 1 ? " (" + routing + ")" : ""));
+                System.out.println("Database: " + config.getDatabase() + " (profile " + config.getProfile() + ")");
+                if (watcher != null) {
+                    System.out.println("Watching " + config.getConfigFile() + " for performance settings");
+                }
+
+                if (spillBuffer != null) {
+                    service.setSpillBuffer(spillBuffer);
+                    System.out.println("Spill directory: " + spillBuffer.getDirectory()
+                            + " (" + spillBuffer.pendingBytes() + " bytes pending replay)");
+                }
+
+                if (config.getImportFile() != null) {
+                    System.out.println("\nImporting " + config.getImportFile());
+                    System.out.println("Imported " + service.importFile(Path.of(config.getImportFile())));
+                }
 
-                // Create service and execute operations
-                InfluxDBService service = new InfluxDBService(client);
+                if (config.getHotWindowMinutes() > 0) {
+                    service.enableHotWindow(Duration.ofMinutes(config.getHotWindowMinutes()),
+                            config.getHotWindowMegabytes() * 1024 * 1024);
+                    System.out.println("Hot window: last " + config.getHotWindowMinutes() + " minutes in up to "
+                            + config.getHotWindowMegabytes() + " MB off-heap");
+                }
+
+                if (config.getLastValueWarmupMinutes() > 0) {
+                    int series = service.warmLastValues(Duration.ofMinutes(config.getLastValueWarmupMinutes()));
+                    System.out.println("Last-value cache warmed with " + series + " series");
+                }
 
                 // Write sample data
                 service.writeSampleData();
@@ -37,6 +113,21 @@ public class App {
                 // Query sample data
                 service.querySampleData();
 
+                if (config.getExportDirectory() != null) {
+                    System.out.println("\nExporting " + config.getExportQuery() + " to " + config.getExportDirectory());
+                    System.out.println("Exported " + service.exportQuery(config.getExportQuery(),
+                            Path.of(config.getExportDirectory()), "export"));
+                }
+
+                System.out.println("\nClient metrics:" + metrics.snapshot());
+                if (compression != null) {
+                    System.out.println("Write compression: " + compression);
+                }
+                System.out.println("Endpoints: " + pool.status());
+                resilientClients.forEach(resilient -> System.out.println("Resilience: " + resilient));
+                if (service.getBatchingWriter().getController() != null) {
+                    System.out.println("Adaptive batching: " + service.getBatchingWriter().getController());
+                }
                 System.out.println("Tutorial completed successfully!");
             }
 
@@ -45,4 +136,74 @@ public class App {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Creates the client of one endpoint; writes are compressed by the given policy unless it is null
+     */
+    private static InfluxDBClient newClient(ConfigurationManager config, ClientPool.Endpoint endpoint,
+                                            WriteCompression compression) {
+        PerformanceSettings performance = config.getPerformanceSettings();
+        InfluxDBClient client = InfluxDBClient.getInstance(new ClientConfig.Builder()
+                .host(endpoint.host())
+                .token(config.getToken())
+                .database(endpoint.database())
+                .timeout(performance.timeout())
+                .gzipThreshold(performance.gzipThreshold())
+                .build());
+        return compression != null
+                ? CompressingWriteClient.wrap(client, endpoint.host(), endpoint.database(), config.getToken(),
+                        performance.timeout(), compression)
+                : client;
+    }
+
+    /**
+     * Publishes client metrics over JMX if enabled in the configuration
+     */
+    private static JmxMetricsExporter openJmxExporter(ConfigurationManager config, ClientMetrics metrics)
+            throws JMException {
+        return config.isMetricsJmxEnabled() ? new JmxMetricsExporter(metrics, config.getDatabase()) : null;
+    }
+
+    /**
+     * Sizes write batches adaptively if a p99 write latency target is configured
+     */
+    private static BatchingWriter newBatchingWriter(ConfigurationManager config, InfluxDBClient client) {
+        long targetMillis = config.getWriteLatencyTargetMillis();
+        PerformanceSettings performance = config.getPerformanceSettings();
+        return targetMillis > 0
+                ? new BatchingWriter(client, new AdaptiveFlushController(Duration.ofMillis(targetMillis)),
+                        BatchingWriter.DEFAULT_ADAPTIVE_MAX_BATCH_BYTES, performance.linger(),
+                        BatchingWriter.DEFAULT_QUEUE_CAPACITY, BatchingWriter.DEFAULT_ENQUEUE_TIMEOUT)
+                : new BatchingWriter(client, performance.batchPoints(), BatchingWriter.DEFAULT_MAX_BATCH_BYTES,
+                        performance.linger(), BatchingWriter.DEFAULT_QUEUE_CAPACITY,
+                        BatchingWriter.DEFAULT_ENQUEUE_TIMEOUT);
+    }
+
+    /**
+     * Applies changed batch size, linger and query concurrency while running, if the configuration came from a file
+     * Queued and in-flight writes are kept; the new limits apply from the next batch on
+     */
+    private static ConfigurationWatcher openConfigurationWatcher(ConfigurationManager config, InfluxDBService service)
+            throws IOException {
+        if (config.getConfigFile() == null) {
+            return null;
+        }
+        return new ConfigurationWatcher(config, settings -> {
+            BatchingWriter writer = service.getBatchingWriter();
+            if (writer.getController() == null) {
+                writer.setMaxBatchPoints(settings.batchPoints());
+            }
+            writer.setLinger(settings.linger());
+            service.getQueryExecutor().setMaxConcurrency(settings.concurrency());
+            System.out.println("Applied " + settings);
+        });
+    }
+
+    /**
+     * Opens the spill buffer if a spill directory is configured
+     */
+    private static SpillBuffer openSpillBuffer(ConfigurationManager config) throws IOException {
+        String directory = config.getSpillDirectory();
+        return directory != null ? new SpillBuffer(Path.of(directory)) : null;
+    }
 }
\ No newline at end of file
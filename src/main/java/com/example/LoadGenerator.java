@@ -0,0 +1,279 @@
+package com.example;
+
+import com.example.config.ConfigurationManager;
+import com.example.load.JvmUsage;
+import com.example.load.StubInfluxDBServer;
+import com.example.load.SyntheticSeries;
+import com.example.service.BatchingWriter;
+import com.example.service.ClientMetrics;
+import com.example.service.CompressingWriteClient;
+import com.example.service.InfluxDBService;
+import com.example.service.InstrumentedClient;
+import com.example.service.ParallelQueryExecutor;
+import com.example.service.WriteCompression;
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.config.ClientConfig;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Soak test: drives InfluxDBService with synthetic sensor series against an in-process stub server
+ * Compares client settings offline; prints throughput, latency percentiles, GC and allocation rate at the end
+ * Options are given as {@code --name=value}, see {@link Options#parse(String[])}
+ */
+public class LoadGenerator {
+
+    private static final String QUERY = "SELECT time, sensor_id, value FROM temperature "
+            + "WHERE location = 'site-0' ORDER BY time DESC LIMIT 100";
+
+    /**
+     * Load shape, client settings under test and simulated server behaviour
+     */
+    record Options(int series, int pointsPerSecond, Duration duration, int producers, double queriesPerSecond,
+                   int batchPoints, Duration linger, int concurrency, int gzipThreshold, int gzipLevel,
+                   Duration timeout,
+                   StubInfluxDBServer.Behaviour server) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Expected --name=value, got " + arg);
+                }
+                values.put(arg.substring(2, equals), arg.substring(equals + 1).trim());
+            }
+
+            StubInfluxDBServer.Behaviour defaults = StubInfluxDBServer.Behaviour.DEFAULTS;
+            Options options = new Options(
+                    (int) number(values, "series", 10_000),
+                    (int) number(values, "rate", 20_000),
+                    Duration.ofSeconds(number(values, "duration-s", 30)),
+                    (int) number(values, "producers", 2),
+                    decimal(values, "query-rate", 2.0),
+                    (int) number(values, "batch-points", ConfigurationManager.DEFAULT_BATCH_POINTS),
+                    Duration.ofMillis(number(values, "linger-ms", ConfigurationManager.DEFAULT_LINGER_MILLIS)),
+                    (int) number(values, "concurrency", ConfigurationManager.DEFAULT_QUERY_CONCURRENCY),
+                    (int) number(values, "gzip-threshold", ConfigurationManager.DEFAULT_GZIP_THRESHOLD),
+                    (int) number(values, "gzip-level", 0),
+                    Duration.ofMillis(number(values, "timeout-ms", ConfigurationManager.DEFAULT_TIMEOUT_MILLIS)),
+                    new StubInfluxDBServer.Behaviour(
+                            Duration.ofMillis(number(values, "write-latency-ms", defaults.writeLatency().toMillis())),
+                            Duration.ofMillis(number(values, "write-latency-per-1000-ms",
+                                    defaults.writeLatencyPer1000().toMillis())),
+                            Duration.ofMillis(number(values, "query-latency-ms", defaults.queryLatency().toMillis())),
+                            decimal(values, "jitter", defaults.jitter()),
+                            decimal(values, "error-rate", defaults.errorRate()),
+                            (int) number(values, "max-concurrent-writes", defaults.maxConcurrentWrites()),
+                            (int) number(values, "query-rows", defaults.queryRows())));
+
+            if (!values.isEmpty()) {
+                throw new IllegalArgumentException("Unknown options " + values.keySet());
+            }
+            if (options.series < options.producers || options.pointsPerSecond <= 0 || options.producers <= 0
+                    || options.duration.isZero() || options.queriesPerSecond < 0) {
+                throw new IllegalArgumentException("Need positive rate and duration, and at least one series "
+                        + "per producer");
+            }
+            return options;
+        }
+
+        private static long number(Map<String, String> values, String name, long defaultValue) {
+            String value = values.remove(name);
+            return value != null ? Long.parseLong(value) : defaultValue;
+        }
+
+        private static double decimal(Map<String, String> values, String name, double defaultValue) {
+            String value = values.remove(name);
+            return value != null ? Double.parseDouble(value) : defaultValue;
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            Options options = Options.parse(args);
+            System.out.println("Load test: " + options);
+            run(options);
+        } catch (Exception e) {
+            System.err.println("Load test failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    static void run(Options options) throws Exception {
+        ClientMetrics metrics = new ClientMetrics();
+        LongAdder offered = new LongAdder();
+        LongAdder queries = new LongAdder();
+        LongAdder queryErrors = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        WriteCompression compression = options.gzipLevel() > 0
+                ? new WriteCompression(options.gzipThreshold(), options.gzipLevel())
+                : null;
+
+        try (StubInfluxDBServer server = new StubInfluxDBServer(options.server())) {
+            InfluxDBClient client = split(newClient(server.httpUrl(), options, metrics, compression),
+                    newClient(server.flightUrl(), options, metrics, null));
+            BatchingWriter writer = new BatchingWriter(client, options.batchPoints(),
+                    BatchingWriter.DEFAULT_MAX_BATCH_BYTES, options.linger(), BatchingWriter.DEFAULT_QUEUE_CAPACITY,
+                    BatchingWriter.DEFAULT_ENQUEUE_TIMEOUT);
+
+            JvmUsage before = JvmUsage.now();
+            long start = System.nanoTime();
+            long end = start + options.duration().toNanos();
+            long elapsed;
+
+            try (client; InfluxDBService service = new InfluxDBService(client, writer,
+                    new ParallelQueryExecutor(options.concurrency(), ParallelQueryExecutor.DEFAULT_DEADLINE))) {
+
+                List<Thread> threads = new ArrayList<>();
+                int perProducer = options.series() / options.producers();
+                for (int p = 0; p < options.producers(); p++) {
+                    int count = p == options.producers() - 1 ? options.series() - p * perProducer : perProducer;
+                    SyntheticSeries series = new SyntheticSeries(p * perProducer, count, 42);
+                    threads.add(Thread.ofPlatform().daemon().name("influxdb-load-producer-" + p).start(() ->
+                            produce(service, series, options.pointsPerSecond() / (double) options.producers(),
+                                    end, offered)));
+                }
+                if (options.queriesPerSecond() > 0) {
+                    threads.add(Thread.ofPlatform().daemon().name("influxdb-load-queries").start(() ->
+                            query(service, options.queriesPerSecond(), running, queries, queryErrors)));
+                }
+
+                for (int i = 0; i < options.producers(); i++) {
+                    threads.get(i).join();
+                }
+                running.set(false);
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+
+                // Throughput counts until the last queued point was written
+                writer.flush();
+                elapsed = System.nanoTime() - start;
+            }
+            JvmUsage usage = JvmUsage.now().since(before);
+
+            double seconds = elapsed / 1e9;
+            System.out.println("\nLoad test report (" + String.format("%.1f", seconds) + " s)");
+            System.out.println("===========================");
+            System.out.printf("Points: offered=%d, written=%d, dropped=%d, throughput=%.0f points/s%n",
+                    offered.sum(), writer.getPointsFlushed(), writer.getPointsDropped(),
+                    writer.getPointsFlushed() / seconds);
+            System.out.printf("Queries: run=%d, failed=%d, %.1f queries/s%n",
+                    queries.sum(), queryErrors.sum(), queries.sum() / seconds);
+            System.out.printf("Server: write requests=%d, points=%d, bytes=%d (%d on the wire), rejected(429)=%d, "
+                            + "failed(503)=%d%n",
+                    server.getWriteRequests(), server.getPointsReceived(), server.getBytesReceived(),
+                    server.getWireBytesReceived(), server.getRejected(), server.getFailed());
+            System.out.println("Client latency:" + metrics.snapshot());
+            if (compression != null) {
+                System.out.println("Write compression: " + compression);
+            }
+            System.out.printf("GC: collections=%d, time=%d ms (%.1f%% of wall time)%n",
+                    usage.gcCount(), usage.gcMillis(), usage.gcMillis() / 10.0 / seconds);
+            if (usage.allocatedBytes() >= 0) {
+                System.out.printf("Allocation: %.1f MB/s, %.0f bytes per point offered%n",
+                        usage.allocatedBytes() / 1e6 / seconds,
+                        offered.sum() > 0 ? (double) usage.allocatedBytes() / offered.sum() : 0.0);
+            }
+        }
+    }
+
+    private static InfluxDBClient newClient(String host, Options options, ClientMetrics metrics,
+                                            WriteCompression compression) {
+        char[] token = "load-test".toCharArray();
+        InfluxDBClient client = InfluxDBClient.getInstance(new ClientConfig.Builder()
+                .host(host)
+                .token(token)
+                .database("load")
+                .timeout(options.timeout())
+                .gzipThreshold(options.gzipThreshold())
+                .build());
+        if (compression != null) {
+            client = CompressingWriteClient.wrap(client, host, "load", token, options.timeout(), compression);
+        }
+        return InstrumentedClient.wrap(client, metrics);
+    }
+
+    /**
+     * Writes readings at a fixed rate until the deadline; a producer that falls behind catches up without sleeping
+     */
+    private static void produce(InfluxDBService service, SyntheticSeries series, double pointsPerSecond, long end,
+                                LongAdder offered) {
+        long interval = (long) (1e9 / pointsPerSecond);
+        long next = System.nanoTime();
+        try {
+            while (next < end) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                service.write(series.next(System.currentTimeMillis() * 1_000_000L));
+                offered.increment();
+                next += interval;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void query(InfluxDBService service, double queriesPerSecond, AtomicBoolean running,
+                              LongAdder queries, LongAdder errors) {
+        long interval = (long) (1e9 / queriesPerSecond);
+        long next = System.nanoTime();
+        while (running.get()) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(Math.min(wait, 100_000_000L));
+                continue;
+            }
+            try {
+                service.queryColumnar(QUERY);
+            } catch (RuntimeException e) {
+                errors.increment();
+            }
+            queries.increment();
+            next += interval;
+        }
+    }
+
+    /**
+     * Sends writes to one client and queries to the other, as the stub serves HTTP and Flight on separate ports
+     */
+    private static InfluxDBClient split(InfluxDBClient writes, InfluxDBClient queries) {
+        return (InfluxDBClient) Proxy.newProxyInstance(InfluxDBClient.class.getClassLoader(),
+                new Class<?>[]{InfluxDBClient.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "toString" -> "Split(" + writes + ", " + queries + ")";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "close" -> {
+                        try {
+                            writes.close();
+                        } finally {
+                            queries.close();
+                        }
+                        yield null;
+                    }
+                    default -> invoke(method.getName().startsWith("query") ? queries : writes, method, args);
+                });
+    }
+
+    private static Object invoke(InfluxDBClient target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -2,22 +2,81 @@ package com.example.config;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
  * Manages application configuration from properties file
+ * A key is looked up as a system property, then as an environment variable, then as
+ * {@code <profile>.KEY} for the profile named by INFLUXDB_PROFILE, and finally as KEY in the file
  */
 public class ConfigurationManager {
 
+    public static final String DEFAULT_PROFILE = "default";
+    public static final int DEFAULT_BATCH_POINTS = 5_000;
+    public static final long DEFAULT_LINGER_MILLIS = 100;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+    public static final int DEFAULT_GZIP_THRESHOLD = 1_000;
+    public static final int DEFAULT_QUERY_CONCURRENCY = 8;
+    public static final long DEFAULT_HOT_WINDOW_MB = 64;
+    public static final int DEFAULT_RETRY_ATTEMPTS = 3;
+    public static final int DEFAULT_BREAKER_FAILURES = 5;
+    public static final String DEFAULT_EXPORT_QUERY = "SELECT * FROM temperature";
+
+    private final Map<String, String> environment;
+    private final Properties systemProperties;
+
+    private Path configFile;
+    private String profile;
     private String host;
+    private List<String> hosts;
+    private String routing;
     private String database;
     private char[] token;
+    private String spillDirectory;
+    private boolean metricsJmxEnabled;
+    private long writeLatencyTargetMillis;
+    private String importFile;
+    private String exportDirectory;
+    private String exportQuery;
+    private long lastValueWarmupMinutes;
+    private int gzipLevel;
+    private long hotWindowMinutes;
+    private long hotWindowMegabytes;
+    private int retryAttempts;
+    private boolean queryHedgingEnabled;
+    private int breakerFailures;
+    private PerformanceSettings performanceSettings;
+
+    public ConfigurationManager() {
+        this(System.getenv(), System.getProperties());
+    }
+
+    /**
+     * @param environment      environment variables overriding the file
+     * @param systemProperties system properties overriding both
+     */
+    ConfigurationManager(Map<String, String> environment, Properties systemProperties) {
+        this.environment = environment;
+        this.systemProperties = systemProperties;
+    }
 
     /**
      * Loads configuration from application.properties file
+     * The file named by INFLUXDB_CONFIG_FILE, as system property or environment variable, is read instead
+     * of the classpath resource if set; only such a file can be watched for changes
      */
     public void loadConfiguration() throws IOException {
-        Properties props = new Properties();
+        String file = override("INFLUXDB_CONFIG_FILE");
+        if (file != null && !file.trim().isEmpty()) {
+            loadConfiguration(Path.of(file.trim()));
+            return;
+        }
 
         try (InputStream input = ConfigurationManager.class.getClassLoader()
                 .getResourceAsStream("application.properties")) {
@@ -26,29 +85,170 @@ public class ConfigurationManager {
                 throw new IOException("Unable to find application.properties file");
             }
 
-            props.load(input);
-
-            // Extract configuration values
-            host = props.getProperty("INFLUXDB_HOST");
-            database = props.getProperty("INFLUXDB_DATABASE");
-            String tokenString = props.getProperty("INFLUXDB_TOKEN");
-
-            // Validate required properties
-            validateProperty(host, "INFLUXDB_HOST");
-            validateProperty(database, "INFLUXDB_DATABASE");
-            validateProperty(tokenString, "INFLUXDB_TOKEN");
+            load(input);
 
-            // Convert token to char array for security
-            token = tokenString.toCharArray();
-
-            System.out.println("Configuration loaded successfully");
+        } catch (IOException e) {
+            System.err.println("Failed to load configuration: " + e.getMessage());
+            throw e;
+        }
+    }
 
+    /**
+     * Loads configuration from a properties file on disk
+     */
+    public void loadConfiguration(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            load(input);
+            configFile = file;
         } catch (IOException e) {
             System.err.println("Failed to load configuration: " + e.getMessage());
             throw e;
         }
     }
 
+    /**
+     * A new manager with the same overrides, loaded again from the same file
+     */
+    ConfigurationManager reload() throws IOException {
+        if (configFile == null) {
+            throw new IllegalStateException("Configuration was not loaded from a file");
+        }
+        ConfigurationManager reloaded = new ConfigurationManager(environment, systemProperties);
+        reloaded.loadConfiguration(configFile);
+        return reloaded;
+    }
+
+    private void load(InputStream input) throws IOException {
+        Properties props = new Properties();
+        props.load(input);
+
+        // Profile-specific keys are prefixed with the profile name, e.g. staging.INFLUXDB_HOST
+        String selected = override("INFLUXDB_PROFILE");
+        if (selected == null) {
+            selected = props.getProperty("INFLUXDB_PROFILE", DEFAULT_PROFILE);
+        }
+        profile = selected.trim();
+        if (!profile.equals(DEFAULT_PROFILE) && props.stringPropertyNames().stream()
+                .noneMatch(key -> key.startsWith(profile + "."))) {
+            throw new IllegalArgumentException("Profile " + profile + " has no keys in application.properties");
+        }
+
+        // Extract configuration values
+        host = property(props, "INFLUXDB_HOST");
+        database = property(props, "INFLUXDB_DATABASE");
+        String tokenString = property(props, "INFLUXDB_TOKEN");
+
+        // Optional: directory for writes that fail while the server is unreachable
+        spillDirectory = property(props, "INFLUXDB_SPILL_DIR");
+        if (spillDirectory != null && spillDirectory.trim().isEmpty()) {
+            spillDirectory = null;
+        }
+
+        // Optional: publish client metrics over JMX
+        metricsJmxEnabled = Boolean.parseBoolean(property(props, "INFLUXDB_METRICS_JMX", "false"));
+
+        // Optional: p99 write latency target that enables adaptive batch sizing
+        writeLatencyTargetMillis = Long.parseLong(property(props, "INFLUXDB_WRITE_P99_TARGET_MS", "0"));
+
+        // Optional: line protocol or CSV file to bulk-import before the samples run
+        importFile = property(props, "INFLUXDB_IMPORT_FILE");
+        if (importFile != null && importFile.trim().isEmpty()) {
+            importFile = null;
+        }
+
+        // Optional: directory to export the result of INFLUXDB_EXPORT_QUERY to as Arrow IPC files after the samples run
+        exportDirectory = property(props, "INFLUXDB_EXPORT_DIR");
+        if (exportDirectory != null && exportDirectory.trim().isEmpty()) {
+            exportDirectory = null;
+        }
+        exportQuery = property(props, "INFLUXDB_EXPORT_QUERY", DEFAULT_EXPORT_QUERY);
+
+        // Optional: lookback of the startup query that warms the last-value cache; 0 skips it
+        lastValueWarmupMinutes = Long.parseLong(property(props, "INFLUXDB_LAST_VALUE_WARMUP_MINUTES", "0"));
+        if (lastValueWarmupMinutes < 0) {
+            throw new IllegalArgumentException("INFLUXDB_LAST_VALUE_WARMUP_MINUTES must not be negative");
+        }
+
+        // Optional: performance knobs; batch size, linger and concurrency can be retuned while running
+        performanceSettings = new PerformanceSettings(
+                (int) positive(props, "INFLUXDB_BATCH_POINTS", DEFAULT_BATCH_POINTS),
+                Duration.ofMillis(positive(props, "INFLUXDB_BATCH_LINGER_MS", DEFAULT_LINGER_MILLIS)),
+                Duration.ofMillis(positive(props, "INFLUXDB_TIMEOUT_MS", DEFAULT_TIMEOUT_MILLIS)),
+                Integer.parseInt(property(props, "INFLUXDB_GZIP_THRESHOLD", String.valueOf(DEFAULT_GZIP_THRESHOLD))),
+                (int) positive(props, "INFLUXDB_QUERY_CONCURRENCY", DEFAULT_QUERY_CONCURRENCY));
+        if (performanceSettings.gzipThreshold() < 0) {
+            throw new IllegalArgumentException("INFLUXDB_GZIP_THRESHOLD must not be negative");
+        }
+
+        // Optional: 1-9 compresses writes above the gzip threshold with pooled, reused buffers at this level;
+        // 0 leaves compression to the client library
+        gzipLevel = Integer.parseInt(property(props, "INFLUXDB_GZIP_LEVEL", "0"));
+        if (gzipLevel < 0 || gzipLevel > 9) {
+            throw new IllegalArgumentException("INFLUXDB_GZIP_LEVEL must be 0 to 9, got " + gzipLevel);
+        }
+
+        // Optional: keep this many minutes of written samples in an off-heap store for local recent-data reads;
+        // 0 disables it
+        hotWindowMinutes = Long.parseLong(property(props, "INFLUXDB_HOT_WINDOW_MINUTES", "0"));
+        if (hotWindowMinutes < 0) {
+            throw new IllegalArgumentException("INFLUXDB_HOT_WINDOW_MINUTES must not be negative");
+        }
+        hotWindowMegabytes = positive(props, "INFLUXDB_HOT_WINDOW_MB", DEFAULT_HOT_WINDOW_MB);
+
+        // Optional: resilience of every client call; 1 attempt disables retries
+        retryAttempts = (int) positive(props, "INFLUXDB_RETRY_ATTEMPTS", DEFAULT_RETRY_ATTEMPTS);
+        queryHedgingEnabled = Boolean.parseBoolean(property(props, "INFLUXDB_HEDGE_QUERIES", "true"));
+        breakerFailures = (int) positive(props, "INFLUXDB_BREAKER_FAILURES", DEFAULT_BREAKER_FAILURES);
+
+        // Validate required properties
+        validateProperty(host, "INFLUXDB_HOST");
+        validateProperty(database, "INFLUXDB_DATABASE");
+        validateProperty(tokenString, "INFLUXDB_TOKEN");
+
+        // Convert token to char array for security
+        token = tokenString.toCharArray();
+
+        // INFLUXDB_HOST may list several comma-separated endpoints of the same database
+        hosts = Arrays.stream(host.split(","))
+                .map(String::trim)
+                .filter(h -> !h.isEmpty())
+                .toList();
+        validateProperty(hosts.isEmpty() ? null : hosts.get(0), "INFLUXDB_HOST");
+        host = hosts.get(0);
+        routing = property(props, "INFLUXDB_ROUTING", "round_robin");
+
+        System.out.println("Configuration loaded successfully");
+    }
+
+    /**
+     * A system property or environment variable overriding the file, or null
+     */
+    private String override(String key) {
+        String value = systemProperties.getProperty(key);
+        return value != null ? value : environment.get(key);
+    }
+
+    private String property(Properties props, String key) {
+        String value = override(key);
+        if (value == null) {
+            value = props.getProperty(profile + "." + key);
+        }
+        return value != null ? value : props.getProperty(key);
+    }
+
+    private String property(Properties props, String key, String defaultValue) {
+        String value = property(props, key);
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    private long positive(Properties props, String key, long defaultValue) {
+        long value = Long.parseLong(property(props, key, String.valueOf(defaultValue)));
+        if (value <= 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(key + " must be a positive number, got " + value);
+        }
+        return value;
+    }
+
     /**
      * Validates that a property value is not null or empty
      */
@@ -63,6 +263,20 @@ public class ConfigurationManager {
         return host;
     }
 
+    /**
+     * All configured hosts; the first one is also returned by {@link #getHost()}
+     */
+    public List<String> getHosts() {
+        return hosts;
+    }
+
+    /**
+     * How writes are spread over several hosts: round_robin or series_hash
+     */
+    public String getRouting() {
+        return routing;
+    }
+
     public String getDatabase() {
         return database;
     }
@@ -71,12 +285,127 @@ public class ConfigurationManager {
         return token != null ? token.clone() : null;
     }
 
+    public String getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public boolean isMetricsJmxEnabled() {
+        return metricsJmxEnabled;
+    }
+
+    /**
+     * p99 write latency target in milliseconds; 0 keeps batch sizes fixed
+     */
+    public long getWriteLatencyTargetMillis() {
+        return writeLatencyTargetMillis;
+    }
+
+    public String getImportFile() {
+        return importFile;
+    }
+
+    /**
+     * Directory query results are exported to, or null if nothing is exported
+     */
+    public String getExportDirectory() {
+        return exportDirectory;
+    }
+
+    public String getExportQuery() {
+        return exportQuery;
+    }
+
+    /**
+     * How far back the startup query looks for the latest reading of each series; 0 skips the warm-up
+     */
+    public long getLastValueWarmupMinutes() {
+        return lastValueWarmupMinutes;
+    }
+
+    /**
+     * Deflate level of {@code CompressingWriteClient}, 1 to 9; 0 when writes go through the client library
+     */
+    public int getGzipLevel() {
+        return gzipLevel;
+    }
+
+    /**
+     * Retention of the off-heap hot-window store; 0 when it is disabled
+     */
+    public long getHotWindowMinutes() {
+        return hotWindowMinutes;
+    }
+
+    /**
+     * Off-heap memory budget of the hot-window store
+     */
+    public long getHotWindowMegabytes() {
+        return hotWindowMegabytes;
+    }
+
+    /**
+     * Calls per idempotent write or query, including the first
+     */
+    public int getRetryAttempts() {
+        return retryAttempts;
+    }
+
+    /**
+     * Whether queries slower than the recent p95 get a hedged second attempt
+     */
+    public boolean isQueryHedgingEnabled() {
+        return queryHedgingEnabled;
+    }
+
+    /**
+     * Consecutive failures after which calls to an endpoint fail fast for a while
+     */
+    public int getBreakerFailures() {
+        return breakerFailures;
+    }
+
+    /**
+     * Name of the selected profile, {@value #DEFAULT_PROFILE} if none was selected
+     */
+    public String getProfile() {
+        return profile;
+    }
+
+    public PerformanceSettings getPerformanceSettings() {
+        return performanceSettings;
+    }
+
+    /**
+     * File the configuration was loaded from, or null if it came from the classpath
+     */
+    public Path getConfigFile() {
+        return configFile;
+    }
+
     /**
      * Resets configuration
      */
     public void resetConfiguration() {
+        configFile = null;
+        profile = null;
         host = null;
+        hosts = null;
+        routing = null;
         database = null;
         token = null;
+        spillDirectory = null;
+        metricsJmxEnabled = false;
+        writeLatencyTargetMillis = 0;
+        importFile = null;
+        exportDirectory = null;
+        exportQuery = null;
+        lastValueWarmupMinutes = 0;
+        gzipLevel = 0;
+        hotWindowMinutes = 0;
+        hotWindowMegabytes = 0;
+        retryAttempts = 0;
+        queryHedgingEnabled = false;
+        breakerFailures = 0;
+        performanceSettings = null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,206 @@
+package com.example.config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Watches the configuration file and hands changed performance settings to a listener while the app runs
+ * Only batch size, linger and query concurrency are applied live; changes to anything else are reported
+ * as needing a restart. A file that fails to load or validate is ignored, keeping the current settings
+ */
+public final class ConfigurationWatcher implements AutoCloseable {
+
+    // Editors often save in several steps; wait for the file to settle before reading it
+    public static final Duration DEFAULT_SETTLE_TIME = Duration.ofMillis(200);
+
+    private final Path file;
+    private final Consumer<PerformanceSettings> listener;
+    private final long settleNanos;
+    private final WatchService watchService;
+    private final Thread watcher;
+    private ConfigurationManager current;
+
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong failedReloads = new AtomicLong();
+
+    public ConfigurationWatcher(ConfigurationManager config, Consumer<PerformanceSettings> listener)
+            throws IOException {
+        this(config, listener, DEFAULT_SETTLE_TIME);
+    }
+
+    /**
+     * @param config   configuration loaded from a file, see {@link ConfigurationManager#getConfigFile()}
+     * @param listener called on the watcher thread with the new settings whenever one of them changed
+     */
+    public ConfigurationWatcher(ConfigurationManager config, Consumer<PerformanceSettings> listener,
+                                Duration settleTime) throws IOException {
+        if (config.getConfigFile() == null) {
+            throw new IllegalArgumentException("Only configuration loaded from a file can be watched");
+        }
+        this.file = config.getConfigFile().toAbsolutePath();
+        this.current = config;
+        this.listener = listener;
+        this.settleNanos = settleTime.toNanos();
+
+        // The directory is watched, as editors may replace the file instead of writing to it
+        this.watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+
+        this.watcher = new Thread(this::run, "influxdb-config-watcher");
+        this.watcher.setDaemon(true);
+        this.watcher.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                if (!affectsFile(watchService.take())) {
+                    continue;
+                }
+                // Swallow the events of the same save
+                WatchKey more;
+                while ((more = watchService.poll(settleNanos, TimeUnit.NANOSECONDS)) != null) {
+                    affectsFile(more);
+                }
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    private boolean affectsFile(WatchKey key) {
+        boolean affected = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || file.getFileName().equals(event.context())) {
+                affected = true;
+            }
+        }
+        key.reset();
+        return affected;
+    }
+
+    /**
+     * Reads the file now and applies changed settings, as the watcher does after a save
+     *
+     * @return true if the file loaded and validated
+     */
+    public synchronized boolean reload() {
+        ConfigurationManager next;
+        try {
+            next = current.reload();
+        } catch (IOException | RuntimeException e) {
+            failedReloads.incrementAndGet();
+            System.err.println("Configuration reload failed, keeping current settings: " + e.getMessage());
+            return false;
+        }
+
+        PerformanceSettings before = current.getPerformanceSettings();
+        PerformanceSettings after = next.getPerformanceSettings();
+        List<String> restartNeeded = restartOnlyChanges(current, next);
+        if (!restartNeeded.isEmpty()) {
+            System.err.println("Configuration changes to " + String.join(", ", restartNeeded)
+                    + " take effect after a restart");
+        }
+        current = next;
+        reloads.incrementAndGet();
+
+        if (after.batchPoints() != before.batchPoints() || !after.linger().equals(before.linger())
+                || after.concurrency() != before.concurrency()) {
+            try {
+                listener.accept(after);
+            } catch (RuntimeException e) {
+                System.err.println("Applying configuration failed: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private static List<String> restartOnlyChanges(ConfigurationManager before, ConfigurationManager after) {
+        List<String> changed = new ArrayList<>();
+        if (!before.getHosts().equals(after.getHosts())) {
+            changed.add("INFLUXDB_HOST");
+        }
+        if (!before.getDatabase().equals(after.getDatabase())) {
+            changed.add("INFLUXDB_DATABASE");
+        }
+        if (!Arrays.equals(before.getToken(), after.getToken())) {
+            changed.add("INFLUXDB_TOKEN");
+        }
+        if (!before.getRouting().equals(after.getRouting())) {
+            changed.add("INFLUXDB_ROUTING");
+        }
+        if (!Objects.equals(before.getSpillDirectory(), after.getSpillDirectory())) {
+            changed.add("INFLUXDB_SPILL_DIR");
+        }
+        if (before.isMetricsJmxEnabled() != after.isMetricsJmxEnabled()) {
+            changed.add("INFLUXDB_METRICS_JMX");
+        }
+        if (before.getWriteLatencyTargetMillis() != after.getWriteLatencyTargetMillis()) {
+            changed.add("INFLUXDB_WRITE_P99_TARGET_MS");
+        }
+        if (!before.getPerformanceSettings().timeout().equals(after.getPerformanceSettings().timeout())) {
+            changed.add("INFLUXDB_TIMEOUT_MS");
+        }
+        if (before.getPerformanceSettings().gzipThreshold() != after.getPerformanceSettings().gzipThreshold()) {
+            changed.add("INFLUXDB_GZIP_THRESHOLD");
+        }
+        if (before.getGzipLevel() != after.getGzipLevel()) {
+            changed.add("INFLUXDB_GZIP_LEVEL");
+        }
+        if (before.getHotWindowMinutes() != after.getHotWindowMinutes()) {
+            changed.add("INFLUXDB_HOT_WINDOW_MINUTES");
+        }
+        if (before.getHotWindowMegabytes() != after.getHotWindowMegabytes()) {
+            changed.add("INFLUXDB_HOT_WINDOW_MB");
+        }
+        if (before.getRetryAttempts() != after.getRetryAttempts()) {
+            changed.add("INFLUXDB_RETRY_ATTEMPTS");
+        }
+        if (before.isQueryHedgingEnabled() != after.isQueryHedgingEnabled()) {
+            changed.add("INFLUXDB_HEDGE_QUERIES");
+        }
+        if (before.getBreakerFailures() != after.getBreakerFailures()) {
+            changed.add("INFLUXDB_BREAKER_FAILURES");
+        }
+        return changed;
+    }
+
+    /**
+     * Settings as last loaded successfully
+     */
+    public synchronized PerformanceSettings getPerformanceSettings() {
+        return current.getPerformanceSettings();
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        watchService.close();
+        watcher.join();
+    }
+
+    // Counters
+    public long getReloads() {
+        return reloads.get();
+    }
+
+    public long getFailedReloads() {
+        return failedReloads.get();
+    }
+}
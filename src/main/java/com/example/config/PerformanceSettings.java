@@ -0,0 +1,18 @@
+package com.example.config;
+
+import java.time.Duration;
+
+/**
+ * Performance knobs of the clients, the batching writer and the query executor
+ * Batch size, linger and query concurrency can be changed while running; timeout and gzip threshold
+ * apply to clients created afterwards, so they need a restart
+ *
+ * @param batchPoints   points per write batch, unless adaptive batching sizes them
+ * @param linger        longest time a point waits for its batch to fill up
+ * @param timeout       client request timeout
+ * @param gzipThreshold request bodies of at least this many bytes are gzipped
+ * @param concurrency   queries running against the server at once
+ */
+public record PerformanceSettings(int batchPoints, Duration linger, Duration timeout, int gzipThreshold,
+                                  int concurrency) {
+}
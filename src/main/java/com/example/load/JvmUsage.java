@@ -0,0 +1,35 @@
+package com.example.load;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Cumulative GC and allocation counters of this JVM; subtract two samples to get the usage in between
+ *
+ * @param allocatedBytes bytes allocated by all threads, live and finished, or -1 if the JVM does not track it
+ */
+public record JvmUsage(long gcCount, long gcMillis, long allocatedBytes) {
+
+    public static JvmUsage now() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+
+        long allocated = -1;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean hotspot && hotspot.isThreadAllocatedMemorySupported()
+                && hotspot.isThreadAllocatedMemoryEnabled()) {
+            allocated = hotspot.getTotalThreadAllocatedBytes();
+        }
+        return new JvmUsage(count, millis, allocated);
+    }
+
+    public JvmUsage since(JvmUsage start) {
+        return new JvmUsage(gcCount - start.gcCount, gcMillis - start.gcMillis,
+                allocatedBytes < 0 || start.allocatedBytes < 0 ? -1 : allocatedBytes - start.allocatedBytes);
+    }
+}
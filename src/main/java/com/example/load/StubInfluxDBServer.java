@@ -0,0 +1,297 @@
+package com.example.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.arrow.flight.CallStatus;
+import org.apache.arrow.flight.FlightServer;
+import org.apache.arrow.flight.Location;
+import org.apache.arrow.flight.NoOpFlightProducer;
+import org.apache.arrow.flight.Ticket;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.TimeStampNanoVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * In-process stand-in for an InfluxDB 3 server, for load tests that must not touch a real one
+ * Line protocol writes are accepted over HTTP on /api/v2/write and /api/v3/write_lp, queries over Arrow Flight;
+ * both sleep for a simulated latency and fail like an overloaded server: 429 above the concurrent write limit
+ * and 503 at the configured error rate. Written data is counted and discarded; queries return synthetic rows
+ * The client derives its Flight address from the HTTP host, so writes and queries need one client each,
+ * pointed at {@link #httpUrl()} and {@link #flightUrl()}
+ */
+public final class StubInfluxDBServer implements AutoCloseable {
+
+    /**
+     * Simulated server behaviour
+     *
+     * @param writeLatency           fixed latency of a write request
+     * @param writeLatencyPer1000    added latency per 1000 points written
+     * @param queryLatency           latency before the first batch of a query
+     * @param jitter                 exponentially distributed extra latency, as a fraction of the latency
+     * @param errorRate              fraction of requests failed with 503 Service Unavailable
+     * @param maxConcurrentWrites    writes beyond this many in flight are rejected with 429 Too Many Requests
+     * @param queryRows              rows returned by each query
+     */
+    public record Behaviour(Duration writeLatency, Duration writeLatencyPer1000, Duration queryLatency, double jitter,
+                            double errorRate, int maxConcurrentWrites, int queryRows) {
+
+        public static final Behaviour DEFAULTS = new Behaviour(Duration.ofMillis(5), Duration.ofMillis(1),
+                Duration.ofMillis(10), 0.5, 0.0, 16, 100);
+
+        public Behaviour {
+            if (errorRate < 0 || errorRate > 1 || jitter < 0 || maxConcurrentWrites <= 0 || queryRows < 0) {
+                throw new IllegalArgumentException("Invalid stub server behaviour");
+            }
+        }
+    }
+
+    private final Behaviour behaviour;
+    private final HttpServer http;
+    private final ExecutorService httpExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final BufferAllocator allocator = new RootAllocator();
+    private final FlightServer flight;
+
+    private final AtomicInteger concurrentWrites = new AtomicInteger();
+    private final LongAdder writeRequests = new LongAdder();
+    private final LongAdder pointsReceived = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder wireBytesReceived = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public StubInfluxDBServer(Behaviour behaviour) throws IOException {
+        this.behaviour = behaviour;
+
+        // Ephemeral ports, so several servers and test runs never collide
+        this.http = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.http.createContext("/api/", this::handle);
+        this.http.setExecutor(httpExecutor);
+        this.http.start();
+
+        this.flight = FlightServer.builder(allocator, Location.forGrpcInsecure("localhost", 0), new QueryProducer())
+                .build();
+        try {
+            this.flight.start();
+        } catch (IOException e) {
+            http.stop(0);
+            httpExecutor.close();
+            allocator.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Host for the client that writes
+     */
+    public String httpUrl() {
+        return "http://localhost:" + http.getAddress().getPort();
+    }
+
+    /**
+     * Host for the client that queries
+     */
+    public String flightUrl() {
+        return "http://localhost:" + flight.getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if (!"POST".equals(exchange.getRequestMethod())
+                    || !(path.equals("/api/v2/write") || path.equals("/api/v3/write_lp"))) {
+                respond(exchange, 404, "{\"error\":\"not found\"}");
+                return;
+            }
+
+            int inFlight = concurrentWrites.incrementAndGet();
+            try {
+                writeRequests.increment();
+                long points = consume(exchange);
+                if (inFlight > behaviour.maxConcurrentWrites()) {
+                    rejected.increment();
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    respond(exchange, 429, "{\"error\":\"too many concurrent writes\"}");
+                    return;
+                }
+                sleep(behaviour.writeLatency().toNanos() + behaviour.writeLatencyPer1000().toNanos() * points / 1000);
+                if (failNow()) {
+                    failed.increment();
+                    respond(exchange, 503, "{\"error\":\"service unavailable\"}");
+                    return;
+                }
+                pointsReceived.add(points);
+                exchange.sendResponseHeaders(204, -1);
+            } finally {
+                concurrentWrites.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Reads the request body, gunzipping if needed, and counts its lines
+     */
+    private long consume(HttpExchange exchange) throws IOException {
+        InputStream body = new FilterInputStream(exchange.getRequestBody()) {
+            @Override
+            public int read() throws IOException {
+                int read = super.read();
+                if (read >= 0) {
+                    wireBytesReceived.increment();
+                }
+                return read;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    wireBytesReceived.add(read);
+                }
+                return read;
+            }
+        };
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            body = new GZIPInputStream(body);
+        }
+
+        byte[] buffer = new byte[64 * 1024];
+        long lines = 0;
+        long bytes = 0;
+        int last = '\n';
+        int read;
+        while ((read = body.read(buffer)) > 0) {
+            bytes += read;
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n' && last != '\n') {
+                    lines++;
+                }
+                last = buffer[i];
+            }
+        }
+        bytesReceived.add(bytes);
+        return last != '\n' ? lines + 1 : lines;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private boolean failNow() {
+        return behaviour.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < behaviour.errorRate();
+    }
+
+    private void sleep(long latencyNanos) {
+        double jitter = behaviour.jitter() * -Math.log(1.0 - ThreadLocalRandom.current().nextDouble());
+        LockSupport.parkNanos((long) (latencyNanos * (1.0 + jitter)));
+    }
+
+    /**
+     * Answers every ticket with the same synthetic time, sensor_id and value columns
+     */
+    private final class QueryProducer extends NoOpFlightProducer {
+
+        @Override
+        public void getStream(CallContext context, Ticket ticket, ServerStreamListener listener) {
+            queries.increment();
+            sleep(behaviour.queryLatency().toNanos());
+            if (failNow()) {
+                failed.increment();
+                listener.error(CallStatus.UNAVAILABLE.withDescription("service unavailable").toRuntimeException());
+                return;
+            }
+
+            int rows = behaviour.queryRows();
+            long now = System.currentTimeMillis() * 1_000_000L;
+            try (TimeStampNanoVector time = new TimeStampNanoVector("time", allocator);
+                 VarCharVector sensorId = new VarCharVector("sensor_id", allocator);
+                 Float8Vector value = new Float8Vector("value", allocator)) {
+                time.allocateNew();
+                sensorId.allocateNew();
+                value.allocateNew();
+                for (int row = 0; row < rows; row++) {
+                    time.setSafe(row, now - row * 1_000_000_000L);
+                    sensorId.setSafe(row, String.format("S%06d", row).getBytes(StandardCharsets.UTF_8));
+                    value.setSafe(row, 20.0 + row % 10);
+                }
+                VectorSchemaRoot root = VectorSchemaRoot.of(time, sensorId, value);
+                root.setRowCount(rows);
+                listener.start(root);
+                listener.putNext();
+                listener.completed();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        http.stop(0);
+        httpExecutor.close();
+        try {
+            flight.close();
+        } finally {
+            allocator.close();
+        }
+    }
+
+    // Counters
+    public long getWriteRequests() {
+        return writeRequests.sum();
+    }
+
+    /**
+     * Points of writes that succeeded
+     */
+    public long getPointsReceived() {
+        return pointsReceived.sum();
+    }
+
+    /**
+     * Uncompressed line protocol bytes of all write requests
+     */
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * Write request bytes as sent, compressed or not
+     */
+    public long getWireBytesReceived() {
+        return wireBytesReceived.sum();
+    }
+
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.load;
+
+import com.influxdb.v3.client.Point;
+import com.influxdb.v3.client.write.WritePrecision;
+
+import java.util.SplittableRandom;
+
+/**
+ * A fixed set of sensor series with the tag cardinality of a typical fleet, producing one reading at a time
+ * Series are spread over {@value #REGIONS} regions and sites of {@value #SENSORS_PER_SITE} sensors each, every
+ * sensor reporting temperature, humidity or pressure; values follow a random walk around a realistic level
+ * Deterministic for a seed; not thread-safe, so each producer thread owns its own slice of series
+ */
+public final class SyntheticSeries {
+
+    public static final int REGIONS = 4;
+    public static final int SENSORS_PER_SITE = 50;
+
+    private static final String[] MEASUREMENTS = {"temperature", "humidity", "pressure"};
+    private static final double[] LEVELS = {21.0, 55.0, 1013.0};
+    private static final double[] STEPS = {0.1, 0.5, 0.2};
+
+    private final int first;
+    private final String[] measurements;
+    private final String[] regions;
+    private final String[] sites;
+    private final String[] sensorIds;
+    private final double[] values;
+    private final double[] steps;
+    private final SplittableRandom random;
+    private int next;
+
+    /**
+     * @param first index of the first series of this slice, so slices of one fleet do not overlap
+     * @param count number of series in this slice
+     */
+    public SyntheticSeries(int first, int count, long seed) {
+        if (first < 0 || count <= 0) {
+            throw new IllegalArgumentException("Series range must be non-empty");
+        }
+        this.first = first;
+        this.measurements = new String[count];
+        this.regions = new String[count];
+        this.sites = new String[count];
+        this.sensorIds = new String[count];
+        this.values = new double[count];
+        this.steps = new double[count];
+        this.random = new SplittableRandom(seed + first);
+
+        // Tag values are built once, so producing a point allocates only the point itself
+        for (int i = 0; i < count; i++) {
+            int series = first + i;
+            int kind = series % MEASUREMENTS.length;
+            int site = series / SENSORS_PER_SITE;
+            measurements[i] = MEASUREMENTS[kind];
+            regions[i] = "region-" + site % REGIONS;
+            sites[i] = "site-" + site;
+            sensorIds[i] = String.format("S%06d", series);
+            values[i] = LEVELS[kind] + random.nextDouble(-1.0, 1.0) * STEPS[kind] * 10;
+            steps[i] = STEPS[kind];
+        }
+    }
+
+    /**
+     * The next reading, taking the series in turn
+     */
+    public Point next(long timeNanos) {
+        int i = next;
+        next = i + 1 == values.length ? 0 : i + 1;
+        values[i] += random.nextDouble(-1.0, 1.0) * steps[i];
+
+        return Point.measurement(measurements[i])
+                .setTag("region", regions[i])
+                .setTag("location", sites[i])
+                .setTag("sensor_id", sensorIds[i])
+                .setField("value", values[i])
+                .setTimestamp(timeNanos, WritePrecision.NS);
+    }
+
+    public int first() {
+        return first;
+    }
+
+    public int size() {
+        return values.length;
+    }
+}
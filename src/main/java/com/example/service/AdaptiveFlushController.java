@@ -0,0 +1,181 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBApiHttpException;
+import org.HdrHistogram.Histogram;
+
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sizes write batches and the number of concurrent write requests from observed write latency, like TCP AIMD
+ * Every window of responses whose p99 stays under the target grows the batch by a fixed step and allows one more
+ * request in flight; a p99 over the target shrinks both by a quarter, and a timeout or a 429/503 response halves them
+ * Only responses to requests sent after the last cut count, so one burst of rejections cuts once
+ */
+public class AdaptiveFlushController {
+
+    public static final int DEFAULT_MIN_BATCH_POINTS = 100;
+    public static final int DEFAULT_MAX_BATCH_POINTS = 50_000;
+    public static final int DEFAULT_BATCH_INCREMENT = 500;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+    public static final int DEFAULT_WINDOW_RESPONSES = 20;
+
+    // Multiplicative decrease when the window's p99 misses the target, and on overload
+    private static final double LATENCY_DECREASE = 0.75;
+    private static final double OVERLOAD_DECREASE = 0.5;
+
+    private final long targetP99Nanos;
+    private final int minBatchPoints;
+    private final int maxBatchPoints;
+    private final int batchIncrement;
+    private final int maxInFlight;
+    private final int windowResponses;
+
+    // Latencies of the current window; guarded by this
+    private final Histogram window = new Histogram(3);
+    private long lastDecreaseNanos = Long.MIN_VALUE;
+    private volatile int batchPoints;
+    private volatile int inFlightLimit = 1;
+
+    private final AtomicLong increases = new AtomicLong();
+    private final AtomicLong latencyDecreases = new AtomicLong();
+    private final AtomicLong overloadDecreases = new AtomicLong();
+
+    public AdaptiveFlushController(Duration targetP99) {
+        this(targetP99, DEFAULT_MIN_BATCH_POINTS, DEFAULT_MAX_BATCH_POINTS, DEFAULT_BATCH_INCREMENT,
+                DEFAULT_MAX_IN_FLIGHT, DEFAULT_WINDOW_RESPONSES);
+    }
+
+    /**
+     * Starts at the minimum batch size with one request in flight
+     *
+     * @param targetP99       write latency the p99 of each window must stay under for the limits to grow
+     * @param batchIncrement  points added to the batch size per window under the target
+     * @param windowResponses number of successful responses per latency window
+     */
+    public AdaptiveFlushController(Duration targetP99, int minBatchPoints, int maxBatchPoints, int batchIncrement,
+                                   int maxInFlight, int windowResponses) {
+        if (targetP99.isNegative() || targetP99.isZero()) {
+            throw new IllegalArgumentException("Latency target must be positive");
+        }
+        if (minBatchPoints <= 0 || maxBatchPoints < minBatchPoints || batchIncrement <= 0
+                || maxInFlight <= 0 || windowResponses <= 0) {
+            throw new IllegalArgumentException("Batch and in-flight limits must be positive and ordered");
+        }
+
+        this.targetP99Nanos = targetP99.toNanos();
+        this.minBatchPoints = minBatchPoints;
+        this.maxBatchPoints = maxBatchPoints;
+        this.batchIncrement = batchIncrement;
+        this.maxInFlight = maxInFlight;
+        this.windowResponses = windowResponses;
+        this.batchPoints = minBatchPoints;
+    }
+
+    /**
+     * Points the next batch may hold
+     */
+    public int batchPoints() {
+        return batchPoints;
+    }
+
+    /**
+     * Write requests that may be outstanding at once
+     */
+    public int inFlightLimit() {
+        return inFlightLimit;
+    }
+
+    /**
+     * Records an accepted write; times are {@link System#nanoTime()} readings
+     */
+    public synchronized void onSuccess(long startNanos, long endNanos) {
+        if (startNanos < lastDecreaseNanos) {
+            return;
+        }
+
+        window.recordValue(Math.max(0, endNanos - startNanos));
+        if (window.getTotalCount() < windowResponses) {
+            return;
+        }
+
+        long p99 = window.getValueAtPercentile(99.0);
+        window.reset();
+        if (p99 <= targetP99Nanos) {
+            batchPoints = Math.min(maxBatchPoints, batchPoints + batchIncrement);
+            inFlightLimit = Math.min(maxInFlight, inFlightLimit + 1);
+            increases.incrementAndGet();
+        } else {
+            decrease(LATENCY_DECREASE, endNanos);
+            latencyDecreases.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records a failed write; only timeouts and overload responses change the limits
+     */
+    public synchronized void onFailure(long startNanos, long endNanos, Throwable error) {
+        if (!isOverload(error) || startNanos < lastDecreaseNanos) {
+            return;
+        }
+        decrease(OVERLOAD_DECREASE, endNanos);
+        overloadDecreases.incrementAndGet();
+    }
+
+    private void decrease(double factor, long nowNanos) {
+        batchPoints = Math.max(minBatchPoints, (int) (batchPoints * factor));
+        inFlightLimit = Math.max(1, (int) (inFlightLimit * factor));
+        window.reset();
+        lastDecreaseNanos = nowNanos;
+    }
+
+    /**
+     * True for errors that mean the server is overloaded: a 429 or 503 response, or a timeout anywhere in the causes
+     */
+    static boolean isOverload(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InfluxDBApiHttpException http) {
+                return http.statusCode() == 429 || http.statusCode() == 503;
+            }
+            if (cause instanceof HttpTimeoutException || cause instanceof SocketTimeoutException
+                    || cause instanceof TimeoutException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "batch=" + batchPoints + " points, inFlight=" + inFlightLimit
+                + ", increases=" + increases.get() + ", latencyDecreases=" + latencyDecreases.get()
+                + ", overloadDecreases=" + overloadDecreases.get();
+    }
+
+    public int getMaxBatchPoints() {
+        return maxBatchPoints;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    // Counters
+    public long getIncreases() {
+        return increases.get();
+    }
+
+    public long getLatencyDecreases() {
+        return latencyDecreases.get();
+    }
+
+    public long getOverloadDecreases() {
+        return overloadDecreases.get();
+    }
+}
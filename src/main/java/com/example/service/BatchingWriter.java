@@ -0,0 +1,511 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Collects points into a bounded queue and writes them with {@code client.writePoints(...)}
+ * A batch is flushed once it holds N points or M bytes, or when the linger time expires
+ * With an {@link AdaptiveFlushController} N follows observed write latency, and batches are sent
+ * on virtual threads with as many requests in flight as the controller allows
+ */
+public class BatchingWriter implements AutoCloseable {
+
+    /**
+     * Takes over a batch the server did not accept, e.g. by spilling it to disk
+     */
+    @FunctionalInterface
+    public interface FailureHandler {
+
+        /**
+         * @return true if the batch was kept, false to count its points as dropped
+         */
+        boolean onFailure(List<Point> batch, Exception error);
+    }
+
+    public static final int DEFAULT_MAX_BATCH_POINTS = 5_000;
+    public static final long DEFAULT_MAX_BATCH_BYTES = 1024 * 1024;
+    public static final Duration DEFAULT_LINGER = Duration.ofMillis(100);
+    public static final int DEFAULT_QUEUE_CAPACITY = 50_000;
+    public static final Duration DEFAULT_ENQUEUE_TIMEOUT = Duration.ofSeconds(5);
+    // Only a safety net with adaptive batching, which limits batches by point count
+    public static final long DEFAULT_ADAPTIVE_MAX_BATCH_BYTES = 16L * 1024 * 1024;
+
+    // How often the flusher releases its lock so a waiting flush() can run
+    private static final long FLUSH_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final InfluxDBClient client;
+    private final BlockingQueue<Point> queue;
+    // Batch size and linger can be retuned while running, they apply from the next batch on
+    private volatile int maxBatchPoints;
+    private final AdaptiveFlushController controller;
+    private final ExecutorService sender;
+    private final Object inFlightLock = new Object();
+    // Batches being sent by the sender; guarded by inFlightLock
+    private int inFlight;
+    private final long maxBatchBytes;
+    private volatile long lingerNanos;
+    private final long enqueueTimeoutNanos;
+
+    // Serializes writes between the flusher thread and flush()/close() callers
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Thread flusher;
+    private volatile boolean running = true;
+    // flush()/close() callers waiting for writeLock; the flusher stays off the lock while there are any
+    private final AtomicInteger flushWaiters = new AtomicInteger();
+
+    private final AtomicLong pointsQueued = new AtomicLong();
+    private final AtomicLong pointsFlushed = new AtomicLong();
+    private final AtomicLong pointsDropped = new AtomicLong();
+    private final AtomicLong pointsSpilled = new AtomicLong();
+    private final AtomicLong batchesFlushed = new AtomicLong();
+    private volatile Exception lastError;
+    private volatile Consumer<List<Point>> flushListener = batch -> { };
+    private volatile FailureHandler failureHandler = (batch, error) -> false;
+
+    public BatchingWriter(InfluxDBClient client) {
+        this(client, DEFAULT_MAX_BATCH_POINTS, DEFAULT_MAX_BATCH_BYTES, DEFAULT_LINGER,
+                DEFAULT_QUEUE_CAPACITY, DEFAULT_ENQUEUE_TIMEOUT);
+    }
+
+    /**
+     * @param maxBatchPoints   flush once a batch holds this many points
+     * @param maxBatchBytes    flush once the estimated line protocol size of a batch reaches this many bytes
+     * @param linger           maximum time the first point of a batch waits before the batch is flushed
+     * @param queueCapacity    number of points buffered before producers are blocked
+     * @param enqueueTimeout   how long a producer blocks on a full queue before the point is dropped
+     */
+    public BatchingWriter(InfluxDBClient client, int maxBatchPoints, long maxBatchBytes, Duration linger,
+                          int queueCapacity, Duration enqueueTimeout) {
+        this(client, maxBatchPoints, null, maxBatchBytes, linger, queueCapacity, enqueueTimeout);
+    }
+
+    /**
+     * Batch size and concurrent write requests are set by the controller, other limits are the defaults
+     */
+    public BatchingWriter(InfluxDBClient client, AdaptiveFlushController controller) {
+        this(client, controller, DEFAULT_ADAPTIVE_MAX_BATCH_BYTES, DEFAULT_LINGER, DEFAULT_QUEUE_CAPACITY,
+                DEFAULT_ENQUEUE_TIMEOUT);
+    }
+
+    /**
+     * @param controller sizes batches and limits the write requests in flight
+     */
+    public BatchingWriter(InfluxDBClient client, AdaptiveFlushController controller, long maxBatchBytes,
+                          Duration linger, int queueCapacity, Duration enqueueTimeout) {
+        this(client, controller.getMaxBatchPoints(), controller, maxBatchBytes, linger, queueCapacity,
+                enqueueTimeout);
+    }
+
+    private BatchingWriter(InfluxDBClient client, int maxBatchPoints, AdaptiveFlushController controller,
+                           long maxBatchBytes, Duration linger, int queueCapacity, Duration enqueueTimeout) {
+        if (maxBatchPoints <= 0 || maxBatchBytes <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Batch limits and queue capacity must be positive");
+        }
+        if (linger.isNegative() || linger.isZero()) {
+            throw new IllegalArgumentException("Linger must be positive");
+        }
+
+        this.client = client;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchPoints = maxBatchPoints;
+        this.controller = controller;
+        this.sender = controller != null ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        this.maxBatchBytes = maxBatchBytes;
+        this.lingerNanos = linger.toNanos();
+        this.enqueueTimeoutNanos = enqueueTimeout.toNanos();
+
+        this.flusher = new Thread(this::runFlusher, "influxdb-batching-writer");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Registers a callback that sees every batch after the server accepted it
+     * Runs on the writing thread, so it must be quick
+     */
+    public void setFlushListener(Consumer<List<Point>> flushListener) {
+        this.flushListener = flushListener;
+    }
+
+    /**
+     * Registers a handler for batches whose write failed; without one they are dropped
+     * Runs on the writing thread; with an adaptive controller several batches may fail at once
+     */
+    public void setFailureHandler(FailureHandler failureHandler) {
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Changes the batch size limit; batches being collected or sent keep their points
+     *
+     * @throws IllegalStateException with an adaptive controller, which sizes batches itself
+     */
+    public void setMaxBatchPoints(int maxBatchPoints) {
+        if (maxBatchPoints <= 0) {
+            throw new IllegalArgumentException("Batch limit must be positive");
+        }
+        if (controller != null) {
+            throw new IllegalStateException("Batch size is set by the adaptive controller");
+        }
+        this.maxBatchPoints = maxBatchPoints;
+    }
+
+    /**
+     * Changes how long the first point of a batch may wait; the batch being collected keeps its deadline
+     */
+    public void setLinger(Duration linger) {
+        if (linger.isNegative() || linger.isZero()) {
+            throw new IllegalArgumentException("Linger must be positive");
+        }
+        this.lingerNanos = linger.toNanos();
+    }
+
+    public int getMaxBatchPoints() {
+        return batchLimit();
+    }
+
+    public Duration getLinger() {
+        return Duration.ofNanos(lingerNanos);
+    }
+
+    /**
+     * Queues a point for writing, blocking while the queue is full
+     *
+     * @return false if the queue stayed full for the enqueue timeout and the point was dropped
+     */
+    public boolean write(Point point) throws InterruptedException {
+        if (closed.get()) {
+            throw new IllegalStateException("BatchingWriter is closed");
+        }
+
+        if (queue.offer(point, enqueueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+            // close() may have drained the queue for the last time since the check above; take the point back if so
+            if (closed.get() && queue.remove(point)) {
+                throw new IllegalStateException("BatchingWriter is closed");
+            }
+            pointsQueued.incrementAndGet();
+            return true;
+        }
+
+        pointsDropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Queues several points, returning how many were accepted
+     */
+    public int writeAll(List<Point> points) throws InterruptedException {
+        int accepted = 0;
+        for (Point point : points) {
+            if (write(point)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Writes every queued point and waits until the writes have completed
+     */
+    public void flush() {
+        flushWaiters.incrementAndGet();
+        writeLock.lock();
+        try {
+            flushWaiters.decrementAndGet();
+
+            List<Point> batch = new ArrayList<>();
+            long batchBytes = 0;
+            Point point;
+
+            while ((point = queue.poll()) != null) {
+                batch.add(point);
+                batchBytes += estimateSize(point);
+
+                if (batch.size() >= batchLimit() || batchBytes >= maxBatchBytes) {
+                    writeBatch(batch);
+                    batchBytes = 0;
+                }
+            }
+
+            writeBatch(batch);
+            awaitInFlight();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the flusher thread and drains the remaining points
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        running = false;
+        flusher.join();
+        flush();
+        if (sender != null) {
+            sender.shutdown();
+        }
+    }
+
+    private void runFlusher() {
+        List<Point> batch = new ArrayList<>(Math.min(batchLimit(), 1024));
+        boolean interrupted = false;
+
+        while (running && !interrupted) {
+            // The lock is not fair, so back off rather than take it again straight away and starve flush()
+            if (flushWaiters.get() > 0) {
+                LockSupport.parkNanos(FLUSH_CHECK_NANOS);
+                continue;
+            }
+
+            // Points are only taken from the queue under the lock, so flush() never misses one in transit
+            writeLock.lock();
+            try {
+                Point first = queue.poll(FLUSH_CHECK_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                long batchBytes = estimateSize(first);
+                long deadline = System.nanoTime() + lingerNanos;
+
+                // Keep collecting until a size limit is hit or the first point has lingered long enough
+                while (batch.size() < batchLimit() && batchBytes < maxBatchBytes && flushWaiters.get() == 0) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+
+                    Point next;
+                    try {
+                        next = queue.poll(Math.min(remaining, FLUSH_CHECK_NANOS), TimeUnit.NANOSECONDS);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                        break;
+                    }
+                    if (next == null) {
+                        continue;
+                    }
+
+                    batch.add(next);
+                    batchBytes += estimateSize(next);
+                }
+
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private int batchLimit() {
+        return controller != null ? controller.batchPoints() : maxBatchPoints;
+    }
+
+    /**
+     * Sends one batch and clears it; with a controller the batch is handed to the sender once
+     * a request slot is free
+     */
+    private void writeBatch(List<Point> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (controller == null) {
+            send(batch);
+            batch.clear();
+            return;
+        }
+
+        List<Point> sending = new ArrayList<>(batch);
+        batch.clear();
+        acquireInFlight();
+        try {
+            sender.execute(() -> {
+                try {
+                    send(sending);
+                } finally {
+                    releaseInFlight();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            releaseInFlight();
+            send(sending);
+        }
+    }
+
+    /**
+     * Writes one batch; a failed batch goes to the failure handler or is counted as dropped
+     */
+    private void send(List<Point> batch) {
+        long start = System.nanoTime();
+        try {
+            client.writePoints(batch);
+            pointsFlushed.addAndGet(batch.size());
+            batchesFlushed.incrementAndGet();
+        } catch (Exception e) {
+            if (controller != null) {
+                controller.onFailure(start, System.nanoTime(), e);
+            }
+            lastError = e;
+            handleFailure(batch, e);
+            return;
+        }
+        if (controller != null) {
+            controller.onSuccess(start, System.nanoTime());
+        }
+
+        try {
+            flushListener.accept(batch);
+        } catch (RuntimeException e) {
+            System.err.println("Flush listener failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Waits for a request slot; the limit may shrink meanwhile, so it is read on every wake-up
+     * Not interruptible, as slots are always released by the sender
+     */
+    private void acquireInFlight() {
+        boolean interrupted = false;
+        synchronized (inFlightLock) {
+            while (inFlight >= controller.inFlightLimit()) {
+                try {
+                    inFlightLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            inFlight++;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void releaseInFlight() {
+        synchronized (inFlightLock) {
+            inFlight--;
+            inFlightLock.notifyAll();
+        }
+    }
+
+    private void awaitInFlight() {
+        if (controller == null) {
+            return;
+        }
+        boolean interrupted = false;
+        synchronized (inFlightLock) {
+            while (inFlight > 0) {
+                try {
+                    inFlightLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleFailure(List<Point> batch, Exception error) {
+        boolean kept;
+        try {
+            kept = failureHandler.onFailure(batch, error);
+        } catch (RuntimeException e) {
+            System.err.println("Failure handler failed: " + e.getMessage());
+            kept = false;
+        }
+
+        if (kept) {
+            pointsSpilled.addAndGet(batch.size());
+            System.err.println("Batch write of " + batch.size() + " points failed, handed to failure handler: "
+                    + error.getMessage());
+        } else {
+            pointsDropped.addAndGet(batch.size());
+            System.err.println("Batch write of " + batch.size() + " points failed: " + error.getMessage());
+        }
+    }
+
+    /**
+     * Rough line protocol size of a point, used for the byte limit without encoding the point twice
+     */
+    static long estimateSize(Point point) {
+        // Separators plus a nanosecond timestamp
+        long size = point.getMeasurement().length() + 21;
+
+        for (String tag : point.getTagNames()) {
+            String value = point.getTag(tag);
+            size += tag.length() + (value != null ? value.length() : 0) + 2;
+        }
+        for (String field : point.getFieldNames()) {
+            Object value = point.getField(field);
+            size += field.length() + 2 + (value instanceof String ? ((String) value).length() + 2 : 20);
+        }
+        return size;
+    }
+
+    // Counters
+    public long getPointsQueued() {
+        return pointsQueued.get();
+    }
+
+    public long getPointsFlushed() {
+        return pointsFlushed.get();
+    }
+
+    public long getPointsDropped() {
+        return pointsDropped.get();
+    }
+
+    /**
+     * Points from failed batches that the failure handler kept
+     */
+    public long getPointsSpilled() {
+        return pointsSpilled.get();
+    }
+
+    public long getBatchesFlushed() {
+        return batchesFlushed.get();
+    }
+
+    /**
+     * The adaptive controller, or null when batches have a fixed size
+     */
+    public AdaptiveFlushController getController() {
+        return controller;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public Exception getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,747 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Imports large line protocol or CSV files without loading them into the heap
+ * The file is memory-mapped in chunks cut on line boundaries; each chunk is parsed and validated in parallel
+ * with fork/join, and its valid lines are sent as large multi-line requests with a bounded number in flight
+ * (the client gzips request bodies, so large batches compress well)
+ * A checkpoint file records how far the file has been written, so a failed or interrupted import resumes there
+ *
+ * CSV files need a header with a {@code measurement} column, a {@code time} column (epoch nanoseconds or
+ * ISO-8601) and {@code tag:<name>} columns for tags; every other column is a field
+ * Every line must carry a timestamp, so rewriting part of a chunk after a resume overwrites instead of duplicating
+ */
+public class BulkImporter implements AutoCloseable {
+
+    public enum Format {
+        LINE_PROTOCOL,
+        CSV;
+
+        /**
+         * CSV for {@code .csv} files, line protocol otherwise
+         */
+        public static Format of(Path file) {
+            return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : LINE_PROTOCOL;
+        }
+    }
+
+    public record ImportReport(Path file, Format format, long resumedFromOffset, long bytesImported,
+                               long linesImported, long linesRejected, long batchesWritten,
+                               List<String> rejections, Duration elapsed) {
+
+        public double megabytesPerSecond() {
+            double seconds = elapsed.toNanos() / 1e9;
+            return seconds > 0 ? bytesImported / 1e6 / seconds : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d lines imported, %d rejected, %d batches, %.1f MB/s%s",
+                    file.getFileName(), linesImported, linesRejected, batchesWritten, megabytesPerSecond(),
+                    resumedFromOffset > 0 ? " (resumed at byte " + resumedFromOffset + ")" : "");
+        }
+    }
+
+    public static final int DEFAULT_CHUNK_BYTES = 16 * 1024 * 1024;
+    public static final int DEFAULT_BATCH_BYTES = 8 * 1024 * 1024;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    // Fork/join stops splitting a chunk below this size
+    static final int LEAF_BYTES = 1024 * 1024;
+    // Rejected lines listed in the report; the rest are only counted
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    private final InfluxDBClient client;
+    private final int chunkBytes;
+    private final int batchBytes;
+    private final int maxInFlight;
+    private final ForkJoinPool parsers;
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+
+    public BulkImporter(InfluxDBClient client) {
+        this(client, DEFAULT_CHUNK_BYTES, DEFAULT_BATCH_BYTES, DEFAULT_MAX_IN_FLIGHT,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param chunkBytes  nominal size of a mapped chunk, also the checkpoint granularity
+     * @param batchBytes  nominal size of one write request
+     * @param maxInFlight write requests outstanding at once
+     * @param parallelism threads parsing chunks
+     */
+    public BulkImporter(InfluxDBClient client, int chunkBytes, int batchBytes, int maxInFlight, int parallelism) {
+        if (chunkBytes <= 0 || batchBytes <= 0 || maxInFlight <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Chunk size, batch size, in-flight limit and parallelism must be positive");
+        }
+
+        this.client = client;
+        this.chunkBytes = chunkBytes;
+        this.batchBytes = batchBytes;
+        this.maxInFlight = maxInFlight;
+        this.parsers = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Imports a file, resuming from {@code <file>.checkpoint} if it belongs to the same file
+     */
+    public ImportReport importFile(Path file) throws IOException, InterruptedException {
+        return importFile(file, Format.of(file), file.resolveSibling(file.getFileName() + CHECKPOINT_SUFFIX));
+    }
+
+    /**
+     * Imports a file; the checkpoint is deleted once the whole file has been written
+     *
+     * @throws IOException if a write fails; the checkpoint then holds the offset to resume from
+     */
+    public ImportReport importFile(Path file, Format format, Path checkpointFile)
+            throws IOException, InterruptedException {
+        long started = System.nanoTime();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Checkpoint checkpoint = new Checkpoint(checkpointFile, file, size, Files.getLastModifiedTime(file).toMillis());
+            long resumedFrom = checkpoint.load();
+
+            CsvHeader header = null;
+            long offset = resumedFrom;
+            if (format == Format.CSV) {
+                long headerEnd = nextLineStart(channel, 0, size);
+                header = CsvHeader.parse(readString(channel, 0, headerEnd));
+                offset = Math.max(offset, headerEnd);
+            }
+
+            Import run = new Import(checkpoint, offset);
+            Deque<Chunk> parsing = new ArrayDeque<>();
+            long next = offset;
+
+            // Keeps one chunk parsing ahead of the one being sent, so the mapped chunks in use stay bounded
+            while ((next < size || !parsing.isEmpty()) && run.failure.get() == null) {
+                while (next < size && parsing.size() < 2) {
+                    long end = nextLineStart(channel, Math.min(size, next + chunkBytes), size);
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, next, end - next);
+                    ParseTask task = new ParseTask(mapped, 0, (int) (end - next), next, format, header);
+                    parsing.add(new Chunk(end, parsers.submit(task)));
+                    next = end;
+                }
+                send(run, parsing.poll());
+            }
+            run.awaitIdle();
+
+            if (run.failure.get() != null) {
+                throw new IOException("Import of " + file + " stopped; run again to resume from byte "
+                        + run.committedOffset(), run.failure.get());
+            }
+            checkpoint.delete();
+            return new ImportReport(file, format, resumedFrom, size - offset, run.linesImported.get(),
+                    run.linesRejected.get(), run.batchesWritten.get(), List.copyOf(run.rejections),
+                    Duration.ofNanos(System.nanoTime() - started));
+        }
+    }
+
+    /**
+     * Waits for the chunk's parse and sends its lines in batches of about batchBytes, one request per batch
+     */
+    private void send(Import run, Chunk chunk) throws InterruptedException {
+        List<Parsed> parsed = chunk.task.join();
+
+        List<List<String>> batches = new ArrayList<>();
+        List<String> batch = new ArrayList<>();
+        long bytes = 0;
+        for (Parsed leaf : parsed) {
+            run.linesRejected.addAndGet(leaf.rejected());
+            run.addRejections(leaf.rejections());
+            if (leaf.lines() == 0) {
+                continue;
+            }
+            batch.add(leaf.text());
+            bytes += leaf.text().length();
+            chunk.lines += leaf.lines();
+            if (bytes >= batchBytes) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                bytes = 0;
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+
+        chunk.pendingBatches.set(batches.size());
+        run.track(chunk);
+        if (batches.isEmpty()) {
+            run.complete(chunk);
+            return;
+        }
+
+        for (List<String> records : batches) {
+            run.inFlight.acquire();
+            if (run.failure.get() != null) {
+                run.inFlight.release();
+                return;
+            }
+            sender.execute(() -> {
+                try {
+                    client.writeRecords(records);
+                    run.batchesWritten.incrementAndGet();
+                    if (chunk.pendingBatches.decrementAndGet() == 0) {
+                        run.complete(chunk);
+                    }
+                } catch (Exception e) {
+                    run.failure.compareAndSet(null, e);
+                } finally {
+                    run.inFlight.release();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void close() {
+        parsers.shutdownNow();
+        sender.shutdown();
+    }
+
+    /**
+     * Offset just past the first line break at or after {@code from}, or {@code size}
+     */
+    static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        if (from >= size) {
+            return size;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static String readString(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+        while (buffer.hasRemaining() && channel.read(buffer, from + buffer.position()) > 0) {
+            // Keep reading until the line is complete
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).strip();
+    }
+
+    /**
+     * Valid lines of one fork/join leaf, newline-separated
+     */
+    record Parsed(String text, long lines, long rejected, List<String> rejections) {
+    }
+
+    /**
+     * A chunk being parsed or sent; the checkpoint moves past it once all its batches are written
+     */
+    private static final class Chunk {
+
+        private final long end;
+        private final ForkJoinTask<List<Parsed>> task;
+        private final AtomicInteger pendingBatches = new AtomicInteger();
+        private long lines;
+
+        Chunk(long end, ForkJoinTask<List<Parsed>> task) {
+            this.end = end;
+            this.task = task;
+        }
+    }
+
+    /**
+     * State of one importFile call
+     */
+    private final class Import {
+
+        private final Checkpoint checkpoint;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private final AtomicLong linesImported = new AtomicLong();
+        private final AtomicLong linesRejected = new AtomicLong();
+        private final AtomicLong batchesWritten = new AtomicLong();
+        private final List<String> rejections = Collections.synchronizedList(new ArrayList<>());
+        // Chunks handed to the sender in file order; guarded by this
+        private final Deque<Chunk> sending = new ArrayDeque<>();
+        private final List<Chunk> completed = new ArrayList<>();
+        private long committedOffset;
+
+        Import(Checkpoint checkpoint, long offset) {
+            this.checkpoint = checkpoint;
+            this.committedOffset = offset;
+        }
+
+        synchronized void track(Chunk chunk) {
+            sending.add(chunk);
+        }
+
+        /**
+         * Moves the checkpoint past every leading chunk that has been fully written
+         */
+        synchronized void complete(Chunk chunk) {
+            completed.add(chunk);
+            linesImported.addAndGet(chunk.lines);
+            boolean advanced = false;
+            while (!sending.isEmpty() && completed.remove(sending.peek())) {
+                committedOffset = sending.poll().end;
+                advanced = true;
+            }
+            if (advanced) {
+                try {
+                    checkpoint.save(committedOffset);
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        }
+
+        synchronized long committedOffset() {
+            return committedOffset;
+        }
+
+        void addRejections(List<String> leafRejections) {
+            synchronized (rejections) {
+                for (String rejection : leafRejections) {
+                    if (rejections.size() >= MAX_REPORTED_REJECTIONS) {
+                        break;
+                    }
+                    rejections.add(rejection);
+                }
+            }
+        }
+
+        void awaitIdle() throws InterruptedException {
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        }
+    }
+
+    /**
+     * Splits a mapped chunk on line boundaries until the pieces are small, then parses the pieces in parallel
+     */
+    private static final class ParseTask extends RecursiveTask<List<Parsed>> {
+
+        private final MappedByteBuffer buffer;
+        private final int from;
+        private final int to;
+        private final long fileOffset;
+        private final Format format;
+        private final CsvHeader header;
+
+        ParseTask(MappedByteBuffer buffer, int from, int to, long fileOffset, Format format, CsvHeader header) {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.fileOffset = fileOffset;
+            this.format = format;
+            this.header = header;
+        }
+
+        @Override
+        protected List<Parsed> compute() {
+            if (to - from > LEAF_BYTES) {
+                int middle = from + (to - from) / 2;
+                while (middle < to && buffer.get(middle - 1) != '\n') {
+                    middle++;
+                }
+                if (middle < to) {
+                    ParseTask left = new ParseTask(buffer, from, middle, fileOffset, format, header);
+                    left.fork();
+                    List<Parsed> right = new ParseTask(buffer, middle, to, fileOffset, format, header).compute();
+                    List<Parsed> parsed = new ArrayList<>(left.join());
+                    parsed.addAll(right);
+                    return parsed;
+                }
+            }
+            return List.of(format == Format.CSV ? parseCsv() : parseLineProtocol());
+        }
+
+        private Parsed parseLineProtocol() {
+            byte[] out = new byte[to - from];
+            int length = 0;
+            long lines = 0;
+            long rejected = 0;
+            List<String> rejections = new ArrayList<>();
+
+            int start = from;
+            while (start < to) {
+                int end = start;
+                while (end < to && buffer.get(end) != '\n') {
+                    end++;
+                }
+                int next = end + 1;
+                if (end > start && buffer.get(end - 1) == '\r') {
+                    end--;
+                }
+
+                if (end > start && buffer.get(start) != '#') {
+                    String error = validateLine(buffer, start, end);
+                    if (error == null) {
+                        if (lines > 0) {
+                            out[length++] = '\n';
+                        }
+                        buffer.get(start, out, length, end - start);
+                        length += end - start;
+                        lines++;
+                    } else {
+                        rejected++;
+                        reject(rejections, start, error);
+                    }
+                }
+                start = next;
+            }
+            return new Parsed(new String(out, 0, length, StandardCharsets.UTF_8), lines, rejected, rejections);
+        }
+
+        private Parsed parseCsv() {
+            LineProtocolEncoder encoder = new LineProtocolEncoder(to - from + 1024);
+            byte[] line = new byte[256];
+            long rejected = 0;
+            List<String> rejections = new ArrayList<>();
+
+            int start = from;
+            while (start < to) {
+                int end = start;
+                while (end < to && buffer.get(end) != '\n') {
+                    end++;
+                }
+                int next = end + 1;
+                if (end > start && buffer.get(end - 1) == '\r') {
+                    end--;
+                }
+
+                if (end > start) {
+                    if (line.length < end - start) {
+                        line = new byte[Math.max(end - start, line.length * 2)];
+                    }
+                    buffer.get(start, line, 0, end - start);
+                    String error = header.encode(new String(line, 0, end - start, StandardCharsets.UTF_8), encoder);
+                    if (error != null) {
+                        encoder.discardLine();
+                        rejected++;
+                        reject(rejections, start, error);
+                    }
+                }
+                start = next;
+            }
+            return new Parsed(encoder.toString(), encoder.lineCount(), rejected, rejections);
+        }
+
+        private void reject(List<String> rejections, int position, String error) {
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add("byte " + (fileOffset + position) + ": " + error);
+            }
+        }
+    }
+
+    /**
+     * Checks the shape of a line protocol line: measurement, field set and an integer timestamp
+     *
+     * @return null if valid, otherwise the reason
+     */
+    static String validateLine(ByteBuffer buffer, int start, int end) {
+        int i = start;
+        // Measurement and tags end at the first unescaped space
+        while (i < end && buffer.get(i) != ' ') {
+            i += buffer.get(i) == '\\' ? 2 : 1;
+        }
+        if (i == start || buffer.get(start) == ',') {
+            return "missing measurement";
+        }
+        if (i >= end) {
+            return "missing fields";
+        }
+
+        int fieldsStart = ++i;
+        boolean quoted = false;
+        boolean hasEquals = false;
+        while (i < end && (quoted || buffer.get(i) != ' ')) {
+            byte b = buffer.get(i);
+            if (b == '\\') {
+                i += 2;
+                continue;
+            }
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '=' && !quoted) {
+                hasEquals = true;
+            }
+            i++;
+        }
+        if (quoted) {
+            return "unterminated string field";
+        }
+        if (i == fieldsStart || !hasEquals) {
+            return "missing fields";
+        }
+        if (i >= end) {
+            return "missing timestamp";
+        }
+
+        int timestampStart = ++i;
+        if (i < end && buffer.get(i) == '-') {
+            i++;
+        }
+        if (i == end) {
+            return "missing timestamp";
+        }
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                return "invalid timestamp";
+            }
+        }
+        return i - timestampStart > 20 ? "invalid timestamp" : null;
+    }
+
+    /**
+     * Column layout of a CSV file
+     */
+    record CsvHeader(int measurement, int time, String[] names, boolean[] tags) {
+
+        static CsvHeader parse(String line) {
+            List<String> columns = splitCsv(line);
+            int measurement = columns.indexOf("measurement");
+            int time = columns.indexOf("time");
+            if (measurement < 0 || time < 0) {
+                throw new IllegalArgumentException("CSV header needs measurement and time columns: " + line);
+            }
+
+            String[] names = new String[columns.size()];
+            boolean[] tags = new boolean[columns.size()];
+            for (int i = 0; i < names.length; i++) {
+                String column = columns.get(i);
+                tags[i] = column.startsWith("tag:");
+                names[i] = tags[i] ? column.substring(4) : column;
+                if (names[i].isEmpty()) {
+                    throw new IllegalArgumentException("CSV header has an unnamed column: " + line);
+                }
+            }
+            return new CsvHeader(measurement, time, names, tags);
+        }
+
+        /**
+         * Encodes one CSV row; numbers become float fields, true/false boolean fields, anything else strings
+         *
+         * @return null if encoded, otherwise the reason the row was rejected
+         */
+        String encode(String row, LineProtocolEncoder encoder) {
+            List<String> cells = splitCsv(row);
+            if (cells.size() != names.length) {
+                return "expected " + names.length + " columns but found " + cells.size();
+            }
+            String measurementName = cells.get(measurement);
+            if (measurementName.isEmpty()) {
+                return "missing measurement";
+            }
+            long timestamp;
+            try {
+                timestamp = parseTime(cells.get(time));
+            } catch (DateTimeParseException | NumberFormatException | ArithmeticException e) {
+                return "invalid time '" + cells.get(time) + "'";
+            }
+
+            // The encoder rejects values line protocol cannot carry, e.g. a number that overflows to infinity
+            try {
+                encoder.measurement(measurementName);
+                for (int i = 0; i < names.length; i++) {
+                    if (tags[i] && !cells.get(i).isEmpty()) {
+                        encoder.tag(names[i], cells.get(i));
+                    }
+                }
+                boolean hasField = false;
+                for (int i = 0; i < names.length; i++) {
+                    String value = cells.get(i);
+                    if (tags[i] || i == measurement || i == time || value.isEmpty()) {
+                        continue;
+                    }
+                    if (isNumber(value)) {
+                        encoder.field(names[i], Double.parseDouble(value));
+                    } else if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
+                        encoder.field(names[i], Boolean.parseBoolean(value));
+                    } else {
+                        encoder.field(names[i], value);
+                    }
+                    hasField = true;
+                }
+                if (!hasField) {
+                    return "no field values";
+                }
+                encoder.timestamp(timestamp);
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+            return null;
+        }
+
+        private static long parseTime(String value) {
+            if (!value.isEmpty() && (Character.isDigit(value.charAt(0)) || value.charAt(0) == '-')
+                    && value.chars().skip(1).allMatch(Character::isDigit)) {
+                return Long.parseLong(value);
+            }
+            return LineProtocolEncoder.epochNanos(Instant.parse(value));
+        }
+
+        private static boolean isNumber(String value) {
+            int i = value.charAt(0) == '-' ? 1 : 0;
+            int digits = 0;
+            while (i < value.length() && Character.isDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+            if (i < value.length() && value.charAt(i) == '.') {
+                i++;
+                while (i < value.length() && Character.isDigit(value.charAt(i))) {
+                    i++;
+                    digits++;
+                }
+            }
+            if (digits > 0 && i < value.length() && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+                i++;
+                if (i < value.length() && (value.charAt(i) == '+' || value.charAt(i) == '-')) {
+                    i++;
+                }
+                int exponent = i;
+                while (i < value.length() && Character.isDigit(value.charAt(i))) {
+                    i++;
+                }
+                if (i == exponent) {
+                    return false;
+                }
+            }
+            return digits > 0 && i == value.length();
+        }
+
+        /**
+         * Splits a CSV row on commas; double-quoted cells may contain commas and "" for a quote
+         */
+        static List<String> splitCsv(String row) {
+            List<String> cells = new ArrayList<>();
+            StringBuilder cell = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < row.length(); i++) {
+                char c = row.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < row.length() && row.charAt(i + 1) == '"') {
+                        cell.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        cell.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    cells.add(cell.toString().strip());
+                    cell.setLength(0);
+                } else {
+                    cell.append(c);
+                }
+            }
+            cells.add(cell.toString().strip());
+            return cells;
+        }
+    }
+
+    /**
+     * Offset up to which a file has been written, stored next to it and tied to its size and modification time
+     */
+    private static final class Checkpoint {
+
+        private final Path path;
+        private final Path file;
+        private final long size;
+        private final long lastModified;
+
+        Checkpoint(Path path, Path file, long size, long lastModified) {
+            this.path = path;
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * The offset to resume from, or 0 if there is no checkpoint for this version of the file
+         */
+        long load() throws IOException {
+            if (!Files.exists(path)) {
+                return 0;
+            }
+            Properties properties = new Properties();
+            try (InputStream input = Files.newInputStream(path)) {
+                properties.load(input);
+            }
+            boolean sameFile = file.toAbsolutePath().toString().equals(properties.getProperty("file"))
+                    && String.valueOf(size).equals(properties.getProperty("size"))
+                    && String.valueOf(lastModified).equals(properties.getProperty("lastModified"));
+            if (!sameFile) {
+                System.err.println("Ignoring checkpoint " + path + " written for a different file");
+                return 0;
+            }
+            return Long.parseLong(properties.getProperty("offset", "0"));
+        }
+
+        /**
+         * Replaces the checkpoint atomically, so a crash leaves either the old or the new offset
+         */
+        void save(long offset) throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty("file", file.toAbsolutePath().toString());
+            properties.setProperty("size", String.valueOf(size));
+            properties.setProperty("lastModified", String.valueOf(lastModified));
+            properties.setProperty("offset", String.valueOf(offset));
+
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (OutputStream output = Files.newOutputStream(temp)) {
+                properties.store(output, "Bulk import checkpoint");
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        void delete() throws IOException {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Fails calls to one endpoint fast while it is down, instead of letting every caller wait for its timeout
+ * Opens after a run of consecutive failures; once the open period is over a single trial call is let through,
+ * and its outcome closes the breaker or opens it for another period
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Thrown instead of calling an endpoint whose breaker is open
+     */
+    public static class OpenException extends RuntimeException {
+
+        public OpenException(String name) {
+            super("Circuit breaker for " + name + " is open");
+        }
+    }
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+    // Advanced whenever the breaker opens or lets a trial through; permits of earlier calls are stale
+    private long generation;
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CircuitBreaker(String name) {
+        this(name, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION);
+    }
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this(name, failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive");
+        }
+        if (openDuration.isNegative() || openDuration.isZero()) {
+            throw new IllegalArgumentException("Open duration must be positive");
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Lets a call go out, or throws {@link OpenException} when it may not; the returned permit must be passed
+     * to {@link #onSuccess(long)}, {@link #onFailure(long)} or {@link #release(long)} once the call is over
+     */
+    public synchronized long acquire() {
+        switch (state) {
+            case CLOSED:
+                return generation;
+            case OPEN:
+                if (nanoClock.getAsLong() - openedAtNanos < openNanos) {
+                    break;
+                }
+                state = State.HALF_OPEN;
+                return startTrial();
+            case HALF_OPEN:
+                if (!trialInFlight) {
+                    return startTrial();
+                }
+                break;
+        }
+        rejected.incrementAndGet();
+        throw new OpenException(name);
+    }
+
+    private long startTrial() {
+        trialInFlight = true;
+        return ++generation;
+    }
+
+    /**
+     * The endpoint answered; also for responses that reject the request itself, e.g. a 400
+     * Outcomes of calls sent before the breaker last opened or let a trial through are ignored, so a slow call
+     * that started before an outage cannot close the breaker
+     */
+    public synchronized void onSuccess(long permit) {
+        if (permit != generation) {
+            return;
+        }
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * The endpoint failed to answer or was unavailable
+     */
+    public synchronized void onFailure(long permit) {
+        if (permit != generation) {
+            return;
+        }
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtNanos = nanoClock.getAsLong();
+            generation++;
+            opened.incrementAndGet();
+        }
+    }
+
+    /**
+     * The call was abandoned without an outcome, e.g. a hedged query that lost; frees the trial slot
+     */
+    public synchronized void release(long permit) {
+        if (permit == generation) {
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + ": " + state + ", opened=" + opened.get() + ", rejected=" + rejected.get();
+    }
+
+    // Counters
+    public long getOpened() {
+        return opened.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,411 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBApiHttpException;
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Long-lived clients for several endpoints (host + database), created once and shared by all jobs
+ * Writes for a database are spread over its healthy endpoints, either whole batches round-robin or point by point
+ * on a series hash; an endpoint that fails a write is marked unhealthy, its share fails over to the others,
+ * and a background health probe brings it back once it answers again
+ * Writes the server rejects, e.g. with a 400 for a malformed point, are thrown at once and leave the endpoint healthy
+ */
+public final class ClientPool implements AutoCloseable {
+
+    /**
+     * How writes are spread over the endpoints of a database
+     */
+    public enum Routing {
+        /** Each batch goes to the next healthy endpoint; keeps batches whole */
+        ROUND_ROBIN,
+        /** Each series sticks to one endpoint (rendezvous hashing), so only a failed endpoint's series move */
+        SERIES_HASH
+    }
+
+    public record Endpoint(String host, String database) {
+    }
+
+    public record EndpointStatus(Endpoint endpoint, boolean healthy, long writes, long failures) {
+    }
+
+    /**
+     * Checks whether an endpoint answers; must throw or return false when it does not
+     */
+    @FunctionalInterface
+    public interface HealthProbe {
+        boolean isHealthy(InfluxDBClient client) throws Exception;
+    }
+
+    public static final Duration DEFAULT_PROBE_INTERVAL = Duration.ofSeconds(10);
+
+    /**
+     * Runs a trivial query and drains it
+     */
+    public static final HealthProbe QUERY_PROBE = client -> {
+        try (Stream<Object[]> rows = client.query("SELECT 1")) {
+            rows.forEach(row -> { });
+        }
+        return true;
+    };
+
+    private final Routing routing;
+    private final HealthProbe probe;
+    private final Map<String, List<Member>> membersByDatabase = new LinkedHashMap<>();
+    private final AtomicInteger nextRoundRobin = new AtomicInteger();
+    private final ScheduledExecutorService prober;
+
+    public ClientPool(List<Endpoint> endpoints, char[] token, Routing routing) {
+        this(endpoints, endpoint -> InfluxDBClient.getInstance(endpoint.host(), token, endpoint.database()),
+                routing, QUERY_PROBE, DEFAULT_PROBE_INTERVAL);
+    }
+
+    /**
+     * @param clientFactory creates the client of each endpoint, once
+     * @param probeInterval how often unhealthy endpoints are probed
+     */
+    public ClientPool(List<Endpoint> endpoints, Function<Endpoint, InfluxDBClient> clientFactory, Routing routing,
+                      HealthProbe probe, Duration probeInterval) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one endpoint is required");
+        }
+        if (probeInterval.isNegative() || probeInterval.isZero()) {
+            throw new IllegalArgumentException("Probe interval must be positive");
+        }
+
+        this.routing = routing;
+        this.probe = probe;
+        for (Endpoint endpoint : endpoints) {
+            Member member = new Member(endpoint, clientFactory.apply(endpoint));
+            membersByDatabase.computeIfAbsent(endpoint.database(), db -> new ArrayList<>()).add(member);
+        }
+
+        this.prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "influxdb-client-pool-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = probeInterval.toMillis();
+        prober.scheduleWithFixedDelay(this::probeUnhealthy, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes points to the endpoints of a database, failing over until every endpoint has been tried
+     */
+    public void writePoints(String database, List<Point> points) {
+        write(database, points, ClientPool::seriesHash, InfluxDBClient::writePoints);
+    }
+
+    /**
+     * Writes line protocol records; with series-hash routing each record is routed on its first line's series
+     */
+    public void writeRecords(String database, List<String> records) {
+        write(database, records, ClientPool::seriesHash, InfluxDBClient::writeRecords);
+    }
+
+    /**
+     * A healthy client of the database, round-robin; for queries and calls the pool does not route
+     */
+    public InfluxDBClient client(String database) {
+        List<Member> members = members(database);
+        int start = Math.floorMod(nextRoundRobin.getAndIncrement(), members.size());
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get((start + i) % members.size());
+            if (member.healthy) {
+                return member.client;
+            }
+        }
+        return members.get(start).client;
+    }
+
+    /**
+     * An InfluxDBClient view of one database: writes are routed and fail over through the pool, everything else
+     * goes to a healthy endpoint; closing the view leaves the pooled clients open
+     */
+    @SuppressWarnings("unchecked")
+    public InfluxDBClient asClient(String database) {
+        members(database);
+        return (InfluxDBClient) Proxy.newProxyInstance(InfluxDBClient.class.getClassLoader(),
+                new Class<?>[]{InfluxDBClient.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "toString":
+                            return "ClientPool(" + database + ")";
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "close":
+                            return null;
+                        case "writePoints":
+                            if (args.length == 1) {
+                                writePoints(database, (List<Point>) args[0]);
+                                return null;
+                            }
+                            break;
+                        case "writePoint":
+                            if (args.length == 1) {
+                                writePoints(database, List.of((Point) args[0]));
+                                return null;
+                            }
+                            break;
+                        case "writeRecords":
+                            if (args.length == 1) {
+                                writeRecords(database, (List<String>) args[0]);
+                                return null;
+                            }
+                            break;
+                        case "writeRecord":
+                            if (args.length == 1) {
+                                writeRecords(database, List.of((String) args[0]));
+                                return null;
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(client(database), args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    public List<EndpointStatus> status() {
+        List<EndpointStatus> status = new ArrayList<>();
+        for (List<Member> members : membersByDatabase.values()) {
+            for (Member member : members) {
+                status.add(new EndpointStatus(member.endpoint, member.healthy, member.writes.get(), member.failures.get()));
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Probes every unhealthy endpoint once and marks those that answer as healthy
+     */
+    public void probeUnhealthy() {
+        for (List<Member> members : membersByDatabase.values()) {
+            for (Member member : members) {
+                if (!member.healthy && probe(member)) {
+                    member.healthy = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops probing and closes every pooled client
+     */
+    @Override
+    public void close() throws Exception {
+        prober.shutdownNow();
+        Exception failure = null;
+        for (List<Member> members : membersByDatabase.values()) {
+            for (Member member : members) {
+                try {
+                    member.client.close();
+                } catch (Exception e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private <T> void write(String database, List<T> items, ToLongFunction<T> seriesHash,
+                           WriteCall<T> call) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        List<Member> members = members(database);
+        List<Member> excluded = new ArrayList<>();
+        Map<Member, List<T>> pending = assign(members, excluded, items, seriesHash);
+        RuntimeException lastFailure = null;
+
+        while (!pending.isEmpty()) {
+            List<T> retry = new ArrayList<>();
+            for (Map.Entry<Member, List<T>> entry : pending.entrySet()) {
+                Member member = entry.getKey();
+                try {
+                    call.write(member.client, entry.getValue());
+                    member.writes.incrementAndGet();
+                } catch (RuntimeException e) {
+                    if (!isEndpointFailure(e)) {
+                        // The request itself was rejected, e.g. a malformed point; another endpoint would too
+                        throw e;
+                    }
+                    lastFailure = e;
+                    member.failures.incrementAndGet();
+                    member.healthy = false;
+                    excluded.add(member);
+                    retry.addAll(entry.getValue());
+                }
+            }
+            if (retry.isEmpty()) {
+                return;
+            }
+            if (excluded.size() == members.size()) {
+                throw lastFailure;
+            }
+            pending = assign(members, excluded, retry, seriesHash);
+        }
+    }
+
+    /**
+     * Groups items by target endpoint, skipping endpoints already tried; unhealthy endpoints are used
+     * only when no healthy one is left, so a write still goes out if the probe is lagging behind
+     */
+    private <T> Map<Member, List<T>> assign(List<Member> members, List<Member> excluded, List<T> items,
+                                            ToLongFunction<T> seriesHash) {
+        List<Member> candidates = new ArrayList<>();
+        for (Member member : members) {
+            if (member.healthy && !excluded.contains(member)) {
+                candidates.add(member);
+            }
+        }
+        if (candidates.isEmpty()) {
+            for (Member member : members) {
+                if (!excluded.contains(member)) {
+                    candidates.add(member);
+                }
+            }
+        }
+
+        Map<Member, List<T>> assigned = new LinkedHashMap<>();
+        if (routing == Routing.ROUND_ROBIN || candidates.size() == 1) {
+            int next = Math.floorMod(nextRoundRobin.getAndIncrement(), candidates.size());
+            assigned.put(candidates.get(next), items);
+            return assigned;
+        }
+
+        for (T item : items) {
+            long hash = seriesHash.applyAsLong(item);
+            Member best = null;
+            long bestScore = 0;
+            for (Member member : candidates) {
+                long score = mix(hash ^ member.seed);
+                if (best == null || Long.compareUnsigned(score, bestScore) > 0) {
+                    best = member;
+                    bestScore = score;
+                }
+            }
+            assigned.computeIfAbsent(best, member -> new ArrayList<>()).add(item);
+        }
+        return assigned;
+    }
+
+    /**
+     * Whether a failed write says the endpoint is unreachable or overloaded: connection errors, timeouts,
+     * an open circuit breaker and 429/5xx responses; any other HTTP status is an answer about the request
+     */
+    static boolean isEndpointFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InfluxDBApiHttpException http) {
+                return http.statusCode() == 429 || http.statusCode() >= 500;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    private boolean probe(Member member) {
+        try {
+            return probe.isHealthy(member.client);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private List<Member> members(String database) {
+        List<Member> members = membersByDatabase.get(database);
+        if (members == null) {
+            throw new IllegalArgumentException("No endpoint for database " + database);
+        }
+        return members;
+    }
+
+    /**
+     * Hash of measurement and tag set, the same for every point of a series
+     */
+    static long seriesHash(Point point) {
+        long hash = point.getMeasurement().hashCode();
+        for (String tag : point.getTagNames()) {
+            hash = hash * 31 + tag.hashCode();
+            hash = hash * 31 + point.getTag(tag).hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * Hash of the series key of the first line, i.e. everything before the first unescaped space
+     */
+    static long seriesHash(String record) {
+        long hash = 0;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (c == '\\' && i + 1 < record.length()) {
+                hash = hash * 31 + c;
+                c = record.charAt(++i);
+            } else if (c == ' ' || c == '\n') {
+                break;
+            }
+            hash = hash * 31 + c;
+        }
+        return hash;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    @FunctionalInterface
+    private interface WriteCall<T> {
+        void write(InfluxDBClient client, List<T> items);
+    }
+
+    private static final class Member {
+
+        private final Endpoint endpoint;
+        private final InfluxDBClient client;
+        private final long seed;
+        private final AtomicLong writes = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private volatile boolean healthy = true;
+
+        Member(Endpoint endpoint, InfluxDBClient client) {
+            this.endpoint = endpoint;
+            this.client = client;
+            // Derived from the endpoint itself, so reordering the configuration does not move series
+            this.seed = mix(endpoint.hashCode());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.service;
+
+/**
+ * One column of a ColumnarResult, backed by a primitive array
+ */
+public sealed interface Column permits DoubleColumn, LongColumn, StringColumn {
+
+    String name();
+
+    int size();
+
+    boolean isNull(int row);
+}
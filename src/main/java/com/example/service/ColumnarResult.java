@@ -0,0 +1,438 @@
+package com.example.service;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BaseIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.TimeStampVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.holders.NullableVarCharHolder;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Query result held as typed primitive columns instead of Object[] rows
+ * Built straight from Arrow record batches, so numeric values are never boxed
+ */
+public final class ColumnarResult {
+
+    private final int rowCount;
+    private final Map<String, Column> columns;
+    private final Schema schema;
+
+    private ColumnarResult(int rowCount, Map<String, Column> columns, Schema schema) {
+        this.rowCount = rowCount;
+        this.columns = columns;
+        this.schema = schema;
+    }
+
+    /**
+     * Copies every batch of a {@code client.queryBatches(...)} stream into columns
+     * Float columns become DoubleColumn, integer and timestamp columns LongColumn, everything else StringColumn
+     */
+    public static ColumnarResult from(Stream<VectorSchemaRoot> batches) {
+        return from(batches, null);
+    }
+
+    /**
+     * Like {@link #from(Stream)}, but reuses the schema of an earlier result of the same query
+     * instead of discovering column types again; a schema whose columns no longer match is rediscovered
+     *
+     * @param schema {@link #schema()} of an earlier result, or null
+     */
+    public static ColumnarResult from(Stream<VectorSchemaRoot> batches, Schema schema) {
+        Map<String, ColumnBuilder> builders = null;
+        int rowCount = 0;
+
+        // Batches may reuse the same root, so each one is copied before advancing
+        Iterator<VectorSchemaRoot> iterator = batches.iterator();
+        while (iterator.hasNext()) {
+            VectorSchemaRoot root = iterator.next();
+            if (builders == null) {
+                if (schema == null || !schema.matches(root)) {
+                    schema = Schema.of(root);
+                }
+                builders = schema.newBuilders();
+            }
+
+            int batchRows = root.getRowCount();
+            for (FieldVector vector : root.getFieldVectors()) {
+                ColumnBuilder builder = builders.get(vector.getName());
+                if (builder == null) {
+                    throw new IllegalStateException("Column " + vector.getName() + " missing from first batch");
+                }
+                builder.append(vector, batchRows);
+            }
+            rowCount += batchRows;
+        }
+
+        Map<String, Column> columns = new LinkedHashMap<>();
+        if (builders != null) {
+            builders.forEach((name, builder) -> columns.put(name, builder.build()));
+        }
+        return new ColumnarResult(rowCount, columns, builders != null ? schema : null);
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public List<String> columnNames() {
+        return List.copyOf(columns.keySet());
+    }
+
+    /**
+     * Column names and types this result was built with, or null if the query returned no batches
+     */
+    public Schema schema() {
+        return schema;
+    }
+
+    public boolean hasColumn(String name) {
+        return columns.containsKey(name);
+    }
+
+    public Column column(String name) {
+        Column column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("No column named " + name + ", available: " + columns.keySet());
+        }
+        return column;
+    }
+
+    public DoubleColumn doubleColumn(String name) {
+        return typed(name, DoubleColumn.class);
+    }
+
+    public LongColumn longColumn(String name) {
+        return typed(name, LongColumn.class);
+    }
+
+    public StringColumn stringColumn(String name) {
+        return typed(name, StringColumn.class);
+    }
+
+    private <C extends Column> C typed(String name, Class<C> type) {
+        Column column = column(name);
+        if (!type.isInstance(column)) {
+            throw new IllegalArgumentException("Column " + name + " is a " + column.getClass().getSimpleName()
+                    + ", not a " + type.getSimpleName());
+        }
+        return type.cast(column);
+    }
+
+    private static long nanosPerUnit(ArrowType.Timestamp timestamp) {
+        return switch (timestamp.getUnit()) {
+            case SECOND -> 1_000_000_000L;
+            case MILLISECOND -> 1_000_000L;
+            case MICROSECOND -> 1_000L;
+            case NANOSECOND -> 1L;
+        };
+    }
+
+    /**
+     * Column names and column types of a result, in column order
+     * Immutable, so it can be shared between threads running the same query
+     */
+    public static final class Schema {
+
+        // Column type per position: a timestamp unit in nanoseconds, or one of the markers below
+        private static final long INTEGER = 0;
+        private static final long FLOATING_POINT = -1;
+        private static final long TEXT = -2;
+
+        private final String[] names;
+        private final long[] types;
+        private final ArrowType[] arrowTypes;
+
+        private Schema(String[] names, long[] types, ArrowType[] arrowTypes) {
+            this.names = names;
+            this.types = types;
+            this.arrowTypes = arrowTypes;
+        }
+
+        /**
+         * Discovers the column types from the vectors of a batch
+         */
+        static Schema of(VectorSchemaRoot root) {
+            List<FieldVector> vectors = root.getFieldVectors();
+            String[] names = new String[vectors.size()];
+            long[] types = new long[vectors.size()];
+            ArrowType[] arrowTypes = new ArrowType[vectors.size()];
+            for (int i = 0; i < vectors.size(); i++) {
+                FieldVector vector = vectors.get(i);
+                ArrowType type = vector.getField().getType();
+                names[i] = vector.getName();
+                arrowTypes[i] = type;
+                if (type instanceof ArrowType.FloatingPoint) {
+                    types[i] = FLOATING_POINT;
+                } else if (type instanceof ArrowType.Timestamp timestamp) {
+                    types[i] = nanosPerUnit(timestamp);
+                } else if (type instanceof ArrowType.Int) {
+                    types[i] = INTEGER;
+                } else {
+                    types[i] = TEXT;
+                }
+            }
+            return new Schema(names, types, arrowTypes);
+        }
+
+        public List<String> columnNames() {
+            return List.of(names);
+        }
+
+        /**
+         * True if the batch has the same columns, in the same order and with the same Arrow types
+         * A column can change type between runs, e.g. a computed column or a timestamp unit, and a builder
+         * for the old type would silently convert its values wrongly
+         */
+        boolean matches(VectorSchemaRoot root) {
+            List<FieldVector> vectors = root.getFieldVectors();
+            if (vectors.size() != names.length) {
+                return false;
+            }
+            for (int i = 0; i < names.length; i++) {
+                FieldVector vector = vectors.get(i);
+                if (!names[i].equals(vector.getName()) || !arrowTypes[i].equals(vector.getField().getType())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private Map<String, ColumnBuilder> newBuilders() {
+            Map<String, ColumnBuilder> builders = new LinkedHashMap<>();
+            for (int i = 0; i < names.length; i++) {
+                long type = types[i];
+                builders.put(names[i], type == FLOATING_POINT ? new DoubleColumnBuilder(names[i])
+                        : type == TEXT ? new StringColumnBuilder(names[i])
+                        : new LongColumnBuilder(names[i], type));
+            }
+            return builders;
+        }
+    }
+
+    private interface ColumnBuilder {
+
+        void append(FieldVector vector, int rows);
+
+        Column build();
+    }
+
+    private static final class DoubleColumnBuilder implements ColumnBuilder {
+
+        private final String name;
+        private final BitSet nulls = new BitSet();
+        private double[] values = new double[1024];
+        private int size;
+
+        DoubleColumnBuilder(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void append(FieldVector vector, int rows) {
+            if (size + rows > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + rows));
+            }
+
+            for (int i = 0; i < rows; i++, size++) {
+                if (vector.isNull(i)) {
+                    nulls.set(size);
+                    values[size] = Double.NaN;
+                } else if (vector instanceof Float8Vector float8) {
+                    values[size] = float8.get(i);
+                } else if (vector instanceof Float4Vector float4) {
+                    values[size] = float4.get(i);
+                } else {
+                    values[size] = ((Number) vector.getObject(i)).doubleValue();
+                }
+            }
+        }
+
+        @Override
+        public Column build() {
+            return new DoubleColumn(name, Arrays.copyOf(values, size), nulls);
+        }
+    }
+
+    private static final class LongColumnBuilder implements ColumnBuilder {
+
+        private final String name;
+        private final long nanosPerUnit;
+        private final BitSet nulls = new BitSet();
+        private long[] values = new long[1024];
+        private int size;
+
+        /**
+         * @param nanosPerUnit timestamp unit in nanoseconds, or 0 for plain integers
+         */
+        LongColumnBuilder(String name, long nanosPerUnit) {
+            this.name = name;
+            this.nanosPerUnit = nanosPerUnit;
+        }
+
+        @Override
+        public void append(FieldVector vector, int rows) {
+            if (size + rows > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + rows));
+            }
+
+            for (int i = 0; i < rows; i++, size++) {
+                if (vector.isNull(i)) {
+                    nulls.set(size);
+                    values[size] = 0;
+                } else if (vector instanceof TimeStampVector timestamps) {
+                    values[size] = timestamps.get(i) * nanosPerUnit;
+                } else if (vector instanceof BaseIntVector integers) {
+                    values[size] = integers.getValueAsLong(i);
+                } else {
+                    values[size] = ((Number) vector.getObject(i)).longValue();
+                }
+            }
+        }
+
+        @Override
+        public Column build() {
+            return new LongColumn(name, Arrays.copyOf(values, size), nulls, nanosPerUnit > 0);
+        }
+    }
+
+    /**
+     * Dictionary-encodes strings; UTF-8 bytes are hashed in place in the Arrow buffer,
+     * so a String is only created the first time a value is seen
+     */
+    private static final class StringColumnBuilder implements ColumnBuilder {
+
+        private final String name;
+        private final NullableVarCharHolder holder = new NullableVarCharHolder();
+        private final List<String> dictionary = new ArrayList<>();
+        private byte[][] entries = new byte[16][];
+        private int[] entryHashes = new int[16];
+        private int[] slots = new int[64];
+        private int[] codes = new int[1024];
+        private int size;
+
+        StringColumnBuilder(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void append(FieldVector vector, int rows) {
+            if (size + rows > codes.length) {
+                codes = Arrays.copyOf(codes, Math.max(codes.length * 2, size + rows));
+            }
+
+            for (int i = 0; i < rows; i++, size++) {
+                if (vector.isNull(i)) {
+                    codes[size] = StringColumn.NULL_CODE;
+                } else if (vector instanceof VarCharVector varChar) {
+                    varChar.get(i, holder);
+                    codes[size] = intern(holder.buffer, holder.start, holder.end);
+                } else {
+                    byte[] bytes = vector.getObject(i).toString().getBytes(StandardCharsets.UTF_8);
+                    codes[size] = intern(bytes);
+                }
+            }
+        }
+
+        @Override
+        public Column build() {
+            return new StringColumn(name, Arrays.copyOf(codes, size), dictionary);
+        }
+
+        private int intern(ArrowBuf buffer, int start, int end) {
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + buffer.getByte(i);
+            }
+
+            int mask = slots.length - 1;
+            for (int index = mix(hash) & mask; ; index = (index + 1) & mask) {
+                int slot = slots[index];
+                if (slot == 0) {
+                    byte[] bytes = new byte[end - start];
+                    buffer.getBytes(start, bytes);
+                    return add(bytes, hash, index);
+                }
+                int code = slot - 1;
+                if (entryHashes[code] == hash && matches(entries[code], buffer, start, end)) {
+                    return code;
+                }
+            }
+        }
+
+        private int intern(byte[] bytes) {
+            int hash = Arrays.hashCode(bytes);
+
+            int mask = slots.length - 1;
+            for (int index = mix(hash) & mask; ; index = (index + 1) & mask) {
+                int slot = slots[index];
+                if (slot == 0) {
+                    return add(bytes, hash, index);
+                }
+                int code = slot - 1;
+                if (entryHashes[code] == hash && Arrays.equals(entries[code], bytes)) {
+                    return code;
+                }
+            }
+        }
+
+        private int add(byte[] bytes, int hash, int index) {
+            int code = dictionary.size();
+            if (code == entries.length) {
+                entries = Arrays.copyOf(entries, code * 2);
+                entryHashes = Arrays.copyOf(entryHashes, code * 2);
+            }
+            entries[code] = bytes;
+            entryHashes[code] = hash;
+            dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+            slots[index] = code + 1;
+
+            // Keep the table at most half full
+            if (dictionary.size() * 2 > slots.length) {
+                rehash();
+            }
+            return code;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int code = 0; code < dictionary.size(); code++) {
+                int index = mix(entryHashes[code]) & mask;
+                while (slots[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = code + 1;
+            }
+        }
+
+        private static boolean matches(byte[] entry, ArrowBuf buffer, int start, int end) {
+            if (entry.length != end - start) {
+                return false;
+            }
+            for (int i = 0; i < entry.length; i++) {
+                if (entry[i] != buffer.getByte(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
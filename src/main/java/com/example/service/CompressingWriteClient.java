@@ -0,0 +1,162 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBApiException;
+import com.influxdb.v3.client.InfluxDBApiHttpException;
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends writes as line protocol over HTTP itself, compressed by a {@link WriteCompression} policy
+ * The client library builds and gzips a fresh body per request; this reuses pooled buffers instead
+ * writePoint, writePoints, writeRecord and writeRecords without write options are sent to /api/v2/write
+ * with nanosecond precision; every other call, including queries, goes to the wrapped client
+ * Failed writes throw {@link InfluxDBApiHttpException} with the status code, as the client library does
+ */
+public final class CompressingWriteClient implements InvocationHandler {
+
+    private final InfluxDBClient delegate;
+    private final WriteCompression compression;
+    private final URI writeUri;
+    private final String authorization;
+    private final Duration timeout;
+    private final HttpClient http;
+
+    private CompressingWriteClient(InfluxDBClient delegate, String host, String database, char[] token,
+                                   Duration timeout, WriteCompression compression) {
+        this.delegate = delegate;
+        this.compression = compression;
+        String base = host.endsWith("/") ? host.substring(0, host.length() - 1) : host;
+        this.writeUri = URI.create(base + "/api/v2/write?bucket="
+                + URLEncoder.encode(database, StandardCharsets.UTF_8) + "&precision=ns");
+        this.authorization = "Bearer " + new String(token);
+        this.timeout = timeout;
+        this.http = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    /**
+     * @param client used for everything but plain writes, and closed with the wrapper
+     */
+    public static InfluxDBClient wrap(InfluxDBClient client, String host, String database, char[] token,
+                                      Duration timeout, WriteCompression compression) {
+        return (InfluxDBClient) Proxy.newProxyInstance(InfluxDBClient.class.getClassLoader(),
+                new Class<?>[]{InfluxDBClient.class},
+                new CompressingWriteClient(client, host, database, token, timeout, compression));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        int arguments = args == null ? 0 : args.length;
+        switch (method.getName()) {
+            case "toString":
+                return "Compressing(" + delegate + ")";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "close":
+                try {
+                    return method.invoke(delegate, args);
+                } finally {
+                    http.close();
+                }
+            case "writeRecord":
+                if (arguments == 1) {
+                    try (WriteCompression.Payload payload = compression.encode((String) args[0])) {
+                        send(payload);
+                    }
+                    return null;
+                }
+                break;
+            case "writeRecords":
+                if (arguments == 1) {
+                    try (WriteCompression.Payload payload = compression.encode((List<String>) args[0])) {
+                        send(payload);
+                    }
+                    return null;
+                }
+                break;
+            case "writePoint":
+                if (arguments == 1) {
+                    writePoints(List.of((Point) args[0]));
+                    return null;
+                }
+                break;
+            case "writePoints":
+                if (arguments == 1) {
+                    writePoints((List<Point>) args[0]);
+                    return null;
+                }
+                break;
+            default:
+                break;
+        }
+
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writePoints(List<Point> points) {
+        List<String> records = new ArrayList<>(points.size());
+        for (Point point : points) {
+            // Points without fields have no line protocol and are skipped, as by the client library
+            String line = point.toLineProtocol();
+            if (line != null) {
+                records.add(line);
+            }
+        }
+        try (WriteCompression.Payload payload = compression.encode(records)) {
+            send(payload);
+        }
+    }
+
+    private void send(WriteCompression.Payload payload) {
+        if (payload.rawLength() == 0) {
+            return;
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(writeUri)
+                .timeout(timeout)
+                .header("Authorization", authorization)
+                .header("Content-Type", "text/plain; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(payload.bytes(), 0, payload.length()));
+        if (payload.gzipped()) {
+            request.header("Content-Encoding", "gzip");
+        }
+
+        HttpResponse<String> response;
+        try {
+            // Synchronous, so the payload is not handed back before the body is sent
+            response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new InfluxDBApiException("Write to " + writeUri.getHost() + " failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InfluxDBApiException("Write to " + writeUri.getHost() + " was interrupted");
+        }
+
+        if (response.statusCode() / 100 != 2) {
+            throw new InfluxDBApiHttpException(response.body().isEmpty()
+                    ? "HTTP status code: " + response.statusCode() : response.body(),
+                    response.headers(), response.statusCode());
+        }
+    }
+}
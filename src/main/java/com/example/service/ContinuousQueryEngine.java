@@ -0,0 +1,502 @@
+package com.example.service;
+
+import com.influxdb.v3.client.Point;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client-side continuous queries: aggregations such as {@code AVG(value) GROUP BY location} over tumbling or
+ * sliding windows, updated incrementally from the points written, instead of re-querying the server
+ * Each window is split into panes one slide wide; a point updates the count, sum, min and max of its pane
+ * and group, and a closing window combines its panes, so a sliding window costs window/slide pane merges
+ * per group rather than a rescan. Results are published to {@link Flow.Subscriber}s as windows close, or on
+ * every update for alerting; slow subscribers lose results instead of holding up writers
+ * Windows close on event time, once a point or the wall clock is the allowed lateness past their end
+ */
+public class ContinuousQueryEngine implements AutoCloseable {
+
+    public enum Aggregate {
+        COUNT, SUM, MIN, MAX, AVG
+    }
+
+    /**
+     * When results are published
+     */
+    public enum Trigger {
+        /** Once per window and group, when the window closes */
+        ON_WINDOW_CLOSE,
+        /** Also after every point, with the partial aggregate of the newest window of its group */
+        ON_EVERY_UPDATE
+    }
+
+    public static final Duration DEFAULT_ALLOWED_LATENESS = Duration.ofSeconds(2);
+    public static final int DEFAULT_SUBSCRIBER_BUFFER = 1_024;
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    /**
+     * A registered aggregation
+     *
+     * @param groupBy tag keys; points without one of them are grouped under a null value, as in SQL
+     * @param window  width of each window
+     * @param slide   distance between window starts; equal to the window for tumbling windows
+     */
+    public record Definition(String measurement, String field, Aggregate aggregate, List<String> groupBy,
+                             Duration window, Duration slide, Trigger trigger) {
+
+        public Definition {
+            if (window.isNegative() || window.isZero() || slide.isNegative() || slide.isZero()) {
+                throw new IllegalArgumentException("Window and slide must be positive");
+            }
+            if (slide.compareTo(window) > 0 || window.toNanos() % slide.toNanos() != 0) {
+                throw new IllegalArgumentException("Window must be a multiple of the slide");
+            }
+            groupBy = List.copyOf(groupBy);
+        }
+
+        public static Definition tumbling(String measurement, String field, Aggregate aggregate, Duration window,
+                                          String... groupBy) {
+            return new Definition(measurement, field, aggregate, List.of(groupBy), window, window,
+                    Trigger.ON_WINDOW_CLOSE);
+        }
+
+        public static Definition sliding(String measurement, String field, Aggregate aggregate, Duration window,
+                                         Duration slide, String... groupBy) {
+            return new Definition(measurement, field, aggregate, List.of(groupBy), window, slide,
+                    Trigger.ON_WINDOW_CLOSE);
+        }
+
+        public Definition withTrigger(Trigger trigger) {
+            return new Definition(measurement, field, aggregate, groupBy, window, slide, trigger);
+        }
+
+        @Override
+        public String toString() {
+            return aggregate + "(" + field + ") FROM " + measurement
+                    + (groupBy.isEmpty() ? "" : " GROUP BY " + String.join(", ", groupBy))
+                    + " WINDOW " + window + (slide.equals(window) ? "" : " SLIDE " + slide);
+        }
+    }
+
+    /**
+     * Aggregate of one group over one window
+     *
+     * @param group    values of the group-by tags, in definition order
+     * @param count    points in the window
+     * @param complete false for partial results of a window that is still open
+     */
+    public record Result(Definition query, Map<String, String> group, long windowStartNanos, long windowEndNanos,
+                         double value, long count, boolean complete) {
+
+        public Instant windowStart() {
+            return Instant.ofEpochSecond(0, windowStartNanos);
+        }
+
+        public Instant windowEnd() {
+            return Instant.ofEpochSecond(0, windowEndNanos);
+        }
+    }
+
+    private final long latenessNanos;
+    private final int subscriberBuffer;
+    private final List<ContinuousQuery> queries = new CopyOnWriteArrayList<>();
+    private final ExecutorService delivery = Executors.newVirtualThreadPerTaskExecutor();
+    private ScheduledExecutorService ticker;
+
+    private final AtomicLong pointsAccepted = new AtomicLong();
+
+    public ContinuousQueryEngine() {
+        this(DEFAULT_ALLOWED_LATENESS, DEFAULT_SUBSCRIBER_BUFFER);
+    }
+
+    /**
+     * @param allowedLateness  how long after a window ends it still takes points
+     * @param subscriberBuffer results buffered per subscriber before newer ones are dropped
+     */
+    public ContinuousQueryEngine(Duration allowedLateness, int subscriberBuffer) {
+        if (allowedLateness.isNegative() || subscriberBuffer <= 0) {
+            throw new IllegalArgumentException("Lateness must not be negative and the buffer must be positive");
+        }
+        this.latenessNanos = allowedLateness.toNanos();
+        this.subscriberBuffer = subscriberBuffer;
+    }
+
+    /**
+     * Closes windows on wall-clock time, so results are published even when writes stop
+     */
+    public synchronized ContinuousQueryEngine start() {
+        if (ticker == null) {
+            ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "influxdb-continuous-queries");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleWithFixedDelay(() -> advanceTo(LineProtocolEncoder.epochNanos(Instant.now())),
+                    100, 100, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * Starts aggregating the points accepted from now on
+     */
+    public ContinuousQuery register(Definition definition) {
+        ContinuousQuery query = new ContinuousQuery(definition);
+        queries.add(query);
+        return query;
+    }
+
+    public List<ContinuousQuery> getQueries() {
+        return Collections.unmodifiableList(queries);
+    }
+
+    /**
+     * Folds the numeric fields of a point into every query on its measurement
+     */
+    public void accept(Point point) {
+        if (queries.isEmpty()) {
+            return;
+        }
+        Number timestamp = point.getTimestamp();
+        long time = timestamp != null ? timestamp.longValue() : LineProtocolEncoder.epochNanos(Instant.now());
+        String measurement = point.getMeasurement();
+        for (ContinuousQuery query : queries) {
+            Definition definition = query.definition;
+            if (definition.measurement.equals(measurement)
+                    && point.getField(definition.field) instanceof Number number) {
+                query.accept(query.groupOf(point), time, number.doubleValue());
+            }
+        }
+        pointsAccepted.incrementAndGet();
+    }
+
+    public void acceptAll(List<Point> points) {
+        for (Point point : points) {
+            accept(point);
+        }
+    }
+
+    /**
+     * Folds one field value into every query on its measurement and field, e.g. for writes of line protocol
+     */
+    public void accept(String measurement, Map<String, String> tags, String field, long timeNanos, double value) {
+        for (ContinuousQuery query : queries) {
+            Definition definition = query.definition;
+            if (definition.measurement.equals(measurement) && definition.field.equals(field)) {
+                query.accept(query.groupOf(tags), timeNanos, value);
+            }
+        }
+        pointsAccepted.incrementAndGet();
+    }
+
+    /**
+     * Closes the windows that ended more than the allowed lateness before {@code nowNanos}
+     */
+    public void advanceTo(long nowNanos) {
+        for (ContinuousQuery query : queries) {
+            query.advanceTo(nowNanos);
+        }
+    }
+
+    /**
+     * Stops the ticker, publishes the open windows as complete and completes all subscribers
+     */
+    @Override
+    public void close() throws InterruptedException {
+        ScheduledExecutorService toStop;
+        synchronized (this) {
+            toStop = ticker;
+            ticker = null;
+        }
+        if (toStop != null) {
+            toStop.shutdown();
+            toStop.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        for (ContinuousQuery query : queries) {
+            query.close();
+        }
+        delivery.close();
+    }
+
+    /**
+     * Running state of one definition and the publisher of its results
+     * Groups keep a ring of pane aggregates long enough for the panes of one window plus the allowed lateness
+     */
+    public final class ContinuousQuery implements Flow.Publisher<Result>, AutoCloseable {
+
+        private final Definition definition;
+        private final long slideNanos;
+        private final int panesPerWindow;
+        private final int ringSize;
+        private final SubmissionPublisher<Result> publisher;
+        private final Map<List<String>, Group> groups = new HashMap<>();
+
+        // Guarded by this
+        private long watermark = NONE;
+        private long maxPane = NONE;
+        private long nextWindowEnd = NONE;
+
+        private long updates;
+        private long latePoints;
+        private long windowsClosed;
+        private final AtomicLong resultsPublished = new AtomicLong();
+        private final AtomicLong resultsDropped = new AtomicLong();
+
+        private ContinuousQuery(Definition definition) {
+            this.definition = definition;
+            this.slideNanos = definition.slide.toNanos();
+            this.panesPerWindow = (int) (definition.window.toNanos() / slideNanos);
+            this.ringSize = panesPerWindow + (int) ((latenessNanos + slideNanos - 1) / slideNanos) + 2;
+            this.publisher = new SubmissionPublisher<>(delivery, subscriberBuffer);
+        }
+
+        public Definition getDefinition() {
+            return definition;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super Result> subscriber) {
+            publisher.subscribe(subscriber);
+        }
+
+        private List<String> groupOf(Point point) {
+            List<String> groupBy = definition.groupBy;
+            String[] values = new String[groupBy.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = point.getTag(groupBy.get(i));
+            }
+            return Arrays.asList(values);
+        }
+
+        private List<String> groupOf(Map<String, String> tags) {
+            List<String> groupBy = definition.groupBy;
+            String[] values = new String[groupBy.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = tags.get(groupBy.get(i));
+            }
+            return Arrays.asList(values);
+        }
+
+        private synchronized void accept(List<String> key, long timeNanos, double value) {
+            long pane = Math.floorDiv(timeNanos, slideNanos);
+            if (nextWindowEnd == NONE) {
+                // Windows ending before the lateness allowance of the first point can never see data
+                nextWindowEnd = Math.floorDiv(timeNanos - latenessNanos, slideNanos);
+            } else if (pane + panesPerWindow - 1 < nextWindowEnd) {
+                latePoints++;
+                return;
+            }
+
+            if (timeNanos > watermark) {
+                closeWindows(timeNanos);
+            }
+            Group group = groups.computeIfAbsent(key, Group::new);
+            group.add(pane, value);
+            maxPane = Math.max(maxPane, pane);
+            updates++;
+
+            if (definition.trigger == Trigger.ON_EVERY_UPDATE) {
+                long end = Math.max(group.newestPane, nextWindowEnd);
+                publish(group.result(end, false));
+            }
+        }
+
+        private synchronized void advanceTo(long nowNanos) {
+            if (nextWindowEnd != NONE && nowNanos > watermark) {
+                closeWindows(nowNanos);
+            }
+        }
+
+        /**
+         * Publishes the windows that end at least the allowed lateness before the new watermark
+         */
+        private void closeWindows(long newWatermark) {
+            watermark = newWatermark;
+            long lastEnd = Math.floorDiv(newWatermark - latenessNanos, slideNanos) - 1;
+            for (long end = nextWindowEnd; end <= lastEnd; end++) {
+                if (end - panesPerWindow + 1 > maxPane) {
+                    // No data in this or any later closable window
+                    break;
+                }
+                for (Group group : groups.values()) {
+                    Result result = group.result(end, true);
+                    if (result != null) {
+                        publish(result);
+                    }
+                }
+                windowsClosed++;
+            }
+            if (lastEnd >= nextWindowEnd) {
+                nextWindowEnd = lastEnd + 1;
+                long oldestNeeded = nextWindowEnd - panesPerWindow + 1;
+                groups.values().removeIf(group -> group.newestPane < oldestNeeded);
+            }
+        }
+
+        /**
+         * Partial results of the newest window of every group, without waiting for it to close
+         */
+        public synchronized List<Result> snapshot() {
+            List<Result> results = new ArrayList<>();
+            for (Group group : groups.values()) {
+                Result result = group.result(Math.max(group.newestPane, nextWindowEnd), false);
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+            return results;
+        }
+
+        private void publish(Result result) {
+            if (publisher.isClosed()) {
+                return;
+            }
+            resultsPublished.incrementAndGet();
+            publisher.offer(result, (subscriber, dropped) -> {
+                resultsDropped.incrementAndGet();
+                return false;
+            });
+        }
+
+        /**
+         * Publishes every window that still holds data as complete, unregisters and completes the subscribers
+         */
+        @Override
+        public void close() {
+            queries.remove(this);
+            synchronized (this) {
+                if (maxPane != NONE) {
+                    closeWindows((maxPane + panesPerWindow) * slideNanos + latenessNanos);
+                }
+            }
+            publisher.close();
+        }
+
+        @Override
+        public String toString() {
+            return definition.toString();
+        }
+
+        /**
+         * Pane aggregates of one group, indexed by pane number modulo the ring size
+         */
+        private final class Group {
+
+            private final Map<String, String> tags;
+            private final long[] paneIds = new long[ringSize];
+            private final long[] counts = new long[ringSize];
+            private final double[] sums = new double[ringSize];
+            private final double[] mins = new double[ringSize];
+            private final double[] maxs = new double[ringSize];
+            private long newestPane = NONE;
+
+            Group(List<String> key) {
+                Map<String, String> tags = new LinkedHashMap<>();
+                for (int i = 0; i < key.size(); i++) {
+                    tags.put(definition.groupBy.get(i), key.get(i));
+                }
+                this.tags = Collections.unmodifiableMap(tags);
+                Arrays.fill(paneIds, NONE);
+            }
+
+            void add(long pane, double value) {
+                int slot = (int) Math.floorMod(pane, (long) ringSize);
+                if (paneIds[slot] != pane) {
+                    paneIds[slot] = pane;
+                    counts[slot] = 1;
+                    sums[slot] = value;
+                    mins[slot] = value;
+                    maxs[slot] = value;
+                } else {
+                    counts[slot]++;
+                    sums[slot] += value;
+                    mins[slot] = Math.min(mins[slot], value);
+                    maxs[slot] = Math.max(maxs[slot], value);
+                }
+                newestPane = Math.max(newestPane, pane);
+            }
+
+            /**
+             * Combines the panes of the window ending with pane {@code end}; null if none holds data
+             */
+            Result result(long end, boolean complete) {
+                long count = 0;
+                double sum = 0;
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (long pane = end - panesPerWindow + 1; pane <= end; pane++) {
+                    int slot = (int) Math.floorMod(pane, (long) ringSize);
+                    if (paneIds[slot] == pane) {
+                        count += counts[slot];
+                        sum += sums[slot];
+                        min = Math.min(min, mins[slot]);
+                        max = Math.max(max, maxs[slot]);
+                    }
+                }
+                if (count == 0) {
+                    return null;
+                }
+
+                double value = switch (definition.aggregate) {
+                    case COUNT -> count;
+                    case SUM -> sum;
+                    case MIN -> min;
+                    case MAX -> max;
+                    case AVG -> sum / count;
+                };
+                long windowEnd = (end + 1) * slideNanos;
+                return new Result(definition, tags, windowEnd - definition.window.toNanos(), windowEnd, value, count,
+                        complete);
+            }
+        }
+
+        // Counters
+        public synchronized long getUpdates() {
+            return updates;
+        }
+
+        public synchronized long getLatePoints() {
+            return latePoints;
+        }
+
+        public synchronized long getWindowsClosed() {
+            return windowsClosed;
+        }
+
+        public synchronized int getGroupCount() {
+            return groups.size();
+        }
+
+        public long getResultsPublished() {
+            return resultsPublished.get();
+        }
+
+        /**
+         * Results a subscriber missed because its buffer was full
+         */
+        public long getResultsDropped() {
+            return resultsDropped.get();
+        }
+    }
+
+    // Counters
+    public long getPointsAccepted() {
+        return pointsAccepted.get();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.service;
+
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * Floating point column; null rows hold NaN and are skipped by the aggregates
+ */
+public final class DoubleColumn implements Column {
+
+    private final String name;
+    private final double[] values;
+    private final BitSet nulls;
+
+    DoubleColumn(String name, double[] values, BitSet nulls) {
+        this.name = name;
+        this.values = values;
+        this.nulls = nulls;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        Objects.checkIndex(row, values.length);
+        return nulls.get(row);
+    }
+
+    public double get(int row) {
+        return values[row];
+    }
+
+    /**
+     * The backing array, one entry per row; callers must not modify it
+     */
+    public double[] values() {
+        return values;
+    }
+
+    public int count() {
+        return values.length - nulls.cardinality();
+    }
+
+    public double sum() {
+        double sum = 0;
+        for (int row = nulls.nextClearBit(0); row < values.length; row = nulls.nextClearBit(row + 1)) {
+            sum += values[row];
+        }
+        return sum;
+    }
+
+    public double min() {
+        double min = Double.NaN;
+        for (int row = nulls.nextClearBit(0); row < values.length; row = nulls.nextClearBit(row + 1)) {
+            if (Double.isNaN(min) || values[row] < min) {
+                min = values[row];
+            }
+        }
+        return min;
+    }
+
+    public double max() {
+        double max = Double.NaN;
+        for (int row = nulls.nextClearBit(0); row < values.length; row = nulls.nextClearBit(row + 1)) {
+            if (Double.isNaN(max) || values[row] > max) {
+                max = values[row];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Mean of the non-null rows, or NaN if there are none
+     */
+    public double average() {
+        int count = count();
+        return count == 0 ? Double.NaN : sum() / count;
+    }
+}
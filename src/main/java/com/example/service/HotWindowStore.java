@@ -0,0 +1,669 @@
+package com.example.service;
+
+import com.influxdb.v3.client.Point;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Local replica of the most recent samples of every numeric series field, fed by the write path, so
+ * recent-data reads (latest N, last few minutes) are answered without leaving the process
+ * Samples live off-heap in fixed-size blocks carved from direct buffers, compressed as in Facebook's Gorilla:
+ * timestamps as delta-of-delta with variable-width buckets sized for nanoseconds, values XOR'd with the previous
+ * value so unchanged or slowly changing readings take a few bits. A series keeps a chain of blocks and only its
+ * newest block is appended to
+ * Blocks older than the retention window, measured from the newest sample stored, are freed as new ones are
+ * needed; when the memory budget is used up the oldest block of any series is evicted early
+ * Each series appends in time order: samples older than the newest of their series are counted and skipped
+ */
+public class HotWindowStore {
+
+    public static final int DEFAULT_BLOCK_BYTES = 1024;
+
+    // Direct buffers are allocated in slabs as blocks are first needed, up to the budget
+    private static final int SLAB_BYTES = 16 * 1024 * 1024;
+    // Largest encoded sample: 4 + 64 timestamp bits, 2 + 5 + 6 + 64 value bits
+    private static final int MAX_SAMPLE_BITS = 145;
+
+    /**
+     * Visits samples without allocating per sample
+     */
+    @FunctionalInterface
+    public interface SampleVisitor {
+        void visit(long timeNanos, double value);
+    }
+
+    public record Sample(long timeNanos, double value) {
+
+        public Instant time() {
+            return Instant.ofEpochSecond(0, timeNanos);
+        }
+    }
+
+    /**
+     * A sample with the series it belongs to
+     */
+    public record Reading(String measurement, Map<String, String> tags, String field, long timeNanos, double value) {
+
+        public Instant time() {
+            return Instant.ofEpochSecond(0, timeNanos);
+        }
+    }
+
+    public record Stats(int series, int blocks, long bytesUsed, long budgetBytes, long samples,
+                        double bitsPerSample, long outOfOrder, long blocksExpired, long blocksEvicted) {
+    }
+
+    private record Key(int seriesId, String field) {
+    }
+
+    private final SeriesRegistry registry;
+    private final long retentionNanos;
+    private final long budgetBytes;
+    private final int blockBytes;
+    private final int maxBlocks;
+    private final int blocksPerSlab;
+    private final ByteBuffer[] slabs;
+    private final int[] freeBlocks;
+    private int freeCount;
+    private int unusedFrom;
+
+    private final Map<Key, Series> series = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long newestTime = Long.MIN_VALUE;
+
+    // Guarded by the write lock
+    private long samplesAppended;
+    private long outOfOrder;
+    private long blocksExpired;
+    private long blocksEvicted;
+
+    public HotWindowStore(SeriesRegistry registry, Duration retention, long budgetBytes) {
+        this(registry, retention, budgetBytes, DEFAULT_BLOCK_BYTES);
+    }
+
+    /**
+     * @param retention   how far back from the newest sample data is kept
+     * @param budgetBytes off-heap memory for sample blocks; allocated as needed, never exceeded
+     * @param blockBytes  size of one block; larger blocks compress a little better but are freed less often
+     */
+    public HotWindowStore(SeriesRegistry registry, Duration retention, long budgetBytes, int blockBytes) {
+        if (retention.isNegative() || retention.isZero()) {
+            throw new IllegalArgumentException("Retention must be positive");
+        }
+        if (blockBytes < 64 || blockBytes > SLAB_BYTES || Integer.bitCount(blockBytes) != 1) {
+            throw new IllegalArgumentException("Block size must be a power of two from 64 bytes to 16 MB");
+        }
+        if (budgetBytes < blockBytes) {
+            throw new IllegalArgumentException("Budget must hold at least one block");
+        }
+        this.registry = registry;
+        this.retentionNanos = retention.toNanos();
+        this.blockBytes = blockBytes;
+        this.maxBlocks = (int) Math.min(Integer.MAX_VALUE - 8, budgetBytes / blockBytes);
+        this.budgetBytes = (long) maxBlocks * blockBytes;
+        this.blocksPerSlab = SLAB_BYTES / blockBytes;
+        this.slabs = new ByteBuffer[(maxBlocks + blocksPerSlab - 1) / blocksPerSlab];
+        this.freeBlocks = new int[maxBlocks];
+    }
+
+    /**
+     * Stores the numeric fields of a point; a point without a timestamp is taken as written now
+     */
+    public void record(Point point) {
+        Number timestamp = point.getTimestamp();
+        long timeNanos = timestamp != null ? timestamp.longValue() : LineProtocolEncoder.epochNanos(Instant.now());
+
+        Map<String, String> tags = new HashMap<>();
+        for (String tag : point.getTagNames()) {
+            tags.put(tag, point.getTag(tag));
+        }
+        int seriesId = registry.register(point.getMeasurement(), tags);
+        lock.writeLock().lock();
+        try {
+            for (String field : point.getFieldNames()) {
+                if (point.getField(field) instanceof Number number) {
+                    append(seriesId, field, timeNanos, number.doubleValue());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void recordAll(List<Point> points) {
+        points.forEach(this::record);
+    }
+
+    /**
+     * Stores one sample of a series registered in the store's {@link SeriesRegistry}
+     *
+     * @return false if the sample is older than the newest of its series and was skipped
+     */
+    public boolean record(int seriesId, String field, long timeNanos, double value) {
+        lock.writeLock().lock();
+        try {
+            return append(seriesId, field, timeNanos, value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean append(int seriesId, String field, long timeNanos, double value) {
+        Key key = new Key(seriesId, field);
+        Series target = series.computeIfAbsent(key, ignored -> new Series(seriesId, field));
+        Block block = target.blocks.peekLast();
+        if (block != null && timeNanos < block.lastTime) {
+            outOfOrder++;
+            return false;
+        }
+        if (newestTime < timeNanos) {
+            newestTime = timeNanos;
+        }
+
+        if (block == null || block.bitPos + MAX_SAMPLE_BITS > blockBytes * 8) {
+            int index = allocate(target);
+            block = new Block(index);
+            target.blocks.addLast(block);
+            // Retention may have dropped the series while its last block was full
+            series.putIfAbsent(key, target);
+        }
+        block.append(timeNanos, value);
+        samplesAppended++;
+        return true;
+    }
+
+    /**
+     * A zeroed block: from the free list, fresh budget, freed by retention, or evicted as the oldest block stored
+     */
+    private int allocate(Series requester) {
+        if (freeCount == 0 && unusedFrom == maxBlocks) {
+            expire(cutoff());
+        }
+        if (freeCount == 0 && unusedFrom == maxBlocks) {
+            evictOldest(requester);
+        }
+
+        int index = freeCount > 0 ? freeBlocks[--freeCount] : unusedFrom++;
+        ByteBuffer slab = slab(index);
+        int base = offset(index);
+        for (int i = 0; i < blockBytes; i += Long.BYTES) {
+            slab.putLong(base + i, 0L);
+        }
+        return index;
+    }
+
+    private void expire(long cutoff) {
+        Iterator<Series> iterator = series.values().iterator();
+        while (iterator.hasNext()) {
+            Series candidate = iterator.next();
+            while (!candidate.blocks.isEmpty() && candidate.blocks.peekFirst().lastTime < cutoff) {
+                free(candidate.blocks.pollFirst());
+                blocksExpired++;
+            }
+            if (candidate.blocks.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void evictOldest(Series requester) {
+        Series victim = null;
+        for (Series candidate : series.values()) {
+            // A series' only block is still being filled; take it only if nothing else is left
+            if (!candidate.blocks.isEmpty() && (candidate.blocks.size() > 1 || candidate != requester)
+                    && (victim == null || candidate.blocks.peekFirst().lastTime < victim.blocks.peekFirst().lastTime)) {
+                victim = candidate;
+            }
+        }
+        if (victim == null) {
+            victim = requester;
+        }
+        free(victim.blocks.pollFirst());
+        blocksEvicted++;
+        if (victim.blocks.isEmpty() && victim != requester) {
+            series.remove(new Key(victim.seriesId, victim.field));
+        }
+    }
+
+    /**
+     * Oldest timestamp still inside the retention window
+     */
+    private long cutoff() {
+        return newestTime == Long.MIN_VALUE ? Long.MIN_VALUE : newestTime - retentionNanos;
+    }
+
+    private void free(Block block) {
+        freeBlocks[freeCount++] = block.index;
+    }
+
+    /**
+     * Frees every block whose samples are all older than the retention window
+     */
+    public void expire() {
+        lock.writeLock().lock();
+        try {
+            expire(cutoff());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private ByteBuffer slab(int index) {
+        int slabIndex = index / blocksPerSlab;
+        ByteBuffer slab = slabs[slabIndex];
+        if (slab == null) {
+            int blocks = Math.min(blocksPerSlab, maxBlocks - slabIndex * blocksPerSlab);
+            slab = ByteBuffer.allocateDirect(blocks * blockBytes);
+            slabs[slabIndex] = slab;
+        }
+        return slab;
+    }
+
+    private int offset(int index) {
+        return (index % blocksPerSlab) * blockBytes;
+    }
+
+    /**
+     * Visits the samples of a series field from {@code fromNanos} (inclusive) to {@code toNanos} (exclusive),
+     * oldest first, within the retention window
+     *
+     * @return samples visited; 0 if the series is not stored
+     */
+    public int scan(String measurement, Map<String, String> tags, String field, long fromNanos, long toNanos,
+                    SampleVisitor visitor) {
+        int seriesId = registry.find(measurement, tags);
+        if (seriesId < 0) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            Series stored = series.get(new Key(seriesId, field));
+            if (stored == null) {
+                return 0;
+            }
+            long from = Math.max(fromNanos, cutoff());
+            int visited = 0;
+            for (Block block : stored.blocks) {
+                if (block.lastTime < from || block.firstTime >= toNanos) {
+                    continue;
+                }
+                Decoder decoder = new Decoder(block);
+                while (decoder.next()) {
+                    if (decoder.time >= toNanos) {
+                        break;
+                    }
+                    if (decoder.time >= from) {
+                        visitor.visit(decoder.time, Double.longBitsToDouble(decoder.valueBits));
+                        visited++;
+                    }
+                }
+            }
+            return visited;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Samples of a series field in a time range, oldest first
+     */
+    public List<Sample> range(String measurement, Map<String, String> tags, String field, Instant from, Instant to) {
+        List<Sample> samples = new ArrayList<>();
+        scan(measurement, tags, field, LineProtocolEncoder.epochNanos(from), LineProtocolEncoder.epochNanos(to),
+                (time, value) -> samples.add(new Sample(time, value)));
+        return samples;
+    }
+
+    /**
+     * The newest samples of a series field, newest first, as {@code ORDER BY time DESC LIMIT n}
+     */
+    public List<Sample> latest(String measurement, Map<String, String> tags, String field, int limit) {
+        int seriesId = registry.find(measurement, tags);
+        if (seriesId < 0 || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Series stored = series.get(new Key(seriesId, field));
+            if (stored == null) {
+                return List.of();
+            }
+            List<Sample> samples = new ArrayList<>(limit);
+            stored.newestFirst(cutoff(), limit,
+                    (time, value) -> samples.add(new Sample(time, value)));
+            return samples;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The newest samples of one field across all series of a measurement, newest first
+     */
+    public List<Reading> latest(String measurement, String field, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        // Keeps the newest limit readings seen, oldest of them on top
+        PriorityQueue<Reading> newest = new PriorityQueue<>(Comparator.comparingLong(Reading::timeNanos));
+        lock.readLock().lock();
+        try {
+            long cutoff = cutoff();
+            for (Series stored : series.values()) {
+                if (!stored.field.equals(field) || !registry.measurement(stored.seriesId).equals(measurement)) {
+                    continue;
+                }
+                Map<String, String> tags = registry.tags(stored.seriesId);
+                stored.newestFirst(cutoff, limit, (time, value) -> {
+                    if (newest.size() < limit) {
+                        newest.add(new Reading(measurement, tags, field, time, value));
+                    } else if (newest.peek().timeNanos() < time) {
+                        newest.poll();
+                        newest.add(new Reading(measurement, tags, field, time, value));
+                    }
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Reading> readings = new ArrayList<>(newest);
+        readings.sort(Comparator.comparingLong(Reading::timeNanos).reversed());
+        return readings;
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            int blocks = 0;
+            long bits = 0;
+            for (Series stored : series.values()) {
+                blocks += stored.blocks.size();
+                for (Block block : stored.blocks) {
+                    bits += block.bitPos;
+                }
+            }
+            long samples = series.values().stream()
+                    .mapToLong(stored -> stored.blocks.stream().mapToLong(block -> block.count).sum())
+                    .sum();
+            return new Stats(series.size(), blocks, (long) blocks * blockBytes, budgetBytes, samples,
+                    samples == 0 ? 0 : (double) bits / samples, outOfOrder, blocksExpired, blocksEvicted);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Duration getRetention() {
+        return Duration.ofNanos(retentionNanos);
+    }
+
+    /**
+     * Blocks of one series field, oldest first
+     */
+    private final class Series {
+
+        private final int seriesId;
+        private final String field;
+        private final ArrayDeque<Block> blocks = new ArrayDeque<>();
+
+        Series(int seriesId, String field) {
+            this.seriesId = seriesId;
+            this.field = field;
+        }
+
+        /**
+         * Visits up to {@code limit} samples at or after {@code cutoff}, newest first
+         * Blocks can only be decoded forwards, so each is decoded into a small buffer and replayed in reverse
+         */
+        void newestFirst(long cutoff, int limit, SampleVisitor visitor) {
+            int remaining = limit;
+            long[] times = new long[0];
+            long[] values = new long[0];
+            Iterator<Block> descending = blocks.descendingIterator();
+            while (remaining > 0 && descending.hasNext()) {
+                Block block = descending.next();
+                if (block.lastTime < cutoff) {
+                    break;
+                }
+                if (times.length < block.count) {
+                    times = new long[block.count];
+                    values = new long[block.count];
+                }
+                Decoder decoder = new Decoder(block);
+                int decoded = 0;
+                while (decoder.next()) {
+                    times[decoded] = decoder.time;
+                    values[decoded++] = decoder.valueBits;
+                }
+                for (int i = decoded - 1; i >= 0 && remaining > 0 && times[i] >= cutoff; i--) {
+                    visitor.visit(times[i], Double.longBitsToDouble(values[i]));
+                    remaining--;
+                }
+            }
+        }
+    }
+
+    /**
+     * One off-heap block and the encoder state needed to append to it
+     * Layout: first timestamp and value raw, then per sample a delta-of-delta timestamp and an XOR'd value
+     */
+    private final class Block {
+
+        private final int index;
+        private final ByteBuffer slab;
+        private final int base;
+        private int bitPos;
+        private int count;
+        private long firstTime;
+        private long lastTime;
+        private long lastDelta;
+        private long lastValueBits;
+        private int leading = -1;
+        private int trailing;
+
+        Block(int index) {
+            this.index = index;
+            this.slab = slab(index);
+            this.base = offset(index);
+        }
+
+        void append(long time, double value) {
+            long valueBits = Double.doubleToRawLongBits(value);
+            if (count == 0) {
+                firstTime = time;
+                bitPos = writeBits(slab, base, 0, time, 64);
+                bitPos = writeBits(slab, base, bitPos, valueBits, 64);
+            } else {
+                long delta = time - lastTime;
+                long deltaOfDelta = delta - lastDelta;
+                bitPos = writeTimestamp(slab, base, bitPos, deltaOfDelta);
+                lastDelta = delta;
+                writeValue(valueBits ^ lastValueBits);
+            }
+            lastTime = time;
+            lastValueBits = valueBits;
+            count++;
+        }
+
+        private void writeValue(long xor) {
+            if (xor == 0) {
+                bitPos = writeBits(slab, base, bitPos, 0, 1);
+                return;
+            }
+            int lead = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trail = Long.numberOfTrailingZeros(xor);
+            if (leading >= 0 && lead >= leading && trail >= trailing) {
+                // Fits in the previous meaningful-bit window
+                bitPos = writeBits(slab, base, bitPos, 0b10, 2);
+                bitPos = writeBits(slab, base, bitPos, xor >>> trailing, 64 - leading - trailing);
+            } else {
+                int meaningful = 64 - lead - trail;
+                bitPos = writeBits(slab, base, bitPos, 0b11, 2);
+                bitPos = writeBits(slab, base, bitPos, lead, 5);
+                bitPos = writeBits(slab, base, bitPos, meaningful - 1, 6);
+                bitPos = writeBits(slab, base, bitPos, xor >>> trail, meaningful);
+                leading = lead;
+                trailing = trail;
+            }
+        }
+    }
+
+    /**
+     * Timestamp buckets: '0' for an unchanged interval, then 14, 24 and 40 bit signed deltas of the interval
+     * (about 8 µs, 8 ms and 9 minutes in nanoseconds) and a raw 64 bit fallback
+     */
+    private static int writeTimestamp(ByteBuffer slab, int base, int bitPos, long deltaOfDelta) {
+        if (deltaOfDelta == 0) {
+            return writeBits(slab, base, bitPos, 0, 1);
+        }
+        if (fits(deltaOfDelta, 14)) {
+            bitPos = writeBits(slab, base, bitPos, 0b10, 2);
+            return writeBits(slab, base, bitPos, deltaOfDelta, 14);
+        }
+        if (fits(deltaOfDelta, 24)) {
+            bitPos = writeBits(slab, base, bitPos, 0b110, 3);
+            return writeBits(slab, base, bitPos, deltaOfDelta, 24);
+        }
+        if (fits(deltaOfDelta, 40)) {
+            bitPos = writeBits(slab, base, bitPos, 0b1110, 4);
+            return writeBits(slab, base, bitPos, deltaOfDelta, 40);
+        }
+        bitPos = writeBits(slab, base, bitPos, 0b1111, 4);
+        return writeBits(slab, base, bitPos, deltaOfDelta, 64);
+    }
+
+    private static boolean fits(long value, int bits) {
+        return value >= -(1L << (bits - 1)) && value < (1L << (bits - 1));
+    }
+
+    /**
+     * Reads the samples of one block in order; only valid while the read lock is held
+     */
+    private static final class Decoder {
+
+        private final ByteBuffer slab;
+        private final int base;
+        private final int count;
+        private int bitPos;
+        private int decoded;
+        private long delta;
+        private int leading;
+        private int trailing;
+        long time;
+        long valueBits;
+
+        Decoder(Block block) {
+            this.slab = block.slab;
+            this.base = block.base;
+            this.count = block.count;
+        }
+
+        boolean next() {
+            if (decoded == count) {
+                return false;
+            }
+            if (decoded == 0) {
+                time = readBits(64);
+                valueBits = readBits(64);
+            } else {
+                delta += readTimestamp();
+                time += delta;
+                readValue();
+            }
+            decoded++;
+            return true;
+        }
+
+        private long readTimestamp() {
+            if (readBits(1) == 0) {
+                return 0;
+            }
+            if (readBits(1) == 0) {
+                return signed(readBits(14), 14);
+            }
+            if (readBits(1) == 0) {
+                return signed(readBits(24), 24);
+            }
+            if (readBits(1) == 0) {
+                return signed(readBits(40), 40);
+            }
+            return readBits(64);
+        }
+
+        private void readValue() {
+            if (readBits(1) == 0) {
+                return;
+            }
+            if (readBits(1) == 1) {
+                leading = (int) readBits(5);
+                int meaningful = (int) readBits(6) + 1;
+                trailing = 64 - leading - meaningful;
+            }
+            valueBits ^= readBits(64 - leading - trailing) << trailing;
+        }
+
+        private static long signed(long value, int bits) {
+            return value << (64 - bits) >> (64 - bits);
+        }
+
+        private long readBits(int bits) {
+            long result = 0;
+            while (bits > 0) {
+                int available = 8 - (bitPos & 7);
+                int taken = Math.min(available, bits);
+                int current = slab.get(base + (bitPos >>> 3)) & 0xff;
+                result = (result << taken) | ((current >>> (available - taken)) & ((1 << taken) - 1));
+                bitPos += taken;
+                bits -= taken;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Writes the low {@code bits} bits of a value, most significant first, into a zeroed block
+     *
+     * @return the bit position after the value
+     */
+    private static int writeBits(ByteBuffer slab, int base, int bitPos, long value, int bits) {
+        while (bits > 0) {
+            int free = 8 - (bitPos & 7);
+            int taken = Math.min(free, bits);
+            int chunk = (int) (value >>> (bits - taken)) & ((1 << taken) - 1);
+            int index = base + (bitPos >>> 3);
+            slab.put(index, (byte) (slab.get(index) | chunk << (free - taken)));
+            bitPos += taken;
+            bits -= taken;
+        }
+        return bitPos;
+    }
+
+    // Counters
+    public long getSamplesAppended() {
+        lock.readLock().lock();
+        try {
+            return samplesAppended;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getOutOfOrder() {
+        lock.readLock().lock();
+        try {
+            return outOfOrder;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
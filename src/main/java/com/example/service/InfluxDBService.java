@@ -2,22 +2,205 @@ package com.example.service;
 
 import com.influxdb.v3.client.InfluxDBClient;
 import com.influxdb.v3.client.Point;
+import org.apache.arrow.vector.VectorSchemaRoot;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Flow;
 import java.util.stream.Stream;
 
 /**
  * Service class for InfluxDB operations
  * Handles all data writing and querying logic
  */
-public class InfluxDBService {
+public class InfluxDBService implements AutoCloseable {
+
+    private static final DateTimeFormatter TIME_OF_DAY = DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneOffset.UTC);
 
     private final InfluxDBClient client;
+    private final BatchingWriter batchingWriter;
+    private final ParallelQueryExecutor queryExecutor;
+    private final QueryCache queryCache;
+    private final TimeRangeQueryPlanner queryPlanner;
+    private final PreparedQuery temperatureByLocation;
+    private final LineProtocolEncoder lineProtocolEncoder = new LineProtocolEncoder();
+    private final SeriesRegistry seriesRegistry = new SeriesRegistry();
+    private final LastValueCache lastValues = new LastValueCache(seriesRegistry);
+    private final ContinuousQueryEngine continuousQueries = new ContinuousQueryEngine();
+    private final ContinuousQueryEngine.ContinuousQuery averageTemperatureByLocation;
+    private volatile SpillBuffer spillBuffer;
+    private volatile PreAggregator preAggregator;
+    private volatile StripedIngestBuffer ingestBuffer;
+    private volatile HotWindowStore hotWindow;
 
     public InfluxDBService(InfluxDBClient client) {
+        this(client, new BatchingWriter(client));
+    }
+
+    public InfluxDBService(InfluxDBClient client, BatchingWriter batchingWriter) {
+        this(client, batchingWriter, new ParallelQueryExecutor());
+    }
+
+    public InfluxDBService(InfluxDBClient client, BatchingWriter batchingWriter, ParallelQueryExecutor queryExecutor) {
+        this(client, batchingWriter, queryExecutor, new QueryCache(client));
+    }
+
+    public InfluxDBService(InfluxDBClient client, BatchingWriter batchingWriter, ParallelQueryExecutor queryExecutor,
+                           QueryCache queryCache) {
         this.client = client;
+        this.batchingWriter = batchingWriter;
+        this.queryExecutor = queryExecutor;
+        this.queryCache = queryCache;
+        this.queryPlanner = new TimeRangeQueryPlanner(client);
+        this.temperatureByLocation = new PreparedQuery(client,
+                "SELECT sensor_id, value FROM temperature WHERE location = $location");
+        // Kept up to date from the write path, next to the aggregation query it mirrors
+        this.averageTemperatureByLocation = continuousQueries.register(ContinuousQueryEngine.Definition.tumbling(
+                "temperature", "value", ContinuousQueryEngine.Aggregate.AVG, Duration.ofMinutes(1), "location"));
+
+        // Cached results for a measurement go stale once a batch for it reaches the server,
+        // and the batch holds the latest readings of its series
+        batchingWriter.setFlushListener(batch -> {
+            batch.stream()
+                    .map(Point::getMeasurement)
+                    .distinct()
+                    .forEach(queryCache::invalidate);
+            lastValues.recordAll(batch);
+            HotWindowStore store = hotWindow;
+            if (store != null) {
+                store.recordAll(batch);
+            }
+        });
+    }
+
+    /**
+     * Keeps the samples written from now on in an off-heap store, so recent-data reads stay in process,
+     * see {@link #recentReadings(String, String, int)}
+     */
+    public HotWindowStore enableHotWindow(Duration retention, long budgetBytes) {
+        HotWindowStore store = new HotWindowStore(seriesRegistry, retention, budgetBytes);
+        this.hotWindow = store;
+        return store;
+    }
+
+    /**
+     * The store enabled by {@link #enableHotWindow}, or null
+     */
+    public HotWindowStore getHotWindow() {
+        return hotWindow;
+    }
+
+    /**
+     * Newest readings of a measurement field across its series, as {@code ORDER BY time DESC LIMIT n},
+     * read from the hot window; empty when it is not enabled
+     */
+    public List<HotWindowStore.Reading> recentReadings(String measurement, String field, int limit) {
+        HotWindowStore store = hotWindow;
+        return store != null ? store.latest(measurement, field, limit) : List.of();
+    }
+
+    /**
+     * Keeps writes that fail while the server is unreachable in the spill buffer instead of losing them
+     * Batches the server rejects are not spilled, since replaying them would fail the same way
+     */
+    public void setSpillBuffer(SpillBuffer spillBuffer) {
+        this.spillBuffer = spillBuffer;
+        batchingWriter.setFailureHandler((batch, error) -> ClientPool.isEndpointFailure(error)
+                && spill(batch.stream()
+                .map(Point::toLineProtocol)
+                .filter(Objects::nonNull)
+                .toList()));
+    }
+
+    /**
+     * Aggregates points written through {@link #write(Point)} into per-series rollups over tumbling windows
+     * Rollups are written through the batching writer when their window closes
+     */
+    public PreAggregator enablePreAggregation(Duration window, PreAggregator.Mode mode) {
+        PreAggregator aggregator = new PreAggregator(window, mode, this::writeRollups).start();
+        this.preAggregator = aggregator;
+        return aggregator;
+    }
+
+    /**
+     * Starts a striped ingestion buffer for many producer threads writing pre-encoded line protocol,
+     * see {@link #ingest(String)}; overflowing lines and failed batches go to the spill buffer, if set
+     */
+    public StripedIngestBuffer openIngestBuffer(StripedIngestBuffer.Overflow overflow) {
+        if (ingestBuffer != null) {
+            throw new IllegalStateException("Ingest buffer already open");
+        }
+        StripedIngestBuffer buffer = new StripedIngestBuffer(client, overflow, spillBuffer);
+        buffer.setFlushListener(batch -> batch.stream()
+                .map(InfluxDBService::measurementOf)
+                .distinct()
+                .forEach(queryCache::invalidate));
+        this.ingestBuffer = buffer;
+        return buffer;
+    }
+
+    /**
+     * Queues one line of line protocol in the ingest buffer, bypassing the batching writer and pre-aggregation
+     *
+     * @return false if the line was dropped by the overflow policy
+     */
+    public boolean ingest(String line) {
+        StripedIngestBuffer buffer = ingestBuffer;
+        if (buffer == null) {
+            throw new IllegalStateException("Ingest buffer not open");
+        }
+        return buffer.offer(line);
+    }
+
+    /**
+     * Measurement of a line of line protocol: everything up to the first unescaped comma or space
+     */
+    static String measurementOf(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == ',' || c == ' ') {
+                return line.substring(0, i).replace("\\", "");
+            }
+        }
+        return line;
+    }
+
+    /**
+     * Registers a continuous query over the points written through this service from now on
+     * Windows also close on wall-clock time once the first query is registered here
+     */
+    public ContinuousQueryEngine.ContinuousQuery registerContinuousQuery(ContinuousQueryEngine.Definition definition) {
+        return continuousQueries.start().register(definition);
+    }
+
+    public ContinuousQueryEngine getContinuousQueries() {
+        return continuousQueries;
+    }
+
+    /**
+     * Queues a point through the continuous queries, the pre-aggregation stage, if enabled, and the batching writer
+     *
+     * @return false if the batching writer dropped the point
+     */
+    public boolean write(Point point) throws InterruptedException {
+        continuousQueries.accept(point);
+        PreAggregator aggregator = preAggregator;
+        Point toWrite = aggregator != null ? aggregator.accept(point) : point;
+        if (toWrite == null) {
+            return true;
+        }
+        return batchingWriter.write(toWrite);
     }
 
     /**
@@ -31,6 +214,9 @@ public class InfluxDBService {
         writeUsingLineProtocol();
         writeBatchData();
 
+        // Push out anything still lingering in the batching queue
+        batchingWriter.flush();
+
         Thread.sleep(1000); // Ensure data is available for querying
         System.out.println("Total data points written: 6");
     }
@@ -53,8 +239,8 @@ public class InfluxDBService {
                 .setField("value", 65.1)
                 .setTimestamp(Instant.now());
 
-        client.writePoint(temperaturePoint);
-        client.writePoint(humidityPoint);
+        write(temperaturePoint);
+        write(humidityPoint);
         System.out.println("Point API data written: temperature=23.2°C, humidity=65.1%");
     }
 
@@ -64,11 +250,43 @@ public class InfluxDBService {
     private void writeUsingLineProtocol() throws Exception {
         System.out.println("2. Writing data using Line Protocol...");
 
-        String tempRecord = "temperature,sensor_id=TH02,location=office value=21.8";
-        String humidityRecord = "humidity,sensor_id=HH02,location=office value=58.3";
+        // Explicit timestamps keep the original time if the lines are spilled and replayed later
+        long now = LineProtocolEncoder.epochNanos(Instant.now());
+
+        // Series are interned once; repeated writes only append the cached prefix, fields and timestamp
+        int officeTemperature = seriesRegistry.register("temperature", "location", "office", "sensor_id", "TH02");
+        int officeHumidity = seriesRegistry.register("humidity", "location", "office", "sensor_id", "HH02");
 
-        client.writeRecord(tempRecord);
-        client.writeRecord(humidityRecord);
+        // Encode both readings into one reusable buffer and send them in a single request
+        lineProtocolEncoder.series(seriesRegistry, officeTemperature)
+                .field("value", 21.8)
+                .timestamp(now);
+        lineProtocolEncoder.series(seriesRegistry, officeHumidity)
+                .field("value", 58.3)
+                .timestamp(now);
+
+        try {
+            lineProtocolEncoder.writeTo(client);
+        } catch (RuntimeException e) {
+            List<String> lines = List.of(lineProtocolEncoder.toString().split("\n"));
+            lineProtocolEncoder.reset();
+            if (spillBuffer == null || !ClientPool.isEndpointFailure(e) || !spill(lines)) {
+                throw e;
+            }
+            System.out.println("Line Protocol write failed, spilled " + lines.size() + " lines: " + e.getMessage());
+            return;
+        }
+        queryCache.invalidate("temperature");
+        queryCache.invalidate("humidity");
+        lastValues.record(officeTemperature, "value", now, 21.8);
+        lastValues.record(officeHumidity, "value", now, 58.3);
+        continuousQueries.accept("temperature", seriesRegistry.tags(officeTemperature), "value", now, 21.8);
+        continuousQueries.accept("humidity", seriesRegistry.tags(officeHumidity), "value", now, 58.3);
+        HotWindowStore store = hotWindow;
+        if (store != null) {
+            store.record(officeTemperature, "value", now, 21.8);
+            store.record(officeHumidity, "value", now, 58.3);
+        }
         System.out.println("Line Protocol data written: office sensors");
     }
 
@@ -92,101 +310,284 @@ public class InfluxDBService {
                         .setTimestamp(Instant.now())
         };
 
-        client.writePoints(List.of(batchPoints));
+        for (Point point : batchPoints) {
+            write(point);
+        }
         System.out.println("Batch data written: pressure readings");
     }
 
     /**
-     * Executes all query demonstrations
+     * Bulk-imports a line protocol or CSV file straight to the server, bypassing the batching writer
+     * Cached query results are dropped afterwards, as any measurement may have changed
+     */
+    public BulkImporter.ImportReport importFile(Path file) throws IOException, InterruptedException {
+        try (BulkImporter importer = new BulkImporter(client)) {
+            return importer.importFile(file);
+        } finally {
+            queryCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Exports the result of a query to Arrow IPC files in a directory, batch by batch and without per-row conversion
+     */
+    public QueryExporter.ExportReport exportQuery(String sql, Path directory, String prefix) throws IOException {
+        try (QueryExporter exporter = new QueryExporter(client)) {
+            return exporter.export(sql, directory, prefix);
+        }
+    }
+
+    private void writeRollups(List<Point> rollups) {
+        try {
+            batchingWriter.writeAll(rollups);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean spill(List<String> lines) {
+        try {
+            return spillBuffer.appendAll(lines);
+        } catch (IOException e) {
+            System.err.println("Spilling " + lines.size() + " lines failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public BatchingWriter getBatchingWriter() {
+        return batchingWriter;
+    }
+
+    /**
+     * The buffer opened by {@link #openIngestBuffer}, or null
+     */
+    public StripedIngestBuffer getIngestBuffer() {
+        return ingestBuffer;
+    }
+
+    public ParallelQueryExecutor getQueryExecutor() {
+        return queryExecutor;
+    }
+
+    public SeriesRegistry getSeriesRegistry() {
+        return seriesRegistry;
+    }
+
+    public TimeRangeQueryPlanner getQueryPlanner() {
+        return queryPlanner;
+    }
+
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * Latest readings of the series written through this service, see {@link #latestReading(String, Map, String)}
+     */
+    public LastValueCache getLastValues() {
+        return lastValues;
+    }
+
+    /**
+     * Latest reading of a series field as written through this service, or loaded by {@link #warmLastValues},
+     * answered without querying the server; null if the series was not seen
+     */
+    public LastValueCache.LastValue latestReading(String measurement, Map<String, String> tags, String field) {
+        return lastValues.latest(measurement, tags, field);
+    }
+
+    /**
+     * Loads the latest sample readings per sensor from the server, so lookups are answered before the first write
+     *
+     * @return number of series loaded
+     */
+    public int warmLastValues(Duration lookback) {
+        int loaded = 0;
+        for (String measurement : List.of("temperature", "humidity", "pressure")) {
+            loaded += lastValues.warm(client, measurement, "value", List.of("location", "sensor_id"), lookback);
+        }
+        return loaded;
+    }
+
+    /**
+     * Emits open rollup windows, drains pending batched and ingested writes, stops running queries and
+     * publishes the open continuous query windows
+     */
+    @Override
+    public void close() throws InterruptedException {
+        try {
+            PreAggregator aggregator = preAggregator;
+            if (aggregator != null) {
+                aggregator.close();
+            }
+        } finally {
+            try {
+                StripedIngestBuffer buffer = ingestBuffer;
+                if (buffer != null) {
+                    buffer.close();
+                }
+            } finally {
+                try {
+                    batchingWriter.close();
+                } finally {
+                    try {
+                        queryExecutor.close();
+                    } finally {
+                        try {
+                            queryPlanner.close();
+                        } finally {
+                            continuousQueries.close();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes all query demonstrations concurrently and prints their results in order
      */
     public void querySampleData() throws Exception {
         System.out.println("\nQuerying Sample Data");
         System.out.println("=======================");
 
-        queryRecentTemperatures();
-        queryWithParameters();
-        queryAggregations();
-        queryMultipleMeasurements();
-        queryInfluxQL();
+        // The queries are independent, so total latency is close to the slowest one
+        List<QueryTask<List<String>>> tasks = List.of(
+                QueryTask.of("1. SQL Query - Recent temperature readings", this::queryRecentTemperatures),
+                QueryTask.of("2. Parametrized SQL Query - Warehouse readings", this::queryWithParameters),
+                QueryTask.of("3. Aggregation Query - Average values by location", this::queryAggregations),
+                QueryTask.of("4. Multi-measurement Query - All sensor readings", this::queryMultipleMeasurements),
+                QueryTask.of("5. InfluxQL MEAN() function", this::queryInfluxQL),
+                QueryTask.of("6. Partitioned Aggregation - Last 24 hours by location", this::queryPartitioned));
+
+        QueryReport<List<String>> report = queryExecutor.executeAll(tasks);
+
+        for (QueryOutcome<List<String>> outcome : report.outcomes()) {
+            System.out.println("\n" + outcome.name() + ":");
+            if (outcome.succeeded()) {
+                outcome.result().forEach(System.out::println);
+            } else {
+                System.out.println("Query failed: " + outcome.errorMessage());
+            }
+        }
+
+        System.out.println("\nQuery report: " + report);
+        System.out.println("Query cache: " + queryCache.stats());
+
+        // Answered from the last-value cache, without a round trip
+        System.out.println("\nLatest temperature per sensor (cached):");
+        for (LastValueCache.LastValue latest : lastValues.latest("temperature", "value")) {
+            System.out.printf("%s | %s | %s | %.1f°C%n", TIME_OF_DAY.format(latest.time()),
+                    latest.tags().get("sensor_id"), latest.tags().get("location"), latest.value());
+        }
+        System.out.println("Last-value cache: " + lastValues.stats());
+
+        HotWindowStore store = hotWindow;
+        if (store != null) {
+            // Same rows as the first query, read from the off-heap replica
+            System.out.println("\nRecent temperatures (hot window):");
+            for (HotWindowStore.Reading reading : store.latest("temperature", "value", 5)) {
+                System.out.printf("%s | %s | %s | %.1f°C%n", TIME_OF_DAY.format(reading.time()),
+                        reading.tags().get("sensor_id"), reading.tags().get("location"), reading.value());
+            }
+            System.out.println("Hot window: " + store.stats());
+        }
+
+        // Maintained incrementally as the sample points were written, no query needed
+        System.out.println("\nContinuous query: " + averageTemperatureByLocation);
+        for (ContinuousQueryEngine.Result result : averageTemperatureByLocation.snapshot()) {
+            System.out.printf("%s: avg=%.1f°C, count=%d (window from %s)%n", result.group().get("location"),
+                    result.value(), result.count(), TIME_OF_DAY.format(result.windowStart()));
+        }
         printSummary();
     }
 
     /**
-     * Basic SQL query for recent temperature readings
+     * Runs a query over the Arrow batch API and returns typed columns, without boxing per row
      */
-    private void queryRecentTemperatures() throws Exception {
-        System.out.println("1. SQL Query - Recent temperature readings:");
-
-        String sqlQuery = "SELECT time, sensor_id, location, value FROM temperature ORDER BY time DESC LIMIT 5";
-
-        try (Stream<Object[]> stream = client.query(sqlQuery)) {
-            stream.forEach(row -> {
-                String time = row[0] != null ? row[0].toString().substring(11, 19) : "null";
-                System.out.printf("%s | %s | %s | %.1f°C%n",
-                        time, row[1], row[2], row[3]);
-            });
+    public ColumnarResult queryColumnar(String sql) {
+        try (Stream<VectorSchemaRoot> batches = client.queryBatches(sql)) {
+            return ColumnarResult.from(batches);
         }
-        catch (Exception e) {
-            System.out.println("SQL Query failed: " + e.getMessage());
+    }
+
+    public ColumnarResult queryColumnar(String sql, Map<String, Object> params) {
+        try (Stream<VectorSchemaRoot> batches = client.queryBatches(sql, params)) {
+            return ColumnarResult.from(batches);
         }
+    }
 
+    /**
+     * Publishes the Arrow batches of a query to a reactive-streams subscriber, pulling each batch only on demand
+     * Batches are released when onNext returns; subscribers copy what they keep
+     */
+    public Flow.Publisher<VectorSchemaRoot> publishQuery(String sql) {
+        return new QueryPublisher(() -> client.queryBatches(sql));
+    }
+
+    public Flow.Publisher<VectorSchemaRoot> publishQuery(String sql, Map<String, Object> params) {
+        return new QueryPublisher(() -> client.queryBatches(sql, params));
     }
 
     /**
-     * Parametrized SQL query for secure querying
+     * Basic SQL query for recent temperature readings, read through the typed columnar API
      */
-    private void queryWithParameters() throws Exception {
-        System.out.println("\n2. Parametrized SQL Query - Warehouse readings:");
+    private List<String> queryRecentTemperatures() {
+        String sqlQuery = "SELECT time, sensor_id, location, value FROM temperature ORDER BY time DESC LIMIT 5";
 
-        String paramQuery = "SELECT sensor_id, value FROM temperature WHERE location = $location";
-        Map<String, Object> params = Map.of("location", "warehouse");
+        ColumnarResult result = queryColumnar(sqlQuery);
+        if (result.rowCount() == 0) {
+            return List.of();
+        }
+
+        LongColumn time = result.longColumn("time");
+        StringColumn sensorId = result.stringColumn("sensor_id");
+        StringColumn location = result.stringColumn("location");
+        DoubleColumn value = result.doubleColumn("value");
 
-        try (Stream<Object[]> stream = client.query(paramQuery, params)) {
-            stream.forEach(row ->
-                    System.out.printf("%s: %.1f°C%n", row[0], row[1]));
+        List<String> lines = new ArrayList<>(result.rowCount());
+        for (int row = 0; row < result.rowCount(); row++) {
+            String timeOfDay = time.isNull(row) ? "null" : TIME_OF_DAY.format(time.instant(row));
+            lines.add(String.format("%s | %s | %s | %.1f°C",
+                    timeOfDay, sensorId.get(row), location.get(row), value.get(row)));
         }
-        catch (Exception e) {
-            System.out.println("Parametrized SQL Query failed: " + e.getMessage());
+        return lines;
+    }
+
+    /**
+     * Parametrized SQL query for secure querying, prepared once and only bound per call
+     */
+    private List<String> queryWithParameters() {
+        PreparedQuery.Binding warehouse = temperatureByLocation.bind().set("location", "warehouse");
+
+        try (Stream<Object[]> stream = queryCache.query(warehouse)) {
+            return stream.map(row -> String.format("%s: %.1f°C", row[0], row[1])).toList();
         }
     }
 
     /**
      * Aggregation query for statistical analysis
      */
-    private void queryAggregations() throws Exception {
-        System.out.println("\n3. Aggregation Query - Average values by location:");
-
+    private List<String> queryAggregations() {
         String aggQuery = "SELECT location, AVG(value) as avg_temp, COUNT(*) as count " +
                 "FROM temperature GROUP BY location ORDER BY avg_temp DESC";
 
-        try (Stream<Object[]> stream = client.query(aggQuery)) {
-            stream.forEach(row ->
-                    System.out.printf("%s: avg=%.1f°C, count=%s%n",
-                            row[0], row[1], row[2]));
-        }
-        catch (Exception e) {
-            System.out.println("Aggregation Query failed: " + e.getMessage());
+        try (Stream<Object[]> stream = queryCache.query(aggQuery)) {
+            return stream.map(row -> String.format("%s: avg=%.1f°C, count=%s", row[0], row[1], row[2])).toList();
         }
     }
 
     /**
      * Multi-measurement query using UNION ALL
      */
-    private void queryMultipleMeasurements() throws Exception {
-        System.out.println("\n4. Multi-measurement Query - All sensor readings:");
-
+    private List<String> queryMultipleMeasurements() {
         String multiQuery = "SELECT 'temperature' as type, sensor_id, location, value FROM temperature " +
                 "UNION ALL " +
                 "SELECT 'humidity' as type, sensor_id, location, value FROM humidity " +
                 "ORDER BY sensor_id LIMIT 10";
 
-        try (Stream<Object[]> stream = client.query(multiQuery)) {
-            stream.forEach(row ->
-                    System.out.printf("%s | %s | %s | %.1f%n",
-                            row[0], row[1], row[2], row[3]));
-        }
-        catch (Exception e) {
-            System.out.println("Multi-measurement Query failed: " + e.getMessage());
+        try (Stream<Object[]> stream = queryCache.query(multiQuery)) {
+            return stream.map(row -> String.format("%s | %s | %s | %.1f", row[0], row[1], row[2], row[3])).toList();
         }
     }
 
@@ -194,24 +595,29 @@ public class InfluxDBService {
      * InfluxQL-specific query using aggregate functions
      * Uses InfluxQL syntax that is NOT valid in standard SQL
      */
-    private void queryInfluxQL() {
-        System.out.println("\n4. InfluxQL-Specific Queries:");
-
-        // InfluxQL MEAN() function
-        try {
-            System.out.println("4a. InfluxQL MEAN() function:");
+    private List<String> queryInfluxQL() {
+        String meanQuery = "SELECT MEAN(value) FROM temperature";
 
-            String meanQuery = "SELECT MEAN(value) FROM temperature";
-
-            try (Stream<Object[]> stream = client.query(meanQuery)) {
-                stream.forEach(row ->
-                        System.out.printf("Mean temperature: %.2f°C%n", row[0]));
-            }
-        } catch (Exception e) {
-            System.out.println("InfluxQL MEAN() failed: " + e.getMessage());
+        try (Stream<Object[]> stream = queryCache.query(meanQuery)) {
+            return stream.map(row -> String.format("Mean temperature: %.2f°C", row[0])).toList();
         }
     }
 
+    /**
+     * The aggregation of queryAggregations() over a bounded time range, split into sub-ranges that run concurrently
+     */
+    private List<String> queryPartitioned() throws InterruptedException {
+        Instant end = Instant.now();
+        List<TimeRangeQueryPlanner.GroupStats> groups = queryPlanner.aggregate("temperature", "value",
+                List.of("location"), null, Map.of(), end.minus(Duration.ofHours(24)), end, 4);
+
+        return groups.stream()
+                .sorted(Comparator.comparingDouble(TimeRangeQueryPlanner.GroupStats::mean).reversed())
+                .map(stats -> String.format("%s: avg=%.1f°C, count=%d, min=%.1f, max=%.1f",
+                        stats.group().get(0), stats.mean(), stats.count(), stats.min(), stats.max()))
+                .toList();
+    }
+
     /**
      * Prints summary of demonstrated features
      */
@@ -222,7 +628,10 @@ public class InfluxDBService {
         System.out.println("Batch writing");
         System.out.println("SQL queries");
         System.out.println("Parametrized queries");
+        System.out.println("Cached latest readings");
         System.out.println("Aggregation operations");
+        System.out.println("Continuous (incremental) aggregation");
+        System.out.println("Time-range partitioned aggregation");
         System.out.println("Multi-measurement queries");
         System.out.println("InfluxQL queries");
     }
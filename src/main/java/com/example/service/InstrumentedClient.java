@@ -0,0 +1,215 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Wraps an InfluxDBClient so every call is recorded in {@link ClientMetrics}
+ * Writes are timed per request and counted in UTF-8 bytes: exactly for line protocol records, estimated with
+ * {@link BatchingWriter#estimateSize(Point)} for points, which would otherwise have to be rendered twice
+ * Queries are timed until their result stream is closed,
+ * so consumption counts and callers must close the stream (try-with-resources) for it to be recorded
+ * Built on a dynamic proxy, so new client methods pass through untouched
+ */
+public final class InstrumentedClient implements InvocationHandler {
+
+    private final InfluxDBClient delegate;
+    private final ClientMetrics metrics;
+
+    private InstrumentedClient(InfluxDBClient delegate, ClientMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    public static InfluxDBClient wrap(InfluxDBClient client, ClientMetrics metrics) {
+        return (InfluxDBClient) Proxy.newProxyInstance(InfluxDBClient.class.getClassLoader(),
+                new Class<?>[]{InfluxDBClient.class}, new InstrumentedClient(client, metrics));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String operation = method.getName();
+        switch (operation) {
+            case "toString":
+                return "Instrumented(" + delegate + ")";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "close":
+                try {
+                    return method.invoke(delegate, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            default:
+                break;
+        }
+
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            metrics.recordError(operation, System.nanoTime() - start, e.getCause());
+            throw e.getCause();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        switch (operation) {
+            case "writePoint":
+                metrics.recordWrite(operation, elapsed, 1, BatchingWriter.estimateSize((Point) args[0]));
+                return result;
+            case "writePoints": {
+                long bytes = 0;
+                List<Point> points = (List<Point>) args[0];
+                for (Point point : points) {
+                    bytes += BatchingWriter.estimateSize(point);
+                }
+                metrics.recordWrite(operation, elapsed, points.size(), bytes);
+                return result;
+            }
+            case "writeRecord":
+                metrics.recordWrite(operation, elapsed, lines((String) args[0]), utf8Length((String) args[0]));
+                return result;
+            case "writeRecords": {
+                long lines = 0;
+                long bytes = 0;
+                for (String record : (List<String>) args[0]) {
+                    lines += lines(record);
+                    bytes += utf8Length(record);
+                }
+                metrics.recordWrite(operation, elapsed, lines, bytes);
+                return result;
+            }
+            default:
+                if (result instanceof Stream<?> stream) {
+                    return instrument(operation, start, stream);
+                }
+                metrics.recordCall(operation, elapsed);
+                return result;
+        }
+    }
+
+    /**
+     * Encoded size of a record in UTF-8, as sent, without encoding it
+     */
+    static long utf8Length(String record) {
+        long bytes = 0;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < record.length()
+                    && Character.isLowSurrogate(record.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Line protocol records may hold several newline-separated lines, as LineProtocolEncoder sends them
+     */
+    private static long lines(String record) {
+        long lines = record.isEmpty() ? 0 : 1;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private <T> Stream<T> instrument(String operation, long start, Stream<T> stream) {
+        RowCountingSpliterator<T> rows = new RowCountingSpliterator<>(stream.spliterator(), operation, start);
+        return StreamSupport.stream(rows, false).onClose(() -> {
+            try {
+                stream.close();
+            } finally {
+                rows.recordCompletion();
+            }
+        });
+    }
+
+    /**
+     * Counts rows (or Arrow batch rows) as they are consumed and records errors raised by the source
+     */
+    private final class RowCountingSpliterator<T> implements Spliterator<T> {
+
+        private final Spliterator<T> source;
+        private final String operation;
+        private final long start;
+        private long rows;
+        private RuntimeException consumerFailure;
+        private boolean failed;
+        private boolean recorded;
+
+        RowCountingSpliterator(Spliterator<T> source, String operation, long start) {
+            this.source = source;
+            this.operation = operation;
+            this.start = start;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                return source.tryAdvance(item -> {
+                    rows += item instanceof VectorSchemaRoot root ? root.getRowCount() : 1;
+                    try {
+                        action.accept(item);
+                    } catch (RuntimeException e) {
+                        consumerFailure = e;
+                        throw e;
+                    }
+                });
+            } catch (RuntimeException e) {
+                // Failures of the downstream pipeline are not the server's
+                if (e != consumerFailure && !failed) {
+                    failed = true;
+                    metrics.recordError(operation, System.nanoTime() - start, e);
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return source.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return source.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+        }
+
+        void recordCompletion() {
+            if (!failed && !recorded) {
+                recorded = true;
+                metrics.recordQuery(operation, System.nanoTime() - start, rows);
+            }
+        }
+    }
+}
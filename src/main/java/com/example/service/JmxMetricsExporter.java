@@ -0,0 +1,99 @@
+package com.example.service;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+/**
+ * Publishes {@link ClientMetrics} as a JMX MBean, one read-only attribute per flattened metric
+ * (e.g. {@code writePoints.p99Nanos}); every read takes a fresh snapshot
+ */
+public final class JmxMetricsExporter implements DynamicMBean, AutoCloseable {
+
+    public static final String DOMAIN = "com.example.influxdb";
+
+    private final ClientMetrics metrics;
+    private final ObjectName objectName;
+    private final MBeanServer server;
+
+    /**
+     * Registers the MBean as {@code com.example.influxdb:type=ClientMetrics,name=<name>} on the platform server
+     */
+    public JmxMetricsExporter(ClientMetrics metrics, String name) throws JMException {
+        this.metrics = metrics;
+        this.objectName = new ObjectName(DOMAIN + ":type=ClientMetrics,name=" + ObjectName.quote(name));
+        this.server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName);
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Number value = metrics.snapshot().flatten().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Number> values = metrics.snapshot().flatten();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Number value = values.get(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Client metrics are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        // Client metrics have no operations
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    /**
+     * Attributes appear as operations are first used, so the info is rebuilt from the current snapshot
+     */
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        Map<String, Number> values = metrics.snapshot().flatten();
+        MBeanAttributeInfo[] attributes = values.entrySet().stream()
+                .map(entry -> new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                        entry.getKey(), true, false, false))
+                .toArray(MBeanAttributeInfo[]::new);
+        return new MBeanInfo(getClass().getName(), "InfluxDB client metrics", attributes, null, null, null);
+    }
+
+    @Override
+    public void close() throws JMException {
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+}
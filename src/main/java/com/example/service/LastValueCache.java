@@ -0,0 +1,200 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Latest timestamp and value of every field of every series seen on the write path
+ * Answers latest-value lookups in process, without a server round trip
+ * Reads are lock-free; an update swaps the series' value with a compare-and-set and only ever moves it
+ * forward in time, so late or replayed points never hide a newer reading. Equal timestamps replace the
+ * value, as the server keeps the last write of a duplicate point
+ */
+public class LastValueCache {
+
+    private final SeriesRegistry registry;
+    private final ConcurrentHashMap<Key, AtomicReference<LastValue>> values = new ConcurrentHashMap<>();
+
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong staleUpdates = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param registry interns the series, so entries share one copy of their measurement and tags
+     */
+    public LastValueCache(SeriesRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Latest reading of one field of one series
+     */
+    public record LastValue(String measurement, Map<String, String> tags, String field, long timestampNanos,
+                            Object value) {
+
+        public Instant time() {
+            return Instant.ofEpochSecond(Math.floorDiv(timestampNanos, 1_000_000_000L),
+                    Math.floorMod(timestampNanos, 1_000_000_000L));
+        }
+    }
+
+    public record Stats(long updates, long staleUpdates, long hits, long misses, int entries) {
+    }
+
+    private record Key(int seriesId, String field) {
+    }
+
+    /**
+     * Records every field of a point; a point without a timestamp is taken as written now
+     */
+    public void record(Point point) {
+        Number timestamp = point.getTimestamp();
+        long timeNanos = timestamp != null ? timestamp.longValue() : LineProtocolEncoder.epochNanos(Instant.now());
+
+        Map<String, String> tags = new HashMap<>();
+        for (String tag : point.getTagNames()) {
+            tags.put(tag, point.getTag(tag));
+        }
+        int seriesId = registry.register(point.getMeasurement(), tags);
+        for (String field : point.getFieldNames()) {
+            record(seriesId, field, timeNanos, point.getField(field));
+        }
+    }
+
+    public void recordAll(List<Point> points) {
+        points.forEach(this::record);
+    }
+
+    /**
+     * @param seriesId ID from the registry given to the constructor
+     * @return false if a newer value was already cached
+     */
+    public boolean record(int seriesId, String field, long timeNanos, Object value) {
+        if (value == null) {
+            return false;
+        }
+        AtomicReference<LastValue> slot = values.get(new Key(seriesId, field));
+        if (slot == null) {
+            slot = values.computeIfAbsent(new Key(seriesId, field), key -> new AtomicReference<>());
+        }
+
+        LastValue next = null;
+        while (true) {
+            LastValue current = slot.get();
+            if (current != null && current.timestampNanos() > timeNanos) {
+                staleUpdates.incrementAndGet();
+                return false;
+            }
+            if (next == null) {
+                next = new LastValue(registry.measurement(seriesId), registry.tags(seriesId), field, timeNanos, value);
+            }
+            if (slot.compareAndSet(current, next)) {
+                updates.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return the latest reading, or null if none was recorded for the series and field
+     */
+    public LastValue latest(String measurement, Map<String, String> tags, String field) {
+        int seriesId = registry.find(measurement, tags);
+        AtomicReference<LastValue> slot = seriesId >= 0 ? values.get(new Key(seriesId, field)) : null;
+        LastValue value = slot != null ? slot.get() : null;
+        (value != null ? hits : misses).incrementAndGet();
+        return value;
+    }
+
+    /**
+     * Latest reading of the field for each series of the measurement, newest first
+     * Scans all entries, so it is meant for dashboards rather than per-point lookups
+     */
+    public List<LastValue> latest(String measurement, String field) {
+        List<LastValue> latest = new ArrayList<>();
+        for (AtomicReference<LastValue> slot : values.values()) {
+            LastValue value = slot.get();
+            if (value != null && value.measurement().equals(measurement) && value.field().equals(field)) {
+                latest.add(value);
+            }
+        }
+        latest.sort((a, b) -> Long.compare(b.timestampNanos(), a.timestampNanos()));
+        (latest.isEmpty() ? misses : hits).incrementAndGet();
+        return latest;
+    }
+
+    /**
+     * Loads the latest value of one field per series with a single query, e.g. at startup
+     * Readings already cached from writes are kept if they are newer
+     *
+     * @param tags     tag columns identifying a series of the measurement
+     * @param lookback how far back to look for the latest reading of each series
+     * @return number of series loaded
+     */
+    public int warm(InfluxDBClient client, String measurement, String field, List<String> tags, Duration lookback) {
+        String groups = tags.stream().map(TimeRangeQueryPlanner::quote).collect(Collectors.joining(", "));
+        String last = "selector_last(" + TimeRangeQueryPlanner.quote(field) + ", time)";
+        String sql = "SELECT " + (groups.isEmpty() ? "" : groups + ", ")
+                + last + "['value'] AS \"value\", " + last + "['time'] AS \"time\""
+                + " FROM " + TimeRangeQueryPlanner.quote(measurement)
+                + " WHERE time >= now() - INTERVAL '" + lookback.toSeconds() + " seconds'"
+                + (groups.isEmpty() ? "" : " GROUP BY " + groups);
+
+        ColumnarResult result;
+        try (Stream<VectorSchemaRoot> batches = client.queryBatches(sql)) {
+            result = ColumnarResult.from(batches);
+        }
+        if (result.rowCount() == 0) {
+            return 0;
+        }
+
+        List<StringColumn> tagColumns = tags.stream().map(result::stringColumn).toList();
+        LongColumn time = result.longColumn("time");
+        Column value = result.column("value");
+        int loaded = 0;
+        for (int row = 0; row < result.rowCount(); row++) {
+            if (time.isNull(row) || value.isNull(row)) {
+                continue;
+            }
+            Map<String, String> series = new HashMap<>();
+            for (int i = 0; i < tags.size(); i++) {
+                if (!tagColumns.get(i).isNull(row)) {
+                    series.put(tags.get(i), tagColumns.get(i).get(row));
+                }
+            }
+            record(registry.register(measurement, series), field, time.get(row), valueAt(value, row));
+            loaded++;
+        }
+        return loaded;
+    }
+
+    private static Object valueAt(Column column, int row) {
+        return switch (column) {
+            case DoubleColumn doubles -> doubles.get(row);
+            case LongColumn longs -> longs.get(row);
+            case StringColumn strings -> strings.get(row);
+        };
+    }
+
+    public void clear() {
+        values.clear();
+    }
+
+    public Stats stats() {
+        return new Stats(updates.get(), staleUpdates.get(), hits.get(), misses.get(), values.size());
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBClient;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reusable line protocol encoder that appends measurement, tags, fields and timestamp
+ * straight into one StringBuilder, so encoding a point allocates nothing in steady state
+ *
+ * Usage: measurement(...) or series(...), zero or more tag(...), one or more field(...), then timestamp(...) or endLine()
+ * Not thread-safe; keep one encoder per writing thread
+ */
+public class LineProtocolEncoder {
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_TAGS = 1;
+    private static final int STATE_FIELDS = 2;
+
+    private final StringBuilder buffer;
+    private int state = STATE_IDLE;
+    private int lineStart;
+    private int lineCount;
+
+    public LineProtocolEncoder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LineProtocolEncoder(int initialCapacity) {
+        this.buffer = new StringBuilder(initialCapacity);
+    }
+
+    /**
+     * Starts a new line, closing the previous one if it already has fields
+     */
+    public LineProtocolEncoder measurement(String measurement) {
+        requireNonEmpty(measurement, "Measurement");
+        if (state != STATE_IDLE) {
+            endLine();
+        }
+
+        lineStart = buffer.length();
+        if (lineCount > 0) {
+            buffer.append('\n');
+        }
+        escape(buffer, measurement, true);
+        state = STATE_TAGS;
+        return this;
+    }
+
+    /**
+     * Starts a new line with the cached, already escaped measurement and tags of a registered series
+     * More tags may follow before the fields
+     */
+    public LineProtocolEncoder series(SeriesRegistry registry, int seriesId) {
+        String prefix = registry.prefix(seriesId);
+        if (state != STATE_IDLE) {
+            endLine();
+        }
+
+        lineStart = buffer.length();
+        if (lineCount > 0) {
+            buffer.append('\n');
+        }
+        buffer.append(prefix);
+        state = STATE_TAGS;
+        return this;
+    }
+
+    /**
+     * Appends a tag; tags with an empty value are skipped because line protocol cannot express them
+     * Adding tags in lexical key order saves the server from sorting them
+     */
+    public LineProtocolEncoder tag(String key, String value) {
+        if (state != STATE_TAGS) {
+            throw new IllegalStateException("Tags must follow the measurement and precede the fields");
+        }
+        requireNonEmpty(key, "Tag key");
+        if (value == null || value.isEmpty()) {
+            return this;
+        }
+
+        buffer.append(',');
+        escape(buffer, key, false);
+        buffer.append('=');
+        escape(buffer, value, false);
+        return this;
+    }
+
+    public LineProtocolEncoder field(String key, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Field " + key + " must be a finite number");
+        }
+        fieldKey(key);
+        buffer.append(value);
+        return this;
+    }
+
+    public LineProtocolEncoder field(String key, long value) {
+        fieldKey(key);
+        buffer.append(value).append('i');
+        return this;
+    }
+
+    public LineProtocolEncoder field(String key, boolean value) {
+        fieldKey(key);
+        buffer.append(value);
+        return this;
+    }
+
+    public LineProtocolEncoder field(String key, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Field " + key + " must not be null");
+        }
+        fieldKey(key);
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer.append('\\');
+            }
+            buffer.append(c);
+        }
+        buffer.append('"');
+        return this;
+    }
+
+    /**
+     * Appends a nanosecond timestamp and closes the line
+     */
+    public LineProtocolEncoder timestamp(long epochNanos) {
+        requireFields();
+        buffer.append(' ').append(epochNanos);
+        return closeLine();
+    }
+
+    /**
+     * Closes the line without a timestamp, leaving the server to assign one
+     */
+    public LineProtocolEncoder endLine() {
+        requireFields();
+        return closeLine();
+    }
+
+    /**
+     * Sends all complete lines in one request and resets the buffer
+     */
+    public void writeTo(InfluxDBClient client) {
+        if (state == STATE_FIELDS) {
+            endLine();
+        } else if (state == STATE_TAGS) {
+            throw new IllegalStateException("Current line has no fields");
+        }
+        if (lineCount == 0) {
+            return;
+        }
+
+        client.writeRecords(List.of(buffer.toString()));
+        reset();
+    }
+
+    /**
+     * Discards everything encoded so far while keeping the buffer capacity
+     */
+    public void reset() {
+        buffer.setLength(0);
+        state = STATE_IDLE;
+        lineStart = 0;
+        lineCount = 0;
+    }
+
+    /**
+     * Drops the line currently being encoded, e.g. after a validation failure
+     */
+    public void discardLine() {
+        if (state != STATE_IDLE) {
+            buffer.setLength(lineStart);
+            state = STATE_IDLE;
+        }
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    public int length() {
+        return buffer.length();
+    }
+
+    /**
+     * The encoded lines; only valid until the next call on this encoder
+     */
+    public CharSequence buffer() {
+        return buffer;
+    }
+
+    @Override
+    public String toString() {
+        return buffer.toString();
+    }
+
+    public static long epochNanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+
+    private void fieldKey(String key) {
+        if (state == STATE_IDLE) {
+            throw new IllegalStateException("Fields must follow a measurement");
+        }
+        requireNonEmpty(key, "Field key");
+
+        buffer.append(state == STATE_TAGS ? ' ' : ',');
+        escape(buffer, key, false);
+        buffer.append('=');
+        state = STATE_FIELDS;
+    }
+
+    private void requireFields() {
+        if (state != STATE_FIELDS) {
+            throw new IllegalStateException("A line needs at least one field");
+        }
+    }
+
+    private LineProtocolEncoder closeLine() {
+        state = STATE_IDLE;
+        lineCount++;
+        return this;
+    }
+
+    /**
+     * Escapes commas and spaces, plus equals signs outside the measurement name
+     * Line breaks cannot appear unescaped inside a line, so they are written as \n, \r and \t
+     */
+    static void escape(StringBuilder buffer, String value, boolean measurement) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case ',':
+                case ' ':
+                    buffer.append('\\').append(c);
+                    break;
+                case '=':
+                    if (!measurement) {
+                        buffer.append('\\');
+                    }
+                    buffer.append(c);
+                    break;
+                case '\n':
+                    buffer.append("\\n");
+                    break;
+                case '\r':
+                    buffer.append("\\r");
+                    break;
+                case '\t':
+                    buffer.append("\\t");
+                    break;
+                default:
+                    buffer.append(c);
+            }
+        }
+    }
+
+    private static void requireNonEmpty(String value, String name) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(name + " must not be empty");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.service;
+
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * Integer or timestamp column; timestamps are normalized to epoch nanoseconds
+ * Null rows hold 0 and are skipped by the aggregates
+ */
+public final class LongColumn implements Column {
+
+    private final String name;
+    private final long[] values;
+    private final BitSet nulls;
+    private final boolean timestamp;
+
+    LongColumn(String name, long[] values, BitSet nulls, boolean timestamp) {
+        this.name = name;
+        this.values = values;
+        this.nulls = nulls;
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        Objects.checkIndex(row, values.length);
+        return nulls.get(row);
+    }
+
+    public long get(int row) {
+        return values[row];
+    }
+
+    /**
+     * The backing array, one entry per row; callers must not modify it
+     */
+    public long[] values() {
+        return values;
+    }
+
+    /**
+     * True when the column came from an Arrow timestamp and holds epoch nanoseconds
+     */
+    public boolean isTimestamp() {
+        return timestamp;
+    }
+
+    public Instant instant(int row) {
+        long nanos = values[row];
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), Math.floorMod(nanos, 1_000_000_000L));
+    }
+
+    public int count() {
+        return values.length - nulls.cardinality();
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int row = nulls.nextClearBit(0); row < values.length; row = nulls.nextClearBit(row + 1)) {
+            sum += values[row];
+        }
+        return sum;
+    }
+
+    public long min() {
+        long min = Long.MAX_VALUE;
+        for (int row = nulls.nextClearBit(0); row < values.length; row = nulls.nextClearBit(row + 1)) {
+            min = Math.min(min, values[row]);
+        }
+        return min;
+    }
+
+    public long max() {
+        long max = Long.MIN_VALUE;
+        for (int row = nulls.nextClearBit(0); row < values.length; row = nulls.nextClearBit(row + 1)) {
+            max = Math.max(max, values[row]);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs independent queries concurrently, one virtual thread per query
+ * A semaphore caps how many queries hit the server at once; the rest wait on their virtual thread
+ */
+public class ParallelQueryExecutor implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 8;
+    public static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(30);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Permits permits;
+    // Guarded by this
+    private int maxConcurrency;
+    private final Duration defaultDeadline;
+    private final Set<Future<?>> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ParallelQueryExecutor() {
+        this(DEFAULT_MAX_CONCURRENCY, DEFAULT_DEADLINE);
+    }
+
+    public ParallelQueryExecutor(int maxConcurrency, Duration defaultDeadline) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.permits = new Permits(maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+        this.defaultDeadline = defaultDeadline;
+    }
+
+    /**
+     * Starts every task at once and waits for each until its deadline
+     * Deadlines count from submission, so time spent waiting for a concurrency permit is included
+     */
+    public <T> QueryReport<T> executeAll(List<QueryTask<T>> tasks) {
+        long start = System.nanoTime();
+        List<Attempt<T>> attempts = new ArrayList<>(tasks.size());
+
+        for (QueryTask<T> task : tasks) {
+            Duration deadline = task.deadline() != null ? task.deadline() : defaultDeadline;
+            Attempt<T> attempt = new Attempt<>(task, start + deadline.toNanos());
+            // Registered before it can start so cancelAll() never misses a running query
+            attempt.future = new FutureTask<>(() -> attempt.run(permits));
+            inFlight.add(attempt.future);
+            executor.execute(attempt.future);
+            attempts.add(attempt);
+        }
+
+        List<QueryOutcome<T>> outcomes = new ArrayList<>(attempts.size());
+        boolean interrupted = false;
+
+        for (Attempt<T> attempt : attempts) {
+            if (interrupted) {
+                attempt.future.cancel(true);
+            }
+            outcomes.add(await(attempt));
+            inFlight.remove(attempt.future);
+            interrupted |= Thread.currentThread().isInterrupted();
+        }
+
+        return new QueryReport<>(outcomes, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Changes how many queries may run at once; running queries are never interrupted,
+     * so after lowering the cap new queries wait until enough of them finished
+     */
+    public synchronized void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        int delta = maxConcurrency - this.maxConcurrency;
+        if (delta > 0) {
+            permits.release(delta);
+        } else {
+            permits.reducePermits(-delta);
+        }
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public synchronized int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Cancels every query that is still running or waiting for a permit
+     */
+    public void cancelAll() {
+        for (Future<?> future : inFlight) {
+            future.cancel(true);
+        }
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+        executor.close();
+    }
+
+    private <T> QueryOutcome<T> await(Attempt<T> attempt) {
+        String name = attempt.task.name();
+        try {
+            long remaining = attempt.deadlineAt - System.nanoTime();
+            T result = attempt.future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+            return new QueryOutcome<>(name, QueryOutcome.Status.SUCCEEDED, result, null, attempt.elapsed());
+        } catch (TimeoutException e) {
+            attempt.future.cancel(true);
+            return new QueryOutcome<>(name, QueryOutcome.Status.TIMED_OUT, null, e, attempt.elapsed());
+        } catch (ExecutionException e) {
+            return new QueryOutcome<>(name, QueryOutcome.Status.FAILED, null, e.getCause(), attempt.elapsed());
+        } catch (CancellationException e) {
+            return new QueryOutcome<>(name, QueryOutcome.Status.CANCELLED, null, e, attempt.elapsed());
+        } catch (InterruptedException e) {
+            // Caller gave up; stop this query and let executeAll cancel the rest
+            attempt.future.cancel(true);
+            Thread.currentThread().interrupt();
+            return new QueryOutcome<>(name, QueryOutcome.Status.CANCELLED, null, e, attempt.elapsed());
+        }
+    }
+
+    /**
+     * Semaphore whose permits can be taken away while they are in use
+     */
+    private static final class Permits extends Semaphore {
+
+        Permits(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    /**
+     * One submitted task with its timing
+     */
+    private static final class Attempt<T> {
+
+        private final QueryTask<T> task;
+        private final long deadlineAt;
+        private final long submittedAt = System.nanoTime();
+        private volatile long finishedAt;
+        private FutureTask<T> future;
+
+        Attempt(QueryTask<T> task, long deadlineAt) {
+            this.task = task;
+            this.deadlineAt = deadlineAt;
+        }
+
+        T run(Semaphore permits) throws Exception {
+            permits.acquire();
+            try {
+                return task.query().call();
+            } finally {
+                finishedAt = System.nanoTime();
+                permits.release();
+            }
+        }
+
+        Duration elapsed() {
+            long end = finishedAt != 0 ? finishedAt : System.nanoTime();
+            return Duration.ofNanos(end - submittedAt);
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package com.example.service;
+
+import com.influxdb.v3.client.Point;
+import com.influxdb.v3.client.write.WritePrecision;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Pre-aggregates numeric fields per series (measurement + tag set) over tumbling windows
+ * and emits one rollup point per series and field when a window closes
+ * Rollups go to {@code <measurement><suffix>} with {@code <field>_min/_max/_sum/_count/_mean} fields,
+ * timestamped at the window start
+ * Windows close on event time, once the newest point or the wall clock is the allowed lateness past their end,
+ * so out-of-order points within the lateness still land in their own window
+ * Running aggregates live in an open-addressed table over primitive arrays, with a ring of window slots per
+ * series; series keys are kept across windows so a steady set of sensors does not allocate per point
+ */
+public class PreAggregator implements AutoCloseable {
+
+    /**
+     * What happens to the raw points that feed the rollups
+     */
+    public enum Mode {
+        /** Raw points are written as well as the rollups */
+        ALONGSIDE_RAW,
+        /** Only rollups are written; non-numeric fields still pass through on a copy of the point */
+        INSTEAD_OF_RAW
+    }
+
+    public static final Duration DEFAULT_ALLOWED_LATENESS = Duration.ofSeconds(2);
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int NO_ENTRY = -1;
+    private static final long NO_WINDOW = Long.MIN_VALUE;
+
+    private final long windowNanos;
+    private final long latenessNanos;
+    // Window slots per series: enough for every window still open within the allowed lateness
+    private final int ringSize;
+    private final String suffix;
+    private final Mode mode;
+    private final Consumer<List<Point>> sink;
+    private ScheduledExecutorService closer;
+
+    // Open-addressed index into the entry arrays, linear probing; guarded by this
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+    private long[] hashes = new long[INITIAL_CAPACITY];
+    private String[] measurements = new String[INITIAL_CAPACITY];
+    private String[][] tagPairs = new String[INITIAL_CAPACITY][];
+    private String[] fields = new String[INITIAL_CAPACITY];
+    private long[] lastWindows = new long[INITIAL_CAPACITY];
+    // Aggregates per series and window slot, at entry * ringSize + slot
+    private long[] slotWindows;
+    private double[] mins;
+    private double[] maxs;
+    private double[] sums;
+    private long[] counts;
+    private int size;
+
+    // Newest event time seen, and the end of the last closed window
+    private long watermark = NO_WINDOW;
+    private long closedUntil = NO_WINDOW;
+
+    private long pointsAggregated;
+    private long latePoints;
+    private long rollupsEmitted;
+    private long windowsClosed;
+
+    /**
+     * @param window          width of the tumbling windows, aligned to the epoch
+     * @param allowedLateness how long after a window ends it still takes out-of-order points
+     * @param suffix          appended to the measurement name of rollup points, e.g. "_10s"
+     * @param sink            receives the rollup points of each closed window
+     */
+    public PreAggregator(Duration window, Duration allowedLateness, String suffix, Mode mode,
+                         Consumer<List<Point>> sink) {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        if (allowedLateness.isNegative()) {
+            throw new IllegalArgumentException("Allowed lateness must not be negative");
+        }
+        if (suffix == null || suffix.isEmpty()) {
+            throw new IllegalArgumentException("Rollup suffix is required so rollups do not mix with raw points");
+        }
+
+        this.windowNanos = window.toNanos();
+        this.latenessNanos = allowedLateness.toNanos();
+        this.ringSize = (int) ((latenessNanos + windowNanos - 1) / windowNanos) + 2;
+        this.suffix = suffix;
+        this.mode = mode;
+        this.sink = sink;
+        this.slotWindows = new long[INITIAL_CAPACITY * ringSize];
+        this.mins = new double[INITIAL_CAPACITY * ringSize];
+        this.maxs = new double[INITIAL_CAPACITY * ringSize];
+        this.sums = new double[INITIAL_CAPACITY * ringSize];
+        this.counts = new long[INITIAL_CAPACITY * ringSize];
+        Arrays.fill(table, NO_ENTRY);
+    }
+
+    public PreAggregator(Duration window, Mode mode, Consumer<List<Point>> sink) {
+        this(window, DEFAULT_ALLOWED_LATENESS, suffix(window), mode, sink);
+    }
+
+    /**
+     * Closes windows on wall-clock time, so rollups are emitted even when writes stop
+     */
+    public synchronized PreAggregator start() {
+        if (closer == null) {
+            closer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "influxdb-pre-aggregator");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long tickMillis = Math.max(1, Math.min(TimeUnit.NANOSECONDS.toMillis(windowNanos), 1_000));
+            closer.scheduleWithFixedDelay(() -> closeExpired(LineProtocolEncoder.epochNanos(Instant.now())),
+                    tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * Folds the numeric fields of a point into the running aggregates of its window
+     * A point that moves the watermark closes the windows that ended the allowed lateness before it;
+     * points for windows that were already closed are counted as late and passed through raw
+     *
+     * @return the point to write: the point itself, in {@link Mode#INSTEAD_OF_RAW} a copy holding only its
+     *         non-numeric fields, or null if nothing of it remains to be written
+     */
+    public Point accept(Point point) {
+        Number timestamp = point.getTimestamp();
+        long time = timestamp != null ? timestamp.longValue() : LineProtocolEncoder.epochNanos(Instant.now());
+        long pointWindow = Math.floorDiv(time, windowNanos) * windowNanos;
+
+        List<Point> rollups = null;
+        boolean aggregated = false;
+        boolean passThrough = false;
+
+        synchronized (this) {
+            if (watermark == NO_WINDOW || time > watermark) {
+                watermark = time;
+                rollups = closeUntil(Math.floorDiv(time - latenessNanos, windowNanos) * windowNanos);
+            }
+            if (pointWindow < closedUntil) {
+                latePoints++;
+                passThrough = true;
+            } else {
+                String measurement = point.getMeasurement();
+                // Point keeps tags sorted by name, so equal tag sets produce equal arrays
+                String[] tagNames = point.getTagNames();
+                for (String field : point.getFieldNames()) {
+                    Object value = point.getField(field);
+                    if (value instanceof Number number) {
+                        add(measurement, tagNames, point, field, pointWindow, number.doubleValue());
+                        aggregated = true;
+                    }
+                }
+                if (aggregated) {
+                    pointsAggregated++;
+                }
+            }
+        }
+
+        emit(rollups);
+        if (passThrough || !aggregated || mode == Mode.ALONGSIDE_RAW) {
+            return point;
+        }
+        return withoutNumericFields(point);
+    }
+
+    /**
+     * Copy of the point keeping only the fields that were not aggregated, or null if it has none
+     */
+    private static Point withoutNumericFields(Point point) {
+        String[] fieldNames = point.getFieldNames();
+        if (Arrays.stream(fieldNames).allMatch(field -> point.getField(field) instanceof Number)) {
+            return null;
+        }
+        Point rest = point.copy();
+        for (String field : fieldNames) {
+            if (point.getField(field) instanceof Number) {
+                rest.removeField(field);
+            }
+        }
+        return rest;
+    }
+
+    /**
+     * Closes the windows that ended more than the allowed lateness before {@code nowNanos}, up to the window
+     * of the newest point, so the wall clock cannot close windows that event time has not reached yet
+     */
+    public void closeExpired(long nowNanos) {
+        List<Point> rollups = null;
+        synchronized (this) {
+            if (watermark != NO_WINDOW) {
+                long newestEnd = Math.floorDiv(watermark, windowNanos) * windowNanos + windowNanos;
+                rollups = closeUntil(Math.min(Math.floorDiv(nowNanos - latenessNanos, windowNanos) * windowNanos,
+                        newestEnd));
+            }
+        }
+        emit(rollups);
+    }
+
+    /**
+     * Emits the partial aggregates of every open window, e.g. on shutdown
+     */
+    public void flush() {
+        List<Point> rollups = null;
+        synchronized (this) {
+            if (watermark != NO_WINDOW) {
+                rollups = closeUntil(Math.floorDiv(watermark, windowNanos) * windowNanos + windowNanos);
+            }
+        }
+        emit(rollups);
+    }
+
+    /**
+     * Stops the background closer and emits the open windows
+     */
+    @Override
+    public void close() throws InterruptedException {
+        ScheduledExecutorService toStop;
+        synchronized (this) {
+            toStop = closer;
+            closer = null;
+        }
+        if (toStop != null) {
+            toStop.shutdown();
+            toStop.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        flush();
+    }
+
+    private void add(String measurement, String[] tagNames, Point point, String field, long window,
+                     double value) {
+        long hash = hash(measurement, tagNames, point, field);
+        int mask = table.length - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+
+        int entry;
+        while (true) {
+            entry = table[slot];
+            if (entry == NO_ENTRY) {
+                entry = insert(slot, hash, measurement, tagNames, point, field);
+                break;
+            }
+            if (hashes[entry] == hash && matches(entry, measurement, tagNames, point, field)) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        lastWindows[entry] = Math.max(lastWindows[entry], window);
+        // Open windows span less than the ring, so a used slot always holds this window
+        int index = entry * ringSize + (int) Math.floorMod(Math.floorDiv(window, windowNanos), (long) ringSize);
+        if (counts[index] == 0) {
+            slotWindows[index] = window;
+            mins[index] = value;
+            maxs[index] = value;
+            sums[index] = value;
+        } else {
+            mins[index] = Math.min(mins[index], value);
+            maxs[index] = Math.max(maxs[index], value);
+            sums[index] += value;
+        }
+        counts[index]++;
+    }
+
+    private int insert(int slot, long hash, String measurement, String[] tagNames, Point point, String field) {
+        if (size == hashes.length) {
+            growEntries();
+        }
+
+        int entry = size++;
+        String[] pairs = new String[tagNames.length * 2];
+        for (int i = 0; i < tagNames.length; i++) {
+            pairs[2 * i] = tagNames[i];
+            pairs[2 * i + 1] = point.getTag(tagNames[i]);
+        }
+        hashes[entry] = hash;
+        measurements[entry] = measurement;
+        tagPairs[entry] = pairs;
+        fields[entry] = field;
+        lastWindows[entry] = NO_WINDOW;
+        table[slot] = entry;
+
+        // Keep the table at most half full so probe chains stay short
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return entry;
+    }
+
+    private boolean matches(int entry, String measurement, String[] tagNames, Point point, String field) {
+        String[] pairs = tagPairs[entry];
+        if (pairs.length != tagNames.length * 2 || !measurements[entry].equals(measurement)
+                || !fields[entry].equals(field)) {
+            return false;
+        }
+        for (int i = 0; i < tagNames.length; i++) {
+            if (!pairs[2 * i].equals(tagNames[i]) || !pairs[2 * i + 1].equals(point.getTag(tagNames[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(String measurement, String[] tagNames, Point point, String field) {
+        long hash = measurement.hashCode();
+        for (String tag : tagNames) {
+            hash = hash * 31 + tag.hashCode();
+            hash = hash * 31 + point.getTag(tag).hashCode();
+        }
+        hash = hash * 31 + field.hashCode();
+        // Spread the bits so nearby hashes do not cluster in the table
+        hash *= 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Builds the rollup points of every window ending at or before {@code boundary}, oldest window first,
+     * and resets their slots, keeping series keys
+     * Series without points since the last closed window are forgotten once they make up most of the table
+     */
+    private List<Point> closeUntil(long boundary) {
+        if (closedUntil != NO_WINDOW && boundary <= closedUntil) {
+            return null;
+        }
+
+        TreeSet<Long> windows = new TreeSet<>();
+        int slots = size * ringSize;
+        for (int index = 0; index < slots; index++) {
+            if (counts[index] > 0 && slotWindows[index] + windowNanos <= boundary) {
+                windows.add(slotWindows[index]);
+            }
+        }
+
+        List<Point> rollups = new ArrayList<>();
+        for (long window : windows) {
+            for (int index = 0; index < slots; index++) {
+                if (counts[index] > 0 && slotWindows[index] == window) {
+                    rollups.add(rollup(index / ringSize, index));
+                    counts[index] = 0;
+                }
+            }
+        }
+        closedUntil = boundary;
+        windowsClosed += windows.size();
+        rollupsEmitted += rollups.size();
+
+        int idle = 0;
+        for (int entry = 0; entry < size; entry++) {
+            if (lastWindows[entry] + windowNanos < boundary) {
+                idle++;
+            }
+        }
+        if (idle > size / 2) {
+            compact(boundary);
+        }
+        return rollups;
+    }
+
+    private Point rollup(int entry, int index) {
+        Point point = Point.measurement(measurements[entry] + suffix);
+        String[] pairs = tagPairs[entry];
+        for (int i = 0; i < pairs.length; i += 2) {
+            point.setTag(pairs[i], pairs[i + 1]);
+        }
+
+        String field = fields[entry];
+        long count = counts[index];
+        return point.setField(field + "_min", mins[index])
+                .setField(field + "_max", maxs[index])
+                .setField(field + "_sum", sums[index])
+                .setField(field + "_count", count)
+                .setField(field + "_mean", sums[index] / count)
+                .setTimestamp(slotWindows[index], WritePrecision.NS);
+    }
+
+    /**
+     * Moves the series that saw points in the last closed window or later to the front, with their open slots,
+     * and rebuilds the index around them
+     */
+    private void compact(long boundary) {
+        int kept = 0;
+        for (int entry = 0; entry < size; entry++) {
+            if (lastWindows[entry] + windowNanos >= boundary) {
+                hashes[kept] = hashes[entry];
+                measurements[kept] = measurements[entry];
+                tagPairs[kept] = tagPairs[entry];
+                fields[kept] = fields[entry];
+                lastWindows[kept] = lastWindows[entry];
+                int from = entry * ringSize;
+                int to = kept * ringSize;
+                System.arraycopy(slotWindows, from, slotWindows, to, ringSize);
+                System.arraycopy(mins, from, mins, to, ringSize);
+                System.arraycopy(maxs, from, maxs, to, ringSize);
+                System.arraycopy(sums, from, sums, to, ringSize);
+                System.arraycopy(counts, from, counts, to, ringSize);
+                kept++;
+            }
+        }
+        Arrays.fill(measurements, kept, size, null);
+        Arrays.fill(tagPairs, kept, size, null);
+        Arrays.fill(fields, kept, size, null);
+        Arrays.fill(counts, kept * ringSize, size * ringSize, 0L);
+        size = kept;
+
+        int tableSize = INITIAL_CAPACITY * 2;
+        while (size * 2 > tableSize) {
+            tableSize *= 2;
+        }
+        rehash(tableSize);
+    }
+
+    private void growEntries() {
+        int capacity = hashes.length * 2;
+        hashes = Arrays.copyOf(hashes, capacity);
+        measurements = Arrays.copyOf(measurements, capacity);
+        tagPairs = Arrays.copyOf(tagPairs, capacity);
+        fields = Arrays.copyOf(fields, capacity);
+        lastWindows = Arrays.copyOf(lastWindows, capacity);
+        slotWindows = Arrays.copyOf(slotWindows, capacity * ringSize);
+        mins = Arrays.copyOf(mins, capacity * ringSize);
+        maxs = Arrays.copyOf(maxs, capacity * ringSize);
+        sums = Arrays.copyOf(sums, capacity * ringSize);
+        counts = Arrays.copyOf(counts, capacity * ringSize);
+    }
+
+    private void rehash(int tableSize) {
+        table = new int[tableSize];
+        Arrays.fill(table, NO_ENTRY);
+        int mask = tableSize - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int slot = (int) (hashes[entry] ^ (hashes[entry] >>> 32)) & mask;
+            while (table[slot] != NO_ENTRY) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = entry;
+        }
+    }
+
+    private void emit(List<Point> rollups) {
+        if (rollups != null && !rollups.isEmpty()) {
+            sink.accept(rollups);
+        }
+    }
+
+    /**
+     * Default rollup suffix for a window, e.g. "_10s" or "_1m"
+     */
+    static String suffix(Duration window) {
+        long seconds = window.getSeconds();
+        if (window.getNano() != 0) {
+            return "_" + window.toMillis() + "ms";
+        }
+        if (seconds % 3600 == 0) {
+            return "_" + seconds / 3600 + "h";
+        }
+        if (seconds % 60 == 0) {
+            return "_" + seconds / 60 + "m";
+        }
+        return "_" + seconds + "s";
+    }
+
+    // Counters
+    public synchronized long getPointsAggregated() {
+        return pointsAggregated;
+    }
+
+    public synchronized long getLatePoints() {
+        return latePoints;
+    }
+
+    public synchronized long getRollupsEmitted() {
+        return rollupsEmitted;
+    }
+
+    public synchronized long getWindowsClosed() {
+        return windowsClosed;
+    }
+
+    public synchronized int getSeriesCount() {
+        return size;
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.query.QueryOptions;
+import com.influxdb.v3.client.query.QueryType;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A SQL or InfluxQL query template with {@code $name} placeholders, parsed and validated once
+ * The template, its placeholder names, its query options and, after the first columnar run, its result schema
+ * are kept, so each execution only binds values instead of rebuilding the query string and parameter map
+ * Thread-safe; bindings are not, create one per call or per thread
+ */
+public final class PreparedQuery {
+
+    private final InfluxDBClient client;
+    private final String sql;
+    private final QueryType type;
+    private final QueryOptions options;
+    private final String[] parameterNames;
+    private volatile ColumnarResult.Schema schema;
+
+    public PreparedQuery(InfluxDBClient client, String template) {
+        this(client, template, QueryType.SQL);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a placeholder is malformed or a quoted literal or comment is not closed
+     */
+    public PreparedQuery(InfluxDBClient client, String template, QueryType type) {
+        this.client = client;
+        this.sql = template.strip();
+        this.type = type;
+        this.options = type == QueryType.InfluxQL ? QueryOptions.INFLUX_QL : QueryOptions.DEFAULTS;
+        this.parameterNames = parsePlaceholders(sql).toArray(String[]::new);
+    }
+
+    /**
+     * Names of the placeholders in the template, in order of first use; a name used twice is listed once
+     */
+    static List<String> parsePlaceholders(String sql) {
+        List<String> names = new ArrayList<>();
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i, c);
+            } else if (c == '-' && sql.startsWith("--", i)) {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? sql.length() : end + 1;
+            } else if (c == '/' && sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated comment at position " + i + " in: " + sql);
+                }
+                i = end + 2;
+            } else if (c == '$') {
+                int end = i + 1;
+                while (end < sql.length() && isNameChar(sql.charAt(end), end == i + 1)) {
+                    end++;
+                }
+                if (end == i + 1) {
+                    throw new IllegalArgumentException("Invalid placeholder at position " + i
+                            + ", expected $name in: " + sql);
+                }
+                String name = sql.substring(i + 1, end);
+                if (!names.contains(name)) {
+                    names.add(name);
+                }
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Index just past a quoted literal or identifier; a doubled quote is an escaped quote
+     */
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        throw new IllegalArgumentException("Unterminated " + (quote == '\'' ? "string literal" : "quoted identifier")
+                + " at position " + start + " in: " + sql);
+    }
+
+    private static boolean isNameChar(char c, boolean first) {
+        return c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (!first && c >= '0' && c <= '9');
+    }
+
+    /**
+     * Starts a binding with every placeholder unbound
+     */
+    public Binding bind() {
+        return new Binding();
+    }
+
+    public String sql() {
+        return sql;
+    }
+
+    public QueryType type() {
+        return type;
+    }
+
+    public List<String> parameterNames() {
+        return List.of(parameterNames);
+    }
+
+    /**
+     * Result schema cached by the last columnar execution, or null before the first one
+     */
+    public ColumnarResult.Schema schema() {
+        return schema;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + sql;
+    }
+
+    /**
+     * Values for the placeholders of one execution; values can be replaced and the binding executed again
+     * Parameters are passed to the client as a map view over the bound values, without copying
+     */
+    public final class Binding {
+
+        private final Object[] values = new Object[parameterNames.length];
+        private final Parameters parameters = new Parameters();
+
+        private Binding() {
+        }
+
+        public Binding set(String name, String value) {
+            values[indexOf(name)] = value;
+            return this;
+        }
+
+        public Binding set(String name, long value) {
+            values[indexOf(name)] = value;
+            return this;
+        }
+
+        public Binding set(String name, double value) {
+            values[indexOf(name)] = value;
+            return this;
+        }
+
+        public Binding set(String name, boolean value) {
+            values[indexOf(name)] = value;
+            return this;
+        }
+
+        /**
+         * Runs the query and streams its rows; close the stream when done
+         *
+         * @throws IllegalStateException if a placeholder is unbound
+         */
+        public Stream<Object[]> query() {
+            return client.query(sql, boundParameters(), options);
+        }
+
+        /**
+         * Runs the query over the Arrow batch API; close the stream when done
+         */
+        public Stream<VectorSchemaRoot> queryBatches() {
+            return client.queryBatches(sql, boundParameters(), options);
+        }
+
+        /**
+         * Runs the query into typed columns, reusing the result schema of the previous run
+         */
+        public ColumnarResult queryColumnar() {
+            ColumnarResult result;
+            try (Stream<VectorSchemaRoot> batches = queryBatches()) {
+                result = ColumnarResult.from(batches, schema);
+            }
+            if (result.schema() != null) {
+                schema = result.schema();
+            }
+            return result;
+        }
+
+        public PreparedQuery prepared() {
+            return PreparedQuery.this;
+        }
+
+        /**
+         * Read-only view of the bound values; reflects later changes to the binding
+         */
+        public Map<String, Object> parameters() {
+            return parameters;
+        }
+
+        /**
+         * The parameters, once every placeholder is bound
+         */
+        Map<String, Object> boundParameters() {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    throw new IllegalStateException("Placeholder $" + parameterNames[i] + " is not bound in: " + sql);
+                }
+            }
+            return parameters;
+        }
+
+        private int indexOf(String name) {
+            // Templates have a handful of placeholders, a scan beats hashing
+            for (int i = 0; i < parameterNames.length; i++) {
+                if (parameterNames[i].equals(name)) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("No placeholder $" + name + " in: " + sql);
+        }
+
+        @Override
+        public String toString() {
+            return PreparedQuery.this + " " + parameters;
+        }
+
+        private final class Parameters extends AbstractMap<String, Object> {
+
+            @Override
+            public Object get(Object key) {
+                for (int i = 0; i < parameterNames.length; i++) {
+                    if (parameterNames[i].equals(key)) {
+                        return values[i];
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return Arrays.asList(parameterNames).contains(key);
+            }
+
+            @Override
+            public int size() {
+                return parameterNames.length;
+            }
+
+            @Override
+            public Set<Entry<String, Object>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<String, Object>> iterator() {
+                        return new Iterator<>() {
+                            private int next;
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < parameterNames.length;
+                            }
+
+                            @Override
+                            public Entry<String, Object> next() {
+                                if (next >= parameterNames.length) {
+                                    throw new NoSuchElementException();
+                                }
+                                int index = next++;
+                                return new SimpleImmutableEntry<>(parameterNames[index], values[index]);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return parameterNames.length;
+                    }
+                };
+            }
+        }
+    }
+}
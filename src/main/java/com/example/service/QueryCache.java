@@ -0,0 +1,294 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.query.QueryType;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Client-side cache in front of {@code client.query(sql, params)}
+ * Entries are keyed on normalized SQL plus parameters, expire after a TTL and are evicted
+ * least-recently-used once the estimated size exceeds the memory budget
+ * Writes invalidate every entry whose query reads the written measurement
+ */
+public class QueryCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(5);
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    // Tables named after FROM or JOIN, optionally double-quoted
+    private static final Pattern TABLE_PATTERN =
+            Pattern.compile("\\b(?:FROM|JOIN)\\s+(\"([^\"]+)\"|[A-Za-z_][\\w.]*)", Pattern.CASE_INSENSITIVE);
+
+    // Queries whose tables could not be determined are dropped on every invalidation
+    private static final String ANY_MEASUREMENT = "*";
+
+    private final InfluxDBClient client;
+    private final long ttlNanos;
+    private final long maxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry; guarded by this
+    private final LinkedHashMap<CacheKey, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Set<CacheKey>> keysByMeasurement = new HashMap<>();
+    // Bumped on every write to a measurement, so a query only skips caching when a table it reads changed
+    private final Map<String, Long> epochsByMeasurement = new HashMap<>();
+    private long clearEpoch;
+    private long bytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public QueryCache(InfluxDBClient client) {
+        this(client, DEFAULT_TTL, DEFAULT_MAX_BYTES);
+    }
+
+    public QueryCache(InfluxDBClient client, Duration ttl, long maxBytes) {
+        if (ttl.isNegative() || ttl.isZero() || maxBytes <= 0) {
+            throw new IllegalArgumentException("TTL and memory budget must be positive");
+        }
+        this.client = client;
+        this.ttlNanos = ttl.toNanos();
+        this.maxBytes = maxBytes;
+    }
+
+    public Stream<Object[]> query(String sql) {
+        return query(sql, Map.of());
+    }
+
+    /**
+     * Returns cached rows when a fresh entry exists, otherwise runs the query and caches its rows
+     * The returned rows are shared between callers and must not be modified
+     */
+    public Stream<Object[]> query(String sql, Map<String, Object> params) {
+        return query(new CacheKey(normalize(sql), QueryType.SQL, Map.copyOf(params)),
+                () -> params.isEmpty() ? client.query(sql) : client.query(sql, params));
+    }
+
+    /**
+     * Same as {@link #query(String, Map)} for a bound prepared query; its SQL is used as is, without normalizing
+     */
+    public Stream<Object[]> query(PreparedQuery.Binding binding) {
+        PreparedQuery prepared = binding.prepared();
+        return query(new CacheKey(prepared.sql(), prepared.type(), Map.copyOf(binding.boundParameters())),
+                binding::query);
+    }
+
+    private Stream<Object[]> query(CacheKey key, Supplier<Stream<Object[]>> source) {
+        Set<String> measurements = measurements(key.sql());
+        long epoch;
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.expiresAt < 0) {
+                    hits++;
+                    return Arrays.stream(entry.rows);
+                }
+                remove(key);
+                expirations++;
+            }
+            misses++;
+            epoch = epoch(measurements);
+        }
+
+        Object[][] rows;
+        try (Stream<Object[]> stream = source.get()) {
+            rows = stream.toArray(Object[][]::new);
+        }
+
+        synchronized (this) {
+            // Skip caching if a table the query reads was written while it ran, the rows may predate the write
+            if (epoch == epoch(measurements)) {
+                put(key, rows, measurements);
+            }
+        }
+        return Arrays.stream(rows);
+    }
+
+    /**
+     * Drops every entry whose query reads the given measurement
+     */
+    public synchronized void invalidate(String measurement) {
+        String table = measurement.toLowerCase(Locale.ROOT);
+        epochsByMeasurement.merge(table, 1L, Long::sum);
+        epochsByMeasurement.merge(ANY_MEASUREMENT, 1L, Long::sum);
+        removeAll(keysByMeasurement.get(table));
+        removeAll(keysByMeasurement.get(ANY_MEASUREMENT));
+    }
+
+    public synchronized void invalidateAll() {
+        clearEpoch++;
+        invalidations += entries.size();
+        entries.clear();
+        keysByMeasurement.clear();
+        bytes = 0;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, expirations, invalidations, entries.size(), bytes);
+    }
+
+    /**
+     * Cache statistics; hit ratio is hits / (hits + misses)
+     */
+    public record Stats(long hits, long misses, long evictions, long expirations, long invalidations,
+                        int entries, long bytes) {
+
+        public double hitRatio() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+
+    /**
+     * Collapses whitespace outside quoted literals and drops a trailing semicolon,
+     * so formatting differences between callers share one entry
+     */
+    static String normalize(String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        char quote = 0;
+        boolean pendingSpace = false;
+
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote == 0 && Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            if (quote == 0 && (c == '\'' || c == '"')) {
+                quote = c;
+            } else if (c == quote) {
+                quote = 0;
+            }
+            normalized.append(c);
+        }
+
+        int end = normalized.length();
+        if (end > 0 && normalized.charAt(end - 1) == ';') {
+            normalized.setLength(end - 1);
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Lower-cased names of the tables a query reads
+     */
+    static Set<String> measurements(String sql) {
+        Set<String> measurements = new HashSet<>();
+        Matcher matcher = TABLE_PATTERN.matcher(sql);
+        while (matcher.find()) {
+            String table = matcher.group(2) != null ? matcher.group(2) : matcher.group(1);
+            measurements.add(table.toLowerCase(Locale.ROOT));
+        }
+        if (measurements.isEmpty()) {
+            measurements.add(ANY_MEASUREMENT);
+        }
+        return measurements;
+    }
+
+    /**
+     * Sum of the write epochs of the given tables; epochs only grow, so the sum changes whenever one of them does
+     */
+    private long epoch(Set<String> measurements) {
+        long epoch = clearEpoch;
+        for (String measurement : measurements) {
+            epoch += epochsByMeasurement.getOrDefault(measurement, 0L);
+        }
+        return epoch;
+    }
+
+    private void put(CacheKey key, Object[][] rows, Set<String> measurements) {
+        long size = estimateSize(rows);
+        if (size > maxBytes) {
+            return;
+        }
+
+        remove(key);
+        entries.put(key, new Entry(rows, size, System.nanoTime() + ttlNanos, measurements));
+        bytes += size;
+        for (String measurement : measurements) {
+            keysByMeasurement.computeIfAbsent(measurement, m -> new HashSet<>()).add(key);
+        }
+
+        Iterator<Map.Entry<CacheKey, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<CacheKey, Entry> victim = eldest.next();
+            eldest.remove();
+            unindex(victim.getKey(), victim.getValue());
+            evictions++;
+        }
+    }
+
+    private void removeAll(Set<CacheKey> keys) {
+        if (keys == null) {
+            return;
+        }
+        for (CacheKey key : Set.copyOf(keys)) {
+            if (remove(key)) {
+                invalidations++;
+            }
+        }
+    }
+
+    private boolean remove(CacheKey key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        unindex(key, entry);
+        return true;
+    }
+
+    private void unindex(CacheKey key, Entry entry) {
+        bytes -= entry.size;
+        for (String measurement : entry.measurements) {
+            Set<CacheKey> keys = keysByMeasurement.get(measurement);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByMeasurement.remove(measurement);
+            }
+        }
+    }
+
+    /**
+     * Approximate heap footprint of the materialized rows
+     */
+    static long estimateSize(Object[][] rows) {
+        long size = 16 + 8L * rows.length;
+        for (Object[] row : rows) {
+            size += 16 + 8L * row.length;
+            for (Object value : row) {
+                if (value instanceof String string) {
+                    size += 40 + string.length();
+                } else if (value != null) {
+                    size += 24;
+                }
+            }
+        }
+        return size;
+    }
+
+    private record CacheKey(String sql, QueryType type, Map<String, Object> params) {
+    }
+
+    private record Entry(Object[][] rows, long size, long expiresAt, Set<String> measurements) {
+    }
+}
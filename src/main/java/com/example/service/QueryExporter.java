@@ -0,0 +1,319 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBClient;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorLoader;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.VectorUnloader;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.ipc.ArrowWriter;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Exports query results to Arrow IPC files batch by batch, without converting rows
+ * Each record batch from {@code client.queryBatches(...)} has its buffers handed to the file writer's root
+ * (no copy) and is written through a large direct buffer to a {@link FileChannel}, so the JVM does a few large
+ * sequential writes instead of one per Arrow buffer
+ * Files are split at batch boundaries once they reach the row or byte limit; each is written as
+ * {@code <name>.part} and renamed when complete, so readers never see half-written files
+ */
+public class QueryExporter implements AutoCloseable {
+
+    public enum Format {
+        /** Arrow IPC file format, with a footer for random access to batches; {@code .arrow} */
+        FILE(".arrow"),
+        /** Arrow IPC streaming format, readable while being written; {@code .arrows} */
+        STREAM(".arrows");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    public record ExportReport(List<Path> files, long rows, long bytes, long batches, Duration elapsed) {
+
+        public double rowsPerSecond() {
+            double seconds = elapsed.toNanos() / 1e9;
+            return seconds > 0 ? rows / seconds : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows in %d batches to %d files, %.1f MB, %.0f rows/s", rows, batches,
+                    files.size(), bytes / 1e6, rowsPerSecond());
+        }
+    }
+
+    public static final long DEFAULT_MAX_ROWS_PER_FILE = 10_000_000;
+    public static final long DEFAULT_MAX_BYTES_PER_FILE = 1024L * 1024 * 1024;
+    public static final int DEFAULT_BUFFER_BYTES = 8 * 1024 * 1024;
+
+    private final InfluxDBClient client;
+    private final Format format;
+    private final long maxRowsPerFile;
+    private final long maxBytesPerFile;
+    private final int bufferBytes;
+    private final BufferAllocator allocator = new RootAllocator();
+
+    public QueryExporter(InfluxDBClient client) {
+        this(client, Format.FILE, DEFAULT_MAX_ROWS_PER_FILE, DEFAULT_MAX_BYTES_PER_FILE, DEFAULT_BUFFER_BYTES);
+    }
+
+    /**
+     * @param maxRowsPerFile  a new file is started after the batch that reaches this many rows
+     * @param maxBytesPerFile a new file is started after the batch that reaches this many bytes
+     * @param bufferBytes     size of the direct write buffer in front of each file
+     */
+    public QueryExporter(InfluxDBClient client, Format format, long maxRowsPerFile, long maxBytesPerFile,
+                         int bufferBytes) {
+        if (maxRowsPerFile <= 0 || maxBytesPerFile <= 0 || bufferBytes <= 0) {
+            throw new IllegalArgumentException("File limits and buffer size must be positive");
+        }
+        this.client = client;
+        this.format = format;
+        this.maxRowsPerFile = maxRowsPerFile;
+        this.maxBytesPerFile = maxBytesPerFile;
+        this.bufferBytes = bufferBytes;
+    }
+
+    /**
+     * Runs a query and exports its results as {@code <prefix>-00000<extension>}, {@code <prefix>-00001...}
+     */
+    public ExportReport export(String sql, Path directory, String prefix) throws IOException {
+        try (Stream<VectorSchemaRoot> batches = client.queryBatches(sql)) {
+            return export(batches, directory, prefix);
+        }
+    }
+
+    public ExportReport export(String sql, Map<String, Object> params, Path directory, String prefix)
+            throws IOException {
+        try (Stream<VectorSchemaRoot> batches = client.queryBatches(sql, params)) {
+            return export(batches, directory, prefix);
+        }
+    }
+
+    /**
+     * Exports a stream of record batches, e.g. of a {@link PreparedQuery}; the stream is not closed
+     * A batch whose schema differs from the previous one starts a new file
+     */
+    public ExportReport export(Stream<VectorSchemaRoot> batches, Path directory, String prefix) throws IOException {
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+        List<Path> files = new ArrayList<>();
+        long rows = 0;
+        long bytes = 0;
+        long batchCount = 0;
+
+        OutputFile output = null;
+        try {
+            Iterator<VectorSchemaRoot> iterator = batches.iterator();
+            while (iterator.hasNext()) {
+                VectorSchemaRoot batch = iterator.next();
+                if (batch.getRowCount() == 0) {
+                    continue;
+                }
+                if (output != null && !output.root.getSchema().equals(batch.getSchema())) {
+                    bytes += output.finish();
+                    output = null;
+                }
+                if (output == null) {
+                    Path file = directory.resolve(String.format("%s-%05d%s", prefix, files.size(), format.extension));
+                    output = new OutputFile(file, batch.getSchema());
+                    files.add(file);
+                }
+
+                output.write(batch);
+                rows += batch.getRowCount();
+                batchCount++;
+                if (output.rows >= maxRowsPerFile || output.channel.position() >= maxBytesPerFile) {
+                    bytes += output.finish();
+                    output = null;
+                }
+            }
+            if (output != null) {
+                bytes += output.finish();
+                output = null;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (output != null) {
+                output.abandon();
+            }
+        }
+        return new ExportReport(List.copyOf(files), rows, bytes, batchCount, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    @Override
+    public void close() {
+        allocator.close();
+    }
+
+    /**
+     * One file being written: a root that borrows each batch's buffers, its IPC writer and the buffered channel
+     */
+    private final class OutputFile {
+
+        private final Path file;
+        private final Path partFile;
+        private final VectorSchemaRoot root;
+        private final BufferedChannel channel;
+        private final ArrowWriter writer;
+        private long rows;
+
+        OutputFile(Path file, Schema schema) throws IOException {
+            this.file = file;
+            this.partFile = file.resolveSibling(file.getFileName() + ".part");
+            this.channel = new BufferedChannel(FileChannel.open(partFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), bufferBytes);
+            this.root = VectorSchemaRoot.create(schema, allocator);
+            DictionaryProvider dictionaries = new DictionaryProvider.MapDictionaryProvider();
+            this.writer = format == Format.FILE
+                    ? new ArrowFileWriter(root, dictionaries, channel)
+                    : new ArrowStreamWriter(root, dictionaries, channel);
+            this.writer.start();
+        }
+
+        void write(VectorSchemaRoot batch) throws IOException {
+            // Moves buffer references, not values; the batch keeps its own references for the query stream
+            try (ArrowRecordBatch recordBatch = new VectorUnloader(batch).getRecordBatch()) {
+                new VectorLoader(root).load(recordBatch);
+            }
+            writer.writeBatch();
+            rows += batch.getRowCount();
+        }
+
+        /**
+         * Writes the footer, syncs and renames the file into place
+         *
+         * @return file size in bytes
+         */
+        long finish() throws IOException {
+            try {
+                writer.end();
+                channel.flush();
+                channel.file.force(false);
+            } finally {
+                close();
+            }
+            Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return Files.size(file);
+        }
+
+        void abandon() {
+            close();
+            try {
+                Files.deleteIfExists(partFile);
+            } catch (IOException e) {
+                System.err.println("Could not delete " + partFile + ": " + e.getMessage());
+            }
+        }
+
+        private void close() {
+            try {
+                writer.close();
+            } catch (RuntimeException e) {
+                // Also thrown when the footer cannot be written; the part file is abandoned then
+            } finally {
+                root.close();
+                channel.closeQuietly();
+            }
+        }
+    }
+
+    /**
+     * Collects the many small writes of an IPC writer into one direct buffer and writes it to the file
+     * when full; writes larger than the buffer go straight through
+     */
+    private static final class BufferedChannel implements WritableByteChannel {
+
+        private final FileChannel file;
+        private final ByteBuffer buffer;
+        private long position;
+
+        BufferedChannel(FileChannel file, int bufferBytes) {
+            this.file = file;
+            this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            int length = source.remaining();
+            if (length > buffer.remaining()) {
+                flush();
+                if (length >= buffer.capacity()) {
+                    while (source.hasRemaining()) {
+                        file.write(source);
+                    }
+                    position += length;
+                    return length;
+                }
+            }
+            buffer.put(source);
+            position += length;
+            return length;
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                file.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Bytes written so far, buffered or not
+         */
+        long position() {
+            return position;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return file.isOpen();
+        }
+
+        /**
+         * Called by the IPC writer when it is closed; flushing is left to {@link OutputFile#finish()}
+         */
+        @Override
+        public void close() {
+            closeQuietly();
+        }
+
+        void closeQuietly() {
+            try {
+                file.close();
+            } catch (IOException e) {
+                System.err.println("Closing export file failed: " + e.getMessage());
+            }
+        }
+    }
+}
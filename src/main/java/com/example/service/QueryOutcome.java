@@ -0,0 +1,29 @@
+package com.example.service;
+
+import java.time.Duration;
+
+/**
+ * Result or failure of a single QueryTask
+ */
+public record QueryOutcome<T>(String name, Status status, T result, Throwable error, Duration elapsed) {
+
+    public enum Status {
+        SUCCEEDED,
+        FAILED,
+        TIMED_OUT,
+        CANCELLED
+    }
+
+    public boolean succeeded() {
+        return status == Status.SUCCEEDED;
+    }
+
+    public String errorMessage() {
+        return switch (status) {
+            case SUCCEEDED -> null;
+            case TIMED_OUT -> "deadline exceeded after " + elapsed.toMillis() + " ms";
+            case CANCELLED -> "cancelled";
+            case FAILED -> error != null ? error.getMessage() : "unknown error";
+        };
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.service;
+
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Reactive-streams publisher of the Arrow record batches of a query, e.g. over {@code client.queryBatches(...)}
+ * Each subscription runs the query once, on a virtual thread, and only pulls the next batch from the server
+ * when the subscriber has requested it, so a slow subscriber holds the query back instead of buffering rows
+ *
+ * A batch is only valid during {@code onNext}: its buffers are released as soon as onNext returns,
+ * so subscribers copy what they keep; at most one batch per subscription is held in memory
+ * Cancelling, completion and errors close the underlying stream
+ */
+public class QueryPublisher implements Flow.Publisher<VectorSchemaRoot> {
+
+    private final Supplier<Stream<VectorSchemaRoot>> query;
+    private final Executor executor;
+
+    /**
+     * @param query opens the batch stream; called once per subscription, on its first request
+     */
+    public QueryPublisher(Supplier<Stream<VectorSchemaRoot>> query) {
+        this(query, task -> Thread.ofVirtual().name("influxdb-query-publisher").start(task));
+    }
+
+    public QueryPublisher(Supplier<Stream<VectorSchemaRoot>> query, Executor executor) {
+        this.query = query;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super VectorSchemaRoot> subscriber) {
+        BatchSubscription subscription = new BatchSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Delivers batches from a single drain loop, so signals to the subscriber never overlap
+     * even when request() and cancel() are called from several threads or from inside onNext
+     */
+    private final class BatchSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super VectorSchemaRoot> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // Pending drain requests; only the caller moving it from 0 runs the loop
+        private final AtomicInteger work = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private Stream<VectorSchemaRoot> batches;
+        private Iterator<VectorSchemaRoot> iterator;
+        private boolean done;
+
+        BatchSubscription(Flow.Subscriber<? super VectorSchemaRoot> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested " + n + " batches; must be positive");
+            } else {
+                // Saturates at Long.MAX_VALUE, which means unbounded
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (work.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (!done) {
+                    deliver();
+                }
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliver() {
+            while (true) {
+                if (cancelled) {
+                    finish();
+                    return;
+                }
+                if (invalidRequest != null) {
+                    finish();
+                    subscriber.onError(invalidRequest);
+                    return;
+                }
+                if (demand.get() == 0) {
+                    return;
+                }
+
+                VectorSchemaRoot batch;
+                try {
+                    if (iterator == null) {
+                        batches = query.get();
+                        iterator = batches.iterator();
+                    }
+                    if (!iterator.hasNext()) {
+                        finish();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    batch = iterator.next();
+                } catch (RuntimeException e) {
+                    finish();
+                    subscriber.onError(e);
+                    return;
+                }
+
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                try {
+                    subscriber.onNext(batch);
+                } catch (RuntimeException e) {
+                    // A failing subscriber cancels its own subscription
+                    finish();
+                    subscriber.onError(e);
+                    return;
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        /**
+         * Closes the query stream once; no signal follows except the terminal one of the caller
+         */
+        private void finish() {
+            done = true;
+            cancelled = true;
+            if (batches != null) {
+                try {
+                    batches.close();
+                } catch (RuntimeException e) {
+                    System.err.println("Closing query stream failed: " + e.getMessage());
+                }
+                batches = null;
+                iterator = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcomes of a parallel query run, in submission order
+ */
+public record QueryReport<T>(List<QueryOutcome<T>> outcomes, Duration elapsed) {
+
+    public QueryReport {
+        outcomes = List.copyOf(outcomes);
+    }
+
+    public List<QueryOutcome<T>> succeeded() {
+        return outcomes.stream().filter(QueryOutcome::succeeded).toList();
+    }
+
+    public List<QueryOutcome<T>> failed() {
+        return outcomes.stream().filter(outcome -> !outcome.succeeded()).toList();
+    }
+
+    public boolean allSucceeded() {
+        return outcomes.stream().allMatch(QueryOutcome::succeeded);
+    }
+
+    /**
+     * Elapsed time of the slowest query; a well-parallelized run takes about this long overall
+     */
+    public Duration slowest() {
+        return outcomes.stream().map(QueryOutcome::elapsed).max(Duration::compareTo).orElse(Duration.ZERO);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d queries, %d succeeded, %d failed in %d ms (slowest %d ms)",
+                outcomes.size(), succeeded().size(), failed().size(), elapsed.toMillis(), slowest().toMillis());
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.service;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * A named, independent query for ParallelQueryExecutor
+ *
+ * @param deadline time allowed from submission to completion, or null for the executor default
+ */
+public record QueryTask<T>(String name, Callable<T> query, Duration deadline) {
+
+    public QueryTask {
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(query, "query");
+    }
+
+    public static <T> QueryTask<T> of(String name, Callable<T> query) {
+        return new QueryTask<>(name, query, null);
+    }
+}
@@ -0,0 +1,448 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBApiHttpException;
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+import org.HdrHistogram.Histogram;
+import org.apache.arrow.flight.FlightRuntimeException;
+import org.apache.arrow.flight.FlightStatusCode;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Wraps the client of one endpoint with retries, hedged queries and a circuit breaker
+ * Queries and writes that are safe to repeat are retried on transient errors (timeouts, 429, 5xx) after an
+ * exponential backoff with full jitter, so clients that failed together do not retry together
+ * A query whose first batch takes longer than the recent p95 gets a second, hedged attempt and the first answer
+ * wins; at most a tenth of the queries are hedged, so an overloaded server is not sent twice the load
+ * The breaker fails calls fast once the endpoint keeps failing, which also lets {@link ClientPool} fail over at once
+ * Query streams are retried and hedged only until their first element; a failure later in the stream is the caller's
+ */
+public final class ResilientClient implements InvocationHandler {
+
+    /**
+     * @param maxAttempts      calls per request, including the first; 1 disables retries
+     * @param baseBackoff      backoff cap of the first retry; doubled per retry up to {@code maxBackoff}
+     * @param hedgeQueries     whether slow queries get a hedged second attempt
+     * @param latencyWindow    queries per window whose p95 becomes the hedge delay of the next window
+     * @param breakerThreshold consecutive failures that open the breaker
+     * @param breakerOpen      how long the breaker stays open before a trial call
+     */
+    public record Policy(int maxAttempts, Duration baseBackoff, Duration maxBackoff, boolean hedgeQueries,
+                         int latencyWindow, int breakerThreshold, Duration breakerOpen) {
+
+        public Policy {
+            if (maxAttempts <= 0 || latencyWindow <= 0 || breakerThreshold <= 0) {
+                throw new IllegalArgumentException("Attempts, latency window and breaker threshold must be positive");
+            }
+            if (baseBackoff.isNegative() || maxBackoff.compareTo(baseBackoff) < 0) {
+                throw new IllegalArgumentException("Backoff must not be negative and its cap not below the base");
+            }
+        }
+
+        public static Policy defaults() {
+            return new Policy(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_BACKOFF, DEFAULT_MAX_BACKOFF, true,
+                    DEFAULT_LATENCY_WINDOW, CircuitBreaker.DEFAULT_FAILURE_THRESHOLD,
+                    CircuitBreaker.DEFAULT_OPEN_DURATION);
+        }
+    }
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final Duration DEFAULT_BASE_BACKOFF = Duration.ofMillis(100);
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(5);
+    public static final int DEFAULT_LATENCY_WINDOW = 100;
+
+    private static final double MAX_HEDGE_RATIO = 0.1;
+
+    private final InfluxDBClient delegate;
+    private final Policy policy;
+    private final CircuitBreaker breaker;
+    private final InfluxDBClient client;
+    private final ExecutorService attempts = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("influxdb-query-attempt-", 0).factory());
+
+    // Time to first element of the current window; guarded by itself
+    private final Histogram latencies = new Histogram(3);
+    private volatile long hedgeDelayNanos;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+
+    public ResilientClient(InfluxDBClient delegate, String name) {
+        this(delegate, name, Policy.defaults());
+    }
+
+    public ResilientClient(InfluxDBClient delegate, String name, Policy policy) {
+        this(delegate, policy, new CircuitBreaker(name, policy.breakerThreshold(), policy.breakerOpen()));
+    }
+
+    ResilientClient(InfluxDBClient delegate, Policy policy, CircuitBreaker breaker) {
+        this.delegate = delegate;
+        this.policy = policy;
+        this.breaker = breaker;
+        this.client = (InfluxDBClient) Proxy.newProxyInstance(InfluxDBClient.class.getClassLoader(),
+                new Class<?>[]{InfluxDBClient.class}, this);
+    }
+
+    /**
+     * The wrapped client; closing it closes the delegate
+     */
+    public InfluxDBClient client() {
+        return client;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String operation = method.getName();
+        switch (operation) {
+            case "toString":
+                return "Resilient(" + delegate + ")";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "close":
+                attempts.shutdownNow();
+                return call(method, args);
+            default:
+                break;
+        }
+
+        if (Stream.class.isAssignableFrom(method.getReturnType())) {
+            queries.incrementAndGet();
+            return withRetries(() -> startQuery(method, args), true);
+        }
+        if (operation.startsWith("write")) {
+            return withRetries(() -> attempt(method, args), isIdempotentWrite(args[0]));
+        }
+        return call(method, args);
+    }
+
+    @FunctionalInterface
+    private interface Call<T> {
+        T call() throws Throwable;
+    }
+
+    /**
+     * Runs a call until it succeeds, fails with an error that is not transient, or runs out of attempts
+     */
+    private <T> T withRetries(Call<T> call, boolean retryable) throws Throwable {
+        calls.incrementAndGet();
+        int maxAttempts = retryable ? policy.maxAttempts() : 1;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.call();
+            } catch (Throwable e) {
+                if (attempt >= maxAttempts || !isTransient(e)) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                try {
+                    Thread.sleep(Duration.ofNanos(backoffNanos(attempt)));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Full jitter: uniform between zero and the exponential cap of this retry
+     */
+    long backoffNanos(int retry) {
+        double exponential = policy.baseBackoff().toNanos() * Math.pow(2, retry - 1);
+        long cap = (long) Math.min(exponential, policy.maxBackoff().toNanos());
+        return cap > 0 ? ThreadLocalRandom.current().nextLong(cap + 1) : 0;
+    }
+
+    /**
+     * One call through the breaker
+     */
+    private Object attempt(Method method, Object[] args) throws Exception {
+        long permit = breaker.acquire();
+        try {
+            Object result = call(method, args);
+            breaker.onSuccess(permit);
+            return result;
+        } catch (Throwable e) {
+            recordFailure(e, permit);
+            throw e;
+        }
+    }
+
+    private void recordFailure(Throwable error, long permit) {
+        if (isTransient(error)) {
+            breaker.onFailure(permit);
+        } else if (error instanceof CancellationException || error instanceof InterruptedException) {
+            breaker.release(permit);
+        } else {
+            breaker.onSuccess(permit);
+        }
+    }
+
+    private Object call(Method method, Object[] args) throws Exception {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    /**
+     * Runs a query until its first element, hedged once the recent p95 has passed
+     */
+    private Stream<?> startQuery(Method method, Object[] args) throws Throwable {
+        long start = System.nanoTime();
+        long hedgeDelay = hedgeDelayNanos;
+        if (!policy.hedgeQueries()) {
+            return startAttempt(method, args, new AtomicBoolean()).stream();
+        }
+        if (hedgeDelay <= 0) {
+            StartedQuery started = startAttempt(method, args, new AtomicBoolean());
+            recordLatency(System.nanoTime() - start);
+            return started.stream();
+        }
+
+        AtomicBoolean claimed = new AtomicBoolean();
+        CompletionService<StartedQuery> completion = new ExecutorCompletionService<>(attempts);
+        List<Future<StartedQuery>> running = new ArrayList<>();
+        running.add(completion.submit(() -> startAttempt(method, args, claimed)));
+        try {
+            Future<StartedQuery> done = completion.poll(hedgeDelay, TimeUnit.NANOSECONDS);
+            boolean hedged = false;
+            if (done == null && hedges.get() < queries.get() * MAX_HEDGE_RATIO + 1) {
+                hedged = true;
+                hedges.incrementAndGet();
+                running.add(completion.submit(() -> startAttempt(method, args, claimed)));
+            }
+
+            Throwable failure = null;
+            for (int pending = running.size(); pending > 0; pending--) {
+                if (done == null) {
+                    done = completion.take();
+                }
+                try {
+                    StartedQuery started = done.get();
+                    recordLatency(System.nanoTime() - start);
+                    if (hedged && done == running.get(1)) {
+                        hedgesWon.incrementAndGet();
+                    }
+                    return started.stream();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+                done = null;
+            }
+            throw failure;
+        } finally {
+            // The loser is interrupted; if it still gets a stream, startAttempt closes it as unclaimed
+            running.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Calls the query through the breaker and pulls its first element; only the first attempt to get there
+     * claims the result, later ones close their stream
+     */
+    private StartedQuery startAttempt(Method method, Object[] args, AtomicBoolean claimed) throws Exception {
+        long permit = breaker.acquire();
+        StartedQuery started;
+        try {
+            Stream<?> stream = (Stream<?>) call(method, args);
+            try {
+                started = StartedQuery.start(stream);
+            } catch (Throwable e) {
+                stream.close();
+                throw e;
+            }
+        } catch (Throwable e) {
+            if (claimed.get()) {
+                // Interrupted because the other attempt won; says nothing about the endpoint
+                breaker.release(permit);
+            } else {
+                recordFailure(e, permit);
+            }
+            throw e;
+        }
+        breaker.onSuccess(permit);
+        if (!claimed.compareAndSet(false, true)) {
+            started.source().close();
+            throw new CancellationException("Hedged query lost");
+        }
+        return started;
+    }
+
+    private void recordLatency(long nanos) {
+        synchronized (latencies) {
+            latencies.recordValue(nanos);
+            if (latencies.getTotalCount() >= policy.latencyWindow()) {
+                hedgeDelayNanos = latencies.getValueAtPercentile(95.0);
+                latencies.reset();
+            }
+        }
+    }
+
+    /**
+     * A query stream whose first element has already been pulled
+     */
+    private record StartedQuery(Stream<?> source, Spliterator<?> rest, Object first, boolean hasFirst) {
+
+        static StartedQuery start(Stream<?> source) {
+            Spliterator<?> spliterator = source.spliterator();
+            Object[] first = new Object[1];
+            boolean hasFirst = spliterator.tryAdvance(element -> first[0] = element);
+            return new StartedQuery(source, spliterator, first[0], hasFirst);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Stream<?> stream() {
+            Stream rest = StreamSupport.stream(this.rest, false);
+            Stream<?> all = hasFirst ? Stream.concat(Stream.of(first), rest) : rest;
+            return all.onClose(source::close);
+        }
+    }
+
+    /**
+     * Errors that may go away on their own: timeouts, connection failures, 429 and 5xx responses, and Flight
+     * UNAVAILABLE, TIMED_OUT (gRPC DEADLINE_EXCEEDED) and RESOURCE_EXHAUSTED
+     * Requests the server rejected, e.g. bad SQL or an unknown table, an open breaker and programming errors
+     * are not worth repeating
+     */
+    static boolean isTransient(Throwable error) {
+        if (error instanceof CircuitBreaker.OpenException || error instanceof CancellationException
+                || error instanceof InterruptedException || error instanceof IllegalArgumentException
+                || error instanceof IllegalStateException || error instanceof UnsupportedOperationException
+                || error instanceof NullPointerException || error instanceof ClassCastException
+                || error instanceof Error) {
+            return false;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InfluxDBApiHttpException http) {
+                return http.statusCode() == 429 || (http.statusCode() >= 500 && http.statusCode() != 501);
+            }
+            if (cause instanceof FlightRuntimeException flight) {
+                FlightStatusCode code = flight.status().code();
+                return code == FlightStatusCode.UNAVAILABLE || code == FlightStatusCode.TIMED_OUT
+                        || code == FlightStatusCode.RESOURCE_EXHAUSTED;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A write is safe to repeat when every point or line carries its own timestamp, so a repeat overwrites
+     * the same samples; without one the server stamps each copy with its arrival time
+     */
+    static boolean isIdempotentWrite(Object data) {
+        if (data instanceof Point point) {
+            return point.getTimestamp() != null;
+        }
+        if (data instanceof String record) {
+            return hasTimestamps(record);
+        }
+        if (data instanceof List<?> items) {
+            for (Object item : items) {
+                if (!isIdempotentWrite(item)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether every line of a line protocol record has a timestamp, i.e. a third unescaped, unquoted section
+     */
+    static boolean hasTimestamps(String record) {
+        int sections = 1;
+        boolean quoted = false;
+        boolean blank = true;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (c == '\\') {
+                i++;
+                blank = false;
+            } else if (c == '"' && sections == 2) {
+                quoted = !quoted;
+            } else if (c == ' ' && !quoted && !blank) {
+                sections++;
+            } else if (c == '\n' && !quoted) {
+                if (!blank && sections < 3) {
+                    return false;
+                }
+                sections = 1;
+                blank = true;
+            } else if (c != ' ') {
+                blank = false;
+            }
+        }
+        return blank || sections >= 3;
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    /**
+     * Current hedge delay; 0 until the first latency window is complete
+     */
+    public Duration getHedgeDelay() {
+        return Duration.ofNanos(hedgeDelayNanos);
+    }
+
+    @Override
+    public String toString() {
+        return breaker + ", calls=" + calls.get() + ", retries=" + retries.get() + ", hedges=" + hedges.get()
+                + " (won " + hedgesWon.get() + "), hedgeDelay=" + String.format("%.1fms", hedgeDelayNanos / 1e6);
+    }
+
+    // Counters
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    public long getHedgesWon() {
+        return hedgesWon.get();
+    }
+}
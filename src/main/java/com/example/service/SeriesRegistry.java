@@ -0,0 +1,159 @@
+package com.example.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns series (measurement + tag set) to compact integer IDs
+ * Each series keeps one canonical copy of its strings and its escaped line protocol prefix,
+ * e.g. {@code temperature,location=office,sensor_id=TH02}, so writers hold an int instead of tag maps
+ * and only append fields and a timestamp; see {@link LineProtocolEncoder#series(SeriesRegistry, int)}
+ * Lookups by ID are lock-free; registration of a new series takes a lock
+ */
+public class SeriesRegistry {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ConcurrentHashMap<SeriesKey, Integer> ids = new ConcurrentHashMap<>();
+    // Indexed by series ID; replaced by a larger copy on growth, guarded by this for writes
+    private volatile Series[] series = new Series[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @param tagKeysAndValues alternating tag keys and values, in any order; empty values are skipped
+     * @return the ID of the series, registering it on first use
+     */
+    public int register(String measurement, String... tagKeysAndValues) {
+        if (tagKeysAndValues.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags must be given as key/value pairs");
+        }
+
+        Map<String, String> tags = new TreeMap<>();
+        for (int i = 0; i < tagKeysAndValues.length; i += 2) {
+            if (tags.put(tagKeysAndValues[i], tagKeysAndValues[i + 1]) != null) {
+                throw new IllegalArgumentException("Duplicate tag " + tagKeysAndValues[i]);
+            }
+        }
+        return register(measurement, tags);
+    }
+
+    public int register(String measurement, Map<String, String> tags) {
+        SeriesKey key = key(measurement, tags);
+        Integer id = ids.get(key);
+        return id != null ? id : add(key);
+    }
+
+    /**
+     * @return the ID of the series, or -1 if it was never registered
+     */
+    public int find(String measurement, Map<String, String> tags) {
+        Integer id = ids.get(key(measurement, tags));
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Escaped line protocol measurement and tags of the series, without a trailing separator
+     */
+    public String prefix(int seriesId) {
+        return get(seriesId).prefix;
+    }
+
+    public String measurement(int seriesId) {
+        return get(seriesId).measurement;
+    }
+
+    /**
+     * Tags of the series, sorted by key
+     */
+    public Map<String, String> tags(int seriesId) {
+        return get(seriesId).tags;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    private synchronized int add(SeriesKey key) {
+        Integer existing = ids.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        int id = size;
+        Series[] current = series;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = new Series(key);
+        series = current;
+        size++;
+
+        // Published after the array slot, so whoever reads the ID also sees the series
+        ids.put(key, id);
+        return id;
+    }
+
+    private Series get(int seriesId) {
+        Series[] current = series;
+        Series entry = seriesId >= 0 && seriesId < current.length ? current[seriesId] : null;
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown series ID " + seriesId);
+        }
+        return entry;
+    }
+
+    private static SeriesKey key(String measurement, Map<String, String> tags) {
+        if (measurement == null || measurement.isEmpty()) {
+            throw new IllegalArgumentException("Measurement must not be empty");
+        }
+
+        // Sorted so the same tag set in any order maps to one series
+        Map<String, String> sorted = new TreeMap<>(tags);
+        List<String> pairs = new ArrayList<>(sorted.size() * 2);
+        for (Map.Entry<String, String> tag : sorted.entrySet()) {
+            if (tag.getKey() == null || tag.getKey().isEmpty()) {
+                throw new IllegalArgumentException("Tag key must not be empty");
+            }
+            if (tag.getValue() == null || tag.getValue().isEmpty()) {
+                continue;
+            }
+            pairs.add(tag.getKey());
+            pairs.add(tag.getValue());
+        }
+        return new SeriesKey(measurement, pairs);
+    }
+
+    private record SeriesKey(String measurement, List<String> tagPairs) {
+    }
+
+    private static final class Series {
+
+        private final String measurement;
+        private final Map<String, String> tags;
+        private final String prefix;
+
+        Series(SeriesKey key) {
+            this.measurement = key.measurement();
+
+            Map<String, String> tags = new LinkedHashMap<>();
+            StringBuilder prefix = new StringBuilder();
+            LineProtocolEncoder.escape(prefix, measurement, true);
+            List<String> pairs = key.tagPairs();
+            for (int i = 0; i < pairs.size(); i += 2) {
+                tags.put(pairs.get(i), pairs.get(i + 1));
+                prefix.append(',');
+                LineProtocolEncoder.escape(prefix, pairs.get(i), false);
+                prefix.append('=');
+                LineProtocolEncoder.escape(prefix, pairs.get(i + 1), false);
+            }
+            this.tags = Collections.unmodifiableMap(tags);
+            this.prefix = prefix.toString();
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.example.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable local log of line protocol that could not be written to the server
+ * Lines are appended to memory-mapped segment files as [length][crc32][utf-8 bytes] records;
+ * a zero length marks the end of the data in a segment
+ * Segments left over from a previous run are picked up again on open
+ * Records failing their checksum are skipped; a segment that had any is kept as {@code .corrupt} after replay
+ */
+public class SpillBuffer implements AutoCloseable {
+
+    /**
+     * When appended records are forced to disk
+     */
+    public enum FsyncPolicy {
+        /** After every append call; survives power loss, slowest */
+        ALWAYS,
+        /** At most once per fsync interval and when a segment is sealed */
+        INTERVAL,
+        /** Only when a segment is sealed or the buffer is closed; the OS flushes the rest */
+        NEVER
+    }
+
+    public static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+    public static final long DEFAULT_MAX_TOTAL_BYTES = 1024L * 1024 * 1024;
+    public static final Duration DEFAULT_FSYNC_INTERVAL = Duration.ofSeconds(1);
+
+    static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_PREFIX = "spill-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long maxTotalBytes;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final CRC32 crc = new CRC32();
+
+    // Guarded by this
+    private final Deque<Segment> sealed = new ArrayDeque<>();
+    private Segment active;
+    private MappedByteBuffer activeBuffer;
+    private long nextSequence;
+    private long usedBytes;
+    private long lastForce = System.nanoTime();
+    private boolean closed;
+
+    private long linesSpilled;
+    private long linesRejected;
+    private long corruptRecords;
+
+    public SpillBuffer(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_TOTAL_BYTES, FsyncPolicy.INTERVAL, DEFAULT_FSYNC_INTERVAL);
+    }
+
+    /**
+     * @param segmentBytes  size of each mapped segment file; a single line must fit into one
+     * @param maxTotalBytes cap on spilled data; appends beyond it are rejected
+     */
+    public SpillBuffer(Path directory, long segmentBytes, long maxTotalBytes, FsyncPolicy fsyncPolicy,
+                       Duration fsyncInterval) throws IOException {
+        if (segmentBytes <= HEADER_BYTES || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must be between " + HEADER_BYTES + " bytes and 2 GB");
+        }
+        if (maxTotalBytes < segmentBytes) {
+            throw new IllegalArgumentException("Total cap must hold at least one segment");
+        }
+
+        this.directory = directory;
+        this.segmentBytes = (int) segmentBytes;
+        this.maxTotalBytes = maxTotalBytes;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Appends lines, forcing them to disk according to the fsync policy
+     *
+     * @return false if the total cap was reached; lines from that point on were rejected
+     */
+    public synchronized boolean appendAll(List<String> lines) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("SpillBuffer is closed");
+        }
+
+        int appended = 0;
+        try {
+            for (String line : lines) {
+                if (line.isEmpty()) {
+                    appended++;
+                    continue;
+                }
+
+                byte[] payload = line.getBytes(StandardCharsets.UTF_8);
+                int recordBytes = HEADER_BYTES + payload.length;
+                if (recordBytes > segmentBytes) {
+                    throw new IllegalArgumentException("Line of " + payload.length + " bytes does not fit in a segment");
+                }
+                if (!reserve(recordBytes)) {
+                    linesRejected += lines.size() - appended;
+                    return false;
+                }
+
+                crc.reset();
+                crc.update(payload);
+                activeBuffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+                usedBytes += recordBytes;
+                appended++;
+            }
+            return true;
+        } finally {
+            linesSpilled += appended;
+            if (appended > 0) {
+                maybeForce();
+            }
+        }
+    }
+
+    public boolean append(String line) throws IOException {
+        return appendAll(List.of(line));
+    }
+
+    /**
+     * Sends spilled lines to the sink in batches, oldest first, deleting each segment once it is fully sent
+     * A segment with corrupt records is renamed to {@code spill-<n>.log.corrupt} instead, for inspection
+     * Stops at the first sink failure and resumes from the last unsent batch on the next call
+     * Replayed lines may be sent again after a crash, so they should carry explicit timestamps
+     *
+     * @return number of lines handed to the sink
+     */
+    public long replay(int maxBatchLines, Consumer<List<String>> sink) throws IOException {
+        long replayed = 0;
+
+        while (true) {
+            Segment segment;
+            synchronized (this) {
+                if (sealed.isEmpty()) {
+                    // Only seal the active segment once everything older went through,
+                    // so an outage does not turn every retry into a new small segment
+                    if (active == null || activeBuffer.position() == 0) {
+                        return replayed;
+                    }
+                    seal();
+                }
+                segment = sealed.peekFirst();
+            }
+
+            replayed += replaySegment(segment, maxBatchLines, sink);
+
+            synchronized (this) {
+                sealed.pollFirst();
+                usedBytes -= segment.usedBytes;
+            }
+            if (segment.corrupt) {
+                Files.move(segment.path, segment.path.resolveSibling(segment.path.getFileName() + CORRUPT_SUFFIX),
+                        StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(segment.path);
+            }
+        }
+    }
+
+    /**
+     * Bytes of spilled records not yet replayed
+     */
+    public synchronized long pendingBytes() {
+        return usedBytes;
+    }
+
+    public synchronized boolean hasPending() {
+        return usedBytes > 0;
+    }
+
+    public synchronized int segmentCount() {
+        return sealed.size() + (active != null ? 1 : 0);
+    }
+
+    public synchronized long getLinesSpilled() {
+        return linesSpilled;
+    }
+
+    public synchronized long getLinesRejected() {
+        return linesRejected;
+    }
+
+    public synchronized long getCorruptRecords() {
+        return corruptRecords;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (activeBuffer != null) {
+            activeBuffer.force();
+        }
+    }
+
+    /**
+     * Makes room for one record, starting a new segment if the active one is full
+     */
+    private boolean reserve(int recordBytes) throws IOException {
+        if (activeBuffer != null && activeBuffer.remaining() >= recordBytes) {
+            return true;
+        }
+        if (usedBytes + recordBytes > maxTotalBytes) {
+            return false;
+        }
+        if (active != null) {
+            seal();
+        }
+
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSequence++, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            activeBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        active = new Segment(path);
+        return true;
+    }
+
+    private void seal() {
+        activeBuffer.force();
+        lastForce = System.nanoTime();
+        active.usedBytes = activeBuffer.position();
+        sealed.addLast(active);
+        active = null;
+        activeBuffer = null;
+    }
+
+    private void maybeForce() {
+        boolean due = switch (fsyncPolicy) {
+            case ALWAYS -> true;
+            case INTERVAL -> System.nanoTime() - lastForce >= fsyncIntervalNanos;
+            case NEVER -> false;
+        };
+        if (due && activeBuffer != null) {
+            activeBuffer.force();
+            lastForce = System.nanoTime();
+        }
+    }
+
+    private long replaySegment(Segment segment, int maxBatchLines, Consumer<List<String>> sink) throws IOException {
+        MappedByteBuffer buffer = map(segment.path);
+        buffer.position(segment.replayOffset);
+
+        List<String> batch = new ArrayList<>(maxBatchLines);
+        long replayed = 0;
+        while (true) {
+            String line = readRecord(buffer, segment);
+            if (line != null) {
+                batch.add(line);
+            }
+            if (batch.size() >= maxBatchLines || (line == null && !batch.isEmpty())) {
+                sink.accept(batch);
+                replayed += batch.size();
+                segment.replayOffset = buffer.position();
+                batch = new ArrayList<>(maxBatchLines);
+            }
+            if (line == null) {
+                return replayed;
+            }
+        }
+    }
+
+    /**
+     * Reads the next intact record, skipping any whose checksum does not match,
+     * or returns null at the end of the data or at a torn record
+     */
+    private String readRecord(MappedByteBuffer buffer, Segment segment) {
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length == 0) {
+                buffer.position(start);
+                return null;
+            }
+            if (length < 0 || length > buffer.remaining()) {
+                // Torn write at the tail of a segment; the length cannot be trusted to find the next record
+                markCorrupt(segment, start);
+                buffer.position(start);
+                return null;
+            }
+
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            CRC32 recordCrc = new CRC32();
+            recordCrc.update(payload);
+            if ((int) recordCrc.getValue() == checksum) {
+                return new String(payload, StandardCharsets.UTF_8);
+            }
+            // The length still points at the next record, so only this one is lost
+            markCorrupt(segment, start);
+        }
+        return null;
+    }
+
+    /**
+     * Counts a corrupt record once, even when a failed replay reads it again
+     */
+    private void markCorrupt(Segment segment, int start) {
+        segment.corrupt = true;
+        if (start >= segment.checkedOffset) {
+            segment.checkedOffset = start + 1;
+            synchronized (this) {
+                corruptRecords++;
+            }
+        }
+    }
+
+    /**
+     * Registers segments left by a previous run, oldest first, and verifies the records they hold
+     */
+    private void recover() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            long sequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            nextSequence = Math.max(nextSequence, sequence + 1);
+
+            Segment segment = new Segment(path);
+            int intactRecords = measure(segment);
+            if (intactRecords == 0) {
+                if (segment.corrupt) {
+                    Files.move(path, path.resolveSibling(name + CORRUPT_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    Files.delete(path);
+                }
+                continue;
+            }
+            sealed.addLast(segment);
+            usedBytes += segment.usedBytes;
+        }
+    }
+
+    /**
+     * Walks a recovered segment, checking every record, and sets its used bytes
+     *
+     * @return number of intact records
+     */
+    private int measure(Segment segment) throws IOException {
+        MappedByteBuffer buffer = map(segment.path);
+        int intactRecords = 0;
+        while (readRecord(buffer, segment) != null) {
+            intactRecords++;
+        }
+        segment.usedBytes = buffer.position();
+        return intactRecords;
+    }
+
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private int usedBytes;
+        // Position after the last batch the sink accepted; only touched by the replaying thread
+        private volatile int replayOffset;
+        // Bytes already checked for corruption, so a resumed replay does not count a bad record twice
+        private int checkedOffset;
+        private boolean corrupt;
+
+        Segment(Path path) {
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background task that drains a {@link SpillBuffer} into the server with {@code client.writeRecords(...)}
+ * Each attempt sends large batches until the buffer is empty or the server fails again,
+ * in which case the remaining lines wait for the next attempt
+ * A batch the server rejects is split to find the offending lines, which are moved to
+ * {@value #QUARANTINE_FILE} in the spill directory so the lines behind them keep draining
+ */
+public class SpillReplayer implements AutoCloseable {
+
+    public static final int DEFAULT_BATCH_LINES = 10_000;
+    public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(5);
+    public static final String QUARANTINE_FILE = "rejected.lp";
+
+    private final SpillBuffer spillBuffer;
+    private final InfluxDBClient client;
+    private final int batchLines;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong linesReplayed = new AtomicLong();
+    private final AtomicLong linesQuarantined = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private volatile Exception lastError;
+
+    public SpillReplayer(SpillBuffer spillBuffer, InfluxDBClient client) {
+        this(spillBuffer, client, DEFAULT_BATCH_LINES, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * @param batchLines lines sent per write request
+     * @param interval   delay between replay attempts
+     */
+    public SpillReplayer(SpillBuffer spillBuffer, InfluxDBClient client, int batchLines, Duration interval) {
+        if (batchLines <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+
+        this.spillBuffer = spillBuffer;
+        this.client = client;
+        this.batchLines = batchLines;
+        this.interval = interval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "influxdb-spill-replayer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts replaying in the background, beginning with whatever a previous run left behind
+     */
+    public SpillReplayer start() {
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::replayNow, 0, millis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * Runs one replay attempt on the calling thread
+     *
+     * @return true if the spill buffer is empty afterwards
+     */
+    public synchronized boolean replayNow() {
+        if (!spillBuffer.hasPending()) {
+            return true;
+        }
+
+        try {
+            spillBuffer.replay(batchLines, this::send);
+        } catch (Exception e) {
+            // Server still unreachable; the unsent lines stay on disk
+            lastError = e;
+            failedAttempts.incrementAndGet();
+            return false;
+        }
+        return !spillBuffer.hasPending();
+    }
+
+    /**
+     * Writes a batch, bisecting it on a rejection until the offending lines are isolated and quarantined
+     * Endpoint failures propagate so the remaining lines wait for the next attempt
+     */
+    private void send(List<String> lines) {
+        try {
+            client.writeRecords(lines);
+            linesReplayed.addAndGet(lines.size());
+        } catch (RuntimeException e) {
+            if (ClientPool.isEndpointFailure(e)) {
+                throw e;
+            }
+            if (lines.size() == 1) {
+                quarantine(lines.get(0), e);
+                return;
+            }
+            int half = lines.size() / 2;
+            send(lines.subList(0, half));
+            send(lines.subList(half, lines.size()));
+        }
+    }
+
+    private void quarantine(String line, RuntimeException error) {
+        try {
+            Files.write(spillBuffer.getDirectory().resolve(QUARANTINE_FILE), List.of(line), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            e.addSuppressed(error);
+            throw new UncheckedIOException("Could not quarantine rejected line", e);
+        }
+        linesQuarantined.incrementAndGet();
+        lastError = error;
+    }
+
+    /**
+     * Stops the background task; spilled lines that were not replayed stay on disk for the next run
+     */
+    @Override
+    public void close() throws InterruptedException {
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(30, TimeUnit.SECONDS)) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // Counters
+    public long getLinesReplayed() {
+        return linesReplayed.get();
+    }
+
+    /**
+     * Lines the server rejected during replay, kept in {@value #QUARANTINE_FILE}
+     */
+    public long getLinesQuarantined() {
+        return linesQuarantined.get();
+    }
+
+    public long getFailedAttempts() {
+        return failedAttempts.get();
+    }
+
+    public Exception getLastError() {
+        return lastError;
+    }
+}
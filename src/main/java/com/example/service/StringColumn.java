@@ -0,0 +1,62 @@
+package com.example.service;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Dictionary-encoded string column: each row holds a code into a small list of distinct values
+ * Tag columns such as sensor_id repeat a few values many times, so rows cost an int each
+ */
+public final class StringColumn implements Column {
+
+    public static final int NULL_CODE = -1;
+
+    private final String name;
+    private final int[] codes;
+    private final List<String> dictionary;
+
+    StringColumn(String name, int[] codes, List<String> dictionary) {
+        this.name = name;
+        this.codes = codes;
+        this.dictionary = List.copyOf(dictionary);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int size() {
+        return codes.length;
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        Objects.checkIndex(row, codes.length);
+        return codes[row] == NULL_CODE;
+    }
+
+    public String get(int row) {
+        int code = codes[row];
+        return code == NULL_CODE ? null : dictionary.get(code);
+    }
+
+    public int code(int row) {
+        return codes[row];
+    }
+
+    /**
+     * The backing code array, one entry per row; callers must not modify it
+     */
+    public int[] codes() {
+        return codes;
+    }
+
+    /**
+     * Distinct values, indexed by code
+     */
+    public List<String> dictionary() {
+        return dictionary;
+    }
+}
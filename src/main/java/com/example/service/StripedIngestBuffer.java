@@ -0,0 +1,461 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Ingestion front end for many producer threads: pre-encoded line protocol goes into one of several
+ * lock-free bounded rings, picked by the producer's thread ID, and a few flusher threads drain them into
+ * large {@code writeRecords} batches
+ * Producers only contend with the other producers of their stripe, and only on one compare-and-set,
+ * unlike a single shared queue where every producer and the flusher meet on the same lock
+ * A full stripe is handled by the {@link Overflow} policy
+ */
+public class StripedIngestBuffer implements AutoCloseable {
+
+    /**
+     * What a producer does when its stripe is full
+     */
+    public enum Overflow {
+        /** Wait for space, up to the enqueue timeout, then drop the line */
+        BLOCK,
+        /** Drop the oldest line of the stripe to make room */
+        DROP_OLDEST,
+        /** Append the line to the spill buffer, to be replayed later; dropped if there is none or it is full */
+        SPILL
+    }
+
+    public static final int DEFAULT_STRIPE_CAPACITY = 8_192;
+    public static final int DEFAULT_MAX_BATCH_LINES = 5_000;
+    public static final long DEFAULT_MAX_BATCH_BYTES = 1024 * 1024;
+    public static final Duration DEFAULT_LINGER = Duration.ofMillis(100);
+    public static final Duration DEFAULT_ENQUEUE_TIMEOUT = Duration.ofSeconds(5);
+
+    // Flushers with nothing to do back off up to this long between scans
+    private static final long MAX_IDLE_PARK_NANOS = 1_000_000L;
+    private static final long MIN_IDLE_PARK_NANOS = 20_000L;
+    private static final int SPINS_BEFORE_PARK = 64;
+
+    private final InfluxDBClient client;
+    private final Ring[] stripes;
+    private final int stripeMask;
+    private final Flusher[] flushers;
+    private final Overflow overflow;
+    private final SpillBuffer spillBuffer;
+    private final int maxBatchLines;
+    private final long maxBatchBytes;
+    private final long lingerNanos;
+    private final long enqueueTimeoutNanos;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean running = true;
+    private volatile Consumer<List<String>> flushListener = batch -> { };
+
+    private final AtomicLong linesOffered = new AtomicLong();
+    private final AtomicLong linesWritten = new AtomicLong();
+    private final AtomicLong linesDropped = new AtomicLong();
+    private final AtomicLong linesSpilled = new AtomicLong();
+    private final AtomicLong linesRejected = new AtomicLong();
+    private final AtomicLong producerWaits = new AtomicLong();
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private volatile Exception lastError;
+
+    /**
+     * One stripe per available processor, rounded up to a power of two, and one flusher per four stripes
+     *
+     * @param spillBuffer takes overflowing lines with {@link Overflow#SPILL} and failed batches; may be null
+     */
+    public StripedIngestBuffer(InfluxDBClient client, Overflow overflow, SpillBuffer spillBuffer) {
+        this(client, defaultStripes(), DEFAULT_STRIPE_CAPACITY, Math.max(1, defaultStripes() / 4), overflow,
+                spillBuffer, DEFAULT_MAX_BATCH_LINES, DEFAULT_LINGER, DEFAULT_ENQUEUE_TIMEOUT);
+    }
+
+    /**
+     * @param stripes        number of rings, rounded up to a power of two
+     * @param stripeCapacity lines per ring, rounded up to a power of two
+     * @param flushers       flusher threads; each drains every flushers-th stripe
+     */
+    public StripedIngestBuffer(InfluxDBClient client, int stripes, int stripeCapacity, int flushers,
+                               Overflow overflow, SpillBuffer spillBuffer, int maxBatchLines, Duration linger,
+                               Duration enqueueTimeout) {
+        if (stripes <= 0 || stripeCapacity <= 1 || flushers <= 0 || maxBatchLines <= 0 || linger.isNegative()) {
+            throw new IllegalArgumentException("Stripes, capacity, flushers and batch size must be positive");
+        }
+        this.client = client;
+        this.overflow = overflow;
+        this.spillBuffer = spillBuffer;
+        this.maxBatchLines = maxBatchLines;
+        this.maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+        this.lingerNanos = linger.toNanos();
+        this.enqueueTimeoutNanos = enqueueTimeout.toNanos();
+
+        this.stripes = new Ring[ceilingPowerOfTwo(stripes)];
+        this.stripeMask = this.stripes.length - 1;
+        int capacity = ceilingPowerOfTwo(stripeCapacity);
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Ring(capacity);
+        }
+
+        this.flushers = new Flusher[Math.min(flushers, this.stripes.length)];
+        for (int i = 0; i < this.flushers.length; i++) {
+            this.flushers[i] = new Flusher(i);
+        }
+        for (Flusher flusher : this.flushers) {
+            flusher.thread.start();
+        }
+    }
+
+    private static int defaultStripes() {
+        return ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors());
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Called with every batch the server accepted, on a flusher thread
+     */
+    public void setFlushListener(Consumer<List<String>> flushListener) {
+        this.flushListener = flushListener;
+    }
+
+    /**
+     * Queues one line of line protocol, e.g. from {@link LineProtocolEncoder} or {@code Point.toLineProtocol()}
+     *
+     * @return false if the line was dropped; true if it was queued or, with {@link Overflow#SPILL}, spilled
+     */
+    public boolean offer(String line) {
+        Ring ring = stripes[(int) Thread.currentThread().threadId() & stripeMask];
+        // Registered before checking running, so close() waits for this line before its final drain
+        ring.producers.incrementAndGet();
+        try {
+            if (!running) {
+                throw new IllegalStateException("StripedIngestBuffer is closed");
+            }
+            linesOffered.incrementAndGet();
+            if (ring.offer(line)) {
+                return true;
+            }
+
+            switch (overflow) {
+                case DROP_OLDEST:
+                    do {
+                        if (ring.poll() != null) {
+                            linesDropped.incrementAndGet();
+                        }
+                    } while (!ring.offer(line));
+                    return true;
+                case SPILL:
+                    return spill(List.of(line));
+                case BLOCK:
+                default:
+                    return offerBlocking(ring, line);
+            }
+        } finally {
+            ring.producers.decrementAndGet();
+        }
+    }
+
+    private boolean offerBlocking(Ring ring, String line) {
+        producerWaits.incrementAndGet();
+        long deadline = System.nanoTime() + enqueueTimeoutNanos;
+        int spins = 0;
+        while (!ring.offer(line)) {
+            if (!running || System.nanoTime() - deadline >= 0) {
+                linesDropped.incrementAndGet();
+                return false;
+            }
+            if (++spins < SPINS_BEFORE_PARK) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(MIN_IDLE_PARK_NANOS);
+            }
+        }
+        return true;
+    }
+
+    private boolean spill(List<String> lines) {
+        if (spillBuffer != null) {
+            try {
+                if (spillBuffer.appendAll(lines)) {
+                    linesSpilled.addAndGet(lines.size());
+                    return true;
+                }
+            } catch (IOException | IllegalStateException e) {
+                lastError = e;
+            }
+        }
+        linesDropped.addAndGet(lines.size());
+        return false;
+    }
+
+    /**
+     * Writes every line queued so far and waits until the writes have completed
+     */
+    public void flush() {
+        for (Flusher flusher : flushers) {
+            flusher.lock.lock();
+            try {
+                while (flusher.drain()) {
+                    flusher.send();
+                }
+                flusher.send();
+            } finally {
+                flusher.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Stops the flushers and writes what is still queued; lines offered afterwards are rejected
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        running = false;
+        for (Flusher flusher : flushers) {
+            LockSupport.unpark(flusher.thread);
+            flusher.thread.join();
+        }
+        // Producers that saw running before it was cleared finish their offer first; blocked ones give up on it
+        for (Ring ring : stripes) {
+            while (ring.producers.get() > 0) {
+                LockSupport.parkNanos(MIN_IDLE_PARK_NANOS);
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Drains its share of the stripes into one batch and sends it when it is full or its first line has lingered
+     * The batch is only touched under the lock, which flush() takes to drain and send on the caller's thread
+     */
+    private final class Flusher implements Runnable {
+
+        private final int first;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<String> batch = new ArrayList<>();
+        private final Thread thread;
+        private long batchBytes;
+        private long batchStart;
+
+        Flusher(int first) {
+            this.first = first;
+            this.thread = new Thread(this, "influxdb-ingest-flusher-" + first);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long idleNanos = MIN_IDLE_PARK_NANOS;
+            while (running) {
+                boolean full;
+                boolean empty;
+                lock.lock();
+                try {
+                    full = drain();
+                    long now = System.nanoTime();
+                    if (full || (!batch.isEmpty() && now - batchStart >= lingerNanos)) {
+                        send();
+                    }
+                    empty = batch.isEmpty();
+                } finally {
+                    lock.unlock();
+                }
+
+                if (full) {
+                    idleNanos = MIN_IDLE_PARK_NANOS;
+                } else {
+                    // Producers never signal, so an idle flusher polls with a growing pause
+                    LockSupport.parkNanos(empty ? idleNanos : Math.min(idleNanos, lingerNanos));
+                    idleNanos = Math.min(idleNanos * 2, MAX_IDLE_PARK_NANOS);
+                }
+            }
+        }
+
+        /**
+         * @return true if the batch reached a size limit
+         */
+        private boolean drain() {
+            for (int i = first; i < stripes.length; i += flushers.length) {
+                Ring ring = stripes[i];
+                String line;
+                while ((line = ring.poll()) != null) {
+                    if (batch.isEmpty()) {
+                        batchStart = System.nanoTime();
+                    }
+                    batch.add(line);
+                    batchBytes += InstrumentedClient.utf8Length(line) + 1;
+                    if (batch.size() >= maxBatchLines || batchBytes >= maxBatchBytes) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private void send() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                client.writeRecords(batch);
+                linesWritten.addAndGet(batch.size());
+                batchesWritten.incrementAndGet();
+                try {
+                    flushListener.accept(batch);
+                } catch (RuntimeException e) {
+                    System.err.println("Flush listener failed: " + e.getMessage());
+                }
+            } catch (Exception e) {
+                lastError = e;
+                if (ClientPool.isEndpointFailure(e)) {
+                    spill(List.copyOf(batch));
+                } else {
+                    // The server refused the lines; replaying them would fail the same way
+                    linesRejected.addAndGet(batch.size());
+                }
+            } finally {
+                batch.clear();
+                batchBytes = 0;
+            }
+        }
+    }
+
+    /**
+     * Bounded lock-free ring with per-slot sequence numbers (Vyukov); producers claim a slot with one CAS
+     * on the tail. Any thread may poll, as drop-oldest lets producers take from the head too
+     */
+    private static final class Ring {
+
+        private final AtomicReferenceArray<String> slots;
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+        // Producers inside offer(String) on this stripe
+        private final AtomicInteger producers = new AtomicInteger();
+
+        Ring(int capacity) {
+            this.slots = new AtomicReferenceArray<>(capacity);
+            this.sequences = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        boolean offer(String line) {
+            while (true) {
+                long position = tail.get();
+                int index = (int) position & mask;
+                long difference = sequences.get(index) - position;
+                if (difference == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        slots.lazySet(index, line);
+                        // Publishes the slot to pollers
+                        sequences.set(index, position + 1);
+                        return true;
+                    }
+                } else if (difference < 0) {
+                    return false;
+                }
+            }
+        }
+
+        String poll() {
+            while (true) {
+                long position = head.get();
+                int index = (int) position & mask;
+                long difference = sequences.get(index) - (position + 1);
+                if (difference == 0) {
+                    if (head.compareAndSet(position, position + 1)) {
+                        String line = slots.get(index);
+                        slots.lazySet(index, null);
+                        // Hands the slot back to producers one lap later
+                        sequences.set(index, position + mask + 1);
+                        return line;
+                    }
+                } else if (difference < 0) {
+                    return null;
+                }
+            }
+        }
+
+        int size() {
+            return (int) Math.max(0, tail.get() - head.get());
+        }
+    }
+
+    public Overflow getOverflow() {
+        return overflow;
+    }
+
+    public int getStripes() {
+        return stripes.length;
+    }
+
+    /**
+     * Lines waiting in all stripes
+     */
+    public int getQueueSize() {
+        int size = 0;
+        for (Ring ring : stripes) {
+            size += ring.size();
+        }
+        return size;
+    }
+
+    // Counters
+    public long getLinesOffered() {
+        return linesOffered.get();
+    }
+
+    public long getLinesWritten() {
+        return linesWritten.get();
+    }
+
+    public long getLinesDropped() {
+        return linesDropped.get();
+    }
+
+    public long getLinesSpilled() {
+        return linesSpilled.get();
+    }
+
+    /**
+     * Lines in batches the server refused, e.g. with a 400; they are not spilled
+     */
+    public long getLinesRejected() {
+        return linesRejected.get();
+    }
+
+    /**
+     * Offers that found their stripe full and waited, with {@link Overflow#BLOCK}
+     */
+    public long getProducerWaits() {
+        return producerWaits.get();
+    }
+
+    public long getBatchesWritten() {
+        return batchesWritten.get();
+    }
+
+    public Exception getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Splits a time-bounded query into sub-ranges that run concurrently, so a long scan becomes several short ones
+ * Queries filter on {@code time >= $start AND time < $end}; each sub-range runs with its own bounds as parameters
+ * Raw rows are streamed back sub-range by sub-range, in ascending time order of the sub-ranges;
+ * aggregates are computed per sub-range as sum/count/min/max partials and merged, so AVG and COUNT stay exact
+ * Aggregate sub-queries of this planner share one concurrency budget; each row stream gets a limit of the
+ * same size of its own, since its sub-queries wait on the consumer and a stream nobody reads must not hold
+ * permits another stream needs
+ */
+public class TimeRangeQueryPlanner implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 4;
+    public static final int DEFAULT_BUFFERED_ROWS = 8_192;
+
+    public record TimeRange(Instant start, Instant end) {
+    }
+
+    /**
+     * Sum, count, min and max of a field for one group
+     *
+     * @param group values of the GROUP BY columns, in order
+     */
+    public record GroupStats(List<Object> group, double sum, long count, double min, double max) {
+
+        public double mean() {
+            return sum / count;
+        }
+
+        GroupStats merge(GroupStats other) {
+            return new GroupStats(group, sum + other.sum, count + other.count,
+                    Math.min(min, other.min), Math.max(max, other.max));
+        }
+    }
+
+    // Marks the end of a sub-range's rows in its queue
+    private static final Object[] END = new Object[0];
+
+    private final InfluxDBClient client;
+    private final Semaphore budget;
+    private final int maxConcurrency;
+    private final int bufferedRows;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public TimeRangeQueryPlanner(InfluxDBClient client) {
+        this(client, DEFAULT_MAX_CONCURRENCY, DEFAULT_BUFFERED_ROWS);
+    }
+
+    /**
+     * @param maxConcurrency aggregate sub-queries running at once across this planner, and sub-queries
+     *                       running at once per row stream
+     * @param bufferedRows   rows each sub-range may read ahead of the consumer when streaming raw rows
+     */
+    public TimeRangeQueryPlanner(InfluxDBClient client, int maxConcurrency, int bufferedRows) {
+        if (maxConcurrency <= 0 || bufferedRows <= 0) {
+            throw new IllegalArgumentException("Concurrency and buffered rows must be positive");
+        }
+        this.client = client;
+        this.budget = new Semaphore(maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+        this.bufferedRows = bufferedRows;
+    }
+
+    /**
+     * Splits [start, end) into at most {@code partitions} equal, adjacent sub-ranges
+     */
+    public static List<TimeRange> split(Instant start, Instant end, int partitions) {
+        if (!end.isAfter(start) || partitions <= 0) {
+            throw new IllegalArgumentException("Need a non-empty time range and at least one partition");
+        }
+        long startNanos = LineProtocolEncoder.epochNanos(start);
+        long totalNanos = Duration.between(start, end).toNanos();
+        int count = (int) Math.min(partitions, totalNanos);
+
+        // Spreads the remainder over the sub-ranges without overflowing on long ranges
+        long step = totalNanos / count;
+        long remainder = totalNanos % count;
+        List<TimeRange> ranges = new ArrayList<>(count);
+        Instant from = start;
+        for (int i = 1; i <= count; i++) {
+            Instant to = i == count ? end : instant(startNanos + step * i + remainder * i / count);
+            ranges.add(new TimeRange(from, to));
+            from = to;
+        }
+        return ranges;
+    }
+
+    /**
+     * Streams the rows of every sub-range, sub-range after sub-range; close the stream to stop the sub-queries
+     * Order rows by time ascending in the query to get them globally ordered; a LIMIT applies per sub-range
+     *
+     * @param sql must filter on {@code time >= $start AND time < $end}
+     */
+    public Stream<Object[]> queryRows(String sql, Map<String, Object> params, Instant start, Instant end,
+                                      int partitions) {
+        RowScan scan = new RowScan(sql, params, split(start, end, partitions));
+        executor.execute(scan::dispatch);
+        return StreamSupport.stream(scan, false).onClose(scan::cancel);
+    }
+
+    /**
+     * Sum, count, min and max of {@code field} per group over [start, end), merged from one partial per sub-range
+     * Groups come back in the order they were first seen
+     *
+     * @param filter extra SQL condition ANDed to the time bounds, or null
+     */
+    public List<GroupStats> aggregate(String table, String field, List<String> groupBy, String filter,
+                                      Map<String, Object> params, Instant start, Instant end, int partitions)
+            throws InterruptedException {
+        String sql = partialAggregateSql(table, field, groupBy, filter);
+        List<TimeRange> ranges = split(start, end, partitions);
+        List<Future<List<GroupStats>>> partials = new ArrayList<>(ranges.size());
+        for (TimeRange range : ranges) {
+            partials.add(executor.submit(() -> aggregateRange(sql, params, range, groupBy.size())));
+        }
+
+        Map<List<Object>, GroupStats> merged = new LinkedHashMap<>();
+        try {
+            for (Future<List<GroupStats>> partial : partials) {
+                for (GroupStats stats : partial.get()) {
+                    merged.merge(stats.group(), stats, GroupStats::merge);
+                }
+            }
+        } catch (ExecutionException e) {
+            throw propagate(e.getCause());
+        } finally {
+            partials.forEach(partial -> partial.cancel(true));
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * One query returning, per group, SUM, COUNT, MIN and MAX of the field within $start and $end
+     */
+    static String partialAggregateSql(String table, String field, List<String> groupBy, String filter) {
+        String groups = groupBy.stream().map(TimeRangeQueryPlanner::quote).collect(Collectors.joining(", "));
+        String column = quote(field);
+        return "SELECT " + (groups.isEmpty() ? "" : groups + ", ")
+                + "SUM(" + column + "), COUNT(" + column + "), MIN(" + column + "), MAX(" + column + ")"
+                + " FROM " + quote(table)
+                + " WHERE time >= $start AND time < $end" + (filter != null ? " AND (" + filter + ")" : "")
+                + (groups.isEmpty() ? "" : " GROUP BY " + groups);
+    }
+
+    private List<GroupStats> aggregateRange(String sql, Map<String, Object> params, TimeRange range, int groups)
+            throws InterruptedException {
+        budget.acquire();
+        try (Stream<Object[]> rows = client.query(sql, bounds(params, range))) {
+            List<GroupStats> partial = new ArrayList<>();
+            rows.forEach(row -> {
+                // Sub-ranges without data still return a row when there is no GROUP BY
+                long count = ((Number) row[groups + 1]).longValue();
+                if (count > 0) {
+                    partial.add(new GroupStats(Arrays.asList(Arrays.copyOf(row, groups)),
+                            ((Number) row[groups]).doubleValue(), count,
+                            ((Number) row[groups + 2]).doubleValue(), ((Number) row[groups + 3]).doubleValue()));
+                }
+            });
+            return partial;
+        } finally {
+            budget.release();
+        }
+    }
+
+    private static Map<String, Object> bounds(Map<String, Object> params, TimeRange range) {
+        Map<String, Object> bounded = new HashMap<>(params);
+        bounded.put("start", range.start().toString());
+        bounded.put("end", range.end().toString());
+        return bounded;
+    }
+
+    static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    private static Instant instant(long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L));
+    }
+
+    private static RuntimeException propagate(Throwable error) {
+        return error instanceof RuntimeException runtime ? runtime
+                : new IllegalStateException("Sub-range query failed: " + error.getMessage(), error);
+    }
+
+    /**
+     * Streams sub-ranges in order; each sub-range reads ahead into its own bounded queue
+     * Sub-queries start in order as the stream's limit allows, so the sub-range being consumed has always started
+     * The limit is not the planner budget: a sub-query blocked on a full queue keeps its permit until the
+     * consumer catches up, which with a shared budget would stall every other stream, or deadlock two streams
+     * read in turn
+     */
+    private final class RowScan implements Spliterator<Object[]> {
+
+        private final String sql;
+        private final Map<String, Object> params;
+        private final List<TimeRange> ranges;
+        private final List<BlockingQueue<Object[]>> queues = new ArrayList<>();
+        // Dispatcher and sub-query threads, interrupted on cancel
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        private final Throwable[] failures;
+        private final Semaphore running = new Semaphore(maxConcurrency);
+        private volatile boolean cancelled;
+        private int current;
+
+        RowScan(String sql, Map<String, Object> params, List<TimeRange> ranges) {
+            this.sql = sql;
+            this.params = params;
+            this.ranges = ranges;
+            this.failures = new Throwable[ranges.size()];
+            for (int i = 0; i < ranges.size(); i++) {
+                queues.add(new ArrayBlockingQueue<>(bufferedRows));
+            }
+        }
+
+        void dispatch() {
+            threads.add(Thread.currentThread());
+            try {
+                for (int i = 0; i < ranges.size() && !cancelled; i++) {
+                    running.acquire();
+                    int index = i;
+                    executor.execute(() -> scan(index));
+                }
+            } catch (InterruptedException e) {
+                // Cancelled while waiting for a permit
+            } finally {
+                threads.remove(Thread.currentThread());
+            }
+        }
+
+        /**
+         * Runs one sub-query; owns the permit taken by the dispatcher
+         */
+        private void scan(int index) {
+            threads.add(Thread.currentThread());
+            try {
+                if (!cancelled) {
+                    read(index);
+                }
+            } finally {
+                threads.remove(Thread.currentThread());
+                running.release();
+            }
+        }
+
+        private void read(int index) {
+            BlockingQueue<Object[]> queue = queues.get(index);
+            try (Stream<Object[]> rows = client.query(sql, bounds(params, ranges.get(index)))) {
+                Iterator<Object[]> iterator = rows.iterator();
+                while (iterator.hasNext() && !cancelled) {
+                    queue.put(iterator.next());
+                }
+                queue.put(END);
+            } catch (InterruptedException e) {
+                // Cancelled while waiting for the consumer
+            } catch (RuntimeException e) {
+                failures[index] = e;
+                try {
+                    queue.put(END);
+                } catch (InterruptedException ignored) {
+                    // Cancelled; nobody is reading anymore
+                }
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Object[]> action) {
+            while (current < ranges.size()) {
+                Object[] row;
+                try {
+                    row = queues.get(current).take();
+                } catch (InterruptedException e) {
+                    cancel();
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for rows", e);
+                }
+                if (row != END) {
+                    action.accept(row);
+                    return true;
+                }
+                if (failures[current] != null) {
+                    cancel();
+                    throw propagate(failures[current]);
+                }
+                current++;
+            }
+            return false;
+        }
+
+        void cancel() {
+            cancelled = true;
+            threads.forEach(Thread::interrupt);
+        }
+
+        @Override
+        public Spliterator<Object[]> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+}
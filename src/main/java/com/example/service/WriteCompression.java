@@ -0,0 +1,309 @@
+package com.example.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Size-threshold gzip policy for line protocol write payloads
+ * Payloads hold a Deflater and two byte buffers that grow to the largest request and are then reused:
+ * callers borrow one per request and close it once the body is sent, so encoding and compressing allocates
+ * nothing once warmed up, even from short-lived virtual threads; payloads beyond the pool size are discarded
+ * Payloads below the threshold are sent as is, as compressing them costs more CPU than it saves on the wire
+ */
+public final class WriteCompression {
+
+    public static final int DEFAULT_THRESHOLD = 1_000;
+    public static final int DEFAULT_LEVEL = 6;
+    public static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    private final int threshold;
+    private final int level;
+    private final BlockingQueue<Payload> pool;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder compressedRequests = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder sentBytes = new LongAdder();
+
+    public WriteCompression() {
+        this(DEFAULT_THRESHOLD, DEFAULT_LEVEL);
+    }
+
+    /**
+     * @param threshold payloads of at least this many UTF-8 bytes are gzipped
+     * @param level     deflate level, 1 (fastest) to 9 (smallest)
+     */
+    public WriteCompression(int threshold, int level) {
+        this(threshold, level, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * @param poolSize idle payloads kept for reuse; about the number of requests sent at once
+     */
+    public WriteCompression(int threshold, int level, int poolSize) {
+        if (threshold < 0 || level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Threshold must not be negative and level must be 1 to 9");
+        }
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.threshold = threshold;
+        this.level = level;
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    /**
+     * Encodes one line protocol record, compressing it if it reaches the threshold
+     * The returned payload must be closed once sent, which hands it back for reuse
+     */
+    public Payload encode(CharSequence lineProtocol) {
+        Payload payload = borrow();
+        payload.append(lineProtocol);
+        return finish(payload);
+    }
+
+    /**
+     * Encodes several records as one payload, separated by newlines
+     */
+    public Payload encode(List<? extends CharSequence> records) {
+        Payload payload = borrow();
+        for (CharSequence record : records) {
+            if (record == null || record.isEmpty()) {
+                continue;
+            }
+            if (payload.rawLength > 0) {
+                payload.appendByte('\n');
+            }
+            payload.append(record);
+        }
+        return finish(payload);
+    }
+
+    private Payload borrow() {
+        Payload payload = pool.poll();
+        if (payload == null) {
+            payload = new Payload(this);
+        }
+        payload.rawLength = 0;
+        payload.borrowed = true;
+        return payload;
+    }
+
+    private void release(Payload payload) {
+        if (!payload.borrowed) {
+            return;
+        }
+        payload.borrowed = false;
+        if (!pool.offer(payload)) {
+            // Pool is full; free the Deflater's native memory now rather than at garbage collection
+            payload.deflater.end();
+        }
+    }
+
+    /**
+     * Idle payloads waiting to be reused
+     */
+    int pooled() {
+        return pool.size();
+    }
+
+    private Payload finish(Payload payload) {
+        payload.gzipped = payload.rawLength >= threshold && payload.rawLength > 0;
+        if (payload.gzipped) {
+            payload.compress();
+        }
+        requests.increment();
+        rawBytes.add(payload.rawLength);
+        sentBytes.add(payload.length());
+        if (payload.gzipped) {
+            compressedRequests.increment();
+        }
+        return payload;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Bytes sent per raw byte over all payloads so far; 1.0 before the first one
+     */
+    public double ratio() {
+        long raw = rawBytes.sum();
+        return raw == 0 ? 1.0 : (double) sentBytes.sum() / raw;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("gzip level %d above %d bytes: requests=%d, compressed=%d, raw=%d bytes, sent=%d bytes"
+                        + " (%.1f%%)", level, threshold, getRequests(), getCompressedRequests(), getRawBytes(),
+                getSentBytes(), ratio() * 100);
+    }
+
+    /**
+     * Encoded request body: the UTF-8 line protocol and, if it was compressed, its gzip form
+     * Valid until closed; closing returns it to the pool it was borrowed from
+     */
+    public static final class Payload implements AutoCloseable {
+
+        private final WriteCompression owner;
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private byte[] raw = new byte[INITIAL_CAPACITY];
+        private byte[] compressed = new byte[INITIAL_CAPACITY];
+        private int rawLength;
+        private int compressedLength;
+        private boolean gzipped;
+        private boolean borrowed;
+
+        private Payload(WriteCompression owner) {
+            this.owner = owner;
+            // Raw deflate; the gzip header and trailer are written by hand
+            this.deflater = new Deflater(owner.level, true);
+        }
+
+        /**
+         * Body bytes to send, valid from 0 to {@link #length()}
+         */
+        public byte[] bytes() {
+            return gzipped ? compressed : raw;
+        }
+
+        public int length() {
+            return gzipped ? compressedLength : rawLength;
+        }
+
+        /**
+         * Length of the line protocol before compression
+         */
+        public int rawLength() {
+            return rawLength;
+        }
+
+        /**
+         * True if the body must be sent with {@code Content-Encoding: gzip}
+         */
+        public boolean gzipped() {
+            return gzipped;
+        }
+
+        /**
+         * Hands the payload back for reuse; it must not be read afterwards
+         */
+        @Override
+        public void close() {
+            owner.release(this);
+        }
+
+        private void append(CharSequence text) {
+            int length = text.length();
+            ensureRaw(length);
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    raw[rawLength++] = (byte) c;
+                } else {
+                    // Rare outside tag values; up to 3 more bytes per char
+                    ensureRaw(length - i + 3);
+                    if (c < 0x800) {
+                        raw[rawLength++] = (byte) (0xc0 | c >> 6);
+                        raw[rawLength++] = (byte) (0x80 | c & 0x3f);
+                    } else if (Character.isHighSurrogate(c) && i + 1 < length
+                            && Character.isLowSurrogate(text.charAt(i + 1))) {
+                        int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                        raw[rawLength++] = (byte) (0xf0 | codePoint >> 18);
+                        raw[rawLength++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                        raw[rawLength++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                        raw[rawLength++] = (byte) (0x80 | codePoint & 0x3f);
+                    } else if (Character.isSurrogate(c)) {
+                        raw[rawLength++] = '?';
+                    } else {
+                        raw[rawLength++] = (byte) (0xe0 | c >> 12);
+                        raw[rawLength++] = (byte) (0x80 | c >> 6 & 0x3f);
+                        raw[rawLength++] = (byte) (0x80 | c & 0x3f);
+                    }
+                }
+            }
+        }
+
+        private void appendByte(char c) {
+            ensureRaw(1);
+            raw[rawLength++] = (byte) c;
+        }
+
+        private void ensureRaw(int more) {
+            if (rawLength + more > raw.length) {
+                raw = Arrays.copyOf(raw, Math.max(raw.length * 2, rawLength + more));
+            }
+        }
+
+        private void compress() {
+            // Line protocol usually shrinks 5-10x, so start with a quarter and grow if needed
+            int needed = GZIP_HEADER.length + rawLength / 4 + GZIP_TRAILER_LENGTH + 64;
+            if (compressed.length < needed) {
+                compressed = new byte[Math.max(compressed.length * 2, needed)];
+            }
+            System.arraycopy(GZIP_HEADER, 0, compressed, 0, GZIP_HEADER.length);
+            int length = GZIP_HEADER.length;
+
+            deflater.reset();
+            deflater.setInput(raw, 0, rawLength);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (length == compressed.length - GZIP_TRAILER_LENGTH) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - GZIP_TRAILER_LENGTH - length);
+            }
+
+            crc.reset();
+            crc.update(raw, 0, rawLength);
+            length = putIntLE(compressed, length, (int) crc.getValue());
+            compressedLength = putIntLE(compressed, length, rawLength);
+        }
+
+        private static int putIntLE(byte[] target, int offset, int value) {
+            target[offset] = (byte) value;
+            target[offset + 1] = (byte) (value >> 8);
+            target[offset + 2] = (byte) (value >> 16);
+            target[offset + 3] = (byte) (value >> 24);
+            return offset + 4;
+        }
+    }
+
+    // Counters
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getCompressedRequests() {
+        return compressedRequests.sum();
+    }
+
+    /**
+     * UTF-8 line protocol bytes before compression
+     */
+    public long getRawBytes() {
+        return rawBytes.sum();
+    }
+
+    /**
+     * Body bytes as sent, compressed or not
+     */
+    public long getSentBytes() {
+        return sentBytes.sum();
+    }
+}
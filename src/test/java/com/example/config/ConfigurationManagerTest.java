@@ -6,6 +6,12 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -113,6 +119,8 @@ class ConfigurationManagerTest {
         assertNull(configManager.getHost());
         assertNull(configManager.getDatabase());
         assertNull(configManager.getToken());
+        assertNull(configManager.getExportQuery());
+        assertNull(configManager.getExportDirectory());
     }
 
     @Test
@@ -129,4 +137,75 @@ class ConfigurationManagerTest {
         assertNull(config2.getHost(), "New instance should have null host");
         assertNotNull(config1.getHost(), "Original instance should still have host");
     }
-}
\ No newline at end of file
+
+    private static Path writeProperties(String content) throws IOException {
+        Path file = Files.createTempFile("application", ".properties");
+        file.toFile().deleteOnExit();
+        Files.writeString(file, content);
+        return file;
+    }
+
+    @Test
+    @DisplayName("Given profiles and overrides, When loading from a file, Then system properties, environment, profile and file keys should apply in that order")
+    void givenProfilesAndOverrides_WhenLoadingFromFile_ThenPrecedenceShouldApply() throws IOException {
+        // Given
+        Path file = writeProperties("""
+                INFLUXDB_HOST=http://localhost:8181
+                INFLUXDB_DATABASE=sensors
+                INFLUXDB_TOKEN=local-token
+                INFLUXDB_BATCH_POINTS=1000
+                INFLUXDB_BATCH_LINGER_MS=50
+                staging.INFLUXDB_HOST=https://staging-1:8181, https://staging-2:8181
+                staging.INFLUXDB_BATCH_POINTS=20000
+                staging.INFLUXDB_QUERY_CONCURRENCY=2
+                """);
+        Properties systemProperties = new Properties();
+        systemProperties.setProperty("INFLUXDB_BATCH_LINGER_MS", "250");
+        ConfigurationManager config = new ConfigurationManager(
+                Map.of("INFLUXDB_PROFILE", "staging", "INFLUXDB_BATCH_LINGER_MS", "500", "INFLUXDB_TOKEN", "env-token"),
+                systemProperties);
+
+        // When
+        config.loadConfiguration(file);
+
+        // Then
+        assertEquals("staging", config.getProfile());
+        assertEquals(List.of("https://staging-1:8181", "https://staging-2:8181"), config.getHosts());
+        assertEquals("sensors", config.getDatabase());
+        assertArrayEquals("env-token".toCharArray(), config.getToken());
+        assertEquals(file, config.getConfigFile());
+        assertEquals(new PerformanceSettings(20_000, Duration.ofMillis(250),
+                        Duration.ofMillis(ConfigurationManager.DEFAULT_TIMEOUT_MILLIS),
+                        ConfigurationManager.DEFAULT_GZIP_THRESHOLD, 2),
+                config.getPerformanceSettings());
+    }
+
+    @Test
+    @DisplayName("Given unknown profile or invalid tuning value, When loading, Then loading should fail")
+    void givenUnknownProfileOrInvalidTuningValue_WhenLoading_ThenLoadingShouldFail() throws IOException {
+        // Given
+        Path file = writeProperties("""
+                INFLUXDB_HOST=http://localhost:8181
+                INFLUXDB_DATABASE=sensors
+                INFLUXDB_TOKEN=local-token
+                """);
+        Properties noSystemProperties = new Properties();
+
+        // When / Then
+        IllegalArgumentException profile = assertThrows(IllegalArgumentException.class,
+                () -> new ConfigurationManager(Map.of("INFLUXDB_PROFILE", "prod"), noSystemProperties)
+                        .loadConfiguration(file));
+        assertTrue(profile.getMessage().contains("prod"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ConfigurationManager(Map.of("INFLUXDB_BATCH_POINTS", "0"), noSystemProperties)
+                        .loadConfiguration(file));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ConfigurationManager(Map.of("INFLUXDB_BATCH_LINGER_MS", "fast"), noSystemProperties)
+                        .loadConfiguration(file));
+
+        ConfigurationManager defaults = new ConfigurationManager(Map.of(), noSystemProperties);
+        defaults.loadConfiguration(file);
+        assertEquals(ConfigurationManager.DEFAULT_PROFILE, defaults.getProfile());
+        assertEquals(ConfigurationManager.DEFAULT_BATCH_POINTS, defaults.getPerformanceSettings().batchPoints());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ConfigurationWatcher Tests")
+class ConfigurationWatcherTest {
+
+    private static final String CONNECTION = """
+            INFLUXDB_HOST=http://localhost:8181
+            INFLUXDB_DATABASE=sensors
+            INFLUXDB_TOKEN=local-token
+            """;
+
+    private Path directory;
+    private Path file;
+    private final BlockingQueue<PerformanceSettings> applied = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("config-test");
+        file = directory.resolve("application.properties");
+        Files.writeString(file, CONNECTION + "INFLUXDB_BATCH_POINTS=5000\n");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private ConfigurationManager load() throws IOException {
+        ConfigurationManager config = new ConfigurationManager(Map.of(), new Properties());
+        config.loadConfiguration(file);
+        return config;
+    }
+
+    /**
+     * Replaces the file the way many editors save: write a temporary file, then rename it over the original
+     */
+    private void save(String content) throws IOException {
+        Path temporary = directory.resolve("application.properties.tmp");
+        Files.writeString(temporary, content);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Test
+    @DisplayName("Given watched file, When batch settings are saved, Then the new settings should be applied once")
+    void givenWatchedFile_WhenBatchSettingsAreSaved_ThenNewSettingsShouldBeApplied() throws Exception {
+        // Given
+        try (ConfigurationWatcher watcher = new ConfigurationWatcher(load(), applied::add, Duration.ofMillis(50))) {
+
+            // When
+            save(CONNECTION + "INFLUXDB_BATCH_POINTS=250\nINFLUXDB_BATCH_LINGER_MS=20\n");
+
+            // Then
+            PerformanceSettings settings = applied.poll(10, TimeUnit.SECONDS);
+            assertNotNull(settings, "Change should be picked up by the watcher");
+            assertEquals(250, settings.batchPoints());
+            assertEquals(Duration.ofMillis(20), settings.linger());
+            assertEquals(settings, watcher.getPerformanceSettings());
+
+            // Saving identical settings applies nothing
+            assertTrue(watcher.reload());
+            assertNull(applied.poll(200, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("Given invalid or restart-only changes, When reloading, Then current settings should be kept")
+    void givenInvalidOrRestartOnlyChanges_WhenReloading_ThenCurrentSettingsShouldBeKept() throws Exception {
+        // Given
+        try (ConfigurationWatcher watcher = new ConfigurationWatcher(load(), applied::add, Duration.ofHours(1))) {
+            PerformanceSettings initial = watcher.getPerformanceSettings();
+
+            // When
+            Files.writeString(file, CONNECTION + "INFLUXDB_BATCH_POINTS=-1\n");
+            boolean invalid = watcher.reload();
+            Files.writeString(file, CONNECTION.replace("sensors", "archive") + "INFLUXDB_BATCH_POINTS=5000\n"
+                    + "INFLUXDB_TIMEOUT_MS=60000\n");
+            boolean restartOnly = watcher.reload();
+
+            // Then
+            assertFalse(invalid);
+            assertTrue(restartOnly);
+            assertEquals(1, watcher.getFailedReloads());
+            assertEquals(List.of(), List.copyOf(applied), "Nothing applicable live changed");
+            assertEquals(initial.batchPoints(), watcher.getPerformanceSettings().batchPoints());
+            assertEquals(Duration.ofMinutes(1), watcher.getPerformanceSettings().timeout());
+        }
+    }
+}
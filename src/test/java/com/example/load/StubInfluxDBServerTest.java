@@ -0,0 +1,96 @@
+package com.example.load;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("StubInfluxDBServer Tests")
+class StubInfluxDBServerTest {
+
+    private static final String LINES = "temperature,location=site-0,sensor_id=S000000 value=21.5 1000\n"
+            + "temperature,location=site-0,sensor_id=S000001 value=21.7 1000\n"
+            + "humidity,location=site-0,sensor_id=S000002 value=55.0 1000";
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    private static StubInfluxDBServer.Behaviour behaviour(double errorRate) {
+        return new StubInfluxDBServer.Behaviour(Duration.ZERO, Duration.ZERO, Duration.ZERO, 0.0, errorRate, 4, 10);
+    }
+
+    private HttpResponse<String> post(String url, byte[] body, boolean gzip) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        if (gzip) {
+            request.header("Content-Encoding", "gzip");
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Given healthy stub, When writing plain and gzipped line protocol, Then points should be counted")
+    void givenHealthyStub_WhenWritingPlainAndGzippedLineProtocol_ThenPointsShouldBeCounted() throws Exception {
+        // Given
+        try (StubInfluxDBServer server = new StubInfluxDBServer(behaviour(0.0))) {
+
+            // When
+            HttpResponse<String> v2 = post(server.httpUrl() + "/api/v2/write?bucket=load&precision=ns",
+                    LINES.getBytes(StandardCharsets.UTF_8), false);
+            HttpResponse<String> v3 = post(server.httpUrl() + "/api/v3/write_lp?db=load", gzip(LINES + "\n"), true);
+            HttpResponse<String> unknown = post(server.httpUrl() + "/api/v2/query", new byte[0], false);
+
+            // Then
+            assertEquals(204, v2.statusCode());
+            assertEquals(204, v3.statusCode());
+            assertEquals(404, unknown.statusCode());
+            assertEquals(2, server.getWriteRequests());
+            assertEquals(6, server.getPointsReceived(), "A trailing newline should not count as a point");
+            assertEquals(2L * LINES.length() + 1, server.getBytesReceived());
+        }
+    }
+
+    @Test
+    @DisplayName("Given failing stub, When writing, Then writes should fail with 503 and not be counted as received")
+    void givenFailingStub_WhenWriting_ThenWritesShouldFailWith503() throws Exception {
+        // Given
+        try (StubInfluxDBServer server = new StubInfluxDBServer(behaviour(1.0))) {
+
+            // When
+            HttpResponse<String> response = post(server.httpUrl() + "/api/v2/write",
+                    LINES.getBytes(StandardCharsets.UTF_8), false);
+
+            // Then
+            assertEquals(503, response.statusCode());
+            assertTrue(response.body().contains("\"error\""));
+            assertEquals(1, server.getFailed());
+            assertEquals(0, server.getPointsReceived());
+        }
+    }
+
+    @Test
+    @DisplayName("Given invalid behaviour, When creating, Then it should be rejected")
+    void givenInvalidBehaviour_WhenCreating_ThenItShouldBeRejected() {
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> behaviour(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new StubInfluxDBServer.Behaviour(Duration.ZERO,
+                Duration.ZERO, Duration.ZERO, 0.0, 0.0, 0, 10));
+    }
+}
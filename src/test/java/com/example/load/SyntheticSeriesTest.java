@@ -0,0 +1,60 @@
+package com.example.load;
+
+import com.influxdb.v3.client.Point;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SyntheticSeries Tests")
+class SyntheticSeriesTest {
+
+    @Test
+    @DisplayName("Given a slice of series, When producing one round, Then every series should appear once with fleet tags")
+    void givenSliceOfSeries_WhenProducingOneRound_ThenEverySeriesShouldAppearOnce() {
+        // Given
+        SyntheticSeries series = new SyntheticSeries(100, 200, 7);
+        Set<String> sensors = new HashSet<>();
+        Set<String> sites = new HashSet<>();
+        Set<String> regions = new HashSet<>();
+
+        // When
+        for (int i = 0; i < series.size(); i++) {
+            Point point = series.next(1_000L);
+            sensors.add(point.getTag("sensor_id"));
+            sites.add(point.getTag("location"));
+            regions.add(point.getTag("region"));
+            assertEquals(1_000L, point.getTimestamp().longValue());
+        }
+
+        // Then
+        assertEquals(200, sensors.size());
+        assertTrue(sensors.contains("S000100") && sensors.contains("S000299"));
+        assertEquals(Set.of("site-2", "site-3", "site-4", "site-5"), sites);
+        assertEquals(SyntheticSeries.REGIONS, regions.size());
+        assertEquals("S000100", series.next(2_000L).getTag("sensor_id"), "Series should be taken in turn");
+    }
+
+    @Test
+    @DisplayName("Given the same seed, When producing readings, Then values should repeat and stay near their level")
+    void givenSameSeed_WhenProducingReadings_ThenValuesShouldRepeatAndStayNearLevel() {
+        // Given
+        SyntheticSeries first = new SyntheticSeries(0, 3, 42);
+        SyntheticSeries second = new SyntheticSeries(0, 3, 42);
+
+        // When / Then
+        for (int i = 0; i < 300; i++) {
+            Point a = first.next(i);
+            Point b = second.next(i);
+            assertEquals(a.getMeasurement(), b.getMeasurement());
+            assertEquals(a.getFloatField("value"), b.getFloatField("value"));
+            if (a.getMeasurement().equals("temperature")) {
+                assertEquals(21.0, a.getFloatField("value"), 15.0);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new SyntheticSeries(0, 0, 1));
+    }
+}
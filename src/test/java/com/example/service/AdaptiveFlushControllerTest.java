@@ -0,0 +1,153 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBApiHttpException;
+import com.influxdb.v3.client.Point;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("AdaptiveFlushController Tests")
+class AdaptiveFlushControllerTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Sends batches one after another on a simulated clock, each taking the latency the curve gives for its size
+     */
+    private static List<Integer> simulate(AdaptiveFlushController controller, IntToLongFunction latencyNanos,
+                                          int responses) {
+        List<Integer> batchSizes = new ArrayList<>();
+        long clock = 0;
+        for (int i = 0; i < responses; i++) {
+            int batch = controller.batchPoints();
+            batchSizes.add(batch);
+            long start = clock;
+            clock += latencyNanos.applyAsLong(batch);
+            controller.onSuccess(start, clock);
+        }
+        return batchSizes;
+    }
+
+    private static Point reading(int i) {
+        return Point.measurement("temperature")
+                .setTag("sensor_id", "TH" + (i % 100))
+                .setField("value", (double) i)
+                .setTimestamp(Instant.now());
+    }
+
+    @Test
+    @DisplayName("Given latency growing with batch size, When simulating, Then batch size should settle below the latency knee")
+    void givenLatencyGrowingWithBatchSize_WhenSimulating_ThenBatchSizeShouldSettleBelowKnee() {
+        // Given: 5ms plus 10µs per point, so the 100ms target is reached at 9,500 points
+        AdaptiveFlushController controller = new AdaptiveFlushController(Duration.ofMillis(100));
+        IntToLongFunction curve = points -> 5 * MILLIS + points * 10_000L;
+
+        // When
+        List<Integer> sizes = simulate(controller, curve, 10_000);
+
+        // Then
+        List<Integer> settled = sizes.subList(sizes.size() - 2_000, sizes.size());
+        int max = settled.stream().mapToInt(Integer::intValue).max().orElseThrow();
+        int min = settled.stream().mapToInt(Integer::intValue).min().orElseThrow();
+        assertTrue(max <= 10_000, "Batch size should not stay above the knee: " + max);
+        assertTrue(min >= 0.75 * 6_000, "Batch size should stay near the knee: " + min);
+        assertTrue(controller.getLatencyDecreases() > 0);
+    }
+
+    @Test
+    @DisplayName("Given fast server, When simulating, Then batch size and in-flight limit should grow to their maximum")
+    void givenFastServer_WhenSimulating_ThenLimitsShouldGrowToMaximum() {
+        // Given
+        AdaptiveFlushController controller = new AdaptiveFlushController(Duration.ofMillis(100), 100, 2_000, 100, 4, 10);
+
+        // When
+        simulate(controller, points -> MILLIS, 1_000);
+
+        // Then
+        assertEquals(2_000, controller.batchPoints());
+        assertEquals(4, controller.inFlightLimit());
+        assertEquals(0, controller.getLatencyDecreases());
+    }
+
+    @Test
+    @DisplayName("Given burst of 429 responses, When recording failures, Then limits should be halved once")
+    void givenBurstOf429Responses_WhenRecordingFailures_ThenLimitsShouldBeHalvedOnce() {
+        // Given
+        AdaptiveFlushController controller = new AdaptiveFlushController(Duration.ofMillis(100), 100, 10_000, 1_000, 8, 1);
+        simulate(controller, points -> MILLIS, 8);
+        assertEquals(8_100, controller.batchPoints());
+        assertEquals(8, controller.inFlightLimit());
+        InfluxDBApiHttpException tooManyRequests = new InfluxDBApiHttpException("Too many requests", null, 429);
+
+        // When: eight requests sent together are all rejected
+        for (int i = 0; i < 8; i++) {
+            controller.onFailure(1_000 * MILLIS, 1_010 * MILLIS + i, tooManyRequests);
+        }
+
+        // Then
+        assertEquals(4_050, controller.batchPoints());
+        assertEquals(4, controller.inFlightLimit());
+        assertEquals(1, controller.getOverloadDecreases());
+
+        // A rejection of a request sent after the cut cuts again
+        controller.onFailure(2_000 * MILLIS, 2_001 * MILLIS, tooManyRequests);
+        assertEquals(2_025, controller.batchPoints());
+        assertEquals(2, controller.inFlightLimit());
+    }
+
+    @Test
+    @DisplayName("Given different errors, When classifying, Then only timeouts and 429/503 should count as overload")
+    void givenDifferentErrors_WhenClassifying_ThenOnlyTimeoutsAnd429Or503ShouldCountAsOverload() {
+        // When / Then
+        assertTrue(AdaptiveFlushController.isOverload(new InfluxDBApiHttpException("Busy", null, 503)));
+        assertTrue(AdaptiveFlushController.isOverload(
+                new IllegalStateException("Write failed", new HttpTimeoutException("request timed out"))));
+        assertFalse(AdaptiveFlushController.isOverload(new InfluxDBApiHttpException("Bad line", null, 400)));
+        assertFalse(AdaptiveFlushController.isOverload(new IllegalStateException("Connection refused")));
+
+        AdaptiveFlushController controller = new AdaptiveFlushController(Duration.ofMillis(100));
+        int batch = controller.batchPoints();
+        controller.onFailure(0, MILLIS, new InfluxDBApiHttpException("Bad line", null, 400));
+        assertEquals(batch, controller.batchPoints(), "Client errors should not change the limits");
+    }
+
+    @Test
+    @DisplayName("Given stub server rejecting concurrency above three, When writing through an adaptive writer, Then limits should grow and back off")
+    void givenStubRejectingHighConcurrency_WhenWritingAdaptively_ThenLimitsShouldGrowAndBackOff() throws Exception {
+        // Given: 1ms plus 1ms per 200 points, and 429 once more than three writes overlap
+        StubInfluxDBClient stub = new StubInfluxDBClient().withWriteLatencyCurve((points, concurrent) -> {
+            if (concurrent > 3) {
+                throw new InfluxDBApiHttpException("Too many requests", null, 429);
+            }
+            return 1 + points / 200;
+        });
+        AdaptiveFlushController controller = new AdaptiveFlushController(Duration.ofMillis(50), 10, 2_000, 100, 8, 5);
+        BatchingWriter writer = new BatchingWriter(stub.client(), controller, Long.MAX_VALUE, Duration.ofMillis(20),
+                50_000, Duration.ofSeconds(5));
+
+        // When
+        try (writer) {
+            for (int i = 0; i < 30_000; i++) {
+                writer.write(reading(i));
+            }
+            writer.flush();
+        }
+
+        // Then
+        assertEquals(30_000, writer.getPointsFlushed() + writer.getPointsDropped());
+        assertTrue(controller.getIncreases() > 0);
+        assertTrue(controller.getOverloadDecreases() > 0, "Rejections should cut the limits: " + controller);
+        assertTrue(stub.getMaxConcurrentWrites() > 1, "Batches should be sent concurrently");
+        assertTrue(stub.getPointBatches().stream().mapToInt(List::size).max().orElseThrow() > 10,
+                "Batches should grow beyond the minimum");
+    }
+}
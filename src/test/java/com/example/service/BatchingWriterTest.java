@@ -0,0 +1,234 @@
+package com.example.service;
+
+import com.influxdb.v3.client.Point;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BatchingWriter Tests")
+class BatchingWriterTest {
+
+    private BatchingWriter writer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private static Point reading(String sensorId, double value) {
+        return Point.measurement("temperature")
+                .setTag("sensor_id", sensorId)
+                .setTag("location", "warehouse")
+                .setField("value", value)
+                .setTimestamp(Instant.now());
+    }
+
+    private static List<Point> readings(int count) {
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(reading("TH" + i, 20.0 + i));
+        }
+        return points;
+    }
+
+    @Test
+    @DisplayName("Given batch size limit, When queueing more points, Then batches should not exceed the limit")
+    void givenBatchSizeLimit_WhenQueueingMorePoints_ThenBatchesShouldNotExceedLimit() throws InterruptedException {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+        writer = new BatchingWriter(stub.client(), 10, Long.MAX_VALUE, Duration.ofSeconds(5), 1000, Duration.ofSeconds(1));
+
+        // When
+        writer.writeAll(readings(25));
+        writer.flush();
+
+        // Then
+        assertEquals(25, stub.getPointCount());
+        assertTrue(stub.getPointBatches().stream().allMatch(batch -> batch.size() <= 10));
+        assertEquals(25, writer.getPointsQueued());
+        assertEquals(25, writer.getPointsFlushed());
+        assertEquals(0, writer.getPointsDropped());
+    }
+
+    @Test
+    @DisplayName("Given byte limit, When queueing points, Then batches should be split by estimated size")
+    void givenByteLimit_WhenQueueingPoints_ThenBatchesShouldBeSplitBySize() throws InterruptedException {
+        // Given
+        long pointSize = BatchingWriter.estimateSize(reading("TH0", 20.0));
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+        writer = new BatchingWriter(stub.client(), 1000, pointSize * 3, Duration.ofSeconds(5), 1000, Duration.ofSeconds(1));
+
+        // When
+        writer.writeAll(readings(9));
+        writer.flush();
+
+        // Then
+        assertEquals(9, stub.getPointCount());
+        assertTrue(stub.getPointBatches().size() >= 3, "Byte limit should force several batches");
+    }
+
+    @Test
+    @DisplayName("Given linger time, When few points are queued, Then they should be flushed without an explicit flush")
+    void givenLingerTime_WhenFewPointsQueued_ThenShouldFlushAfterLinger() throws InterruptedException {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+        writer = new BatchingWriter(stub.client(), 1000, Long.MAX_VALUE, Duration.ofMillis(20), 1000, Duration.ofSeconds(1));
+
+        // When
+        writer.writeAll(readings(3));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (writer.getPointsFlushed() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        // Then
+        assertEquals(3, writer.getPointsFlushed());
+        assertEquals(3, stub.getPointCount());
+    }
+
+    @Test
+    @DisplayName("Given queued points, When closing writer, Then remaining points should be drained and new writes rejected")
+    void givenQueuedPoints_WhenClosing_ThenShouldDrainAndRejectNewWrites() throws InterruptedException {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+        writer = new BatchingWriter(stub.client(), 1000, Long.MAX_VALUE, Duration.ofSeconds(5), 1000, Duration.ofSeconds(1));
+        writer.writeAll(readings(5));
+
+        // When
+        writer.close();
+
+        // Then
+        assertEquals(5, stub.getPointCount());
+        assertThrows(IllegalStateException.class, () -> writer.write(reading("TH9", 1.0)));
+    }
+
+    @Test
+    @DisplayName("Given producers writing while the writer closes, When close returns, Then every accepted point should have been written")
+    void givenProducersWritingWhileClosing_WhenCloseReturns_ThenEveryAcceptedPointShouldBeWritten() throws InterruptedException {
+        // Given: a slow server and a tiny queue, so producers are still blocked on it when close() drains it
+        StubInfluxDBClient stub = new StubInfluxDBClient().withWriteLatency(2);
+        writer = new BatchingWriter(stub.client(), 1, Long.MAX_VALUE, Duration.ofMillis(1), 4, Duration.ofSeconds(5));
+        AtomicInteger accepted = new AtomicInteger();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 8; p++) {
+            producers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    while (writer.write(reading("TH1", 1.0))) {
+                        accepted.incrementAndGet();
+                    }
+                } catch (IllegalStateException | InterruptedException e) {
+                    // Closed
+                }
+            }));
+        }
+        Thread.sleep(20);
+
+        // When
+        writer.close();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        // Then
+        assertTrue(accepted.get() > 0);
+        assertEquals(accepted.get(), stub.getPointCount());
+    }
+
+    @Test
+    @DisplayName("Given full queue and slow server, When producer keeps writing, Then excess points should be dropped")
+    void givenFullQueueAndSlowServer_WhenProducerKeepsWriting_ThenExcessPointsShouldBeDropped() throws InterruptedException {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient().withWriteLatency(300);
+        writer = new BatchingWriter(stub.client(), 1, Long.MAX_VALUE, Duration.ofMillis(1), 2, Duration.ofMillis(10));
+
+        // When
+        int accepted = writer.writeAll(readings(20));
+
+        // Then
+        assertTrue(accepted < 20, "Bounded queue should push back on the producer");
+        assertEquals(20 - accepted, writer.getPointsDropped());
+    }
+
+    @Test
+    @DisplayName("Given failing server, When flushing, Then failed points should be counted as dropped")
+    void givenFailingServer_WhenFlushing_ThenFailedPointsShouldBeCountedAsDropped() throws InterruptedException {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient().failWritesWith(new IllegalStateException("unreachable"));
+        writer = new BatchingWriter(stub.client(), 100, Long.MAX_VALUE, Duration.ofSeconds(5), 100, Duration.ofSeconds(1));
+        writer.writeAll(readings(4));
+
+        // When
+        writer.flush();
+
+        // Then
+        assertEquals(0, writer.getPointsFlushed());
+        assertEquals(4, writer.getPointsDropped());
+        assertNotNull(writer.getLastError());
+    }
+
+    @Test
+    @DisplayName("Given running writer, When retuning batch size and linger, Then later batches should use the new limits")
+    void givenRunningWriter_WhenRetuning_ThenLaterBatchesShouldUseNewLimits() throws InterruptedException {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+        writer = new BatchingWriter(stub.client(), 10, Long.MAX_VALUE, Duration.ofSeconds(5), 1000, Duration.ofSeconds(1));
+
+        // When
+        writer.setMaxBatchPoints(4);
+        writer.setLinger(Duration.ofMillis(20));
+        writer.writeAll(readings(3));
+        Thread.sleep(500);
+
+        // Then
+        assertEquals(List.of(3), stub.getPointBatches().stream().map(List::size).toList(),
+                "New linger should flush the partial batch without waiting the old 5 seconds");
+        writer.writeAll(readings(9));
+        writer.flush();
+        assertTrue(stub.getPointBatches().stream().allMatch(batch -> batch.size() <= 4));
+        assertEquals(12, writer.getPointsFlushed());
+        assertEquals(4, writer.getMaxBatchPoints());
+        assertThrows(IllegalArgumentException.class, () -> writer.setLinger(Duration.ZERO));
+    }
+
+    @Test
+    @DisplayName("Given idle flusher and steady writes, When several threads flush repeatedly, Then every flush should get the lock")
+    void givenIdleFlusherAndSteadyWrites_WhenSeveralThreadsFlush_ThenEveryFlushShouldGetTheLock() throws InterruptedException {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+        writer = new BatchingWriter(stub.client(), 100, Long.MAX_VALUE, Duration.ofMillis(1), 10_000, Duration.ofSeconds(1));
+        AtomicInteger flushes = new AtomicInteger();
+
+        // When
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    for (int i = 0; i < 50; i++) {
+                        writer.write(reading("TH" + i, i));
+                        writer.flush();
+                        flushes.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join(10_000);
+        }
+
+        // Then
+        assertEquals(200, flushes.get(), "Flushing threads should not be starved by the flusher");
+        assertEquals(200, stub.getPointCount());
+    }
+}
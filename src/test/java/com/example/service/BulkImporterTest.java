@@ -0,0 +1,205 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBApiHttpException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BulkImporter Tests")
+class BulkImporterTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("import-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static List<String> lines(int count) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lines.add("temperature,sensor_id=TH" + (i % 50) + ",location=warehouse value=" + (20.0 + i % 7)
+                    + ",status=\"ok\" " + (1_700_000_000_000_000_000L + i));
+        }
+        return lines;
+    }
+
+    private static Set<String> writtenLines(StubInfluxDBClient stub) {
+        Set<String> written = new HashSet<>();
+        for (String record : stub.getRecords()) {
+            written.addAll(Arrays.asList(record.split("\n")));
+        }
+        return written;
+    }
+
+    @Test
+    @DisplayName("Given multi-megabyte line protocol file, When importing, Then every line should be written once in large batches")
+    void givenLargeLineProtocolFile_WhenImporting_ThenEveryLineShouldBeWrittenOnce() throws Exception {
+        // Given: large enough that chunks are split by fork/join
+        List<String> lines = lines(60_000);
+        Path file = directory.resolve("history.lp");
+        Files.write(file, lines);
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+
+        // When
+        BulkImporter.ImportReport report;
+        try (BulkImporter importer = new BulkImporter(stub.client(), 2 * BulkImporter.LEAF_BYTES + 1,
+                BulkImporter.LEAF_BYTES, 3, 4)) {
+            report = importer.importFile(file);
+        }
+
+        // Then
+        assertEquals(60_000, report.linesImported());
+        assertEquals(0, report.linesRejected());
+        assertEquals(Files.size(file), report.bytesImported());
+        assertEquals(new HashSet<>(lines), writtenLines(stub));
+        assertEquals(60_000, stub.getRecords().stream().mapToLong(record -> record.split("\n").length).sum());
+        assertTrue(stub.getWriteCalls() < 20, "Lines should be sent in large batches");
+        assertTrue(stub.getMaxConcurrentWrites() <= 3);
+        assertFalse(Files.exists(directory.resolve("history.lp.checkpoint")), "Checkpoint should be removed when done");
+    }
+
+    @Test
+    @DisplayName("Given invalid lines, When importing, Then they should be rejected with their offsets and the rest written")
+    void givenInvalidLines_WhenImporting_ThenTheyShouldBeRejectedAndTheRestWritten() throws Exception {
+        // Given
+        Path file = directory.resolve("mixed.lp");
+        Files.writeString(file, "# comment\r\n"
+                + "cpu,host=a usage=1 1000\r\n"
+                + "cpu,host=a\n"
+                + "cpu,host=b usage=2\n"
+                + "\n"
+                + "cpu,host=c msg=\"a b\" 3000\n"
+                + "cpu,host=d usage=4 12ab\n");
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+
+        // When
+        BulkImporter.ImportReport report;
+        try (BulkImporter importer = new BulkImporter(stub.client())) {
+            report = importer.importFile(file);
+        }
+
+        // Then
+        assertEquals(List.of("cpu,host=a usage=1 1000\ncpu,host=c msg=\"a b\" 3000"), stub.getRecords());
+        assertEquals(2, report.linesImported());
+        assertEquals(3, report.linesRejected());
+        assertEquals(List.of("byte 36: missing fields", "byte 47: missing timestamp", "byte 93: invalid timestamp"),
+                report.rejections());
+    }
+
+    @Test
+    @DisplayName("Given CSV file with header, When importing, Then rows should become escaped line protocol")
+    void givenCsvFileWithHeader_WhenImporting_ThenRowsShouldBecomeLineProtocol() throws Exception {
+        // Given
+        Path file = directory.resolve("readings.csv");
+        Files.writeString(file, "measurement,time,tag:location,tag:sensor_id,value,active,note\n"
+                + "temperature,1700000000000000000,\"main hall\",TH01,21.5,true,\"said \"\"hi\"\", left\"\n"
+                + "temperature,2023-11-14T22:13:20.000000001Z,warehouse,,-3e2,false,\n"
+                + "temperature,yesterday,warehouse,TH02,1,true,x\n"
+                + "temperature,1700000000000000002,warehouse,TH03,,,\n"
+                + "temperature,1700000000000000003,warehouse,TH04,1e400,true,x\n");
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+
+        // When
+        BulkImporter.ImportReport report;
+        try (BulkImporter importer = new BulkImporter(stub.client())) {
+            report = importer.importFile(file);
+        }
+
+        // Then
+        assertEquals(List.of(
+                "temperature,location=main\\ hall,sensor_id=TH01 value=21.5,active=true,note=\"said \\\"hi\\\", left\" 1700000000000000000\n"
+                        + "temperature,location=warehouse value=-300.0,active=false 1700000000000000001"),
+                stub.getRecords());
+        assertEquals(2, report.linesImported());
+        assertEquals(3, report.linesRejected());
+        assertTrue(report.rejections().get(0).endsWith("invalid time 'yesterday'"));
+        assertTrue(report.rejections().get(1).endsWith("no field values"));
+        assertTrue(report.rejections().get(2).endsWith("Field value must be a finite number"));
+    }
+
+    @Test
+    @DisplayName("Given write failure midway, When importing again, Then import should resume from the checkpoint")
+    void givenWriteFailureMidway_WhenImportingAgain_ThenImportShouldResumeFromCheckpoint() throws Exception {
+        // Given: one chunk per batch, and the server fails on the fourth write
+        List<String> lines = lines(1_000);
+        Path file = directory.resolve("resume.lp");
+        Files.write(file, lines);
+        Path checkpoint = directory.resolve("resume.lp.checkpoint");
+        AtomicInteger writes = new AtomicInteger();
+        StubInfluxDBClient failing = new StubInfluxDBClient().withWriteLatencyCurve((records, concurrent) -> {
+            if (writes.incrementAndGet() > 3) {
+                throw new InfluxDBApiHttpException("Service unavailable", null, 503);
+            }
+            return 0;
+        });
+
+        IOException failure;
+        try (BulkImporter importer = new BulkImporter(failing.client(), 8 * 1024, 1, 1, 2)) {
+            failure = assertThrows(IOException.class, () -> importer.importFile(file));
+        }
+        assertTrue(Files.exists(checkpoint));
+        assertTrue(failure.getCause() instanceof InfluxDBApiHttpException);
+
+        // When
+        StubInfluxDBClient healthy = new StubInfluxDBClient();
+        BulkImporter.ImportReport report;
+        try (BulkImporter importer = new BulkImporter(healthy.client(), 8 * 1024, 1, 1, 2)) {
+            report = importer.importFile(file);
+        }
+
+        // Then
+        Set<String> firstRun = writtenLines(failing);
+        Set<String> secondRun = writtenLines(healthy);
+        assertEquals(3, failing.getRecords().size());
+        assertTrue(report.resumedFromOffset() > 0);
+        assertEquals(lines.size() - firstRun.size(), report.linesImported(), "Written chunks should not be sent again");
+        assertTrue(firstRun.stream().noneMatch(secondRun::contains));
+        secondRun.addAll(firstRun);
+        assertEquals(new HashSet<>(lines), secondRun);
+        assertFalse(Files.exists(checkpoint));
+    }
+
+    @Test
+    @DisplayName("Given line protocol lines, When validating, Then escapes and quoted spaces should be understood")
+    void givenLineProtocolLines_WhenValidating_ThenEscapesAndQuotedSpacesShouldBeUnderstood() {
+        // When / Then
+        assertNull(validate("my\\ cpu,host=a\\ b usage=1,msg=\"x y\" 1"));
+        assertNull(validate("cpu usage=1i -5"));
+        assertEquals("missing measurement", validate(",host=a usage=1 1"));
+        assertEquals("unterminated string field", validate("cpu msg=\"open 1"));
+        assertEquals("missing fields", validate("cpu usage 1"));
+        assertEquals("invalid timestamp", validate("cpu usage=1 123456789012345678901"));
+    }
+
+    private static String validate(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return BulkImporter.validateLine(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+}
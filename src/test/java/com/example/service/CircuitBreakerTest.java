@@ -0,0 +1,102 @@
+package com.example.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CircuitBreaker Tests")
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker("host-a", 3, Duration.ofSeconds(10), clock::get);
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            breaker.onFailure(breaker.acquire());
+        }
+    }
+
+    @Test
+    @DisplayName("Given consecutive failures, When the threshold is reached, Then calls should be rejected until the open period ends")
+    void givenConsecutiveFailures_WhenThresholdReached_ThenCallsShouldBeRejected() {
+        // Given
+        fail(2);
+        breaker.onSuccess(breaker.acquire());
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "a success resets the run");
+
+        // When
+        fail(1);
+        clock.addAndGet(Duration.ofSeconds(9).toNanos());
+
+        // Then
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(CircuitBreaker.OpenException.class, breaker::acquire);
+        CircuitBreaker.OpenException error = assertThrows(CircuitBreaker.OpenException.class, breaker::acquire);
+        assertTrue(error.getMessage().contains("host-a"));
+        assertEquals(1, breaker.getOpened());
+        assertEquals(2, breaker.getRejected());
+    }
+
+    @Test
+    @DisplayName("Given an open breaker past its period, When calls arrive, Then a single trial should decide whether it closes")
+    void givenOpenBreakerPastItsPeriod_WhenCallsArrive_ThenSingleTrialShouldDecide() {
+        // Given
+        fail(3);
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        // When
+        long trial = breaker.acquire();
+        assertThrows(CircuitBreaker.OpenException.class, breaker::acquire, "only one trial at a time");
+        breaker.onFailure(trial);
+        assertThrows(CircuitBreaker.OpenException.class, breaker::acquire, "a failed trial opens the breaker again");
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        breaker.onSuccess(breaker.acquire());
+
+        // Then
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(2, breaker.getOpened());
+    }
+
+    @Test
+    @DisplayName("Given a trial that is released without an outcome, When the next call arrives, Then it should become the trial")
+    void givenReleasedTrial_WhenNextCallArrives_ThenItShouldBecomeTheTrial() {
+        // Given
+        fail(3);
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        long trial = breaker.acquire();
+
+        // When
+        breaker.release(trial);
+
+        // Then
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertDoesNotThrow(breaker::acquire);
+        assertThrows(CircuitBreaker.OpenException.class, breaker::acquire);
+    }
+
+    @Test
+    @DisplayName("Given a slow call sent before the breaker opened, When it succeeds, Then it should not close the breaker")
+    void givenSlowCallSentBeforeOpening_WhenItSucceeds_ThenItShouldNotCloseTheBreaker() {
+        // Given
+        long slowCall = breaker.acquire();
+        fail(3);
+
+        // When
+        breaker.onSuccess(slowCall);
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        long trial = breaker.acquire();
+        breaker.onSuccess(slowCall);
+        breaker.release(slowCall);
+
+        // Then
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertThrows(CircuitBreaker.OpenException.class, breaker::acquire, "the trial is still in flight");
+        breaker.onSuccess(trial);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBApiHttpException;
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ClientMetrics Tests")
+class ClientMetricsTest {
+
+    private static Point reading(double value) {
+        return Point.measurement("temperature")
+                .setTag("sensor_id", "TH01")
+                .setField("value", value)
+                .setTimestamp(Instant.now());
+    }
+
+    @Test
+    @DisplayName("Given instrumented client, When writing points and records, Then points, bytes and latencies should be recorded")
+    void givenInstrumentedClient_WhenWriting_ThenPointsBytesAndLatenciesShouldBeRecorded() {
+        // Given
+        ClientMetrics metrics = new ClientMetrics();
+        InfluxDBClient client = InstrumentedClient.wrap(new StubInfluxDBClient().withWriteLatency(2).client(), metrics);
+
+        // When
+        client.writePoints(List.of(reading(1.0), reading(2.0), reading(3.0)));
+        client.writePoint(reading(4.0));
+        client.writeRecords(List.of("a value=1 1\nb value=2 2", "c,site=Zürich note=\"°C\" 3"));
+
+        // Then
+        ClientMetrics.Snapshot snapshot = metrics.snapshot();
+        ClientMetrics.OperationStats points = snapshot.operation("writePoints");
+        assertEquals(1, points.calls());
+        assertEquals(3, points.pointsWritten());
+        assertTrue(points.estimatedBytesWritten() > 0);
+        assertTrue(points.p50Nanos() >= 2_000_000, "Latency should include the stub's write delay");
+        assertEquals(1, snapshot.operation("writePoint").pointsWritten());
+
+        ClientMetrics.OperationStats records = snapshot.operation("writeRecords");
+        assertEquals(3, records.pointsWritten(), "Newline-separated lines should count as points");
+        assertEquals("a value=1 1\nb value=2 2".getBytes(StandardCharsets.UTF_8).length
+                + "c,site=Zürich note=\"°C\" 3".getBytes(StandardCharsets.UTF_8).length, records.estimatedBytesWritten());
+        assertEquals("x😀".getBytes(StandardCharsets.UTF_8).length, InstrumentedClient.utf8Length("x😀"));
+    }
+
+    @Test
+    @DisplayName("Given query stream, When consumed and closed, Then rows returned should be recorded")
+    void givenQueryStream_WhenConsumedAndClosed_ThenRowsShouldBeRecorded() {
+        // Given
+        ClientMetrics metrics = new ClientMetrics();
+        StubInfluxDBClient stub = new StubInfluxDBClient()
+                .respondToQueries(sql -> List.of(new Object[]{1.0}, new Object[]{2.0}, new Object[]{3.0}));
+        InfluxDBClient client = InstrumentedClient.wrap(stub.client(), metrics);
+
+        // When
+        long count;
+        try (Stream<Object[]> rows = client.query("SELECT value FROM temperature")) {
+            count = rows.count();
+        }
+
+        // Then
+        ClientMetrics.OperationStats query = metrics.snapshot().operation("query");
+        assertEquals(3, count);
+        assertEquals(1, query.calls());
+        assertEquals(3, query.rowsReturned());
+        assertEquals(0, query.errors());
+    }
+
+    @Test
+    @DisplayName("Given failing writes, When writing, Then errors should be counted by type and rethrown")
+    void givenFailingWrites_WhenWriting_ThenErrorsShouldBeCountedByType() {
+        // Given
+        ClientMetrics metrics = new ClientMetrics();
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+        InfluxDBClient client = InstrumentedClient.wrap(stub.client(), metrics);
+
+        // When
+        stub.failWritesWith(new InfluxDBApiHttpException("Too many requests", null, 429));
+        assertThrows(InfluxDBApiHttpException.class, () -> client.writePoint(reading(1.0)));
+        assertThrows(InfluxDBApiHttpException.class, () -> client.writePoint(reading(1.0)));
+        stub.failWritesWith(new IllegalStateException("Connection reset"));
+        assertThrows(IllegalStateException.class, () -> client.writePoint(reading(1.0)));
+
+        // Then
+        ClientMetrics.OperationStats stats = metrics.snapshot().operation("writePoint");
+        assertEquals(3, stats.errors());
+        assertEquals(Map.of("HTTP 429", 2L, "IllegalStateException", 1L), stats.errorsByType());
+        assertEquals(0, stats.pointsWritten());
+    }
+
+    @Test
+    @DisplayName("Given many recorded latencies, When taking snapshots, Then percentiles should be cumulative and ordered")
+    void givenManyRecordedLatencies_WhenTakingSnapshots_ThenPercentilesShouldBeCumulative() {
+        // Given
+        ClientMetrics metrics = new ClientMetrics();
+        for (int i = 1; i <= 1_000; i++) {
+            metrics.recordCall("ping", i * 1_000L);
+        }
+        metrics.snapshot();
+
+        // When
+        metrics.recordCall("ping", 5_000_000L);
+        ClientMetrics.OperationStats stats = metrics.snapshot().operation("ping");
+
+        // Then
+        assertEquals(1_001, stats.calls());
+        assertTrue(Math.abs(stats.p50Nanos() - 500_000) <= 1_000);
+        assertTrue(stats.p50Nanos() <= stats.p99Nanos() && stats.p99Nanos() <= stats.p999Nanos());
+        assertTrue(stats.maxNanos() >= 5_000_000 * 0.999);
+    }
+
+    @Test
+    @DisplayName("Given JMX exporter, When reading attributes, Then flattened metrics should be published")
+    void givenJmxExporter_WhenReadingAttributes_ThenFlattenedMetricsShouldBePublished() throws Exception {
+        // Given
+        ClientMetrics metrics = new ClientMetrics();
+        metrics.recordWrite("writePoints", 1_000_000L, 10, 500);
+
+        // When
+        ObjectName name;
+        Object points;
+        ReflectionException operation;
+        try (JmxMetricsExporter exporter = new JmxMetricsExporter(metrics, "jmx-test")) {
+            name = exporter.getObjectName();
+            points = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "writePoints.pointsWritten");
+            operation = assertThrows(ReflectionException.class, () -> ManagementFactory.getPlatformMBeanServer()
+                    .invoke(name, "reset", new Object[0], new String[0]));
+        }
+
+        // Then
+        assertEquals(10L, points);
+        assertInstanceOf(NoSuchMethodException.class, operation.getCause());
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBApiHttpException;
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ClientPool Tests")
+class ClientPoolTest {
+
+    private static final String DATABASE = "sensors";
+
+    private final Map<String, StubInfluxDBClient> stubs = new HashMap<>();
+
+    private ClientPool pool(ClientPool.Routing routing, ClientPool.HealthProbe probe, String... hosts) {
+        List<ClientPool.Endpoint> endpoints = new ArrayList<>();
+        for (String host : hosts) {
+            stubs.put(host, new StubInfluxDBClient());
+            endpoints.add(new ClientPool.Endpoint(host, DATABASE));
+        }
+        // Long probe interval; tests probe explicitly
+        return new ClientPool(endpoints, endpoint -> stubs.get(endpoint.host()).client(), routing, probe,
+                Duration.ofHours(1));
+    }
+
+    private static Point reading(String sensor, double value) {
+        return Point.measurement("temperature")
+                .setTag("sensor_id", sensor)
+                .setField("value", value)
+                .setTimestamp(Instant.now());
+    }
+
+    private static List<Point> readings(int sensors) {
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < sensors; i++) {
+            points.add(reading("TH" + i, i));
+        }
+        return points;
+    }
+
+    @Test
+    @DisplayName("Given round-robin pool, When writing batches, Then whole batches should alternate between endpoints")
+    void givenRoundRobinPool_WhenWritingBatches_ThenWholeBatchesShouldAlternate() throws Exception {
+        // Given
+        try (ClientPool pool = pool(ClientPool.Routing.ROUND_ROBIN, ClientPool.QUERY_PROBE, "a", "b")) {
+
+            // When
+            for (int i = 0; i < 4; i++) {
+                pool.writePoints(DATABASE, readings(10));
+            }
+
+            // Then
+            assertEquals(2, stubs.get("a").getWriteCalls());
+            assertEquals(2, stubs.get("b").getWriteCalls());
+            assertEquals(20, stubs.get("a").getPointCount());
+            assertEquals(20, stubs.get("b").getPointCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Given series-hash pool, When writing the same series repeatedly, Then each series should stick to one endpoint")
+    void givenSeriesHashPool_WhenWritingRepeatedly_ThenSeriesShouldStickToOneEndpoint() throws Exception {
+        // Given
+        try (ClientPool pool = pool(ClientPool.Routing.SERIES_HASH, ClientPool.QUERY_PROBE, "a", "b", "c")) {
+
+            // When
+            pool.writePoints(DATABASE, readings(60));
+            pool.writePoints(DATABASE, readings(60));
+
+            // Then
+            int total = 0;
+            for (StubInfluxDBClient stub : stubs.values()) {
+                Map<String, Integer> seen = new HashMap<>();
+                for (List<Point> batch : stub.getPointBatches()) {
+                    for (Point point : batch) {
+                        seen.merge(point.getTag("sensor_id"), 1, Integer::sum);
+                    }
+                }
+                assertFalse(seen.isEmpty(), "Every endpoint should own some series");
+                seen.values().forEach(count -> assertEquals(2, (int) count, "Both writes of a series should land together"));
+                total += seen.size();
+            }
+            assertEquals(60, total);
+        }
+    }
+
+    @Test
+    @DisplayName("Given failing endpoint, When writing, Then its share should fail over and it should be marked unhealthy")
+    void givenFailingEndpoint_WhenWriting_ThenShareShouldFailOver() throws Exception {
+        // Given
+        try (ClientPool pool = pool(ClientPool.Routing.SERIES_HASH, ClientPool.QUERY_PROBE, "a", "b")) {
+            stubs.get("a").failWritesWith(new IllegalStateException("Connection refused"));
+
+            // When
+            pool.writePoints(DATABASE, readings(40));
+            pool.writePoints(DATABASE, readings(40));
+
+            // Then
+            assertEquals(80, stubs.get("b").getPointCount());
+            assertEquals(0, stubs.get("a").getPointCount());
+            ClientPool.EndpointStatus a = pool.status().get(0);
+            assertFalse(a.healthy());
+            assertEquals(1, a.failures(), "Unhealthy endpoint should not be retried before a probe");
+        }
+    }
+
+    @Test
+    @DisplayName("Given unhealthy endpoint, When probe succeeds, Then endpoint should receive writes again")
+    void givenUnhealthyEndpoint_WhenProbeSucceeds_ThenEndpointShouldReceiveWritesAgain() throws Exception {
+        // Given
+        AtomicBoolean up = new AtomicBoolean(false);
+        try (ClientPool pool = pool(ClientPool.Routing.ROUND_ROBIN, client -> up.get(), "a", "b")) {
+            stubs.get("a").failWritesWith(new IllegalStateException("Connection refused"));
+            pool.writePoints(DATABASE, readings(1));
+            pool.writePoints(DATABASE, readings(1));
+            pool.probeUnhealthy();
+            assertFalse(pool.status().get(0).healthy(), "Failed probe should keep endpoint unhealthy");
+
+            // When
+            stubs.get("a").failWritesWith(null);
+            up.set(true);
+            pool.probeUnhealthy();
+            for (int i = 0; i < 4; i++) {
+                pool.writePoints(DATABASE, readings(1));
+            }
+
+            // Then
+            assertTrue(pool.status().get(0).healthy());
+            assertEquals(2, stubs.get("a").getPointCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Given pooled client view, When writing and closing, Then writes should be routed and clients left open")
+    void givenPooledClientView_WhenWritingAndClosing_ThenWritesShouldBeRoutedAndClientsLeftOpen() throws Exception {
+        // Given
+        try (ClientPool pool = pool(ClientPool.Routing.ROUND_ROBIN, ClientPool.QUERY_PROBE, "a", "b")) {
+            InfluxDBClient client = pool.asClient(DATABASE);
+
+            // When
+            client.writePoint(reading("TH01", 1.0));
+            client.writeRecord("temperature,sensor_id=TH01 value=2 1");
+            client.close();
+
+            // Then
+            assertEquals(1, stubs.get("a").getWriteCalls());
+            assertEquals(1, stubs.get("b").getWriteCalls(), "Round-robin should alternate across write calls");
+            assertFalse(stubs.get("a").isClosed());
+            assertFalse(stubs.get("b").isClosed());
+            assertThrows(IllegalArgumentException.class, () -> pool.asClient("unknown"));
+        }
+        assertTrue(stubs.get("a").isClosed());
+        assertTrue(stubs.get("b").isClosed());
+    }
+
+    @Test
+    @DisplayName("Given an endpoint rejecting a malformed write, When writing, Then the rejection should be thrown without failing over")
+    void givenEndpointRejectingWrite_WhenWriting_ThenRejectionShouldBeThrownWithoutFailover() throws Exception {
+        // Given
+        try (ClientPool pool = pool(ClientPool.Routing.ROUND_ROBIN, ClientPool.QUERY_PROBE, "a", "b")) {
+            stubs.get("a").failWritesWith(new InfluxDBApiHttpException("Bad request", null, 400));
+            stubs.get("b").failWritesWith(new InfluxDBApiHttpException("Bad request", null, 422));
+
+            // When
+            InfluxDBApiHttpException first = assertThrows(InfluxDBApiHttpException.class,
+                    () -> pool.writePoints(DATABASE, readings(10)));
+            assertThrows(InfluxDBApiHttpException.class, () -> pool.writePoints(DATABASE, readings(10)));
+
+            // Then
+            assertEquals(400, first.statusCode());
+            assertEquals(1, stubs.get("a").getWriteCalls());
+            assertEquals(1, stubs.get("b").getWriteCalls());
+            pool.status().forEach(status -> assertTrue(status.healthy()));
+            assertTrue(ClientPool.isEndpointFailure(new InfluxDBApiHttpException("Busy", null, 429)));
+            assertTrue(ClientPool.isEndpointFailure(new CircuitBreaker.OpenException("a")));
+        }
+    }
+
+    @Test
+    @DisplayName("Given every endpoint failing, When writing, Then the last failure should be thrown")
+    void givenEveryEndpointFailing_WhenWriting_ThenLastFailureShouldBeThrown() throws Exception {
+        // Given
+        try (ClientPool pool = pool(ClientPool.Routing.SERIES_HASH, ClientPool.QUERY_PROBE, "a", "b")) {
+            stubs.get("a").failWritesWith(new IllegalStateException("a down"));
+            stubs.get("b").failWritesWith(new IllegalStateException("b down"));
+
+            // When / Then
+            assertThrows(IllegalStateException.class, () -> pool.writePoints(DATABASE, readings(10)));
+            pool.status().forEach(status -> assertFalse(status.healthy()));
+        }
+    }
+
+    @Test
+    @DisplayName("Given escaped line protocol, When hashing records, Then only the series key should count")
+    void givenEscapedLineProtocol_WhenHashingRecords_ThenOnlySeriesKeyShouldCount() {
+        // When / Then
+        assertEquals(ClientPool.seriesHash("cpu,host=a\\ b value=1 1"),
+                ClientPool.seriesHash("cpu,host=a\\ b value=2 2\ncpu,host=c value=3 3"));
+        assertNotEquals(ClientPool.seriesHash("cpu,host=a\\ b value=1 1"),
+                ClientPool.seriesHash("cpu,host=a value=1 1"));
+    }
+}
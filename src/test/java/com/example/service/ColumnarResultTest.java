@@ -0,0 +1,199 @@
+package com.example.service;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.TimeStampNanoVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ColumnarResult Tests")
+class ColumnarResultTest {
+
+    private BufferAllocator allocator;
+    private final List<VectorSchemaRoot> roots = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        allocator = new RootAllocator();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roots.forEach(VectorSchemaRoot::close);
+        allocator.close();
+    }
+
+    /**
+     * Builds a temperature batch; a null value is written as an Arrow null
+     */
+    private VectorSchemaRoot batch(long[] times, String[] sensorIds, Double[] values) {
+        TimeStampNanoVector time = new TimeStampNanoVector("time", allocator);
+        VarCharVector sensorId = new VarCharVector("sensor_id", allocator);
+        Float8Vector value = new Float8Vector("value", allocator);
+        time.allocateNew();
+        sensorId.allocateNew();
+        value.allocateNew();
+
+        for (int i = 0; i < times.length; i++) {
+            time.setSafe(i, times[i]);
+            sensorId.setSafe(i, sensorIds[i].getBytes(StandardCharsets.UTF_8));
+            if (values[i] == null) {
+                value.setNull(i);
+            } else {
+                value.setSafe(i, values[i]);
+            }
+        }
+
+        VectorSchemaRoot root = VectorSchemaRoot.of(time, sensorId, value);
+        root.setRowCount(times.length);
+        roots.add(root);
+        return root;
+    }
+
+    @Test
+    @DisplayName("Given several record batches, When collecting, Then columns should hold all rows in order")
+    void givenSeveralRecordBatches_WhenCollecting_ThenColumnsShouldHoldAllRows() {
+        // Given
+        VectorSchemaRoot first = batch(new long[]{1_000L, 2_000L}, new String[]{"TH01", "TH02"}, new Double[]{21.5, 22.5});
+        VectorSchemaRoot second = batch(new long[]{3_000L}, new String[]{"TH01"}, new Double[]{23.0});
+
+        // When
+        ColumnarResult result = ColumnarResult.from(Stream.of(first, second));
+
+        // Then
+        assertEquals(3, result.rowCount());
+        assertEquals(List.of("time", "sensor_id", "value"), result.columnNames());
+        assertArrayEquals(new long[]{1_000L, 2_000L, 3_000L}, result.longColumn("time").values());
+        assertArrayEquals(new double[]{21.5, 22.5, 23.0}, result.doubleColumn("value").values());
+        assertTrue(result.longColumn("time").isTimestamp());
+    }
+
+    @Test
+    @DisplayName("Given repeated tag values, When collecting, Then string column should be dictionary-encoded")
+    void givenRepeatedTagValues_WhenCollecting_ThenStringColumnShouldBeDictionaryEncoded() {
+        // Given
+        VectorSchemaRoot root = batch(new long[]{1, 2, 3, 4},
+                new String[]{"TH01", "TH02", "TH01", "TH01"}, new Double[]{1.0, 2.0, 3.0, 4.0});
+
+        // When
+        StringColumn sensorId = ColumnarResult.from(Stream.of(root)).stringColumn("sensor_id");
+
+        // Then
+        assertEquals(List.of("TH01", "TH02"), sensorId.dictionary());
+        assertArrayEquals(new int[]{0, 1, 0, 0}, sensorId.codes());
+        assertEquals("TH02", sensorId.get(1));
+    }
+
+    @Test
+    @DisplayName("Given many distinct tag values, When collecting, Then dictionary should grow without losing values")
+    void givenManyDistinctTagValues_WhenCollecting_ThenDictionaryShouldGrow() {
+        // Given
+        int rows = 500;
+        long[] times = new long[rows];
+        String[] sensorIds = new String[rows];
+        Double[] values = new Double[rows];
+        for (int i = 0; i < rows; i++) {
+            times[i] = i;
+            sensorIds[i] = "sensor-" + (i % 200);
+            values[i] = (double) i;
+        }
+
+        // When
+        StringColumn sensorId = ColumnarResult.from(Stream.of(batch(times, sensorIds, values))).stringColumn("sensor_id");
+
+        // Then
+        assertEquals(200, sensorId.dictionary().size());
+        for (int i = 0; i < rows; i++) {
+            assertEquals(sensorIds[i], sensorId.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Given null values, When aggregating, Then nulls should be skipped")
+    void givenNullValues_WhenAggregating_ThenNullsShouldBeSkipped() {
+        // Given
+        VectorSchemaRoot root = batch(new long[]{1, 2, 3}, new String[]{"a", "a", "a"}, new Double[]{10.0, null, 20.0});
+
+        // When
+        DoubleColumn value = ColumnarResult.from(Stream.of(root)).doubleColumn("value");
+
+        // Then
+        assertTrue(value.isNull(1));
+        assertEquals(2, value.count());
+        assertEquals(30.0, value.sum());
+        assertEquals(15.0, value.average());
+        assertEquals(10.0, value.min());
+        assertEquals(20.0, value.max());
+    }
+
+    @Test
+    @DisplayName("Given a schema from an integer column, When the column comes back as a timestamp, Then the schema should be rediscovered")
+    void givenSchemaFromIntegerColumn_WhenColumnComesBackAsTimestamp_ThenSchemaShouldBeRediscovered() {
+        // Given
+        BigIntVector integers = new BigIntVector("time", allocator);
+        integers.allocateNew();
+        integers.setSafe(0, 7L);
+        VectorSchemaRoot integerBatch = VectorSchemaRoot.of(integers);
+        integerBatch.setRowCount(1);
+        roots.add(integerBatch);
+        ColumnarResult.Schema integerSchema = ColumnarResult.from(Stream.of(integerBatch)).schema();
+
+        TimeStampNanoVector timestamps = new TimeStampNanoVector("time", allocator);
+        timestamps.allocateNew();
+        timestamps.setSafe(0, 1_700_000_000_000_000_000L);
+        VectorSchemaRoot timestampBatch = VectorSchemaRoot.of(timestamps);
+        timestampBatch.setRowCount(1);
+        roots.add(timestampBatch);
+
+        // When
+        ColumnarResult result = ColumnarResult.from(Stream.of(timestampBatch), integerSchema);
+
+        // Then
+        assertNotSame(integerSchema, result.schema());
+        assertTrue(result.longColumn("time").isTimestamp());
+        assertEquals(1_700_000_000_000_000_000L, result.longColumn("time").get(0));
+        assertSame(integerSchema, ColumnarResult.from(Stream.of(integerBatch), integerSchema).schema());
+    }
+
+    @Test
+    @DisplayName("Given wrong column type, When requesting typed column, Then should throw IllegalArgumentException")
+    void givenWrongColumnType_WhenRequestingTypedColumn_ThenShouldThrow() {
+        // Given
+        ColumnarResult result = ColumnarResult.from(Stream.of(batch(new long[]{1}, new String[]{"a"}, new Double[]{1.0})));
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> result.doubleColumn("sensor_id"));
+        assertThrows(IllegalArgumentException.class, () -> result.column("missing"));
+    }
+
+    @Test
+    @DisplayName("Given client batch stream, When querying through the service, Then typed columns should be returned")
+    void givenClientBatchStream_WhenQueryingThroughService_ThenTypedColumnsShouldBeReturned() throws InterruptedException {
+        // Given
+        VectorSchemaRoot root = batch(new long[]{5}, new String[]{"TH01"}, new Double[]{19.5});
+        StubInfluxDBClient stub = new StubInfluxDBClient().respondToBatchQueries(sql -> List.of(root));
+
+        // When
+        ColumnarResult result;
+        try (InfluxDBService service = new InfluxDBService(stub.client())) {
+            result = service.queryColumnar("SELECT time, sensor_id, value FROM temperature");
+        }
+
+        // Then
+        assertEquals(1, result.rowCount());
+        assertEquals(19.5, result.doubleColumn("value").get(0));
+    }
+}
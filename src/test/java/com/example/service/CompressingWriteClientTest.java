@@ -0,0 +1,81 @@
+package com.example.service;
+
+import com.example.load.StubInfluxDBServer;
+import com.influxdb.v3.client.InfluxDBApiHttpException;
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CompressingWriteClient Tests")
+class CompressingWriteClientTest {
+
+    private static StubInfluxDBServer.Behaviour behaviour(double errorRate) {
+        return new StubInfluxDBServer.Behaviour(Duration.ZERO, Duration.ZERO, Duration.ZERO, 0.0, errorRate, 4, 10);
+    }
+
+    private static InfluxDBClient wrap(StubInfluxDBClient delegate, StubInfluxDBServer server,
+                                       WriteCompression compression) {
+        return CompressingWriteClient.wrap(delegate.client(), server.httpUrl(), "sensors", "token".toCharArray(),
+                Duration.ofSeconds(5), compression);
+    }
+
+    @Test
+    @DisplayName("Given points and records, When writing, Then they should reach the server compressed above the threshold")
+    void givenPointsAndRecords_WhenWriting_ThenTheyShouldReachServerCompressedAboveThreshold() throws Exception {
+        // Given
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            points.add(Point.measurement("temperature").setTag("sensor_id", "TH" + i % 10)
+                    .setField("value", 20.0 + i % 7).setTimestamp(Instant.ofEpochSecond(1_714_558_530L + i)));
+        }
+        points.add(Point.measurement("empty"));
+        StubInfluxDBClient delegate = new StubInfluxDBClient();
+        WriteCompression compression = new WriteCompression(1_000, 6);
+
+        try (StubInfluxDBServer server = new StubInfluxDBServer(behaviour(0.0))) {
+            InfluxDBClient client = wrap(delegate, server, compression);
+
+            // When
+            client.writePoints(points);
+            client.writeRecord("humidity,sensor_id=HH01 value=55.1 1");
+            client.writeRecords(List.of("humidity,sensor_id=HH01 value=55.2 2", "humidity,sensor_id=HH01 value=55.3 3"));
+            client.query("SELECT 1").close();
+
+            // Then
+            assertEquals(503, server.getPointsReceived(), "Points without fields should be skipped");
+            assertEquals(3, server.getWriteRequests());
+            assertEquals(1, compression.getCompressedRequests());
+            assertEquals(compression.getRawBytes(), server.getBytesReceived());
+            assertEquals(compression.getSentBytes(), server.getWireBytesReceived());
+            assertTrue(server.getWireBytesReceived() < server.getBytesReceived() / 3);
+
+            assertTrue(delegate.getPointBatches().isEmpty(), "Writes should bypass the client library");
+            assertEquals(List.of("SELECT 1"), delegate.getQueries(), "Queries should go to the client library");
+        }
+    }
+
+    @Test
+    @DisplayName("Given failing server, When writing, Then the HTTP status should surface as InfluxDBApiHttpException")
+    void givenFailingServer_WhenWriting_ThenStatusShouldSurface() throws Exception {
+        // Given
+        try (StubInfluxDBServer server = new StubInfluxDBServer(behaviour(1.0))) {
+            InfluxDBClient client = wrap(new StubInfluxDBClient(), server, new WriteCompression());
+
+            // When
+            InfluxDBApiHttpException error = assertThrows(InfluxDBApiHttpException.class,
+                    () -> client.writeRecord("humidity,sensor_id=HH01 value=55.1 1"));
+
+            // Then
+            assertEquals(503, error.statusCode());
+            assertEquals("HTTP 503", ClientMetrics.errorType(error));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.service;
+
+import com.influxdb.v3.client.Point;
+import com.influxdb.v3.client.write.WritePrecision;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ContinuousQueryEngine Tests")
+class ContinuousQueryEngineTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long BASE = 1_714_558_500L * SECOND;
+
+    private final ContinuousQueryEngine engine = new ContinuousQueryEngine(Duration.ZERO, 1_024);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        engine.close();
+    }
+
+    private static Point reading(String location, double value, long timeNanos) {
+        return Point.measurement("temperature")
+                .setTag("location", location)
+                .setTag("sensor_id", "TH01")
+                .setField("value", value)
+                .setTimestamp(timeNanos, WritePrecision.NS);
+    }
+
+    /**
+     * Collects every result until the publisher completes
+     */
+    private static final class Collector implements Flow.Subscriber<ContinuousQueryEngine.Result> {
+
+        final List<ContinuousQueryEngine.Result> results = new CopyOnWriteArrayList<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ContinuousQueryEngine.Result item) {
+            results.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        List<ContinuousQueryEngine.Result> awaitAll() throws InterruptedException {
+            assertTrue(completed.await(5, TimeUnit.SECONDS));
+            return results;
+        }
+    }
+
+    @Test
+    @DisplayName("Given a tumbling AVG by location, When a later point closes the window, Then averages per location should be published")
+    void givenTumblingAvgByLocation_WhenWindowCloses_ThenAveragesPerLocationShouldBePublished() throws InterruptedException {
+        // Given
+        ContinuousQueryEngine.ContinuousQuery query = engine.register(ContinuousQueryEngine.Definition.tumbling(
+                "temperature", "value", ContinuousQueryEngine.Aggregate.AVG, Duration.ofMinutes(1), "location"));
+        Collector collector = new Collector();
+        query.subscribe(collector);
+
+        // When
+        engine.accept(reading("warehouse", 20.0, BASE + SECOND));
+        engine.accept(reading("warehouse", 24.0, BASE + 30 * SECOND));
+        engine.accept(reading("office", 21.0, BASE + 40 * SECOND));
+        engine.accept(reading("office", 30.0, BASE + 61 * SECOND));
+        query.close();
+
+        // Then
+        Map<String, ContinuousQueryEngine.Result> firstWindow = collector.awaitAll().stream()
+                .filter(result -> result.windowStartNanos() == BASE)
+                .collect(Collectors.toMap(result -> result.group().get("location"), result -> result));
+        assertEquals(22.0, firstWindow.get("warehouse").value(), 1e-9);
+        assertEquals(2, firstWindow.get("warehouse").count());
+        assertEquals(21.0, firstWindow.get("office").value(), 1e-9);
+        assertTrue(firstWindow.values().stream().allMatch(ContinuousQueryEngine.Result::complete));
+        assertEquals(BASE + 60 * SECOND, firstWindow.get("office").windowEndNanos());
+        assertEquals(3, collector.results.size());
+    }
+
+    @Test
+    @DisplayName("Given a sliding COUNT window, When the watermark advances, Then each window should count the panes it covers")
+    void givenSlidingCountWindow_WhenWatermarkAdvances_ThenEachWindowShouldCountItsPanes() throws InterruptedException {
+        // Given
+        ContinuousQueryEngine.ContinuousQuery query = engine.register(ContinuousQueryEngine.Definition.sliding(
+                "temperature", "value", ContinuousQueryEngine.Aggregate.COUNT, Duration.ofSeconds(30),
+                Duration.ofSeconds(10)));
+        Collector collector = new Collector();
+        query.subscribe(collector);
+
+        // When
+        engine.accept(reading("warehouse", 20.0, BASE + 5 * SECOND));
+        engine.accept(reading("office", 21.0, BASE + 15 * SECOND));
+        engine.accept(reading("warehouse", 22.0, BASE + 25 * SECOND));
+        engine.advanceTo(BASE + 120 * SECOND);
+        query.close();
+
+        // Then
+        Map<Long, Double> counts = collector.awaitAll().stream().collect(Collectors.toMap(
+                result -> (result.windowEndNanos() - BASE) / SECOND, ContinuousQueryEngine.Result::value));
+        assertEquals(Map.of(10L, 1.0, 20L, 2.0, 30L, 3.0, 40L, 2.0, 50L, 1.0), counts);
+        assertEquals(3, query.getUpdates());
+        assertEquals(0, query.getGroupCount());
+    }
+
+    @Test
+    @DisplayName("Given an every-update trigger, When points arrive, Then partial results should be published per point")
+    void givenEveryUpdateTrigger_WhenPointsArrive_ThenPartialResultsShouldBePublishedPerPoint() throws InterruptedException {
+        // Given
+        ContinuousQueryEngine.ContinuousQuery query = engine.register(ContinuousQueryEngine.Definition.tumbling(
+                        "temperature", "value", ContinuousQueryEngine.Aggregate.MAX, Duration.ofMinutes(1), "location")
+                .withTrigger(ContinuousQueryEngine.Trigger.ON_EVERY_UPDATE));
+        Collector collector = new Collector();
+        query.subscribe(collector);
+
+        // When
+        engine.accept(reading("warehouse", 20.0, BASE + SECOND));
+        engine.accept(reading("warehouse", 26.5, BASE + 2 * SECOND));
+        engine.accept(reading("warehouse", 22.0, BASE + 3 * SECOND));
+        List<ContinuousQueryEngine.Result> snapshot = query.snapshot();
+        query.close();
+
+        // Then
+        List<ContinuousQueryEngine.Result> results = collector.awaitAll();
+        assertEquals(List.of(20.0, 26.5, 26.5, 26.5), results.stream().map(ContinuousQueryEngine.Result::value).toList());
+        assertFalse(results.get(0).complete());
+        assertTrue(results.get(3).complete());
+        assertEquals(1, snapshot.size());
+        assertEquals(26.5, snapshot.get(0).value(), 1e-9);
+        assertEquals(3, snapshot.get(0).count());
+    }
+
+    @Test
+    @DisplayName("Given a closed window, When a point for it arrives late, Then it should be counted as late and ignored")
+    void givenClosedWindow_WhenPointArrivesLate_ThenItShouldBeCountedAsLate() {
+        // Given
+        ContinuousQueryEngine.ContinuousQuery query = engine.register(ContinuousQueryEngine.Definition.tumbling(
+                "temperature", "value", ContinuousQueryEngine.Aggregate.SUM, Duration.ofSeconds(10)));
+        engine.accept(reading("warehouse", 1.0, BASE + SECOND));
+        engine.accept(reading("warehouse", 2.0, BASE + 15 * SECOND));
+
+        // When
+        engine.accept(reading("warehouse", 100.0, BASE + 2 * SECOND));
+        engine.accept("temperature", Map.of("location", "office"), "value", BASE + 16 * SECOND, 3.0);
+
+        // Then
+        assertEquals(1, query.getLatePoints());
+        assertEquals(3, query.getUpdates());
+        assertEquals(5.0, query.snapshot().get(0).value(), 1e-9);
+        assertEquals(4, engine.getPointsAccepted());
+    }
+}
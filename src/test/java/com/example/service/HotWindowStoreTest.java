@@ -0,0 +1,152 @@
+package com.example.service;
+
+import com.influxdb.v3.client.Point;
+import com.influxdb.v3.client.write.WritePrecision;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("HotWindowStore Tests")
+class HotWindowStoreTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long BASE = 1_714_558_500L * SECOND;
+    private static final Map<String, String> WAREHOUSE = Map.of("location", "warehouse", "sensor_id", "TH01");
+
+    private final SeriesRegistry registry = new SeriesRegistry();
+
+    private static Point reading(String sensorId, double value, long timeNanos) {
+        return Point.measurement("temperature")
+                .setTag("location", "warehouse")
+                .setTag("sensor_id", sensorId)
+                .setField("value", value)
+                .setTimestamp(timeNanos, WritePrecision.NS);
+    }
+
+    /**
+     * Samples about a second apart with nanosecond jitter, a random walk with repeats and some extreme values
+     */
+    private static List<HotWindowStore.Sample> samples(int count) {
+        Random random = new Random(42);
+        List<HotWindowStore.Sample> samples = new ArrayList<>();
+        long time = BASE;
+        double value = 21.5;
+        for (int i = 0; i < count; i++) {
+            time += SECOND + (i % 10 == 0 ? random.nextInt(50_000_000) : 0);
+            if (i % 3 != 0) {
+                value += random.nextGaussian() / 10;
+            }
+            double stored = switch (i % 97) {
+                case 13 -> -0.0;
+                case 29 -> Double.MAX_VALUE;
+                case 31 -> Double.NaN;
+                default -> value;
+            };
+            samples.add(new HotWindowStore.Sample(time, stored));
+        }
+        return samples;
+    }
+
+    @Test
+    @DisplayName("Given irregular samples over many blocks, When scanning a range, Then every sample should round-trip exactly")
+    void givenIrregularSamples_WhenScanningRange_ThenEverySampleShouldRoundTrip() {
+        // Given
+        HotWindowStore store = new HotWindowStore(registry, Duration.ofDays(1), 1024 * 1024, 256);
+        int seriesId = registry.register("temperature", WAREHOUSE);
+        List<HotWindowStore.Sample> written = samples(2_000);
+        written.forEach(sample -> assertTrue(store.record(seriesId, "value", sample.timeNanos(), sample.value())));
+
+        // When
+        List<HotWindowStore.Sample> all = store.range("temperature", WAREHOUSE, "value",
+                Instant.ofEpochSecond(0, BASE), Instant.ofEpochSecond(0, BASE + 3_000 * SECOND));
+        List<HotWindowStore.Sample> middle = store.range("temperature", WAREHOUSE, "value",
+                written.get(500).time(), written.get(600).time());
+
+        // Then
+        assertEquals(written.size(), all.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(written.get(i).timeNanos(), all.get(i).timeNanos());
+            assertEquals(Double.doubleToRawLongBits(written.get(i).value()),
+                    Double.doubleToRawLongBits(all.get(i).value()));
+        }
+        assertEquals(written.subList(500, 600), middle);
+        HotWindowStore.Stats stats = store.stats();
+        assertTrue(stats.blocks() > 1);
+        assertTrue(stats.bitsPerSample() < 64, "compressed below a raw double: " + stats.bitsPerSample());
+    }
+
+    @Test
+    @DisplayName("Given several series, When asking for the latest readings, Then the newest should come first across series")
+    void givenSeveralSeries_WhenAskingForLatest_ThenNewestShouldComeFirst() {
+        // Given
+        HotWindowStore store = new HotWindowStore(registry, Duration.ofDays(1), 1024 * 1024, 128);
+        for (int i = 0; i < 300; i++) {
+            store.record(reading("TH0" + (i % 3), i, BASE + i * SECOND));
+        }
+
+        // When
+        List<HotWindowStore.Reading> latest = store.latest("temperature", "value", 4);
+        List<HotWindowStore.Sample> latestOfOne = store.latest("temperature",
+                Map.of("location", "warehouse", "sensor_id", "TH01"), "value", 3);
+        store.record(reading("TH01", -1.0, BASE));
+
+        // Then
+        assertEquals(List.of(299.0, 298.0, 297.0, 296.0),
+                latest.stream().map(HotWindowStore.Reading::value).toList());
+        assertEquals("TH02", latest.get(0).tags().get("sensor_id"));
+        assertEquals(List.of(298.0, 295.0, 292.0),
+                latestOfOne.stream().map(HotWindowStore.Sample::value).toList());
+        assertEquals(1, store.getOutOfOrder(), "older than the newest sample of its series");
+    }
+
+    @Test
+    @DisplayName("Given a retention window, When newer samples arrive, Then older samples should be freed and hidden")
+    void givenRetentionWindow_WhenNewerSamplesArrive_ThenOlderSamplesShouldBeFreed() {
+        // Given
+        HotWindowStore store = new HotWindowStore(registry, Duration.ofSeconds(60), 64 * 4, 64);
+        int seriesId = registry.register("temperature", WAREHOUSE);
+
+        // When
+        for (int i = 0; i < 600; i++) {
+            store.record(seriesId, "value", BASE + i * SECOND, 20.0);
+        }
+        List<HotWindowStore.Sample> visible = store.range("temperature", WAREHOUSE, "value",
+                Instant.ofEpochSecond(0, BASE), Instant.ofEpochSecond(0, BASE + 600 * SECOND));
+
+        // Then
+        assertEquals(61, visible.size());
+        assertEquals(BASE + 539 * SECOND, visible.get(0).timeNanos());
+        HotWindowStore.Stats stats = store.stats();
+        assertTrue(stats.blocksExpired() > 0);
+        assertTrue(stats.bytesUsed() <= stats.budgetBytes());
+        assertEquals(0, stats.blocksEvicted());
+    }
+
+    @Test
+    @DisplayName("Given a full memory budget, When more series write, Then the oldest blocks should be evicted within the budget")
+    void givenFullMemoryBudget_WhenMoreSeriesWrite_ThenOldestBlocksShouldBeEvicted() {
+        // Given
+        HotWindowStore store = new HotWindowStore(registry, Duration.ofDays(1), 64 * 4, 64);
+
+        // When
+        for (int i = 0; i < 200; i++) {
+            store.record(reading("TH0" + (i % 4), 20.0 + i, BASE + i * SECOND));
+        }
+
+        // Then
+        HotWindowStore.Stats stats = store.stats();
+        assertTrue(stats.blocksEvicted() > 0);
+        assertEquals(stats.budgetBytes(), stats.bytesUsed());
+        assertEquals(List.of(219.0), store.latest("temperature",
+                Map.of("location", "warehouse", "sensor_id", "TH03"), "value", 1).stream()
+                .map(HotWindowStore.Sample::value).toList());
+    }
+}
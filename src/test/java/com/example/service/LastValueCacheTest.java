@@ -0,0 +1,181 @@
+package com.example.service;
+
+import com.influxdb.v3.client.Point;
+import com.influxdb.v3.client.write.WritePrecision;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.TimeStampNanoVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LastValueCache Tests")
+class LastValueCacheTest {
+
+    private static final Map<String, String> WAREHOUSE = Map.of("location", "warehouse", "sensor_id", "TH01");
+    private static final Map<String, String> OFFICE = Map.of("location", "office", "sensor_id", "TH02");
+
+    private BufferAllocator allocator;
+    private final List<VectorSchemaRoot> roots = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        allocator = new RootAllocator();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roots.forEach(VectorSchemaRoot::close);
+        allocator.close();
+    }
+
+    private static Point reading(Map<String, String> tags, double value, long timeNanos) {
+        return Point.measurement("temperature").setTags(tags).setField("value", value)
+                .setTimestamp(timeNanos, WritePrecision.NS);
+    }
+
+    private VectorSchemaRoot latestBatch(String[] locations, String[] sensorIds, double[] values, long[] times) {
+        VarCharVector location = new VarCharVector("location", allocator);
+        VarCharVector sensorId = new VarCharVector("sensor_id", allocator);
+        Float8Vector value = new Float8Vector("value", allocator);
+        TimeStampNanoVector time = new TimeStampNanoVector("time", allocator);
+        location.allocateNew();
+        sensorId.allocateNew();
+        value.allocateNew();
+        time.allocateNew();
+        for (int i = 0; i < times.length; i++) {
+            location.setSafe(i, locations[i].getBytes(StandardCharsets.UTF_8));
+            sensorId.setSafe(i, sensorIds[i].getBytes(StandardCharsets.UTF_8));
+            value.setSafe(i, values[i]);
+            time.setSafe(i, times[i]);
+        }
+        VectorSchemaRoot root = VectorSchemaRoot.of(location, sensorId, value, time);
+        root.setRowCount(times.length);
+        roots.add(root);
+        return root;
+    }
+
+    @Test
+    @DisplayName("Given out-of-order points, When recording, Then the newest reading per series should win")
+    void givenOutOfOrderPoints_WhenRecording_ThenNewestReadingPerSeriesShouldWin() {
+        // Given
+        LastValueCache cache = new LastValueCache(new SeriesRegistry());
+
+        // When
+        cache.recordAll(List.of(reading(WAREHOUSE, 23.2, 2_000L), reading(WAREHOUSE, 22.0, 1_000L),
+                reading(OFFICE, 21.8, 1_500L)));
+        cache.record(reading(WAREHOUSE, 23.5, 2_000L));
+
+        // Then
+        LastValueCache.LastValue warehouse = cache.latest("temperature", WAREHOUSE, "value");
+        assertEquals(23.5, warehouse.value(), "Equal timestamps should replace the value");
+        assertEquals(2_000L, warehouse.timestampNanos());
+        assertEquals(WAREHOUSE, warehouse.tags());
+        assertNull(cache.latest("temperature", Map.of("location", "lab"), "value"));
+        assertNull(cache.latest("temperature", WAREHOUSE, "humidity"));
+
+        assertEquals(List.of(2_000L, 1_500L), cache.latest("temperature", "value").stream()
+                .map(LastValueCache.LastValue::timestampNanos).toList());
+
+        LastValueCache.Stats stats = cache.stats();
+        assertEquals(3, stats.updates());
+        assertEquals(1, stats.staleUpdates());
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(2, stats.entries());
+    }
+
+    @Test
+    @DisplayName("Given concurrent writers, When recording interleaved timestamps, Then the highest timestamp should be kept")
+    void givenConcurrentWriters_WhenRecordingInterleavedTimestamps_ThenHighestTimestampShouldBeKept() throws Exception {
+        // Given
+        SeriesRegistry registry = new SeriesRegistry();
+        LastValueCache cache = new LastValueCache(registry);
+        int series = registry.register("temperature", WAREHOUSE);
+        int writers = 8;
+        int perWriter = 10_000;
+
+        // When
+        try (ExecutorService executor = Executors.newFixedThreadPool(writers)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        long time = (long) i * writers + writer;
+                        cache.record(series, "value", time, (double) time);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        // Then
+        long newest = (long) perWriter * writers - 1;
+        LastValueCache.LastValue latest = cache.latest("temperature", WAREHOUSE, "value");
+        assertEquals(newest, latest.timestampNanos());
+        assertEquals((double) newest, latest.value());
+        assertEquals((long) writers * perWriter, cache.stats().updates() + cache.stats().staleUpdates());
+    }
+
+    @Test
+    @DisplayName("Given warm-up query, When warming, Then the latest reading per series should load without hiding newer writes")
+    void givenWarmUpQuery_WhenWarming_ThenLatestReadingsShouldLoadWithoutHidingNewerWrites() {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient().respondToBatchQueries(sql -> List.of(latestBatch(
+                new String[]{"warehouse", "office"}, new String[]{"TH01", "TH02"},
+                new double[]{22.9, 21.1}, new long[]{5_000L, 4_000L})));
+        LastValueCache cache = new LastValueCache(new SeriesRegistry());
+        cache.record(reading(WAREHOUSE, 23.4, 9_000L));
+
+        // When
+        int loaded = cache.warm(stub.client(), "temperature", "value", List.of("location", "sensor_id"),
+                Duration.ofHours(1));
+
+        // Then
+        assertEquals(2, loaded);
+        assertEquals(1, stub.getQueries().size());
+        String sql = stub.getQueries().get(0);
+        assertTrue(sql.contains("selector_last(\"value\", time)") && sql.contains("GROUP BY \"location\", \"sensor_id\"")
+                && sql.contains("INTERVAL '3600 seconds'"), sql);
+
+        assertEquals(23.4, cache.latest("temperature", WAREHOUSE, "value").value(), "Newer write should be kept");
+        LastValueCache.LastValue office = cache.latest("temperature", OFFICE, "value");
+        assertEquals(21.1, office.value());
+        assertEquals(4_000L, office.timestampNanos());
+    }
+
+    @Test
+    @DisplayName("Given service, When a batch is flushed, Then its readings should be answered from the cache")
+    void givenService_WhenBatchIsFlushed_ThenReadingsShouldBeAnsweredFromCache() throws Exception {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+        try (InfluxDBService service = new InfluxDBService(stub.client())) {
+
+            // When
+            service.write(reading(OFFICE, 21.8, 7_000L));
+            service.getBatchingWriter().flush();
+
+            // Then
+            assertEquals(21.8, service.latestReading("temperature", OFFICE, "value").value());
+            assertTrue(stub.getQueries().isEmpty(), "Lookups should not query the server");
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.service;
+
+import com.influxdb.v3.client.Point;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LineProtocolEncoder Tests")
+class LineProtocolEncoderTest {
+
+    private LineProtocolEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        encoder = new LineProtocolEncoder(256);
+    }
+
+    @Test
+    @DisplayName("Given reading, When encoding with timestamp, Then line should match Point line protocol")
+    void givenReading_WhenEncodingWithTimestamp_ThenLineShouldMatchPointLineProtocol() {
+        // Given
+        Instant timestamp = Instant.parse("2024-05-01T10:15:30.123456789Z");
+        Point point = Point.measurement("temperature")
+                .setTag("location", "warehouse")
+                .setTag("sensor_id", "TH01")
+                .setField("value", 23.2)
+                .setTimestamp(timestamp);
+
+        // When
+        encoder.measurement("temperature")
+                .tag("location", "warehouse")
+                .tag("sensor_id", "TH01")
+                .field("value", 23.2)
+                .timestamp(LineProtocolEncoder.epochNanos(timestamp));
+
+        // Then
+        assertEquals(point.toLineProtocol(), encoder.toString());
+        assertEquals(1, encoder.lineCount());
+    }
+
+    @Test
+    @DisplayName("Given several field types, When encoding, Then each type should use its line protocol syntax")
+    void givenSeveralFieldTypes_WhenEncoding_ThenEachTypeShouldUseItsSyntax() {
+        // When
+        encoder.measurement("sensor_data")
+                .field("temperature", 23.5)
+                .field("count", 42L)
+                .field("active", true)
+                .field("note", "door \"A\" \\ open")
+                .endLine();
+
+        // Then
+        assertEquals("sensor_data temperature=23.5,count=42i,active=true,note=\"door \\\"A\\\" \\\\ open\"",
+                encoder.toString());
+    }
+
+    @Test
+    @DisplayName("Given special characters, When encoding names, Then commas, spaces and equals signs should be escaped")
+    void givenSpecialCharacters_WhenEncodingNames_ThenShouldEscape() {
+        // When
+        encoder.measurement("room temp,v2")
+                .tag("site name", "north=1,a")
+                .field("max value", 1.5)
+                .endLine();
+
+        // Then
+        assertEquals("room\\ temp\\,v2,site\\ name=north\\=1\\,a max\\ value=1.5", encoder.toString());
+    }
+
+    @Test
+    @DisplayName("Given empty tag value, When encoding, Then tag should be skipped")
+    void givenEmptyTagValue_WhenEncoding_ThenTagShouldBeSkipped() {
+        // When
+        encoder.measurement("pressure").tag("location", "").field("value", 1013.25).endLine();
+
+        // Then
+        assertEquals("pressure value=1013.25", encoder.toString());
+    }
+
+    @Test
+    @DisplayName("Given line without fields, When closing the line, Then should throw IllegalStateException")
+    void givenLineWithoutFields_WhenClosingLine_ThenShouldThrow() {
+        // Given
+        encoder.measurement("temperature").tag("sensor_id", "TH01");
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> encoder.endLine());
+        assertThrows(IllegalStateException.class, () -> encoder.measurement("humidity"));
+    }
+
+    @Test
+    @DisplayName("Given non-finite value, When encoding field, Then should throw IllegalArgumentException")
+    void givenNonFiniteValue_WhenEncodingField_ThenShouldThrow() {
+        // Given
+        encoder.measurement("temperature");
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> encoder.field("value", Double.NaN));
+    }
+
+    @Test
+    @DisplayName("Given several lines, When writing to client, Then lines should be sent in one request and buffer reset")
+    void givenSeveralLines_WhenWritingToClient_ThenShouldSendOneRequestAndReset() {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+        encoder.measurement("temperature").tag("sensor_id", "TH02").field("value", 21.8).endLine();
+        encoder.measurement("humidity").tag("sensor_id", "HH02").field("value", 58.3);
+
+        // When
+        encoder.writeTo(stub.client());
+
+        // Then
+        assertEquals(1, stub.getWriteCalls());
+        assertEquals(List.of("temperature,sensor_id=TH02 value=21.8\nhumidity,sensor_id=HH02 value=58.3"),
+                stub.getRecords());
+        assertEquals(0, encoder.length());
+        assertEquals(0, encoder.lineCount());
+    }
+
+    @Test
+    @DisplayName("Given invalid partial line, When discarding it, Then previous lines should be kept")
+    void givenInvalidPartialLine_WhenDiscarding_ThenPreviousLinesShouldBeKept() {
+        // Given
+        encoder.measurement("temperature").field("value", 1.0).endLine();
+        encoder.measurement("humidity").tag("sensor_id", "HH02");
+
+        // When
+        encoder.discardLine();
+
+        // Then
+        assertEquals("temperature value=1.0", encoder.toString());
+        assertEquals(1, encoder.lineCount());
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ParallelQueryExecutor Tests")
+class ParallelQueryExecutorTest {
+
+    private ParallelQueryExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ParallelQueryExecutor(8, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    private static QueryTask<String> sleepingQuery(String name, long millis) {
+        return QueryTask.of(name, () -> {
+            Thread.sleep(millis);
+            return name;
+        });
+    }
+
+    @Test
+    @DisplayName("Given independent slow queries, When executing all, Then total time should approach the slowest query")
+    void givenIndependentSlowQueries_WhenExecutingAll_ThenTotalTimeShouldApproachSlowest() {
+        // Given
+        List<QueryTask<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tasks.add(sleepingQuery("query-" + i, 200));
+        }
+
+        // When
+        QueryReport<String> report = executor.executeAll(tasks);
+
+        // Then
+        assertTrue(report.allSucceeded());
+        assertTrue(report.elapsed().toMillis() < 600, "Queries should overlap, took " + report.elapsed());
+        assertEquals("query-3", report.outcomes().get(3).result(), "Outcomes should keep submission order");
+    }
+
+    @Test
+    @DisplayName("Given concurrency cap, When executing many queries, Then no more than the cap should run at once")
+    void givenConcurrencyCap_WhenExecutingManyQueries_ThenShouldRespectCap() {
+        // Given
+        executor.close();
+        executor = new ParallelQueryExecutor(3, Duration.ofSeconds(5));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<QueryTask<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            tasks.add(QueryTask.of("query-" + i, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return 1;
+            }));
+        }
+
+        // When
+        QueryReport<Integer> report = executor.executeAll(tasks);
+
+        // Then
+        assertTrue(report.allSucceeded());
+        assertTrue(maxRunning.get() <= 3, "At most 3 queries should run concurrently, saw " + maxRunning.get());
+    }
+
+    @Test
+    @DisplayName("Given query exceeding its deadline, When executing, Then it should time out and be interrupted")
+    void givenQueryExceedingDeadline_WhenExecuting_ThenShouldTimeOutAndBeInterrupted() throws InterruptedException {
+        // Given
+        CountDownLatch interrupted = new CountDownLatch(1);
+        QueryTask<String> slow = new QueryTask<>("slow", () -> {
+            try {
+                Thread.sleep(10_000);
+                return "late";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        }, Duration.ofMillis(100));
+
+        // When
+        QueryReport<String> report = executor.executeAll(List.of(slow, sleepingQuery("fast", 10)));
+
+        // Then
+        assertEquals(QueryOutcome.Status.TIMED_OUT, report.outcomes().get(0).status());
+        assertEquals(QueryOutcome.Status.SUCCEEDED, report.outcomes().get(1).status());
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS), "Timed out query should be interrupted");
+    }
+
+    @Test
+    @DisplayName("Given failing query, When executing, Then failure should be reported without affecting others")
+    void givenFailingQuery_WhenExecuting_ThenFailureShouldBeReported() {
+        // Given
+        QueryTask<String> failing = QueryTask.of("failing", () -> {
+            throw new IllegalStateException("table not found");
+        });
+
+        // When
+        QueryReport<String> report = executor.executeAll(List.of(failing, sleepingQuery("ok", 1)));
+
+        // Then
+        QueryOutcome<String> outcome = report.outcomes().get(0);
+        assertEquals(QueryOutcome.Status.FAILED, outcome.status());
+        assertEquals("table not found", outcome.errorMessage());
+        assertEquals(1, report.succeeded().size());
+        assertEquals(1, report.failed().size());
+    }
+
+    @Test
+    @DisplayName("Given running queries, When cancelling all, Then they should be reported as cancelled")
+    void givenRunningQueries_WhenCancellingAll_ThenShouldBeReportedAsCancelled() throws InterruptedException {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        QueryTask<String> blocking = QueryTask.of("blocking", () -> {
+            started.countDown();
+            Thread.sleep(10_000);
+            finished.set(true);
+            return "done";
+        });
+
+        // When
+        Thread canceller = new Thread(() -> {
+            try {
+                started.await();
+                executor.cancelAll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        canceller.start();
+        QueryReport<String> report = executor.executeAll(List.of(blocking));
+        canceller.join();
+
+        // Then
+        assertEquals(QueryOutcome.Status.CANCELLED, report.outcomes().get(0).status());
+        assertFalse(finished.get());
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.service;
+
+import com.influxdb.v3.client.Point;
+import com.influxdb.v3.client.write.WritePrecision;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PreAggregator Tests")
+class PreAggregatorTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private static Point reading(String location, String sensorId, double value, long epochSeconds) {
+        return Point.measurement("temperature")
+                .setTag("location", location)
+                .setTag("sensor_id", sensorId)
+                .setField("value", value)
+                .setTimestamp(epochSeconds * SECOND, WritePrecision.NS);
+    }
+
+    private static Point find(List<Point> rollups, String sensorId) {
+        return rollups.stream()
+                .filter(point -> sensorId.equals(point.getTag("sensor_id")))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    @DisplayName("Given readings in one window, When a point is the allowed lateness past its end, Then one rollup per series should be emitted")
+    void givenReadingsInOneWindow_WhenPointIsLatenessPastItsEnd_ThenOneRollupPerSeriesShouldBeEmitted() {
+        // Given
+        List<Point> rollups = new ArrayList<>();
+        PreAggregator aggregator = new PreAggregator(Duration.ofSeconds(10), PreAggregator.Mode.ALONGSIDE_RAW,
+                rollups::addAll);
+        aggregator.accept(reading("warehouse", "TH01", 20.0, 100));
+        aggregator.accept(reading("warehouse", "TH01", 24.0, 104));
+        aggregator.accept(reading("warehouse", "TH01", 22.0, 109));
+        aggregator.accept(reading("office", "TH02", 18.0, 105));
+
+        // When
+        aggregator.accept(reading("warehouse", "TH01", 30.0, 111));
+        int withinLateness = rollups.size();
+        aggregator.accept(reading("warehouse", "TH01", 30.0, 112));
+
+        // Then
+        assertEquals(0, withinLateness);
+        assertEquals(2, rollups.size());
+        Point warehouse = find(rollups, "TH01");
+        assertEquals("temperature_10s", warehouse.getMeasurement());
+        assertEquals("warehouse", warehouse.getTag("location"));
+        assertEquals(20.0, warehouse.getField("value_min"));
+        assertEquals(24.0, warehouse.getField("value_max"));
+        assertEquals(66.0, warehouse.getField("value_sum"));
+        assertEquals(3L, warehouse.getField("value_count"));
+        assertEquals(22.0, warehouse.getField("value_mean"));
+        assertEquals(100 * SECOND, warehouse.getTimestamp().longValue());
+        assertEquals(1L, find(rollups, "TH02").getField("value_count"));
+    }
+
+    @Test
+    @DisplayName("Given instead-of-raw mode, When accepting points, Then only non-numeric fields should pass through")
+    void givenInsteadOfRawMode_WhenAcceptingPoints_ThenOnlyNonNumericFieldsShouldPassThrough() {
+        // Given
+        PreAggregator aggregator = new PreAggregator(Duration.ofSeconds(10), PreAggregator.Mode.INSTEAD_OF_RAW,
+                rollups -> { });
+        Point text = Point.measurement("status")
+                .setField("state", "ok")
+                .setTimestamp(100 * SECOND, WritePrecision.NS);
+        Point mixed = reading("warehouse", "TH01", 21.0, 101)
+                .setField("status", "ok")
+                .setField("door_open", true);
+
+        // When
+        Point numericForwarded = aggregator.accept(reading("warehouse", "TH01", 20.0, 100));
+        Point textForwarded = aggregator.accept(text);
+        Point mixedForwarded = aggregator.accept(mixed);
+
+        // Then
+        assertNull(numericForwarded);
+        assertSame(text, textForwarded);
+        assertNotSame(mixed, mixedForwarded);
+        assertEquals(List.of("door_open", "status"), List.of(mixedForwarded.getFieldNames()).stream().sorted().toList());
+        assertEquals("TH01", mixedForwarded.getTag("sensor_id"));
+        assertEquals(101 * SECOND, mixedForwarded.getTimestamp().longValue());
+        assertEquals(21.0, mixed.getField("value"), "the caller's point is left as is");
+        assertEquals(2, aggregator.getPointsAggregated());
+        Point raw = reading("warehouse", "TH01", 20.0, 100);
+        assertSame(raw, new PreAggregator(Duration.ofSeconds(10), PreAggregator.Mode.ALONGSIDE_RAW, rollups -> { })
+                .accept(raw));
+    }
+
+    @Test
+    @DisplayName("Given out-of-order points within the allowed lateness, When a later window starts, Then they should land in their own window")
+    void givenOutOfOrderPointsWithinLateness_WhenLaterWindowStarts_ThenTheyShouldLandInTheirOwnWindow() {
+        // Given
+        List<Point> rollups = new ArrayList<>();
+        PreAggregator aggregator = new PreAggregator(Duration.ofSeconds(10), Duration.ofSeconds(5), "_10s",
+                PreAggregator.Mode.INSTEAD_OF_RAW, rollups::addAll);
+        aggregator.accept(reading("warehouse", "TH01", 20.0, 108));
+        aggregator.accept(reading("office", "TH02", 30.0, 111));
+
+        // When
+        Point lateForwarded = aggregator.accept(reading("warehouse", "TH01", 22.0, 109));
+        aggregator.accept(reading("office", "TH02", 18.0, 107));
+        aggregator.accept(reading("office", "TH02", 31.0, 114));
+        int beforeWatermark = rollups.size();
+        aggregator.accept(reading("office", "TH02", 32.0, 125));
+
+        // Then
+        assertNull(lateForwarded);
+        assertEquals(0, aggregator.getLatePoints());
+        assertEquals(0, beforeWatermark);
+        assertEquals(3, rollups.size());
+        assertEquals(2L, find(rollups, "TH01").getField("value_count"));
+        assertEquals(100 * SECOND, find(rollups, "TH01").getTimestamp().longValue());
+        Point office = find(rollups, "TH02");
+        assertEquals(100 * SECOND, office.getTimestamp().longValue(), "oldest window first");
+        assertEquals(18.0, office.getField("value_mean"));
+        Point officeNext = rollups.get(2);
+        assertEquals(110 * SECOND, officeNext.getTimestamp().longValue());
+        assertEquals(30.5, officeNext.getField("value_mean"));
+        assertEquals(2, aggregator.getWindowsClosed());
+    }
+
+    @Test
+    @DisplayName("Given point for a closed window, When accepting, Then it should be counted as late and passed through")
+    void givenPointForClosedWindow_WhenAccepting_ThenShouldBeCountedAsLate() {
+        // Given
+        List<Point> rollups = new ArrayList<>();
+        PreAggregator aggregator = new PreAggregator(Duration.ofSeconds(10), PreAggregator.Mode.INSTEAD_OF_RAW,
+                rollups::addAll);
+        aggregator.accept(reading("warehouse", "TH01", 20.0, 100));
+        aggregator.accept(reading("warehouse", "TH01", 21.0, 115));
+
+        // When
+        Point late = reading("warehouse", "TH01", 19.0, 105);
+        Point forwarded = aggregator.accept(late);
+
+        // Then
+        assertSame(late, forwarded);
+        assertEquals(1, aggregator.getLatePoints());
+        assertEquals(1, rollups.size());
+    }
+
+    @Test
+    @DisplayName("Given expired window, When closing on wall-clock time, Then rollups should be emitted after the allowed lateness")
+    void givenExpiredWindow_WhenClosingOnWallClock_ThenRollupsShouldBeEmittedAfterLateness() {
+        // Given
+        List<Point> rollups = new ArrayList<>();
+        PreAggregator aggregator = new PreAggregator(Duration.ofSeconds(10), Duration.ofSeconds(2), "_10s",
+                PreAggregator.Mode.ALONGSIDE_RAW, rollups::addAll);
+        aggregator.accept(reading("warehouse", "TH01", 20.0, 100));
+
+        // When
+        aggregator.closeExpired(111 * SECOND);
+        int beforeLateness = rollups.size();
+        aggregator.closeExpired(112 * SECOND);
+
+        // Then
+        assertEquals(0, beforeLateness);
+        assertEquals(1, rollups.size());
+        assertEquals(1, aggregator.getWindowsClosed());
+    }
+
+    @Test
+    @DisplayName("Given many series over several windows, When series go idle, Then aggregates should stay correct and idle series be dropped")
+    void givenManySeriesOverSeveralWindows_WhenSeriesGoIdle_ThenAggregatesShouldStayCorrect() {
+        // Given
+        List<Point> rollups = new ArrayList<>();
+        PreAggregator aggregator = new PreAggregator(Duration.ofSeconds(1), PreAggregator.Mode.ALONGSIDE_RAW,
+                rollups::addAll);
+        for (int i = 0; i < 2_000; i++) {
+            aggregator.accept(reading("site-" + (i % 7), "S" + i, i, 10));
+            aggregator.accept(reading("site-" + (i % 7), "S" + i, i + 2, 10));
+        }
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            aggregator.accept(reading("site-" + (i % 7), "S" + i, 1.0, 11));
+        }
+        aggregator.flush();
+
+        // Then
+        assertEquals(2_010, rollups.size());
+        Point last = find(rollups.subList(0, 2_000), "S1999");
+        assertEquals(2_000.0, last.getField("value_mean"));
+        assertEquals(10, aggregator.getSeriesCount(), "Series idle for a whole window should be forgotten");
+    }
+
+    @Test
+    @DisplayName("Given service with pre-aggregation, When writing and closing, Then rollups should be written through the batching writer")
+    void givenServiceWithPreAggregation_WhenWritingAndClosing_ThenRollupsShouldBeWritten() throws InterruptedException {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+        List<Point> written = new CopyOnWriteArrayList<>();
+        // Current minute, so the wall-clock closer does not close the window between the writes
+        long minute = Instant.now().getEpochSecond() / 60 * 60;
+
+        // When
+        try (InfluxDBService service = new InfluxDBService(stub.client())) {
+            service.enablePreAggregation(Duration.ofMinutes(1), PreAggregator.Mode.INSTEAD_OF_RAW);
+            service.write(reading("warehouse", "TH01", 20.0, minute));
+            service.write(reading("warehouse", "TH01", 22.0, minute + 1));
+        }
+        stub.getPointBatches().forEach(written::addAll);
+
+        // Then
+        assertEquals(1, written.size());
+        Point rollup = written.get(0);
+        assertEquals("temperature_1m", rollup.getMeasurement());
+        assertEquals(21.0, rollup.getField("value_mean"));
+        assertEquals(2L, rollup.getField("value_count"));
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.service;
+
+import com.influxdb.v3.client.query.QueryType;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PreparedQuery Tests")
+class PreparedQueryTest {
+
+    private static final String BY_LOCATION = "SELECT sensor_id, value FROM temperature WHERE location = $location";
+
+    private BufferAllocator allocator;
+    private final List<VectorSchemaRoot> roots = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        allocator = new RootAllocator();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roots.forEach(VectorSchemaRoot::close);
+        allocator.close();
+    }
+
+    private VectorSchemaRoot batch(String sensor, double reading) {
+        VarCharVector sensorId = new VarCharVector("sensor_id", allocator);
+        Float8Vector value = new Float8Vector("value", allocator);
+        sensorId.allocateNew();
+        value.allocateNew();
+        sensorId.setSafe(0, sensor.getBytes(StandardCharsets.UTF_8));
+        value.setSafe(0, reading);
+        VectorSchemaRoot root = VectorSchemaRoot.of(sensorId, value);
+        root.setRowCount(1);
+        roots.add(root);
+        return root;
+    }
+
+    private VectorSchemaRoot batch(double reading) {
+        Float8Vector value = new Float8Vector("value", allocator);
+        value.allocateNew();
+        value.setSafe(0, reading);
+        VectorSchemaRoot root = VectorSchemaRoot.of(value);
+        root.setRowCount(1);
+        roots.add(root);
+        return root;
+    }
+
+    @Test
+    @DisplayName("Given template, When preparing, Then placeholders outside literals, identifiers and comments should be found once")
+    void givenTemplate_WhenPreparing_ThenPlaceholdersShouldBeFoundOnce() {
+        // When
+        PreparedQuery query = new PreparedQuery(new StubInfluxDBClient().client(),
+                "  SELECT \"$col\", 'it''s $literal' FROM t -- $comment\n"
+                        + "WHERE a = $a_1 /* $block */ AND b > $from AND a2 = $a_1 AND c IN ('$x', $Last)  ");
+
+        // Then
+        assertEquals(List.of("a_1", "from", "Last"), query.parameterNames());
+        assertTrue(query.sql().startsWith("SELECT") && query.sql().endsWith(")"), "Template should be stripped");
+        assertEquals(QueryType.SQL, query.type());
+        assertEquals(List.of(), new PreparedQuery(null, "SELECT 1").parameterNames());
+    }
+
+    @Test
+    @DisplayName("Given malformed template, When preparing, Then it should be rejected with the position")
+    void givenMalformedTemplate_WhenPreparing_ThenItShouldBeRejected() {
+        // When / Then
+        IllegalArgumentException placeholder = assertThrows(IllegalArgumentException.class,
+                () -> new PreparedQuery(null, "SELECT * FROM t WHERE a = $1"));
+        assertTrue(placeholder.getMessage().startsWith("Invalid placeholder at position 26"));
+        assertThrows(IllegalArgumentException.class, () -> new PreparedQuery(null, "SELECT * FROM t WHERE a = $ "));
+        assertThrows(IllegalArgumentException.class, () -> new PreparedQuery(null, "SELECT * FROM t WHERE a = 'open"));
+        assertThrows(IllegalArgumentException.class, () -> new PreparedQuery(null, "SELECT \"open FROM t"));
+        assertThrows(IllegalArgumentException.class, () -> new PreparedQuery(null, "SELECT 1 /* open"));
+    }
+
+    @Test
+    @DisplayName("Given binding, When executing repeatedly with new values, Then each call should send the template and current values")
+    void givenBinding_WhenExecutingRepeatedly_ThenEachCallShouldSendTemplateAndCurrentValues() {
+        // Given
+        List<Map<String, Object>> sent = new CopyOnWriteArrayList<>();
+        StubInfluxDBClient stub = new StubInfluxDBClient().respondToQueries((sql, params) -> {
+            sent.add(new HashMap<>(params));
+            return List.<Object[]>of(new Object[]{"TH01", 23.2});
+        });
+        PreparedQuery query = new PreparedQuery(stub.client(),
+                "SELECT * FROM temperature WHERE location = $location AND value > $min AND id = $id AND ok = $ok");
+        PreparedQuery.Binding binding = query.bind().set("location", "warehouse").set("min", 20.5).set("id", 7L);
+
+        // When / Then
+        IllegalStateException unbound = assertThrows(IllegalStateException.class, binding::query);
+        assertTrue(unbound.getMessage().startsWith("Placeholder $ok is not bound"));
+        assertThrows(IllegalArgumentException.class, () -> binding.set("max", 1.0));
+
+        binding.set("ok", true).query().close();
+        binding.set("location", "office").set("min", 18.0).query().close();
+
+        assertEquals(List.of(query.sql(), query.sql()), stub.getQueries());
+        assertEquals(Map.of("location", "warehouse", "min", 20.5, "id", 7L, "ok", true), sent.get(0));
+        assertEquals(Map.of("location", "office", "min", 18.0, "id", 7L, "ok", true), sent.get(1));
+        assertEquals(sent.get(1), binding.parameters());
+    }
+
+    @Test
+    @DisplayName("Given columnar executions, When the result schema is unchanged, Then the schema should be discovered once")
+    void givenColumnarExecutions_WhenSchemaIsUnchanged_ThenSchemaShouldBeDiscoveredOnce() {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient()
+                .respondToBatchQueries(sql -> List.of(batch("TH01", 23.2), batch("TH02", 21.8)));
+        PreparedQuery query = new PreparedQuery(stub.client(), BY_LOCATION);
+        assertNull(query.schema());
+
+        // When
+        ColumnarResult first = query.bind().set("location", "warehouse").queryColumnar();
+        ColumnarResult second = query.bind().set("location", "office").queryColumnar();
+
+        // Then
+        assertSame(first.schema(), query.schema());
+        assertSame(first.schema(), second.schema(), "Second run should reuse the cached schema");
+        assertEquals(List.of("sensor_id", "value"), query.schema().columnNames());
+        assertEquals(2, second.rowCount());
+        assertEquals("TH02", second.stringColumn("sensor_id").get(1));
+        assertEquals(23.2, second.doubleColumn("value").get(0));
+
+        // When the columns change, the schema is discovered again
+        stub.respondToBatchQueries(sql -> List.of(batch(19.5)));
+        ColumnarResult changed = query.bind().set("location", "office").queryColumnar();
+        assertNotSame(first.schema(), changed.schema());
+        assertEquals(List.of("value"), query.schema().columnNames());
+        assertEquals(19.5, changed.doubleColumn("value").get(0));
+    }
+
+    @Test
+    @DisplayName("Given cached prepared query, When binding the same values again, Then the server should be queried once")
+    void givenCachedPreparedQuery_WhenBindingSameValuesAgain_ThenServerShouldBeQueriedOnce() {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient()
+                .respondToQueries(sql -> List.<Object[]>of(new Object[]{"TH01", 23.2}));
+        QueryCache cache = new QueryCache(stub.client());
+        PreparedQuery query = new PreparedQuery(stub.client(), BY_LOCATION);
+        PreparedQuery.Binding binding = query.bind().set("location", "warehouse");
+
+        // When
+        cache.query(binding).count();
+        cache.query(binding.set("location", "office")).count();
+        cache.query(query.bind().set("location", "warehouse")).count();
+        cache.query(new PreparedQuery(stub.client(), BY_LOCATION, QueryType.InfluxQL).bind()
+                .set("location", "warehouse")).count();
+
+        // Then
+        assertEquals(3, stub.getQueries().size(), "SQL and InfluxQL results should be cached separately");
+        assertEquals(1, cache.stats().hits());
+
+        cache.invalidate("temperature");
+        assertEquals(0, cache.stats().entries());
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.service;
+
+import com.influxdb.v3.client.Point;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("QueryCache Tests")
+class QueryCacheTest {
+
+    private static final String AGG_QUERY = "SELECT location, AVG(value) as avg_temp, COUNT(*) as count " +
+            "FROM temperature GROUP BY location ORDER BY avg_temp DESC";
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return List.of(rows);
+    }
+
+    @Test
+    @DisplayName("Given repeated query with different whitespace, When querying, Then second call should hit the cache")
+    void givenRepeatedQueryWithDifferentWhitespace_WhenQuerying_ThenSecondCallShouldHit() {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient()
+                .respondToQueries(sql -> rows(new Object[]{"warehouse", 23.2, 1L}));
+        QueryCache cache = new QueryCache(stub.client());
+
+        // When
+        long first = cache.query(AGG_QUERY).count();
+        long second = cache.query("  " + AGG_QUERY.replace(" FROM", "\n   FROM") + ";").count();
+
+        // Then
+        assertEquals(1, first);
+        assertEquals(1, second);
+        assertEquals(1, stub.getQueries().size(), "Server should only be queried once");
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    @DisplayName("Given different parameters, When querying, Then each parameter set should be cached separately")
+    void givenDifferentParameters_WhenQuerying_ThenShouldBeCachedSeparately() {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient().respondToQueries(sql -> rows(new Object[]{"TH01", 23.2}));
+        QueryCache cache = new QueryCache(stub.client());
+        String sql = "SELECT sensor_id, value FROM temperature WHERE location = $location";
+
+        // When
+        cache.query(sql, Map.of("location", "warehouse")).count();
+        cache.query(sql, Map.of("location", "office")).count();
+        cache.query(sql, Map.of("location", "warehouse")).count();
+
+        // Then
+        assertEquals(2, stub.getQueries().size());
+        assertEquals(1, cache.stats().hits());
+    }
+
+    @Test
+    @DisplayName("Given expired entry, When querying, Then query should be re-issued")
+    void givenExpiredEntry_WhenQuerying_ThenQueryShouldBeReissued() throws InterruptedException {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient().respondToQueries(sql -> rows(new Object[]{1L}));
+        QueryCache cache = new QueryCache(stub.client(), Duration.ofMillis(20), QueryCache.DEFAULT_MAX_BYTES);
+        cache.query(AGG_QUERY).count();
+
+        // When
+        Thread.sleep(40);
+        cache.query(AGG_QUERY).count();
+
+        // Then
+        assertEquals(2, stub.getQueries().size());
+        assertEquals(1, cache.stats().expirations());
+    }
+
+    @Test
+    @DisplayName("Given memory budget, When caching more than fits, Then least recently used entries should be evicted")
+    void givenMemoryBudget_WhenCachingMoreThanFits_ThenLeastRecentlyUsedShouldBeEvicted() {
+        // Given
+        Object[][] row = {{"warehouse", 23.2}};
+        long entrySize = QueryCache.estimateSize(row);
+        StubInfluxDBClient stub = new StubInfluxDBClient().respondToQueries(sql -> rows(row[0]));
+        QueryCache cache = new QueryCache(stub.client(), Duration.ofMinutes(1), entrySize * 2);
+
+        // When
+        cache.query("SELECT * FROM a").count();
+        cache.query("SELECT * FROM b").count();
+        cache.query("SELECT * FROM a").count();   // a is now most recently used
+        cache.query("SELECT * FROM c").count();   // evicts b
+        cache.query("SELECT * FROM a").count();
+
+        // Then
+        QueryCache.Stats stats = cache.stats();
+        assertEquals(1, stats.evictions());
+        assertEquals(2, stats.entries());
+        assertTrue(stats.bytes() <= entrySize * 2);
+        assertEquals(2, stats.hits());
+    }
+
+    @Test
+    @DisplayName("Given cached queries on two measurements, When invalidating one, Then only its entries should be dropped")
+    void givenCachedQueriesOnTwoMeasurements_WhenInvalidatingOne_ThenOnlyItsEntriesShouldBeDropped() {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient().respondToQueries(sql -> rows(new Object[]{1.0}));
+        QueryCache cache = new QueryCache(stub.client());
+        cache.query(AGG_QUERY).count();
+        cache.query("SELECT value FROM humidity").count();
+
+        // When
+        cache.invalidate("temperature");
+        cache.query(AGG_QUERY).count();
+        cache.query("SELECT value FROM humidity").count();
+
+        // Then
+        assertEquals(3, stub.getQueries().size());
+        assertEquals(1, cache.stats().invalidations());
+    }
+
+    @Test
+    @DisplayName("Given writes landing while queries run, When the results arrive, Then only queries reading the written measurement should skip caching")
+    void givenWritesLandingWhileQueriesRun_WhenResultsArrive_ThenOnlyQueriesReadingWrittenMeasurementShouldSkipCaching() {
+        // Given
+        AtomicReference<QueryCache> cacheRef = new AtomicReference<>();
+        StubInfluxDBClient stub = new StubInfluxDBClient().respondToQueries(sql -> {
+            cacheRef.get().invalidate("humidity");
+            return rows(new Object[]{1.0});
+        });
+        QueryCache cache = new QueryCache(stub.client());
+        cacheRef.set(cache);
+
+        // When
+        cache.query(AGG_QUERY).count();
+        cache.query("SELECT value FROM humidity").count();
+
+        // Then
+        assertEquals(1, cache.stats().entries(), "only the temperature query is cached");
+        cache.query(AGG_QUERY).count();
+        assertEquals(1, cache.stats().hits());
+    }
+
+    @Test
+    @DisplayName("Given SQL with joins and quoted names, When extracting measurements, Then all tables should be found")
+    void givenSqlWithJoinsAndQuotedNames_WhenExtractingMeasurements_ThenAllTablesShouldBeFound() {
+        // When
+        Set<String> measurements = QueryCache.measurements(
+                "SELECT 'temperature' as type FROM temperature UNION ALL SELECT * FROM \"Humidity\" h JOIN pressure p ON true");
+
+        // Then
+        assertEquals(Set.of("temperature", "humidity", "pressure"), measurements);
+    }
+
+    @Test
+    @DisplayName("Given service with cached query, When batch for measurement is flushed, Then cached entry should be invalidated")
+    void givenServiceWithCachedQuery_WhenBatchFlushed_ThenCachedEntryShouldBeInvalidated() throws InterruptedException {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient().respondToQueries(sql -> rows(new Object[]{1.0}));
+        try (InfluxDBService service = new InfluxDBService(stub.client())) {
+            QueryCache cache = service.getQueryCache();
+            cache.query(AGG_QUERY).count();
+
+            // When
+            service.getBatchingWriter().write(Point.measurement("temperature")
+                    .setField("value", 20.0)
+                    .setTimestamp(Instant.now()));
+            service.getBatchingWriter().flush();
+            cache.query(AGG_QUERY).count();
+
+            // Then
+            assertEquals(2, stub.getQueries().size());
+            assertEquals(0, cache.stats().hits());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.service;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.ipc.ArrowReader;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("QueryExporter Tests")
+class QueryExporterTest {
+
+    private BufferAllocator allocator;
+    private Path directory;
+    private final List<VectorSchemaRoot> roots = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        allocator = new RootAllocator();
+        directory = Files.createTempDirectory("export-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        roots.forEach(VectorSchemaRoot::close);
+        allocator.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * A batch of {@code rows} readings numbered from {@code first}
+     */
+    private VectorSchemaRoot batch(int first, int rows) {
+        VarCharVector sensorId = new VarCharVector("sensor_id", allocator);
+        Float8Vector value = new Float8Vector("value", allocator);
+        sensorId.allocateNew();
+        value.allocateNew();
+        for (int i = 0; i < rows; i++) {
+            sensorId.setSafe(i, ("TH" + (first + i)).getBytes(StandardCharsets.UTF_8));
+            value.setSafe(i, first + i + 0.5);
+        }
+        VectorSchemaRoot root = VectorSchemaRoot.of(sensorId, value);
+        root.setRowCount(rows);
+        roots.add(root);
+        return root;
+    }
+
+    /**
+     * Reads every value column back from an exported file
+     */
+    private List<Double> readValues(Path file, QueryExporter.Format format) throws IOException {
+        List<Double> values = new ArrayList<>();
+        try (BufferAllocator readAllocator = new RootAllocator();
+             FileChannel channel = FileChannel.open(file);
+             ArrowReader reader = format == QueryExporter.Format.FILE
+                     ? new ArrowFileReader(channel, readAllocator)
+                     : new ArrowStreamReader(channel, readAllocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            while (reader.loadNextBatch()) {
+                Float8Vector value = (Float8Vector) root.getVector("value");
+                for (int i = 0; i < root.getRowCount(); i++) {
+                    values.add(value.get(i));
+                }
+            }
+        }
+        return values;
+    }
+
+    private List<Path> partFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".part")).toList();
+        }
+    }
+
+    @Test
+    @DisplayName("Given a row limit, When exporting a query, Then files should split at batch boundaries and hold every row")
+    void givenRowLimit_WhenExportingQuery_ThenFilesShouldSplitAtBatchBoundaries() throws IOException {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient()
+                .respondToBatchQueries(sql -> List.of(batch(0, 40), batch(40, 40), batch(80, 40), batch(120, 10)));
+
+        // When
+        QueryExporter.ExportReport report;
+        try (QueryExporter exporter = new QueryExporter(stub.client(), QueryExporter.Format.FILE, 80,
+                Long.MAX_VALUE, 4 * 1024)) {
+            report = exporter.export("SELECT sensor_id, value FROM temperature", directory.resolve("out"), "temps");
+        }
+
+        // Then
+        assertEquals(130, report.rows());
+        assertEquals(4, report.batches());
+        assertEquals(List.of(directory.resolve("out/temps-00000.arrow"), directory.resolve("out/temps-00001.arrow")),
+                report.files());
+        List<Double> first = readValues(report.files().get(0), QueryExporter.Format.FILE);
+        List<Double> second = readValues(report.files().get(1), QueryExporter.Format.FILE);
+        assertEquals(80, first.size());
+        assertEquals(50, second.size());
+        assertEquals(0.5, first.get(0), 1e-9);
+        assertEquals(129.5, second.get(49), 1e-9);
+        assertEquals(Files.size(report.files().get(0)) + Files.size(report.files().get(1)), report.bytes());
+    }
+
+    @Test
+    @DisplayName("Given a byte limit and stream format, When exporting, Then each batch past the limit should start a new file")
+    void givenByteLimitAndStreamFormat_WhenExporting_ThenBatchPastLimitShouldStartNewFile() throws IOException {
+        // Given
+        List<VectorSchemaRoot> batches = List.of(batch(0, 100), batch(100, 100), batch(200, 100));
+
+        // When
+        QueryExporter.ExportReport report;
+        try (QueryExporter exporter = new QueryExporter(new StubInfluxDBClient().client(),
+                QueryExporter.Format.STREAM, Long.MAX_VALUE, 1, 64)) {
+            report = exporter.export(batches.stream(), directory, "stream");
+        }
+
+        // Then
+        assertEquals(3, report.files().size());
+        assertTrue(report.files().stream().allMatch(file -> file.toString().endsWith(".arrows")));
+        assertEquals(List.of(200.5, 299.5), List.of(
+                readValues(report.files().get(2), QueryExporter.Format.STREAM).get(0),
+                readValues(report.files().get(2), QueryExporter.Format.STREAM).get(99)));
+        assertTrue(report.bytes() > 3 * 64, "batches larger than the buffer are written through");
+    }
+
+    @Test
+    @DisplayName("Given a query that fails mid-stream, When exporting, Then finished files should stay and no part file should remain")
+    void givenQueryFailingMidStream_WhenExporting_ThenNoPartFileShouldRemain() throws IOException {
+        // Given
+        Stream<VectorSchemaRoot> failing = Stream.of(batch(0, 10), batch(10, 10), batch(20, 10), batch(30, 10))
+                .map(root -> {
+                    if (((Float8Vector) root.getVector("value")).get(0) == 30.5) {
+                        throw new UncheckedIOException(new IOException("connection reset"));
+                    }
+                    return root;
+                });
+
+        // When
+        IOException error;
+        try (QueryExporter exporter = new QueryExporter(new StubInfluxDBClient().client(),
+                QueryExporter.Format.FILE, 15, Long.MAX_VALUE, 1024)) {
+            error = assertThrows(IOException.class, () -> exporter.export(failing, directory, "partial"));
+        }
+
+        // Then
+        assertEquals("connection reset", error.getMessage());
+        assertEquals(List.of(), partFiles());
+        assertEquals(20, readValues(directory.resolve("partial-00000.arrow"), QueryExporter.Format.FILE).size());
+        assertFalse(Files.exists(directory.resolve("partial-00001.arrow")));
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.service;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("QueryPublisher Tests")
+class QueryPublisherTest {
+
+    private BufferAllocator allocator;
+    private final List<VectorSchemaRoot> roots = new ArrayList<>();
+    private final AtomicInteger pulled = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        allocator = new RootAllocator();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roots.forEach(VectorSchemaRoot::close);
+        allocator.close();
+    }
+
+    private VectorSchemaRoot batch(double... values) {
+        Float8Vector value = new Float8Vector("value", allocator);
+        value.allocateNew();
+        for (int i = 0; i < values.length; i++) {
+            value.setSafe(i, values[i]);
+        }
+        VectorSchemaRoot root = VectorSchemaRoot.of(value);
+        root.setRowCount(values.length);
+        roots.add(root);
+        return root;
+    }
+
+    /**
+     * A lazy source of batches that counts how many were pulled and whether it was closed
+     */
+    private Stream<VectorSchemaRoot> source(int batches) {
+        return IntStream.range(0, batches)
+                .mapToObj(i -> {
+                    pulled.incrementAndGet();
+                    return batch(i, i + 0.5);
+                })
+                .onClose(() -> closed.set(true));
+    }
+
+    /**
+     * Records signals and requests only what the test asks for
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<VectorSchemaRoot> {
+
+        private final List<Integer> rowCounts = new ArrayList<>();
+        private final List<VectorSchemaRoot> received = new ArrayList<>();
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private Flow.Subscription subscription;
+        private double sum;
+        private boolean completed;
+        private Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(VectorSchemaRoot batch) {
+            rowCounts.add(batch.getRowCount());
+            received.add(batch);
+            Float8Vector value = (Float8Vector) batch.getVector("value");
+            for (int row = 0; row < batch.getRowCount(); row++) {
+                sum += value.get(row);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            terminated.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("Given subscriber requesting on demand, When requesting batches, Then batches should be pulled only as requested")
+    void givenSubscriberRequestingOnDemand_WhenRequesting_ThenBatchesShouldBePulledOnlyAsRequested() {
+        // Given
+        QueryPublisher publisher = new QueryPublisher(() -> source(5), Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        assertEquals(0, pulled.get(), "Nothing should be queried before the first request");
+
+        // When / Then
+        subscriber.subscription.request(1);
+        assertEquals(1, pulled.get());
+        assertEquals(List.of(2), subscriber.rowCounts);
+
+        subscriber.subscription.request(2);
+        assertEquals(3, pulled.get());
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(5, subscriber.rowCounts.size());
+        assertTrue(subscriber.completed);
+        assertTrue(closed.get());
+        assertEquals(0 + 0.5 + 1 + 1.5 + 2 + 2.5 + 3 + 3.5 + 4 + 4.5, subscriber.sum, 1e-9);
+    }
+
+    @Test
+    @DisplayName("Given consumed batch, When onNext returns, Then its buffers should be released")
+    void givenConsumedBatch_WhenOnNextReturns_ThenBuffersShouldBeReleased() {
+        // Given
+        QueryPublisher publisher = new QueryPublisher(() -> source(2), Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        // When
+        subscriber.subscription.request(2);
+
+        // Then
+        assertEquals(List.of(2, 2), subscriber.rowCounts, "Batches should be complete during onNext");
+        subscriber.received.forEach(batch -> assertEquals(0, batch.getRowCount()));
+    }
+
+    @Test
+    @DisplayName("Given running subscription, When cancelling, Then the query should be closed and no more signals sent")
+    void givenRunningSubscription_WhenCancelling_ThenQueryShouldBeClosed() {
+        // Given
+        QueryPublisher publisher = new QueryPublisher(() -> source(10), Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(2);
+
+        // When
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(5);
+
+        // Then
+        assertTrue(closed.get());
+        assertEquals(2, pulled.get());
+        assertEquals(2, subscriber.rowCounts.size());
+        assertFalse(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    @DisplayName("Given failing query or invalid request, When requesting, Then onError should be signalled and the query closed")
+    void givenFailingQueryOrInvalidRequest_WhenRequesting_ThenOnErrorShouldBeSignalled() {
+        // Given
+        QueryPublisher failing = new QueryPublisher(() -> source(3).peek(batch -> {
+            if (pulled.get() == 2) {
+                throw new IllegalStateException("Flight stream reset");
+            }
+        }), Runnable::run);
+        RecordingSubscriber first = new RecordingSubscriber();
+        failing.subscribe(first);
+
+        // When
+        first.subscription.request(Long.MAX_VALUE);
+
+        // Then
+        assertEquals("Flight stream reset", first.error.getMessage());
+        assertEquals(1, first.rowCounts.size());
+        assertTrue(closed.get());
+
+        RecordingSubscriber second = new RecordingSubscriber();
+        new QueryPublisher(() -> source(3), Runnable::run).subscribe(second);
+        second.subscription.request(0);
+        assertTrue(second.error instanceof IllegalArgumentException);
+    }
+
+    @Test
+    @DisplayName("Given service publisher with a subscriber requesting one batch at a time, When the query completes, Then every row should be seen")
+    void givenServicePublisher_WhenSubscriberRequestsOneAtATime_ThenEveryRowShouldBeSeen() throws Exception {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient()
+                .respondToBatchQueries(sql -> List.of(batch(1, 2), batch(3), batch(4, 5, 6)));
+        RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                super.onSubscribe(subscription);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(VectorSchemaRoot batch) {
+                super.onNext(batch);
+                super.subscription.request(1);
+            }
+        };
+
+        // When
+        try (InfluxDBService service = new InfluxDBService(stub.client())) {
+            service.publishQuery("SELECT value FROM temperature").subscribe(subscriber);
+            assertTrue(subscriber.terminated.await(5, TimeUnit.SECONDS));
+        }
+
+        // Then
+        assertTrue(subscriber.completed);
+        assertEquals(List.of(2, 1, 3), subscriber.rowCounts);
+        assertEquals(21.0, subscriber.sum, 1e-9);
+        assertEquals(List.of("SELECT value FROM temperature"), stub.getQueries());
+    }
+}
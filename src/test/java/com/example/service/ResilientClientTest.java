@@ -0,0 +1,181 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBApiHttpException;
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+import org.apache.arrow.flight.CallStatus;
+import org.apache.arrow.flight.FlightRuntimeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ResilientClient Tests")
+class ResilientClientTest {
+
+    private static final String SQL = "SELECT value FROM temperature";
+
+    private final StubInfluxDBClient stub = new StubInfluxDBClient()
+            .respondToQueries(sql -> List.<Object[]>of(new Object[]{21.5}, new Object[]{22.0}));
+    private ResilientClient resilient;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (resilient != null) {
+            resilient.client().close();
+        }
+    }
+
+    private InfluxDBClient wrap(int maxAttempts, boolean hedgeQueries, int breakerThreshold) {
+        resilient = new ResilientClient(stub.client(), "stub", new ResilientClient.Policy(maxAttempts,
+                Duration.ofMillis(1), Duration.ofMillis(5), hedgeQueries, 20, breakerThreshold, Duration.ofMinutes(1)));
+        return resilient.client();
+    }
+
+    private static Point reading(double value, Instant time) {
+        Point point = Point.measurement("temperature")
+                .setTag("sensor_id", "TH01")
+                .setField("value", value);
+        return time != null ? point.setTimestamp(time) : point;
+    }
+
+    private static InfluxDBApiHttpException unavailable() {
+        return new InfluxDBApiHttpException("Service unavailable", null, 503);
+    }
+
+    private static long count(InfluxDBClient client) {
+        try (Stream<Object[]> rows = client.query(SQL)) {
+            return rows.count();
+        }
+    }
+
+    @Test
+    @DisplayName("Given an endpoint failing twice with 503, When writing timestamped points, Then the write should succeed on the third attempt")
+    void givenEndpointFailingTwice_WhenWritingTimestampedPoints_ThenWriteShouldSucceedOnThirdAttempt() {
+        // Given
+        stub.injectFaults((operation, call) -> {
+            if (call <= 2) {
+                throw unavailable();
+            }
+        });
+        InfluxDBClient client = wrap(3, false, 5);
+
+        // When
+        client.writePoints(List.of(reading(21.5, Instant.now()), reading(22.0, Instant.now())));
+
+        // Then
+        assertEquals(3, stub.getWriteCalls());
+        assertEquals(2, stub.getPointCount());
+        assertEquals(2, resilient.getRetries());
+        assertEquals(CircuitBreaker.State.CLOSED, resilient.getBreaker().getState());
+        for (int retry = 1; retry <= 10; retry++) {
+            long backoff = resilient.backoffNanos(retry);
+            assertTrue(backoff >= 0 && backoff <= Duration.ofMillis(Math.min(5, 1L << (retry - 1))).toNanos());
+        }
+    }
+
+    @Test
+    @DisplayName("Given writes that are not safe to repeat or rejected, When they fail, Then they should not be retried")
+    void givenWritesNotSafeToRepeat_WhenTheyFail_ThenTheyShouldNotBeRetried() {
+        // Given
+        stub.injectFaults((operation, call) -> {
+            throw call <= 2 ? unavailable() : new InfluxDBApiHttpException("Bad request", null, 400);
+        });
+        InfluxDBClient client = wrap(3, false, 5);
+
+        // When
+        assertThrows(InfluxDBApiHttpException.class, () -> client.writePoint(reading(21.5, null)));
+        assertThrows(InfluxDBApiHttpException.class, () -> client.writeRecord("temperature value=1 1714558500"
+                + "\ntemperature,sensor_id=TH\\ 01 note=\"a b c\""));
+        assertThrows(InfluxDBApiHttpException.class, () -> client.writeRecord("temperature value=1 1714558500"));
+
+        // Then
+        assertEquals(3, stub.getWriteCalls());
+        assertEquals(0, resilient.getRetries());
+        assertTrue(ResilientClient.hasTimestamps("t,a=b\\ c s=\"x y\",v=1 1714558500\n\nt v=2 1714558501\n"));
+        assertFalse(ResilientClient.isIdempotentWrite(List.of(reading(1, Instant.now()), reading(2, null))));
+    }
+
+    @Test
+    @DisplayName("Given a query stuck past the p95, When it is hedged, Then the hedge should answer and the stuck attempt be cancelled")
+    void givenQueryStuckPastP95_WhenHedged_ThenHedgeShouldAnswerAndStuckAttemptBeCancelled() throws InterruptedException {
+        // Given
+        stub.injectFaults((operation, call) -> Thread.sleep(call == 21 ? 10_000 : 5));
+        InfluxDBClient client = wrap(1, true, 5);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(2, count(client));
+        }
+        Duration hedgeDelay = resilient.getHedgeDelay();
+
+        // When
+        long start = System.nanoTime();
+        long rows = count(client);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        // Then
+        assertEquals(2, rows);
+        assertTrue(hedgeDelay.toMillis() >= 5, "p95 of the first window: " + hedgeDelay);
+        assertTrue(elapsed.toMillis() < 5_000, "answered by the hedge: " + elapsed);
+        assertEquals(1, resilient.getHedges());
+        assertEquals(1, resilient.getHedgesWon());
+        for (int i = 0; i < 100 && stub.getOpenQueries() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, stub.getOpenQueries(), "the stuck attempt is interrupted and its stream closed");
+        assertEquals(CircuitBreaker.State.CLOSED, resilient.getBreaker().getState());
+    }
+
+    @Test
+    @DisplayName("Given an endpoint that is down, When failures reach the threshold, Then further calls should fail fast without reaching it")
+    void givenEndpointDown_WhenFailuresReachThreshold_ThenCallsShouldFailFast() {
+        // Given
+        stub.injectFaults((operation, call) -> {
+            throw unavailable();
+        });
+        InfluxDBClient client = wrap(2, false, 3);
+
+        // When
+        assertThrows(InfluxDBApiHttpException.class, () -> count(client));
+        CircuitBreaker.OpenException retryFailure = assertThrows(CircuitBreaker.OpenException.class,
+                () -> client.writePoint(reading(21.5, Instant.now())));
+        assertThrows(CircuitBreaker.OpenException.class, () -> count(client));
+
+        // Then
+        assertTrue(retryFailure.getMessage().contains("stub"));
+        assertEquals(2, stub.getQueries().size());
+        assertEquals(1, stub.getWriteCalls(), "the retry of the write hit the open breaker");
+        assertEquals(CircuitBreaker.State.OPEN, resilient.getBreaker().getState());
+        assertEquals(2, resilient.getBreaker().getRejected());
+    }
+
+    @Test
+    @DisplayName("Given queries the server rejects over Flight, When they fail, Then they should not be retried nor open the breaker")
+    void givenQueriesRejectedOverFlight_WhenTheyFail_ThenTheyShouldNotBeRetriedNorOpenBreaker() {
+        // Given
+        stub.injectFaults((operation, call) -> {
+            throw call <= 5
+                    ? CallStatus.INVALID_ARGUMENT.withDescription("table 'temprature' not found").toRuntimeException()
+                    : CallStatus.UNAVAILABLE.withDescription("connection refused").toRuntimeException();
+        });
+        InfluxDBClient client = wrap(3, false, 3);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            assertThrows(FlightRuntimeException.class, () -> count(client));
+        }
+        CircuitBreaker.State afterRejections = resilient.getBreaker().getState();
+        assertThrows(FlightRuntimeException.class, () -> count(client));
+
+        // Then
+        assertEquals(CircuitBreaker.State.CLOSED, afterRejections);
+        assertEquals(8, stub.getQueries().size(), "five rejected queries once, the unavailable one three times");
+        assertEquals(2, resilient.getRetries());
+        assertEquals(CircuitBreaker.State.OPEN, resilient.getBreaker().getState());
+    }
+}
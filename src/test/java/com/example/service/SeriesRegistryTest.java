@@ -0,0 +1,112 @@
+package com.example.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SeriesRegistry Tests")
+class SeriesRegistryTest {
+
+    @Test
+    @DisplayName("Given same tag set in different order, When registering, Then the same series ID should be returned")
+    void givenSameTagSetInDifferentOrder_WhenRegistering_ThenSameIdShouldBeReturned() {
+        // Given
+        SeriesRegistry registry = new SeriesRegistry();
+
+        // When
+        int first = registry.register("temperature", "sensor_id", "TH01", "location", "warehouse");
+        int second = registry.register("temperature", Map.of("location", "warehouse", "sensor_id", "TH01"));
+        int other = registry.register("temperature", "sensor_id", "TH02", "location", "warehouse");
+
+        // Then
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+        assertEquals(2, registry.size());
+        assertEquals(List.of("location", "sensor_id"), List.copyOf(registry.tags(first).keySet()));
+    }
+
+    @Test
+    @DisplayName("Given special characters, When registering, Then prefix should be escaped like the encoder escapes it")
+    void givenSpecialCharacters_WhenRegistering_ThenPrefixShouldBeEscaped() {
+        // Given
+        SeriesRegistry registry = new SeriesRegistry();
+
+        // When
+        int id = registry.register("my measurement,x", "loc=ation", "north wing", "empty", "");
+
+        // Then
+        String expected = new LineProtocolEncoder()
+                .measurement("my measurement,x")
+                .tag("loc=ation", "north wing")
+                .field("f", 1L)
+                .endLine()
+                .toString();
+        assertEquals(expected.substring(0, expected.indexOf(" f=")), registry.prefix(id));
+    }
+
+    @Test
+    @DisplayName("Given registered series, When encoding with the series prefix, Then lines should match fully encoded lines")
+    void givenRegisteredSeries_WhenEncodingWithPrefix_ThenLinesShouldMatch() {
+        // Given
+        SeriesRegistry registry = new SeriesRegistry();
+        int id = registry.register("temperature", "location", "office", "sensor_id", "TH02");
+
+        // When
+        String viaRegistry = new LineProtocolEncoder()
+                .series(registry, id).field("value", 21.8).timestamp(1_000L)
+                .series(registry, id).tag("unit", "celsius").field("value", 22.0).timestamp(2_000L)
+                .toString();
+
+        // Then
+        String direct = new LineProtocolEncoder()
+                .measurement("temperature").tag("location", "office").tag("sensor_id", "TH02")
+                .field("value", 21.8).timestamp(1_000L)
+                .measurement("temperature").tag("location", "office").tag("sensor_id", "TH02").tag("unit", "celsius")
+                .field("value", 22.0).timestamp(2_000L)
+                .toString();
+        assertEquals(direct, viaRegistry);
+    }
+
+    @Test
+    @DisplayName("Given unknown series ID or odd tag arguments, When using the registry, Then should throw IllegalArgumentException")
+    void givenInvalidArguments_WhenUsingRegistry_ThenShouldThrow() {
+        // Given
+        SeriesRegistry registry = new SeriesRegistry();
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> registry.prefix(0));
+        assertThrows(IllegalArgumentException.class, () -> registry.register("temperature", "location"));
+        assertThrows(IllegalArgumentException.class, () -> registry.register("", "location", "office"));
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.register("temperature", "location", "a", "location", "b"));
+    }
+
+    @Test
+    @DisplayName("Given concurrent registration of overlapping series, When registering, Then each series should get one dense ID")
+    void givenConcurrentRegistration_WhenRegistering_ThenEachSeriesShouldGetOneDenseId() {
+        // Given
+        SeriesRegistry registry = new SeriesRegistry();
+        Map<String, Set<Integer>> idsBySensor = new ConcurrentHashMap<>();
+
+        // When
+        IntStream.range(0, 20_000).parallel().forEach(i -> {
+            String sensorId = "S" + (i % 1_000);
+            int id = registry.register("temperature", "sensor_id", sensorId);
+            idsBySensor.computeIfAbsent(sensorId, s -> ConcurrentHashMap.newKeySet()).add(id);
+        });
+
+        // Then
+        assertEquals(1_000, registry.size());
+        assertTrue(idsBySensor.values().stream().allMatch(ids -> ids.size() == 1));
+        for (int id = 0; id < 1_000; id++) {
+            assertTrue(registry.prefix(id).startsWith("temperature,sensor_id=S"));
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBApiHttpException;
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SpillBuffer Tests")
+class SpillBufferTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("spill-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static List<String> lines(int count) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add("temperature,sensor_id=TH" + i + " value=" + i + ".5 " + (1_700_000_000_000_000_000L + i));
+        }
+        return lines;
+    }
+
+    private SpillBuffer smallSegments(SpillBuffer.FsyncPolicy policy) throws IOException {
+        return new SpillBuffer(directory, 1024, 64 * 1024, policy, Duration.ofMillis(10));
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    @DisplayName("Given lines spanning several segments, When replaying, Then all lines should arrive in order in batches")
+    void givenLinesSpanningSeveralSegments_WhenReplaying_ThenAllLinesShouldArriveInOrder() throws IOException {
+        // Given
+        List<String> lines = lines(100);
+        List<List<String>> batches = new ArrayList<>();
+        try (SpillBuffer buffer = smallSegments(SpillBuffer.FsyncPolicy.ALWAYS)) {
+            assertTrue(buffer.appendAll(lines));
+            assertTrue(buffer.segmentCount() > 1, "Lines should roll over into several segments");
+
+            // When
+            long replayed = buffer.replay(30, batches::add);
+
+            // Then
+            assertEquals(100, replayed);
+            assertEquals(lines, batches.stream().flatMap(List::stream).toList());
+            assertTrue(batches.stream().allMatch(batch -> batch.size() <= 30));
+            assertFalse(buffer.hasPending());
+            assertEquals(0, segmentFiles(), "Replayed segments should be deleted");
+        }
+    }
+
+    @Test
+    @DisplayName("Given spilled lines from a previous run, When reopening, Then they should be recovered")
+    void givenSpilledLinesFromPreviousRun_WhenReopening_ThenShouldBeRecovered() throws IOException {
+        // Given
+        List<String> lines = lines(40);
+        try (SpillBuffer buffer = smallSegments(SpillBuffer.FsyncPolicy.NEVER)) {
+            buffer.appendAll(lines);
+        }
+
+        // When
+        List<String> replayed = new ArrayList<>();
+        try (SpillBuffer reopened = smallSegments(SpillBuffer.FsyncPolicy.NEVER)) {
+            assertTrue(reopened.hasPending());
+            reopened.replay(1_000, replayed::addAll);
+            reopened.append("after_restart value=1 1");
+            reopened.replay(1_000, replayed::addAll);
+        }
+
+        // Then
+        assertEquals(41, replayed.size());
+        assertEquals(lines, replayed.subList(0, 40));
+        assertEquals("after_restart value=1 1", replayed.get(40));
+    }
+
+    @Test
+    @DisplayName("Given corrupted record, When replaying, Then only it should be skipped and the segment kept")
+    void givenCorruptedRecord_WhenReplaying_ThenOnlyItShouldBeSkippedAndSegmentKept() throws IOException {
+        // Given
+        try (SpillBuffer buffer = smallSegments(SpillBuffer.FsyncPolicy.ALWAYS)) {
+            buffer.appendAll(List.of("a value=1 1", "b value=2 2", "c value=3 3"));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        // Flip a payload byte of the second record
+        int secondPayload = 2 * SpillBuffer.HEADER_BYTES + "a value=1 1".length();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), secondPayload);
+        }
+
+        // When
+        List<String> replayed = new ArrayList<>();
+        try (SpillBuffer reopened = smallSegments(SpillBuffer.FsyncPolicy.ALWAYS)) {
+            reopened.replay(10, replayed::addAll);
+
+            // Then
+            assertEquals(List.of("a value=1 1", "c value=3 3"), replayed);
+            assertEquals(1, reopened.getCorruptRecords());
+            assertFalse(reopened.hasPending());
+        }
+        assertFalse(Files.exists(segment));
+        assertTrue(Files.exists(segment.resolveSibling(segment.getFileName() + ".corrupt")));
+    }
+
+    @Test
+    @DisplayName("Given corrupted record and failing sink, When replaying twice, Then the record should be counted once")
+    void givenCorruptedRecordAndFailingSink_WhenReplayingTwice_ThenShouldBeCountedOnce() throws IOException {
+        // Given
+        try (SpillBuffer buffer = new SpillBuffer(directory)) {
+            buffer.appendAll(List.of("a value=1 1", "b value=2 2", "c value=3 3"));
+            try (FileChannel channel = FileChannel.open(directory.resolve(String.format("spill-%020d.log", 0)),
+                    StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[]{'X'}), SpillBuffer.HEADER_BYTES);
+            }
+
+            // When
+            assertThrows(RuntimeException.class, () -> buffer.replay(10, batch -> {
+                throw new RuntimeException("Server unavailable");
+            }));
+            List<String> replayed = new ArrayList<>();
+            buffer.replay(10, replayed::addAll);
+
+            // Then
+            assertEquals(List.of("b value=2 2", "c value=3 3"), replayed);
+            assertEquals(1, buffer.getCorruptRecords());
+        }
+    }
+
+    @Test
+    @DisplayName("Given segment holding only corrupt records, When reopening, Then it should be set aside without pending data")
+    void givenSegmentHoldingOnlyCorruptRecords_WhenReopening_ThenShouldBeSetAside() throws IOException {
+        // Given
+        try (SpillBuffer buffer = smallSegments(SpillBuffer.FsyncPolicy.ALWAYS)) {
+            buffer.append("a value=1 1");
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), SpillBuffer.HEADER_BYTES);
+        }
+
+        // When
+        try (SpillBuffer reopened = smallSegments(SpillBuffer.FsyncPolicy.ALWAYS)) {
+
+            // Then
+            assertFalse(reopened.hasPending());
+            assertEquals(1, reopened.getCorruptRecords());
+            assertTrue(Files.exists(segment.resolveSibling(segment.getFileName() + ".corrupt")));
+        }
+    }
+
+    @Test
+    @DisplayName("Given total cap, When spilling more than fits, Then excess lines should be rejected")
+    void givenTotalCap_WhenSpillingMoreThanFits_ThenExcessLinesShouldBeRejected() throws IOException {
+        // Given
+        try (SpillBuffer buffer = new SpillBuffer(directory, 1024, 2048, SpillBuffer.FsyncPolicy.NEVER, Duration.ZERO)) {
+
+            // When
+            boolean accepted = buffer.appendAll(lines(100));
+
+            // Then
+            assertFalse(accepted);
+            assertTrue(buffer.getLinesRejected() > 0);
+            assertEquals(100, buffer.getLinesSpilled() + buffer.getLinesRejected());
+            assertTrue(buffer.pendingBytes() <= 2048);
+        }
+    }
+
+    @Test
+    @DisplayName("Given sink failing mid-replay, When replaying again, Then only unsent batches should be resent")
+    void givenSinkFailingMidReplay_WhenReplayingAgain_ThenOnlyUnsentBatchesShouldBeResent() throws IOException {
+        // Given
+        List<String> sent = new ArrayList<>();
+        try (SpillBuffer buffer = new SpillBuffer(directory)) {
+            buffer.appendAll(lines(10));
+
+            // When
+            assertThrows(RuntimeException.class, () -> buffer.replay(4, batch -> {
+                if (sent.size() >= 4) {
+                    throw new RuntimeException("Server unavailable");
+                }
+                sent.addAll(batch);
+            }));
+            buffer.replay(4, sent::addAll);
+
+            // Then
+            assertEquals(lines(10), sent);
+            assertFalse(buffer.hasPending());
+        }
+    }
+
+    @Test
+    @DisplayName("Given unreachable server, When writing through the service, Then points should be spilled and replayed once it is back")
+    void givenUnreachableServer_WhenWritingThroughService_ThenPointsShouldBeSpilledAndReplayed() throws Exception {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient().failWritesWith(new RuntimeException("Connection refused"));
+        try (SpillBuffer buffer = new SpillBuffer(directory);
+             InfluxDBService service = new InfluxDBService(stub.client())) {
+            service.setSpillBuffer(buffer);
+            SpillReplayer replayer = new SpillReplayer(buffer, stub.client(), 100, Duration.ofSeconds(1));
+
+            // When
+            service.getBatchingWriter().writeAll(List.of(
+                    Point.measurement("temperature").setField("value", 20.0).setTimestamp(Instant.ofEpochSecond(1)),
+                    Point.measurement("temperature").setField("value", 21.0).setTimestamp(Instant.ofEpochSecond(2))));
+            service.getBatchingWriter().flush();
+            boolean drainedWhileDown = replayer.replayNow();
+
+            stub.failWritesWith(null);
+            boolean drainedWhenBack = replayer.replayNow();
+
+            // Then
+            assertEquals(2, service.getBatchingWriter().getPointsSpilled());
+            assertEquals(0, service.getBatchingWriter().getPointsDropped());
+            assertFalse(drainedWhileDown);
+            assertTrue(drainedWhenBack);
+            assertEquals(2, stub.getRecords().size());
+            assertEquals(2, replayer.getLinesReplayed());
+            assertTrue(stub.getRecords().get(0).startsWith("temperature value=20"));
+            replayer.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Given server rejecting the batch, When writing through the service, Then points should be dropped rather than spilled")
+    void givenServerRejectingBatch_WhenWritingThroughService_ThenPointsShouldBeDroppedRatherThanSpilled() throws Exception {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient()
+                .failWritesWith(new InfluxDBApiHttpException("Bad request", null, 400));
+        try (SpillBuffer buffer = new SpillBuffer(directory);
+             InfluxDBService service = new InfluxDBService(stub.client())) {
+            service.setSpillBuffer(buffer);
+
+            // When
+            service.getBatchingWriter().write(
+                    Point.measurement("temperature").setField("value", 20.0).setTimestamp(Instant.ofEpochSecond(1)));
+            service.getBatchingWriter().flush();
+
+            // Then
+            assertEquals(0, service.getBatchingWriter().getPointsSpilled());
+            assertEquals(1, service.getBatchingWriter().getPointsDropped());
+            assertFalse(buffer.hasPending());
+        }
+    }
+
+    @Test
+    @DisplayName("Given spilled batch with a line the server rejects, When replaying, Then it should be quarantined and the rest written")
+    void givenSpilledBatchWithRejectedLine_WhenReplaying_ThenItShouldBeQuarantinedAndRestWritten() throws Exception {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+        InfluxDBClient client = rejecting(stub.client(), "poison");
+        List<String> lines = new ArrayList<>(lines(9));
+        lines.add(4, "poison value=x 1");
+        try (SpillBuffer buffer = new SpillBuffer(directory)) {
+            buffer.appendAll(lines);
+            SpillReplayer replayer = new SpillReplayer(buffer, client, 100, Duration.ofSeconds(1));
+
+            // When
+            boolean drained = replayer.replayNow();
+
+            // Then
+            assertTrue(drained);
+            assertEquals(lines(9), stub.getRecords());
+            assertEquals(9, replayer.getLinesReplayed());
+            assertEquals(1, replayer.getLinesQuarantined());
+            assertEquals(List.of("poison value=x 1"),
+                    Files.readAllLines(directory.resolve(SpillReplayer.QUARANTINE_FILE)));
+            replayer.close();
+        }
+    }
+
+    /**
+     * Client failing writes that contain the marker with a 400, as the server does for unparsable lines
+     */
+    private static InfluxDBClient rejecting(InfluxDBClient delegate, String marker) {
+        return (InfluxDBClient) Proxy.newProxyInstance(InfluxDBClient.class.getClassLoader(),
+                new Class<?>[]{InfluxDBClient.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("writeRecords")
+                            && ((List<?>) args[0]).stream().anyMatch(line -> line.toString().startsWith(marker))) {
+                        throw new InfluxDBApiHttpException("Unable to parse line", null, 400);
+                    }
+                    try {
+                        return method.invoke(delegate, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBApiHttpException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("StripedIngestBuffer Tests")
+class StripedIngestBufferTest {
+
+    private StripedIngestBuffer buffer;
+    private Path directory;
+
+    @AfterEach
+    void tearDown() throws InterruptedException, IOException {
+        if (buffer != null) {
+            buffer.close();
+        }
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static String line(int producer, int i) {
+        return "temperature,sensor_id=TH" + producer + " value=" + i + ".5 " + (1_700_000_000_000_000_000L + i);
+    }
+
+    @Test
+    @DisplayName("Given many producer threads, When offering lines, Then every line should be written once in bounded batches")
+    void givenManyProducerThreads_WhenOfferingLines_ThenEveryLineShouldBeWrittenOnce() throws InterruptedException {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient();
+        buffer = new StripedIngestBuffer(stub.client(), 4, 64, 2, StripedIngestBuffer.Overflow.BLOCK, null,
+                100, Duration.ofMillis(5), Duration.ofSeconds(5));
+        int producers = 8;
+        int perProducer = 2_000;
+
+        // When
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    assertTrue(buffer.offer(line(producer, i)));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        buffer.flush();
+
+        // Then
+        Set<String> written = new HashSet<>(stub.getRecords());
+        assertEquals(producers * perProducer, stub.getRecords().size());
+        assertEquals(producers * perProducer, written.size());
+        assertEquals(producers * perProducer, buffer.getLinesWritten());
+        assertEquals(0, buffer.getLinesDropped());
+        assertEquals(0, buffer.getQueueSize());
+        assertTrue(buffer.getBatchesWritten() >= producers * perProducer / 100);
+    }
+
+    @Test
+    @DisplayName("Given producers offering while the buffer closes, When close returns, Then every accepted line should have been written")
+    void givenProducersOfferingWhileClosing_WhenCloseReturns_ThenEveryAcceptedLineShouldBeWritten() throws InterruptedException {
+        // Given: a slow server and a tiny stripe, so producers are still waiting on it when close() drains it
+        StubInfluxDBClient stub = new StubInfluxDBClient().withWriteLatency(2);
+        buffer = new StripedIngestBuffer(stub.client(), 1, 2, 1, StripedIngestBuffer.Overflow.BLOCK, null,
+                1, Duration.ofMillis(1), Duration.ofSeconds(5));
+        AtomicInteger accepted = new AtomicInteger();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 8; p++) {
+            int producer = p;
+            producers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    for (int i = 0; buffer.offer(line(producer, i)); i++) {
+                        accepted.incrementAndGet();
+                    }
+                } catch (IllegalStateException e) {
+                    // Closed
+                }
+            }));
+        }
+        Thread.sleep(20);
+
+        // When
+        buffer.close();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        // Then
+        assertTrue(accepted.get() > 0);
+        assertEquals(accepted.get(), stub.getRecords().size());
+        assertEquals(accepted.get(), buffer.getLinesWritten());
+    }
+
+    @Test
+    @DisplayName("Given drop-oldest policy and a slow server, When a stripe fills up, Then the oldest lines should be dropped")
+    void givenDropOldestPolicy_WhenStripeFillsUp_ThenOldestLinesShouldBeDropped() throws InterruptedException {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient().withWriteLatency(300);
+        buffer = new StripedIngestBuffer(stub.client(), 1, 4, 1, StripedIngestBuffer.Overflow.DROP_OLDEST, null,
+                2, Duration.ZERO, Duration.ofSeconds(5));
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            assertTrue(buffer.offer(line(0, i)));
+        }
+        buffer.flush();
+
+        // Then
+        assertEquals(20, buffer.getLinesOffered());
+        assertTrue(buffer.getLinesDropped() > 0);
+        assertEquals(20, buffer.getLinesWritten() + buffer.getLinesDropped());
+        assertEquals(line(0, 19), stub.getRecords().get(stub.getRecords().size() - 1));
+    }
+
+    @Test
+    @DisplayName("Given block policy and a stalled server, When the enqueue timeout passes, Then the line should be refused")
+    void givenBlockPolicy_WhenEnqueueTimeoutPasses_ThenLineShouldBeRefused() throws InterruptedException {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient().withWriteLatency(500);
+        buffer = new StripedIngestBuffer(stub.client(), 1, 2, 1, StripedIngestBuffer.Overflow.BLOCK, null,
+                1, Duration.ZERO, Duration.ofMillis(50));
+
+        // When
+        int refused = 0;
+        for (int i = 0; i < 10; i++) {
+            if (!buffer.offer(line(0, i))) {
+                refused++;
+            }
+        }
+
+        // Then
+        assertTrue(refused > 0);
+        assertEquals(refused, buffer.getLinesDropped());
+        assertTrue(buffer.getProducerWaits() >= refused);
+    }
+
+    @Test
+    @DisplayName("Given spill policy and a failing server, When writing, Then failed batches should be spilled")
+    void givenSpillPolicy_WhenServerFails_ThenFailedBatchesShouldBeSpilled() throws InterruptedException, IOException {
+        // Given
+        directory = Files.createTempDirectory("ingest-spill-test");
+        StubInfluxDBClient stub = new StubInfluxDBClient().failWritesWith(new IllegalStateException("unavailable"));
+        try (SpillBuffer spill = new SpillBuffer(directory)) {
+            buffer = new StripedIngestBuffer(stub.client(), 2, 16, 1, StripedIngestBuffer.Overflow.SPILL, spill,
+                    10, Duration.ofMillis(5), Duration.ofSeconds(5));
+
+            // When
+            for (int i = 0; i < 100; i++) {
+                assertTrue(buffer.offer(line(0, i)));
+            }
+            buffer.flush();
+
+            // Then
+            assertEquals(0, buffer.getLinesWritten());
+            assertEquals(100, buffer.getLinesSpilled());
+            assertEquals(100, spill.getLinesSpilled());
+            assertInstanceOf(IllegalStateException.class, buffer.getLastError());
+        }
+    }
+
+    @Test
+    @DisplayName("Given spill buffer, When server rejects the lines, Then they should be counted as rejected and not spilled")
+    void givenSpillBuffer_WhenServerRejectsLines_ThenShouldBeCountedAsRejectedAndNotSpilled() throws InterruptedException, IOException {
+        // Given
+        directory = Files.createTempDirectory("ingest-spill-test");
+        StubInfluxDBClient stub = new StubInfluxDBClient()
+                .failWritesWith(new InfluxDBApiHttpException("Unable to parse line", null, 400));
+        try (SpillBuffer spill = new SpillBuffer(directory)) {
+            buffer = new StripedIngestBuffer(stub.client(), 2, 16, 1, StripedIngestBuffer.Overflow.BLOCK, spill,
+                    10, Duration.ofMillis(5), Duration.ofSeconds(5));
+
+            // When
+            for (int i = 0; i < 30; i++) {
+                assertTrue(buffer.offer(line(0, i)));
+            }
+            buffer.flush();
+
+            // Then
+            assertEquals(30, buffer.getLinesRejected());
+            assertEquals(0, buffer.getLinesSpilled());
+            assertEquals(0, buffer.getLinesDropped());
+            assertFalse(spill.hasPending());
+        }
+    }
+}
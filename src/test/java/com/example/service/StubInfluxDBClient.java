@@ -0,0 +1,222 @@
+package com.example.service;
+
+import com.influxdb.v3.client.InfluxDBClient;
+import com.influxdb.v3.client.Point;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * In-process stand-in for InfluxDBClient that records writes and serves canned query rows
+ * Built on a dynamic proxy so it does not depend on every method of the client interface
+ */
+public class StubInfluxDBClient implements InvocationHandler {
+
+    /**
+     * Simulated server latency of one write; may throw to simulate a rejection, e.g. a 429 when overloaded
+     */
+    @FunctionalInterface
+    public interface LatencyCurve {
+        long latencyMillis(int points, int concurrentWrites);
+    }
+
+    /**
+     * Runs before every write and query with the operation and a call number counted from 1 across both;
+     * may sleep or throw to simulate a slow or failing server
+     */
+    @FunctionalInterface
+    public interface FaultInjector {
+        void beforeCall(String operation, int call) throws InterruptedException;
+    }
+
+    private final List<List<Point>> pointBatches = new CopyOnWriteArrayList<>();
+    private final List<String> records = new CopyOnWriteArrayList<>();
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+    private final AtomicInteger writeCalls = new AtomicInteger();
+    private final AtomicInteger concurrentWrites = new AtomicInteger();
+    private final AtomicInteger maxConcurrentWrites = new AtomicInteger();
+
+    private volatile LatencyCurve latencyCurve = (points, concurrent) -> 0;
+    private volatile RuntimeException writeFailure;
+    private volatile BiFunction<String, Map<String, Object>, List<Object[]>> queryResponder = (sql, params) -> List.of();
+    private volatile long queryLatencyMillis;
+    private final AtomicInteger openQueries = new AtomicInteger();
+    private final AtomicInteger maxOpenQueries = new AtomicInteger();
+    private volatile Function<String, List<VectorSchemaRoot>> batchResponder = sql -> List.of();
+    private volatile boolean closed;
+    private volatile FaultInjector faultInjector = (operation, call) -> { };
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final InfluxDBClient client = (InfluxDBClient) Proxy.newProxyInstance(
+            InfluxDBClient.class.getClassLoader(), new Class<?>[]{InfluxDBClient.class}, this);
+
+    public InfluxDBClient client() {
+        return client;
+    }
+
+    public StubInfluxDBClient withWriteLatency(long millis) {
+        return withWriteLatencyCurve((points, concurrent) -> millis);
+    }
+
+    public StubInfluxDBClient withWriteLatencyCurve(LatencyCurve latencyCurve) {
+        this.latencyCurve = latencyCurve;
+        return this;
+    }
+
+    public StubInfluxDBClient failWritesWith(RuntimeException failure) {
+        this.writeFailure = failure;
+        return this;
+    }
+
+    public StubInfluxDBClient respondToQueries(Function<String, List<Object[]>> responder) {
+        this.queryResponder = (sql, params) -> responder.apply(sql);
+        return this;
+    }
+
+    /**
+     * Responds from the SQL and its parameters; an empty map when the query had none
+     */
+    public StubInfluxDBClient respondToQueries(BiFunction<String, Map<String, Object>, List<Object[]>> responder) {
+        this.queryResponder = responder;
+        return this;
+    }
+
+    public StubInfluxDBClient withQueryLatency(long millis) {
+        this.queryLatencyMillis = millis;
+        return this;
+    }
+
+    public StubInfluxDBClient injectFaults(FaultInjector faultInjector) {
+        this.faultInjector = faultInjector;
+        return this;
+    }
+
+    public StubInfluxDBClient respondToBatchQueries(Function<String, List<VectorSchemaRoot>> responder) {
+        this.batchResponder = responder;
+        return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "writePoint":
+                beforeWrite(1);
+                pointBatches.add(List.of((Point) args[0]));
+                return null;
+            case "writePoints":
+                beforeWrite(((List<?>) args[0]).size());
+                pointBatches.add(new ArrayList<>((List<Point>) args[0]));
+                return null;
+            case "writeRecord":
+                beforeWrite(1);
+                records.add((String) args[0]);
+                return null;
+            case "writeRecords":
+                beforeWrite(((List<?>) args[0]).size());
+                records.addAll((List<String>) args[0]);
+                return null;
+            case "query": {
+                queries.add((String) args[0]);
+                Map<String, Object> params = args.length > 1 && args[1] instanceof Map<?, ?> map
+                        ? (Map<String, Object>) map : Map.of();
+                int open = openQueries.incrementAndGet();
+                maxOpenQueries.accumulateAndGet(open, Math::max);
+                try {
+                    faultInjector.beforeCall(method.getName(), calls.incrementAndGet());
+                    if (queryLatencyMillis > 0) {
+                        Thread.sleep(queryLatencyMillis);
+                    }
+                    // Counted as open until the caller closes the result stream
+                    return queryResponder.apply((String) args[0], params).stream()
+                            .onClose(openQueries::decrementAndGet);
+                } catch (RuntimeException | InterruptedException e) {
+                    openQueries.decrementAndGet();
+                    throw e;
+                }
+            }
+            case "queryBatches":
+                queries.add((String) args[0]);
+                faultInjector.beforeCall(method.getName(), calls.incrementAndGet());
+                return batchResponder.apply((String) args[0]).stream();
+            case "close":
+                closed = true;
+                return null;
+            case "toString":
+                return "StubInfluxDBClient";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    private void beforeWrite(int points) throws InterruptedException {
+        writeCalls.incrementAndGet();
+        faultInjector.beforeCall("write", calls.incrementAndGet());
+        int concurrent = concurrentWrites.incrementAndGet();
+        maxConcurrentWrites.accumulateAndGet(concurrent, Math::max);
+        try {
+            long latencyMillis = latencyCurve.latencyMillis(points, concurrent);
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+        } finally {
+            concurrentWrites.decrementAndGet();
+        }
+        RuntimeException failure = writeFailure;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public List<List<Point>> getPointBatches() {
+        return pointBatches;
+    }
+
+    public int getPointCount() {
+        return pointBatches.stream().mapToInt(List::size).sum();
+    }
+
+    public List<String> getRecords() {
+        return records;
+    }
+
+    public List<String> getQueries() {
+        return queries;
+    }
+
+    public int getWriteCalls() {
+        return writeCalls.get();
+    }
+
+    /**
+     * Query result streams not closed yet
+     */
+    public int getOpenQueries() {
+        return openQueries.get();
+    }
+
+    public int getMaxOpenQueries() {
+        return maxOpenQueries.get();
+    }
+
+    public int getMaxConcurrentWrites() {
+        return maxConcurrentWrites.get();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
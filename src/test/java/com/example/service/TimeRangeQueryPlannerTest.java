@@ -0,0 +1,207 @@
+package com.example.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TimeRangeQueryPlanner Tests")
+class TimeRangeQueryPlannerTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant END = START.plus(Duration.ofDays(366));
+
+    /**
+     * Rows of one sub-range: its start hour number followed by a sequence number
+     */
+    private static List<Object[]> rowsFor(Map<String, Object> params, int rowsPerRange) {
+        long startHour = Duration.between(START, Instant.parse((String) params.get("start"))).toHours();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < rowsPerRange; i++) {
+            rows.add(new Object[]{startHour, i});
+        }
+        return rows;
+    }
+
+    @Test
+    @DisplayName("Given a year, When splitting into partitions, Then sub-ranges should be adjacent and cover the range")
+    void givenYear_WhenSplitting_ThenSubRangesShouldBeAdjacentAndCoverRange() {
+        // When
+        List<TimeRangeQueryPlanner.TimeRange> ranges = TimeRangeQueryPlanner.split(START, END, 7);
+
+        // Then
+        assertEquals(7, ranges.size());
+        assertEquals(START, ranges.get(0).start());
+        assertEquals(END, ranges.get(6).end());
+        for (int i = 1; i < ranges.size(); i++) {
+            assertEquals(ranges.get(i - 1).end(), ranges.get(i).start());
+            long width = Duration.between(ranges.get(i).start(), ranges.get(i).end()).toNanos();
+            assertTrue(Math.abs(width - Duration.between(START, END).toNanos() / 7) <= 1);
+        }
+        assertEquals(3, TimeRangeQueryPlanner.split(START, START.plusNanos(3), 8).size());
+        assertThrows(IllegalArgumentException.class, () -> TimeRangeQueryPlanner.split(END, START, 4));
+    }
+
+    @Test
+    @DisplayName("Given partial aggregates per sub-range, When aggregating, Then groups should merge into exact mean, count, min and max")
+    void givenPartialAggregatesPerSubRange_WhenAggregating_ThenGroupsShouldMergeExactly() throws Exception {
+        // Given: warehouse has data in every sub-range, office only in the first
+        StubInfluxDBClient stub = new StubInfluxDBClient().respondToQueries((sql, params) ->
+                params.get("start").equals(START.toString())
+                        ? List.of(new Object[]{"warehouse", 30.0, 3L, 5.0, 15.0}, new Object[]{"office", 40.0, 2L, 19.0, 21.0})
+                        : List.<Object[]>of(new Object[]{"warehouse", 10.0, 1L, 10.0, 10.0}));
+
+        // When
+        List<TimeRangeQueryPlanner.GroupStats> groups;
+        try (TimeRangeQueryPlanner planner = new TimeRangeQueryPlanner(stub.client())) {
+            groups = planner.aggregate("temperature", "value", List.of("location"), "sensor_id = $sensor",
+                    Map.of("sensor", "TH01"), START, END, 4);
+        }
+
+        // Then
+        assertEquals(4, stub.getQueries().size());
+        assertEquals("SELECT \"location\", SUM(\"value\"), COUNT(\"value\"), MIN(\"value\"), MAX(\"value\") "
+                        + "FROM \"temperature\" WHERE time >= $start AND time < $end AND (sensor_id = $sensor) "
+                        + "GROUP BY \"location\"",
+                stub.getQueries().get(0));
+        assertEquals(2, groups.size());
+        TimeRangeQueryPlanner.GroupStats warehouse = groups.get(0);
+        assertEquals(List.of("warehouse"), warehouse.group());
+        assertEquals(6, warehouse.count());
+        assertEquals(60.0 / 6, warehouse.mean(), 1e-9);
+        assertEquals(5.0, warehouse.min());
+        assertEquals(15.0, warehouse.max());
+        assertEquals(20.0, groups.get(1).mean(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Given empty sub-ranges without GROUP BY, When aggregating, Then only sub-ranges with rows should count")
+    void givenEmptySubRangesWithoutGroupBy_WhenAggregating_ThenOnlySubRangesWithRowsShouldCount() throws Exception {
+        // Given: an ungrouped aggregate still returns a row, with a zero count, for a sub-range without data
+        StubInfluxDBClient stub = new StubInfluxDBClient().respondToQueries((sql, params) ->
+                params.get("start").equals(START.toString())
+                        ? List.<Object[]>of(new Object[]{12.0, 4L, 1.0, 5.0})
+                        : List.<Object[]>of(new Object[]{null, 0L, null, null}));
+
+        // When
+        List<TimeRangeQueryPlanner.GroupStats> groups;
+        try (TimeRangeQueryPlanner planner = new TimeRangeQueryPlanner(stub.client())) {
+            groups = planner.aggregate("temperature", "value", List.of(), null, Map.of(), START, END, 3);
+        }
+
+        // Then
+        assertEquals(1, groups.size());
+        assertEquals(List.of(), groups.get(0).group());
+        assertEquals(3.0, groups.get(0).mean(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Given more sub-ranges than the budget, When streaming rows, Then rows should arrive in sub-range order within the budget")
+    void givenMoreSubRangesThanBudget_WhenStreamingRows_ThenRowsShouldArriveInOrderWithinBudget() {
+        // Given: small read-ahead buffers, so sub-queries wait for the consumer while holding their permits
+        StubInfluxDBClient stub = new StubInfluxDBClient()
+                .withQueryLatency(5)
+                .respondToQueries((sql, params) -> rowsFor(params, 50));
+        String sql = "SELECT time, value FROM temperature WHERE time >= $start AND time < $end ORDER BY time";
+
+        // When
+        List<Object[]> rows;
+        try (TimeRangeQueryPlanner planner = new TimeRangeQueryPlanner(stub.client(), 2, 4);
+             Stream<Object[]> stream = planner.queryRows(sql, Map.of(), START, START.plus(Duration.ofHours(8)), 8)) {
+            rows = stream.toList();
+        }
+
+        // Then
+        assertEquals(400, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals((long) (i / 50), rows.get(i)[0], "Sub-ranges should be concatenated in time order");
+            assertEquals(i % 50, rows.get(i)[1]);
+        }
+        assertEquals(8, stub.getQueries().size());
+        assertTrue(stub.getMaxOpenQueries() <= 2, "Budget exceeded: " + stub.getMaxOpenQueries());
+    }
+
+    @Test
+    @DisplayName("Given consumer closing early, When streaming rows, Then sub-queries should stop and free the budget")
+    void givenConsumerClosingEarly_WhenStreamingRows_ThenSubQueriesShouldStopAndFreeBudget() {
+        // Given
+        StubInfluxDBClient stub = new StubInfluxDBClient().respondToQueries((sql, params) -> rowsFor(params, 1_000));
+
+        try (TimeRangeQueryPlanner planner = new TimeRangeQueryPlanner(stub.client(), 1, 8)) {
+            // When
+            try (Stream<Object[]> stream = planner.queryRows("SELECT 1", Map.of(), START, END, 50)) {
+                assertEquals(10, stream.limit(10).count());
+            }
+
+            // Then: the sub-queries of the closed stream stop, and another query can run
+            try (Stream<Object[]> stream = planner.queryRows("SELECT 1", Map.of(), START, START.plusSeconds(1), 1)) {
+                assertEquals(1_000, stream.count());
+            }
+        }
+        assertTrue(stub.getQueries().size() < 50, "Remaining sub-ranges should not be queried");
+    }
+
+    @Test
+    @DisplayName("Given two row streams with full read-ahead buffers, When they are read in turn, Then neither should wait on the other")
+    void givenTwoRowStreamsWithFullBuffers_WhenReadInTurn_ThenNeitherShouldWaitOnTheOther() {
+        // Given: one permit and tiny buffers, so each stream's sub-queries block on the consumer
+        StubInfluxDBClient stub = new StubInfluxDBClient().respondToQueries((sql, params) -> rowsFor(params, 20));
+        String sql = "SELECT time, value FROM temperature WHERE time >= $start AND time < $end";
+
+        try (TimeRangeQueryPlanner planner = new TimeRangeQueryPlanner(stub.client(), 1, 2);
+             Stream<Object[]> first = planner.queryRows(sql, Map.of(), START, START.plus(Duration.ofHours(2)), 2);
+             Stream<Object[]> second = planner.queryRows(sql, Map.of(), START, START.plus(Duration.ofHours(2)), 2)) {
+            Iterator<Object[]> firstRows = first.iterator();
+            Iterator<Object[]> secondRows = second.iterator();
+
+            // When
+            int rows = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                int read = 0;
+                while (firstRows.hasNext() && secondRows.hasNext()) {
+                    firstRows.next();
+                    secondRows.next();
+                    read += 2;
+                }
+                return read;
+            });
+
+            // Then
+            assertEquals(80, rows);
+            assertFalse(firstRows.hasNext() || secondRows.hasNext());
+            assertEquals(4, stub.getQueries().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Given failing sub-range, When streaming rows, Then rows before it should arrive and the failure should be rethrown")
+    void givenFailingSubRange_WhenStreamingRows_ThenFailureShouldBeRethrown() {
+        // Given
+        String thirdStart = TimeRangeQueryPlanner.split(START, END, 4).get(2).start().toString();
+        StubInfluxDBClient stub = new StubInfluxDBClient().respondToQueries((sql, params) -> {
+            if (params.get("start").equals(thirdStart)) {
+                throw new IllegalStateException("Query timed out");
+            }
+            return rowsFor(params, 10);
+        });
+
+        // When
+        List<Object[]> consumed = new ArrayList<>();
+        IllegalStateException failure;
+        try (TimeRangeQueryPlanner planner = new TimeRangeQueryPlanner(stub.client());
+             Stream<Object[]> stream = planner.queryRows("SELECT 1", Map.of(), START, END, 4)) {
+            failure = assertThrows(IllegalStateException.class, () -> stream.forEach(consumed::add));
+        }
+
+        // Then
+        assertEquals("Query timed out", failure.getMessage());
+        assertEquals(20, consumed.size());
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("WriteCompression Tests")
+class WriteCompressionTest {
+
+    private static String lines(int count) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                lines.append('\n');
+            }
+            lines.append("temperature,location=warehouse,sensor_id=TH").append(i % 64)
+                    .append(" value=").append(20.0 + i % 100 / 10.0).append(' ').append(1_714_558_530_000_000_000L + i);
+        }
+        return lines.toString();
+    }
+
+    private static String gunzip(WriteCompression.Payload payload) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(payload.bytes(), 0, payload.length()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    @DisplayName("Given payloads around the threshold, When encoding, Then only large ones should be gzipped and counted")
+    void givenPayloadsAroundThreshold_WhenEncoding_ThenOnlyLargeOnesShouldBeGzipped() throws IOException {
+        // Given
+        WriteCompression compression = new WriteCompression(1_000, 6);
+        String small = lines(2);
+        String large = lines(5_000);
+
+        // When
+        WriteCompression.Payload smallPayload = compression.encode(small);
+        assertFalse(smallPayload.gzipped());
+        assertEquals(small, new String(smallPayload.bytes(), 0, smallPayload.length(), StandardCharsets.UTF_8));
+
+        WriteCompression.Payload largePayload = compression.encode(large);
+
+        // Then
+        assertTrue(largePayload.gzipped());
+        assertEquals(large.length(), largePayload.rawLength());
+        assertTrue(largePayload.length() < large.length() / 5, "Line protocol should shrink at least 5x");
+        assertEquals(large, gunzip(largePayload));
+
+        assertEquals(2, compression.getRequests());
+        assertEquals(1, compression.getCompressedRequests());
+        assertEquals(small.length() + large.length(), compression.getRawBytes());
+        assertEquals(small.length() + largePayload.length(), compression.getSentBytes());
+        assertTrue(compression.ratio() < 0.2);
+    }
+
+    @Test
+    @DisplayName("Given a closed payload, When encoding again, Then it and its buffers should be reused")
+    void givenClosedPayload_WhenEncodingAgain_ThenItAndItsBuffersShouldBeReused() throws IOException {
+        // Given
+        WriteCompression compression = new WriteCompression(0, 1);
+        String batch = lines(1_000);
+        WriteCompression.Payload first = compression.encode(batch);
+        byte[] buffer = first.bytes();
+        byte[] compressed = Arrays.copyOf(buffer, first.length());
+        first.close();
+
+        // When
+        WriteCompression.Payload second = compression.encode(batch);
+
+        // Then
+        assertSame(first, second, "The returned payload should be reused");
+        assertSame(buffer, second.bytes(), "Buffers should not be reallocated for a payload of the same size");
+        assertArrayEquals(compressed, Arrays.copyOf(second.bytes(), second.length()));
+        assertEquals(batch, gunzip(second));
+    }
+
+    @Test
+    @DisplayName("Given records with non-ASCII tags, When encoding a list, Then they should be joined as UTF-8")
+    void givenRecordsWithNonAsciiTags_WhenEncodingList_ThenTheyShouldBeJoinedAsUtf8() throws IOException {
+        // Given
+        WriteCompression compression = new WriteCompression(0, 9);
+        List<String> records = List.of("temperature,location=Zürich value=1 1", "",
+                "temperature,location=東京 value=2 2", "temperature,location=🌡 value=3 3");
+
+        // When
+        WriteCompression.Payload payload = compression.encode(records);
+
+        // Then
+        String expected = "temperature,location=Zürich value=1 1\ntemperature,location=東京 value=2 2\n"
+                + "temperature,location=🌡 value=3 3";
+        assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, payload.rawLength());
+        assertEquals(expected, gunzip(payload));
+        assertThrows(IllegalArgumentException.class, () -> new WriteCompression(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new WriteCompression(-1, 6));
+    }
+
+    @Test
+    @DisplayName("Given more payloads in flight than the pool holds, When closing them, Then only the pool size should be kept")
+    void givenMorePayloadsInFlightThanPoolHolds_WhenClosing_ThenOnlyPoolSizeShouldBeKept() {
+        // Given
+        WriteCompression compression = new WriteCompression(0, 6, 2);
+        List<WriteCompression.Payload> inFlight = List.of(compression.encode("a value=1 1"),
+                compression.encode("b value=2 2"), compression.encode("c value=3 3"));
+        assertEquals(3, inFlight.stream().distinct().count(), "Payloads in flight should not be shared");
+
+        // When
+        inFlight.forEach(WriteCompression.Payload::close);
+        inFlight.get(0).close();
+
+        // Then
+        assertEquals(2, compression.pooled());
+        WriteCompression.Payload reused = compression.encode("d value=4 4");
+        assertTrue(inFlight.subList(0, 2).contains(reused), "Pooled payloads should be borrowed first");
+        assertEquals(1, compression.pooled());
+        assertThrows(IllegalArgumentException.class, () -> new WriteCompression(0, 6, 0));
+    }
+}